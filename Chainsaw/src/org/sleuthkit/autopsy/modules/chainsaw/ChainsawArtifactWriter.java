@@ -0,0 +1,177 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2021 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.modules.chainsaw;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.logging.Level;
+import org.sleuthkit.autopsy.coreutils.Logger;
+import org.sleuthkit.datamodel.Blackboard;
+import org.sleuthkit.datamodel.BlackboardArtifact;
+import org.sleuthkit.datamodel.BlackboardAttribute;
+import org.sleuthkit.datamodel.Content;
+import org.sleuthkit.datamodel.SleuthkitCase;
+import org.sleuthkit.datamodel.SleuthkitCase.CaseDbTransaction;
+import org.sleuthkit.datamodel.TskCoreException;
+
+/**
+ * Creates detection artifacts on a data source in batches. The artifacts of
+ * a batch, each with its attributes, are created in one case database
+ * transaction, and the batch is posted to the blackboard as soon as the
+ * transaction is committed, so nothing is held in memory beyond one batch.
+ *
+ * If creating an artifact fails the batch is rolled back and its artifacts
+ * are created one at a time instead, so one bad row does not lose the rest
+ * of the batch.
+ */
+final class ChainsawArtifactWriter {
+
+    private static final Logger logger = Logger.getLogger(ChainsawArtifactWriter.class.getName());
+
+    private final SleuthkitCase caseDb;
+    private final Blackboard blackboard;
+    private final Content dataSource;
+    private final int batchSize;
+    private final String moduleName;
+
+    private final List<PendingArtifact> pendingArtifacts = new ArrayList<>();
+    private final List<BlackboardArtifact> batchArtifacts = new ArrayList<>();
+    private CaseDbTransaction transaction;
+    private boolean transactionFailed;
+
+    /**
+     * Create a writer.
+     *
+     * @param caseDb     the case database
+     * @param dataSource the data source the artifacts are added to
+     * @param batchSize  number of artifacts per transaction and post
+     * @param moduleName the module posting the artifacts
+     */
+    ChainsawArtifactWriter(SleuthkitCase caseDb, Content dataSource, int batchSize, String moduleName) {
+        this.caseDb = caseDb;
+        this.blackboard = caseDb.getBlackboard();
+        this.dataSource = dataSource;
+        this.batchSize = Math.max(1, batchSize);
+        this.moduleName = moduleName;
+    }
+
+    /**
+     * Add an artifact to the current batch, committing and posting the batch
+     * once it is full. Rows with no attributes are skipped.
+     *
+     * @param artifactType the artifact type
+     * @param attributes   the attributes of the artifact
+     */
+    void addArtifact(BlackboardArtifact.Type artifactType, Collection<BlackboardAttribute> attributes) {
+        if (attributes.isEmpty()) {
+            return;
+        }
+
+        pendingArtifacts.add(new PendingArtifact(artifactType, attributes));
+        if (!transactionFailed) {
+            try {
+                if (transaction == null) {
+                    transaction = caseDb.beginTransaction();
+                }
+                batchArtifacts.add(blackboard.newDataArtifact(artifactType, dataSource.getId(), dataSource.getId(), attributes, null, transaction));
+            } catch (TskCoreException | Blackboard.BlackboardException ex) {
+                logger.log(Level.WARNING, "Error creating chainsaw artifacts in a transaction, creating the batch one at a time", ex); //NON-NLS
+                rollback();
+                transactionFailed = true;
+            }
+        }
+
+        if (pendingArtifacts.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * Commit and post the current batch.
+     */
+    void flush() {
+        if (pendingArtifacts.isEmpty()) {
+            return;
+        }
+
+        if (!transactionFailed) {
+            try {
+                transaction.commit();
+                transaction = null;
+            } catch (TskCoreException ex) {
+                logger.log(Level.WARNING, "Error committing chainsaw artifacts, creating the batch one at a time", ex); //NON-NLS
+                rollback();
+                transactionFailed = true;
+            }
+        }
+
+        if (transactionFailed) {
+            createOneAtATime();
+        }
+
+        try {
+            blackboard.postArtifacts(batchArtifacts, moduleName);
+        } catch (Blackboard.BlackboardException ex) {
+            logger.log(Level.SEVERE, Bundle.ChainsawFileProcessor_postartifacts_error(), ex); //NON-NLS
+        }
+
+        pendingArtifacts.clear();
+        batchArtifacts.clear();
+        transactionFailed = false;
+    }
+
+    private void rollback() {
+        batchArtifacts.clear();
+        if (transaction == null) {
+            return;
+        }
+        try {
+            transaction.rollback();
+        } catch (TskCoreException ex) {
+            logger.log(Level.SEVERE, "Error rolling back chainsaw artifact transaction", ex); //NON-NLS
+        }
+        transaction = null;
+    }
+
+    private void createOneAtATime() {
+        for (PendingArtifact pendingArtifact : pendingArtifacts) {
+            try {
+                batchArtifacts.add(dataSource.newDataArtifact(pendingArtifact.artifactType, pendingArtifact.attributes));
+            } catch (TskCoreException ex) {
+                logger.log(Level.WARNING, "Chainsaw Error creating artifacts with attributes", ex); //NON-NLS
+            }
+        }
+    }
+
+    /**
+     * An artifact added to the current batch, kept so the batch can be
+     * created again if its transaction fails.
+     */
+    private static final class PendingArtifact {
+
+        private final BlackboardArtifact.Type artifactType;
+        private final Collection<BlackboardAttribute> attributes;
+
+        PendingArtifact(BlackboardArtifact.Type artifactType, Collection<BlackboardAttribute> attributes) {
+            this.artifactType = artifactType;
+            this.attributes = attributes;
+        }
+    }
+}
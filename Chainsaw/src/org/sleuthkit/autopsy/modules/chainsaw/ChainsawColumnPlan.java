@@ -0,0 +1,253 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2021 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.modules.chainsaw;
+
+import java.text.ParsePosition;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.logging.Level;
+import org.sleuthkit.autopsy.coreutils.Logger;
+import org.sleuthkit.datamodel.Blackboard;
+import org.sleuthkit.datamodel.BlackboardAttribute;
+import org.sleuthkit.datamodel.SleuthkitCase;
+import org.sleuthkit.datamodel.TskCoreException;
+
+/**
+ * The columns of a Chainsaw csv header compiled once into the attribute type
+ * and value conversion of each column, so rows can be turned into attributes
+ * without any per cell string work or database lookups.
+ *
+ * Attribute types are cached per case database, so a header that shows up in
+ * many csv files, or in many shards, is only resolved once.
+ */
+final class ChainsawColumnPlan {
+
+    private static final Logger logger = Logger.getLogger(ChainsawColumnPlan.class.getName());
+
+    private static final String ATTRIBUTE_PREFIX = "CS_"; //NON-NLS
+    private static final String SYSTEM_TIME = "SYSTEM_TIME"; //NON-NLS
+    private static final String ID = "ID"; //NON-NLS
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss", Locale.US);
+
+    private static final Map<SleuthkitCase, Map<String, BlackboardAttribute.Type>> ATTRIBUTE_TYPE_CACHE = new WeakHashMap<>();
+
+    private final String[] columnNames;
+    private final BlackboardAttribute.Type[] attributeTypes;
+    private final ColumnConverter[] converters;
+    private int systemTimeColumn = -1;
+
+    private ChainsawColumnPlan(int columnCount) {
+        columnNames = new String[columnCount];
+        attributeTypes = new BlackboardAttribute.Type[columnCount];
+        converters = new ColumnConverter[columnCount];
+    }
+
+    /**
+     * Compile a csv header row.
+     *
+     * @param headerItems the header row
+     * @param caseDb      the case database the attribute types belong to
+     *
+     * @return the compiled plan
+     */
+    static ChainsawColumnPlan compile(List<String> headerItems, SleuthkitCase caseDb) {
+        ChainsawColumnPlan plan = new ChainsawColumnPlan(headerItems.size());
+        for (int column = 0; column < headerItems.size(); column++) {
+            String header = headerItems.get(column) == null ? "" : headerItems.get(column);
+            plan.columnNames[column] = header.trim().toLowerCase();
+            plan.attributeTypes[column] = getOrAddAttributeType(caseDb, header);
+            plan.converters[column] = (plan.attributeTypes[column] == null)
+                    ? ColumnConverter.STRING
+                    : ColumnConverter.forValueType(plan.attributeTypes[column].getValueType());
+            if (plan.systemTimeColumn < 0 && plan.converters[column] == ColumnConverter.DATETIME
+                    && plan.columnNames[column].toUpperCase().contains(SYSTEM_TIME)) {
+                plan.systemTimeColumn = column;
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Get the attribute type for a header from the per case cache, looking it
+     * up or creating it the first time the header is seen.
+     */
+    private static BlackboardAttribute.Type getOrAddAttributeType(SleuthkitCase caseDb, String header) {
+        String upperHeader = header.toUpperCase();
+        BlackboardAttribute.TSK_BLACKBOARD_ATTRIBUTE_VALUE_TYPE valueType;
+        if (upperHeader.contains(SYSTEM_TIME)) {
+            valueType = BlackboardAttribute.TSK_BLACKBOARD_ATTRIBUTE_VALUE_TYPE.DATETIME;
+        } else if (upperHeader.equals(ID)) {
+            valueType = BlackboardAttribute.TSK_BLACKBOARD_ATTRIBUTE_VALUE_TYPE.INTEGER;
+        } else {
+            valueType = BlackboardAttribute.TSK_BLACKBOARD_ATTRIBUTE_VALUE_TYPE.STRING;
+        }
+        return getOrAddAttributeType(caseDb, header, valueType);
+    }
+
+    /**
+     * Get the CS_ attribute type for a name from the per case cache, looking
+     * it up or creating it with the given value type the first time the name
+     * is seen.
+     *
+     * @param caseDb    the case database
+     * @param header    the column or attribute name, without the CS_ prefix
+     * @param valueType the value type to create the attribute type with
+     *
+     * @return the attribute type, or null if it could not be created
+     */
+    static BlackboardAttribute.Type getOrAddAttributeType(SleuthkitCase caseDb, String header,
+            BlackboardAttribute.TSK_BLACKBOARD_ATTRIBUTE_VALUE_TYPE valueType) {
+        String typeName = ATTRIBUTE_PREFIX + header.toUpperCase();
+        synchronized (ATTRIBUTE_TYPE_CACHE) {
+            Map<String, BlackboardAttribute.Type> caseTypes = ATTRIBUTE_TYPE_CACHE.computeIfAbsent(caseDb, key -> new HashMap<>());
+            BlackboardAttribute.Type foundAttrType = caseTypes.get(typeName);
+            if (foundAttrType != null) {
+                return foundAttrType;
+            }
+
+            try {
+                foundAttrType = caseDb.getAttributeType(typeName);
+            } catch (TskCoreException ex) {
+                logger.log(Level.SEVERE, String.format("There was an issue that arose while trying to fetch attribute type for %s.", header), ex);
+            }
+
+            if (foundAttrType == null) {
+                try {
+                    foundAttrType = caseDb.getBlackboard().getOrAddAttributeType(typeName, valueType, header.replaceAll("_", " "));
+                } catch (Blackboard.BlackboardException ex) {
+                    logger.log(Level.WARNING, String.format("Failed to create custom attribute type %s.", typeName), ex);
+                    return null;
+                }
+            }
+
+            caseTypes.put(typeName, foundAttrType);
+            return foundAttrType;
+        }
+    }
+
+    /**
+     * @return the number of columns in the header
+     */
+    int size() {
+        return columnNames.length;
+    }
+
+    /**
+     * @return the index of the event time column, or -1 if there is none
+     */
+    int getSystemTimeColumn() {
+        return systemTimeColumn;
+    }
+
+    /**
+     * @param column the column index
+     *
+     * @return the trimmed, lower case header of the column
+     */
+    String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    /**
+     * @param column the column index
+     *
+     * @return the attribute type of the column, or null if it could not be
+     *         created
+     */
+    BlackboardAttribute.Type getAttributeType(int column) {
+        return attributeTypes[column];
+    }
+
+    /**
+     * Convert a cell to an attribute.
+     *
+     * @param column     the column index
+     * @param value      the cell value
+     * @param moduleName the module the attribute is created by
+     *
+     * @return the attribute, or null if the value is missing or can not be
+     *         converted to the column's type
+     */
+    BlackboardAttribute toAttribute(int column, String value, String moduleName) {
+        if (value == null || attributeTypes[column] == null) {
+            return null;
+        }
+        switch (converters[column]) {
+            case DATETIME:
+                Long dateTime = parseSystemTime(value);
+                return (dateTime == null) ? null : new BlackboardAttribute(attributeTypes[column], moduleName, dateTime);
+            case INTEGER:
+                try {
+                    return new BlackboardAttribute(attributeTypes[column], moduleName, Integer.parseInt(value.trim()));
+                } catch (NumberFormatException ex) {
+                    logger.log(Level.WARNING, String.format("Error parsing integer %s", value), ex);
+                    return null;
+                }
+            default:
+                return new BlackboardAttribute(attributeTypes[column], moduleName, value);
+        }
+    }
+
+    /**
+     * Parse a Chainsaw system time, which is the event's UTC creation time,
+     * to epoch seconds. Anything after the seconds, such as a fraction, is
+     * ignored.
+     *
+     * @param value the time as written by Chainsaw
+     *
+     * @return the epoch seconds, or null if the value is not a time
+     */
+    static Long parseSystemTime(String value) {
+        try {
+            TemporalAccessor parsed = TIMESTAMP_FORMAT.parse(value, new ParsePosition(0));
+            return LocalDateTime.from(parsed).toEpochSecond(ZoneOffset.UTC);
+        } catch (DateTimeException ex) {
+            logger.log(Level.WARNING, String.format("Error parsing date %s", value), ex);
+            return null;
+        }
+    }
+
+    /**
+     * How the cells of a column are turned into attribute values.
+     */
+    private enum ColumnConverter {
+        DATETIME,
+        INTEGER,
+        STRING;
+
+        static ColumnConverter forValueType(BlackboardAttribute.TSK_BLACKBOARD_ATTRIBUTE_VALUE_TYPE valueType) {
+            switch (valueType) {
+                case DATETIME:
+                    return DATETIME;
+                case INTEGER:
+                    return INTEGER;
+                default:
+                    return STRING;
+            }
+        }
+    }
+}
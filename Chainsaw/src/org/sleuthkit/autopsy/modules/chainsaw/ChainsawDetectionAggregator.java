@@ -0,0 +1,218 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2021 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.modules.chainsaw;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import org.sleuthkit.datamodel.BlackboardArtifact;
+import org.sleuthkit.datamodel.BlackboardAttribute;
+import org.sleuthkit.datamodel.SleuthkitCase;
+
+/**
+ * Combines detections of the same rule on the same computer for the same user
+ * within one time bucket into a single artifact. A noisy rule can match
+ * thousands of near identical events; aggregated, they become one artifact
+ * with a count, the first and last time seen and a sample of the event record
+ * ids, instead of one artifact each.
+ *
+ * The artifact of an aggregate carries the columns of its earliest detection,
+ * so it can still be searched and sorted like any other detection, plus the
+ * aggregate attributes. Aggregates are held until they are written, at the
+ * end of the hunt, as detections do not arrive in time order.
+ */
+final class ChainsawDetectionAggregator {
+
+    private static final int MAX_SAMPLE_RECORD_IDS = 20;
+    private static final String DETECTION_RULES = "detection_rules"; //NON-NLS
+    private static final List<String> COMPUTER_COLUMNS = Arrays.asList("computer_name", "computer"); //NON-NLS
+    private static final String USER_COLUMN_PART = "user"; //NON-NLS
+    private static final String DETECTION_COUNT = "detection_count"; //NON-NLS
+    private static final String FIRST_SEEN = "first_seen"; //NON-NLS
+    private static final String LAST_SEEN = "last_seen"; //NON-NLS
+    private static final String EVENT_RECORD_IDS = "event_record_ids"; //NON-NLS
+
+    private final SleuthkitCase caseDb;
+    private final long bucketSeconds;
+    private final String moduleName;
+    private final Map<ChainsawColumnPlan, KeyColumns> keyColumns = new IdentityHashMap<>();
+    private final Map<List<Object>, Aggregate> aggregates = new LinkedHashMap<>();
+
+    /**
+     * Create an aggregator.
+     *
+     * @param caseDb        the case database the aggregate attribute types
+     *                      are created in
+     * @param bucketSeconds length of the time buckets, in seconds
+     * @param moduleName    the module the attributes are created by
+     */
+    ChainsawDetectionAggregator(SleuthkitCase caseDb, long bucketSeconds, String moduleName) {
+        this.caseDb = caseDb;
+        this.bucketSeconds = Math.max(1, bucketSeconds);
+        this.moduleName = moduleName;
+    }
+
+    /**
+     * Add a detection to its aggregate. The key is the artifact type, the
+     * detection rules, the computer, the user and the time bucket; a column
+     * the detection does not have is left out of the key.
+     *
+     * @param artifactType the artifact type of the detection
+     * @param columnPlan   the compiled header row of the detection
+     * @param values       the column values of the detection
+     * @param attributes   the attributes made from the values, one per
+     *                     column
+     * @param recordId     the event record id of the detection, or
+     *                     Detection.UNKNOWN_RECORD_ID
+     */
+    void add(BlackboardArtifact.Type artifactType, ChainsawColumnPlan columnPlan, List<String> values,
+            List<BlackboardAttribute> attributes, long recordId) {
+        KeyColumns columns = keyColumns.computeIfAbsent(columnPlan, KeyColumns::new);
+        int systemTimeColumn = columnPlan.getSystemTimeColumn();
+        Long eventTime = (systemTimeColumn >= 0) ? attributes.get(systemTimeColumn).getValueLong() : null;
+
+        List<Object> key = Arrays.asList(artifactType.getTypeName(),
+                columns.value(columns.rulesColumn, values),
+                columns.value(columns.computerColumn, values),
+                columns.value(columns.userColumn, values),
+                (eventTime == null) ? null : Math.floorDiv(eventTime, bucketSeconds));
+        Aggregate aggregate = aggregates.get(key);
+        if (aggregate == null) {
+            aggregates.put(key, new Aggregate(artifactType, attributes, eventTime, recordId));
+        } else {
+            aggregate.add(attributes, eventTime, recordId);
+        }
+    }
+
+    /**
+     * Add an artifact for each aggregate to the writer's batches and forget
+     * the aggregates.
+     *
+     * @param artifactWriter the writer the artifacts are added to
+     */
+    void writeArtifacts(ChainsawArtifactWriter artifactWriter) {
+        BlackboardAttribute.Type countType = ChainsawColumnPlan.getOrAddAttributeType(caseDb, DETECTION_COUNT,
+                BlackboardAttribute.TSK_BLACKBOARD_ATTRIBUTE_VALUE_TYPE.INTEGER);
+        BlackboardAttribute.Type firstSeenType = ChainsawColumnPlan.getOrAddAttributeType(caseDb, FIRST_SEEN,
+                BlackboardAttribute.TSK_BLACKBOARD_ATTRIBUTE_VALUE_TYPE.DATETIME);
+        BlackboardAttribute.Type lastSeenType = ChainsawColumnPlan.getOrAddAttributeType(caseDb, LAST_SEEN,
+                BlackboardAttribute.TSK_BLACKBOARD_ATTRIBUTE_VALUE_TYPE.DATETIME);
+        BlackboardAttribute.Type recordIdsType = ChainsawColumnPlan.getOrAddAttributeType(caseDb, EVENT_RECORD_IDS,
+                BlackboardAttribute.TSK_BLACKBOARD_ATTRIBUTE_VALUE_TYPE.STRING);
+
+        for (Aggregate aggregate : aggregates.values()) {
+            List<BlackboardAttribute> attributes = new ArrayList<>(aggregate.attributes);
+            if (countType != null) {
+                attributes.add(new BlackboardAttribute(countType, moduleName, aggregate.count));
+            }
+            if (aggregate.firstSeen != null && firstSeenType != null && lastSeenType != null) {
+                attributes.add(new BlackboardAttribute(firstSeenType, moduleName, aggregate.firstSeen));
+                attributes.add(new BlackboardAttribute(lastSeenType, moduleName, aggregate.lastSeen));
+            }
+            if (!aggregate.sampleRecordIds.isEmpty() && recordIdsType != null) {
+                attributes.add(new BlackboardAttribute(recordIdsType, moduleName,
+                        aggregate.sampleRecordIds.stream().map(String::valueOf).collect(Collectors.joining(","))));
+            }
+            artifactWriter.addArtifact(aggregate.artifactType, attributes);
+        }
+        aggregates.clear();
+    }
+
+    /**
+     * The columns of a header row that make up the aggregation key.
+     */
+    private static final class KeyColumns {
+
+        private final int rulesColumn;
+        private final int computerColumn;
+        private final int userColumn;
+
+        private KeyColumns(ChainsawColumnPlan columnPlan) {
+            int rules = -1;
+            int computer = -1;
+            int user = -1;
+            for (int i = 0; i < columnPlan.size(); i++) {
+                String columnName = columnPlan.getColumnName(i).toLowerCase(Locale.US);
+                if (rules < 0 && columnName.equals(DETECTION_RULES)) {
+                    rules = i;
+                } else if (computer < 0 && COMPUTER_COLUMNS.contains(columnName)) {
+                    computer = i;
+                } else if (user < 0 && columnName.contains(USER_COLUMN_PART)) {
+                    user = i;
+                }
+            }
+            this.rulesColumn = rules;
+            this.computerColumn = computer;
+            this.userColumn = user;
+        }
+
+        private String value(int column, List<String> values) {
+            return (column < 0) ? null : values.get(column);
+        }
+    }
+
+    /**
+     * The detections aggregated under one key.
+     */
+    private static final class Aggregate {
+
+        private final BlackboardArtifact.Type artifactType;
+        private final TreeSet<Long> sampleRecordIds = new TreeSet<>();
+        private List<BlackboardAttribute> attributes;
+        private Long firstSeen;
+        private Long lastSeen;
+        private int count;
+
+        private Aggregate(BlackboardArtifact.Type artifactType, List<BlackboardAttribute> attributes, Long eventTime, long recordId) {
+            this.artifactType = artifactType;
+            this.attributes = attributes;
+            this.firstSeen = eventTime;
+            this.lastSeen = eventTime;
+            this.count = 1;
+            addRecordId(recordId);
+        }
+
+        private void add(List<BlackboardAttribute> detectionAttributes, Long eventTime, long recordId) {
+            count++;
+            if (eventTime != null) {
+                if (firstSeen == null || eventTime < firstSeen) {
+                    firstSeen = eventTime;
+                    attributes = detectionAttributes;
+                }
+                if (lastSeen == null || eventTime > lastSeen) {
+                    lastSeen = eventTime;
+                }
+            }
+            addRecordId(recordId);
+        }
+
+        private void addRecordId(long recordId) {
+            if (recordId != Detection.UNKNOWN_RECORD_ID
+                    && sampleRecordIds.size() < MAX_SAMPLE_RECORD_IDS) {
+                sampleRecordIds.add(recordId);
+            }
+        }
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2021 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.modules.chainsaw;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import org.sleuthkit.autopsy.coreutils.PlatformUtil;
+import org.sleuthkit.autopsy.ingest.IngestModuleIngestJobSettings;
+
+/**
+ * Ingest job settings for the Chainsaw module.
+ */
+public final class ChainsawIngestJobSettings implements IngestModuleIngestJobSettings {
+
+    private static final long serialVersionUID = 1L;
+    // Version 1 only had the hunt process count; settings saved by it have
+    // no version number
+    private static final long CURRENT_VERSION_NUMBER = 2;
+    private static final int DEFAULT_ARTIFACT_BATCH_SIZE = 1000;
+    private static final int DEFAULT_AGGREGATION_BUCKET_MINUTES = 60;
+
+    private long versionNumber;
+    private int huntProcessCount;
+    private boolean huntInProcess;
+    private boolean cacheHuntResults;
+    private int artifactBatchSize;
+    private boolean timeWindowEnabled;
+    private long timeWindowStart;
+    private long timeWindowEnd;
+    private boolean aggregateDetections;
+    private int aggregationBucketMinutes;
+    private boolean carveUnallocated;
+
+    /**
+     * Create the default settings: one hunt process per available processor,
+     * hunting in process where the Chainsaw executable can not run. Hunt
+     * results are not cached unless asked for, as the cache is shared by all
+     * cases.
+     */
+    ChainsawIngestJobSettings() {
+        this.versionNumber = CURRENT_VERSION_NUMBER;
+        this.huntProcessCount = defaultHuntProcessCount();
+        setNewFieldDefaults();
+    }
+
+    @Override
+    public long getVersionNumber() {
+        return versionNumber;
+    }
+
+    /**
+     * Set the defaults of the settings added after version 1.
+     */
+    private void setNewFieldDefaults() {
+        this.huntInProcess = !PlatformUtil.isWindowsOS();
+        this.cacheHuntResults = false;
+        this.artifactBatchSize = DEFAULT_ARTIFACT_BATCH_SIZE;
+        this.timeWindowEnabled = false;
+        this.aggregateDetections = false;
+        this.aggregationBucketMinutes = DEFAULT_AGGREGATION_BUCKET_MINUTES;
+        this.carveUnallocated = false;
+    }
+
+    /**
+     * Give settings saved by an older version the defaults of the settings
+     * it did not have, instead of false and 0.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (versionNumber < CURRENT_VERSION_NUMBER) {
+            setNewFieldDefaults();
+            versionNumber = CURRENT_VERSION_NUMBER;
+        }
+    }
+
+    /**
+     * @return the number of Chainsaw hunt processes to run at the same time,
+     *         each over its own share of the event logs, or the number of
+     *         threads chunks are hunted on when hunting in process
+     */
+    int getHuntProcessCount() {
+        return huntProcessCount < 1 ? defaultHuntProcessCount() : huntProcessCount;
+    }
+
+    /**
+     * @param huntProcessCount the number of Chainsaw hunt processes to run at
+     *                         the same time
+     */
+    void setHuntProcessCount(int huntProcessCount) {
+        this.huntProcessCount = huntProcessCount;
+    }
+
+    /**
+     * @return true if the event logs should be hunted with the built in Sigma
+     *         engine instead of the Chainsaw executable
+     */
+    boolean isHuntInProcess() {
+        return huntInProcess;
+    }
+
+    /**
+     * @param huntInProcess true to hunt with the built in Sigma engine
+     */
+    void setHuntInProcess(boolean huntInProcess) {
+        this.huntInProcess = huntInProcess;
+    }
+
+    /**
+     * @return true if the detections found in each event log should be
+     *         cached, so logs already hunted with the same rules are not
+     *         hunted again
+     */
+    boolean isCacheHuntResults() {
+        return cacheHuntResults;
+    }
+
+    /**
+     * @param cacheHuntResults true to cache the detections found in each
+     *                         event log
+     */
+    void setCacheHuntResults(boolean cacheHuntResults) {
+        this.cacheHuntResults = cacheHuntResults;
+    }
+
+    /**
+     * @return the number of artifacts created in one database transaction
+     *         and posted to the blackboard together
+     */
+    int getArtifactBatchSize() {
+        return artifactBatchSize < 1 ? DEFAULT_ARTIFACT_BATCH_SIZE : artifactBatchSize;
+    }
+
+    /**
+     * @param artifactBatchSize the number of artifacts created in one
+     *                          database transaction
+     */
+    void setArtifactBatchSize(int artifactBatchSize) {
+        this.artifactBatchSize = artifactBatchSize;
+    }
+
+    /**
+     * @return true if only events in the time window should be hunted
+     */
+    boolean isTimeWindowEnabled() {
+        return timeWindowEnabled;
+    }
+
+    /**
+     * @param timeWindowEnabled true to only hunt events in the time window
+     */
+    void setTimeWindowEnabled(boolean timeWindowEnabled) {
+        this.timeWindowEnabled = timeWindowEnabled;
+    }
+
+    /**
+     * @return the start of the time window, in epoch seconds
+     */
+    long getTimeWindowStart() {
+        return timeWindowStart;
+    }
+
+    /**
+     * @param timeWindowStart the start of the time window, in epoch seconds
+     */
+    void setTimeWindowStart(long timeWindowStart) {
+        this.timeWindowStart = timeWindowStart;
+    }
+
+    /**
+     * @return the end of the time window, in epoch seconds
+     */
+    long getTimeWindowEnd() {
+        return timeWindowEnd;
+    }
+
+    /**
+     * @param timeWindowEnd the end of the time window, in epoch seconds
+     */
+    void setTimeWindowEnd(long timeWindowEnd) {
+        this.timeWindowEnd = timeWindowEnd;
+    }
+
+    /**
+     * @return true if detections of the same rule on the same computer for
+     *         the same user within one time bucket should be combined into
+     *         one artifact
+     */
+    boolean isAggregateDetections() {
+        return aggregateDetections;
+    }
+
+    /**
+     * @param aggregateDetections true to combine similar detections into one
+     *                            artifact
+     */
+    void setAggregateDetections(boolean aggregateDetections) {
+        this.aggregateDetections = aggregateDetections;
+    }
+
+    /**
+     * @return the length of the time buckets detections are aggregated in,
+     *         in minutes
+     */
+    int getAggregationBucketMinutes() {
+        return aggregationBucketMinutes < 1 ? DEFAULT_AGGREGATION_BUCKET_MINUTES : aggregationBucketMinutes;
+    }
+
+    /**
+     * @param aggregationBucketMinutes the length of the time buckets
+     *                                 detections are aggregated in, in
+     *                                 minutes
+     */
+    void setAggregationBucketMinutes(int aggregationBucketMinutes) {
+        this.aggregationBucketMinutes = aggregationBucketMinutes;
+    }
+
+    /**
+     * @return true if event log chunks should be carved from unallocated
+     *         space and hunted along with the event logs in the file system
+     */
+    boolean isCarveUnallocated() {
+        return carveUnallocated;
+    }
+
+    /**
+     * @param carveUnallocated true to carve event log chunks from
+     *                         unallocated space
+     */
+    void setCarveUnallocated(boolean carveUnallocated) {
+        this.carveUnallocated = carveUnallocated;
+    }
+
+    /**
+     * @return the default hunt process count, the number of available
+     *         processors
+     */
+    static int defaultHuntProcessCount() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2021 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.modules.chainsaw;
+
+import java.awt.GridBagConstraints;
+import java.awt.GridBagLayout;
+import java.awt.Insets;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import javax.swing.JCheckBox;
+import javax.swing.JLabel;
+import javax.swing.JSpinner;
+import javax.swing.SpinnerDateModel;
+import javax.swing.SpinnerNumberModel;
+import org.openide.util.NbBundle;
+import org.sleuthkit.autopsy.ingest.IngestModuleIngestJobSettings;
+import org.sleuthkit.autopsy.ingest.IngestModuleIngestJobSettingsPanel;
+
+/**
+ * Ingest job settings panel for the Chainsaw module.
+ */
+final class ChainsawIngestJobSettingsPanel extends IngestModuleIngestJobSettingsPanel {
+
+    private static final long serialVersionUID = 1L;
+    private static final int MAX_HUNT_PROCESSES = 64;
+    private static final int MAX_ARTIFACT_BATCH_SIZE = 100000;
+    private static final long DEFAULT_TIME_WINDOW_DAYS = 7;
+    private static final int MAX_AGGREGATION_BUCKET_MINUTES = 7 * 24 * 60;
+    private static final String TIME_WINDOW_FORMAT = "yyyy-MM-dd HH:mm:ss"; //NON-NLS
+
+    private final JSpinner huntProcessCountSpinner;
+    private final JCheckBox huntInProcessCheckBox;
+    private final JCheckBox cacheHuntResultsCheckBox;
+    private final JSpinner artifactBatchSizeSpinner;
+    private final JCheckBox timeWindowCheckBox;
+    private final JSpinner timeWindowStartSpinner;
+    private final JSpinner timeWindowEndSpinner;
+    private final JCheckBox aggregateDetectionsCheckBox;
+    private final JSpinner aggregationBucketSpinner;
+    private final JCheckBox carveUnallocatedCheckBox;
+
+    /**
+     * Create a panel initialized with the given settings.
+     *
+     * @param settings the settings to show
+     */
+    @NbBundle.Messages({
+        "ChainsawIngestJobSettingsPanel.huntProcessCountLabel.text=Parallel hunt processes:",
+        "ChainsawIngestJobSettingsPanel.huntInProcessCheckBox.text=Hunt with the built in Sigma engine instead of the Chainsaw executable",
+        "ChainsawIngestJobSettingsPanel.cacheHuntResultsCheckBox.text=Reuse results for event logs already hunted with the same rules, in any case",
+        "ChainsawIngestJobSettingsPanel.artifactBatchSizeLabel.text=Artifacts per transaction:",
+        "ChainsawIngestJobSettingsPanel.timeWindowCheckBox.text=Only hunt events in this time window",
+        "ChainsawIngestJobSettingsPanel.timeWindowStartLabel.text=From:",
+        "ChainsawIngestJobSettingsPanel.timeWindowEndLabel.text=To:",
+        "ChainsawIngestJobSettingsPanel.aggregateDetectionsCheckBox.text=Combine detections of a rule on the same computer and user into one artifact",
+        "ChainsawIngestJobSettingsPanel.aggregationBucketLabel.text=Minutes per combined artifact:",
+        "ChainsawIngestJobSettingsPanel.carveUnallocatedCheckBox.text=Carve deleted event log chunks from unallocated space"})
+    ChainsawIngestJobSettingsPanel(ChainsawIngestJobSettings settings) {
+        huntProcessCountSpinner = new JSpinner(new SpinnerNumberModel(
+                Math.min(settings.getHuntProcessCount(), MAX_HUNT_PROCESSES), 1, MAX_HUNT_PROCESSES, 1));
+        huntInProcessCheckBox = new JCheckBox(Bundle.ChainsawIngestJobSettingsPanel_huntInProcessCheckBox_text(),
+                settings.isHuntInProcess());
+        cacheHuntResultsCheckBox = new JCheckBox(Bundle.ChainsawIngestJobSettingsPanel_cacheHuntResultsCheckBox_text(),
+                settings.isCacheHuntResults());
+        artifactBatchSizeSpinner = new JSpinner(new SpinnerNumberModel(
+                Math.min(settings.getArtifactBatchSize(), MAX_ARTIFACT_BATCH_SIZE), 1, MAX_ARTIFACT_BATCH_SIZE, 100));
+        long windowEnd = settings.getTimeWindowEnd();
+        long windowStart = settings.getTimeWindowStart();
+        if (windowStart == 0 && windowEnd == 0) {
+            windowEnd = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+            windowStart = windowEnd - TimeUnit.DAYS.toSeconds(DEFAULT_TIME_WINDOW_DAYS);
+        }
+        timeWindowCheckBox = new JCheckBox(Bundle.ChainsawIngestJobSettingsPanel_timeWindowCheckBox_text(), settings.isTimeWindowEnabled());
+        timeWindowStartSpinner = createDateSpinner(windowStart);
+        timeWindowEndSpinner = createDateSpinner(windowEnd);
+        timeWindowCheckBox.addActionListener(evt -> enableTimeWindowSpinners());
+        enableTimeWindowSpinners();
+        aggregateDetectionsCheckBox = new JCheckBox(Bundle.ChainsawIngestJobSettingsPanel_aggregateDetectionsCheckBox_text(),
+                settings.isAggregateDetections());
+        aggregationBucketSpinner = new JSpinner(new SpinnerNumberModel(
+                Math.min(settings.getAggregationBucketMinutes(), MAX_AGGREGATION_BUCKET_MINUTES), 1, MAX_AGGREGATION_BUCKET_MINUTES, 15));
+        aggregateDetectionsCheckBox.addActionListener(evt -> enableAggregationBucketSpinner());
+        enableAggregationBucketSpinner();
+        carveUnallocatedCheckBox = new JCheckBox(Bundle.ChainsawIngestJobSettingsPanel_carveUnallocatedCheckBox_text(),
+                settings.isCarveUnallocated());
+
+        setLayout(new GridBagLayout());
+        GridBagConstraints constraints = new GridBagConstraints();
+        constraints.anchor = GridBagConstraints.WEST;
+        constraints.insets = new Insets(5, 5, 0, 5);
+        add(new JLabel(Bundle.ChainsawIngestJobSettingsPanel_huntProcessCountLabel_text()), constraints);
+        constraints.gridx = 1;
+        constraints.weightx = 1.0;
+        add(huntProcessCountSpinner, constraints);
+        constraints.gridx = 0;
+        constraints.gridy = 1;
+        constraints.gridwidth = 2;
+        add(huntInProcessCheckBox, constraints);
+        constraints.gridy = 2;
+        add(cacheHuntResultsCheckBox, constraints);
+        constraints.gridy = 3;
+        constraints.gridwidth = 1;
+        constraints.weightx = 0.0;
+        add(new JLabel(Bundle.ChainsawIngestJobSettingsPanel_artifactBatchSizeLabel_text()), constraints);
+        constraints.gridx = 1;
+        constraints.weightx = 1.0;
+        add(artifactBatchSizeSpinner, constraints);
+        constraints.gridx = 0;
+        constraints.gridy = 4;
+        constraints.gridwidth = 2;
+        add(timeWindowCheckBox, constraints);
+        constraints.gridy = 5;
+        constraints.gridwidth = 1;
+        constraints.weightx = 0.0;
+        add(new JLabel(Bundle.ChainsawIngestJobSettingsPanel_timeWindowStartLabel_text()), constraints);
+        constraints.gridx = 1;
+        constraints.weightx = 1.0;
+        add(timeWindowStartSpinner, constraints);
+        constraints.gridx = 0;
+        constraints.gridy = 6;
+        constraints.weightx = 0.0;
+        add(new JLabel(Bundle.ChainsawIngestJobSettingsPanel_timeWindowEndLabel_text()), constraints);
+        constraints.gridx = 1;
+        constraints.weightx = 1.0;
+        add(timeWindowEndSpinner, constraints);
+        constraints.gridx = 0;
+        constraints.gridy = 7;
+        constraints.gridwidth = 2;
+        add(aggregateDetectionsCheckBox, constraints);
+        constraints.gridy = 8;
+        constraints.gridwidth = 1;
+        constraints.weightx = 0.0;
+        add(new JLabel(Bundle.ChainsawIngestJobSettingsPanel_aggregationBucketLabel_text()), constraints);
+        constraints.gridx = 1;
+        constraints.weightx = 1.0;
+        add(aggregationBucketSpinner, constraints);
+        constraints.gridx = 0;
+        constraints.gridy = 9;
+        constraints.gridwidth = 2;
+        add(carveUnallocatedCheckBox, constraints);
+        constraints.gridy = 10;
+        constraints.weighty = 1.0;
+        add(new JLabel(), constraints);
+    }
+
+    @Override
+    public IngestModuleIngestJobSettings getSettings() {
+        ChainsawIngestJobSettings settings = new ChainsawIngestJobSettings();
+        settings.setHuntProcessCount((Integer) huntProcessCountSpinner.getValue());
+        settings.setHuntInProcess(huntInProcessCheckBox.isSelected());
+        settings.setCacheHuntResults(cacheHuntResultsCheckBox.isSelected());
+        settings.setArtifactBatchSize((Integer) artifactBatchSizeSpinner.getValue());
+        settings.setTimeWindowEnabled(timeWindowCheckBox.isSelected());
+        settings.setTimeWindowStart(TimeUnit.MILLISECONDS.toSeconds(((Date) timeWindowStartSpinner.getValue()).getTime()));
+        settings.setTimeWindowEnd(TimeUnit.MILLISECONDS.toSeconds(((Date) timeWindowEndSpinner.getValue()).getTime()));
+        settings.setAggregateDetections(aggregateDetectionsCheckBox.isSelected());
+        settings.setAggregationBucketMinutes((Integer) aggregationBucketSpinner.getValue());
+        settings.setCarveUnallocated(carveUnallocatedCheckBox.isSelected());
+        return settings;
+    }
+
+    private static JSpinner createDateSpinner(long epochSeconds) {
+        JSpinner spinner = new JSpinner(new SpinnerDateModel(new Date(TimeUnit.SECONDS.toMillis(epochSeconds)), null, null, Calendar.MINUTE));
+        spinner.setEditor(new JSpinner.DateEditor(spinner, TIME_WINDOW_FORMAT));
+        return spinner;
+    }
+
+    private void enableTimeWindowSpinners() {
+        timeWindowStartSpinner.setEnabled(timeWindowCheckBox.isSelected());
+        timeWindowEndSpinner.setEnabled(timeWindowCheckBox.isSelected());
+    }
+
+    private void enableAggregationBucketSpinner() {
+        aggregationBucketSpinner.setEnabled(aggregateDetectionsCheckBox.isSelected());
+    }
+}
@@ -26,26 +26,33 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.text.DateFormat;
-import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Locale;
-import static java.util.Locale.US;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import org.apache.commons.collections4.CollectionUtils;
-import org.apache.commons.collections4.MapUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.openide.modules.InstalledFileLocator;
 import org.openide.util.Exceptions;
@@ -65,6 +72,7 @@ import org.sleuthkit.autopsy.ingest.IngestJobContext;
 import org.sleuthkit.autopsy.ingest.IngestMessage;
 import org.sleuthkit.autopsy.ingest.IngestServices;
 import org.sleuthkit.autopsy.ingest.IngestModule.IngestModuleException;
+import org.sleuthkit.autopsy.ingest.ModuleContentEvent;
 import org.sleuthkit.datamodel.AbstractFile;
 import org.sleuthkit.datamodel.Blackboard;
 import org.sleuthkit.datamodel.Blackboard.BlackboardException;
@@ -73,7 +81,6 @@ import org.sleuthkit.datamodel.BlackboardAttribute;
 import org.sleuthkit.datamodel.Content;
 import org.sleuthkit.datamodel.ReadContentInputStream;
 import org.sleuthkit.datamodel.TskCoreException;
-import org.sleuthkit.datamodel.TskException;
 
 /**
  * Data source ingest module that runs cLeapp against logical iOS files.
@@ -87,44 +94,126 @@ public class ChainsawIngestModule implements DataSourceIngestModule {
     private static final String CHAINSAW_EXECUTABLE = "chainsaw.exe";//NON-NLS
     private static final String BASE_DIR_NAME = "modules";
     private static final String DATASOURCE = "datasource"; //NON-NLS
-    
-    private final Map<String, BlackboardAttribute.Type> columnAttributes;
-    private static final DateFormat TIMESTAMP_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", US);
+    private static final String SHARD = "shard"; //NON-NLS
+    private static final String CARVED = "carved"; //NON-NLS
+    private static final String SIGMA_RULES = "sigma_rules"; //NON-NLS
+    private static final String SIGMA_MAPPING = "mapping_files/sigma-mapping.yml"; //NON-NLS
+    private static final String RESULT_CACHE_DIR_NAME = "hunt_cache"; //NON-NLS
+    private static final String VERSION_FILE = "Version_Installed.txt"; //NON-NLS
+    private static final Pattern VERSION_PATTERN = Pattern.compile("(\\d+)\\.\\d+"); //NON-NLS
+    // Chainsaw hunts take --from and --to date filters from 2.0 on
+    private static final int DATE_FILTER_MAJOR_VERSION = 2;
+    private static final DateTimeFormatter HUNT_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss", Locale.US).withZone(ZoneOffset.UTC); //NON-NLS
+    // Csv detections can only be cached for logs hunted on their own, which
+    // is worth a process of its own from this size on
+    private static final long SEPARATE_HUNT_MIN_SIZE = 4L * 1024 * 1024;
     
     Blackboard blkBoard;
     
     private File chainsawExecutable;
     private String executableFilePath;
+    private Path rulesDirectory;
+    private Path huntRulesDirectory;
+    private Path mappingFile;
+    private ChainsawSigmaEngine sigmaEngine;
+    private int chainsawMajorVersion;
 
     private IngestJobContext context;
 
-    ChainsawIngestModule() {
-        this.columnAttributes = new HashMap<>();     
+    private final ChainsawIngestJobSettings settings;
+    private ChainsawResultCache resultCache;
+    private ChainsawArtifactWriter artifactWriter;
+    private ChainsawDetectionAggregator detectionAggregator;
+    private long huntWindowStart = Long.MIN_VALUE;
+    private long huntWindowEnd = Long.MAX_VALUE;
+
+    private final Map<String, BlackboardArtifact.Type> detectionArtifactTypes = new HashMap<>();
+    private final Map<List<String>, ChainsawColumnPlan> detectionColumnPlans = new HashMap<>();
+
+    ChainsawIngestModule(ChainsawIngestJobSettings settings) {
+        this.settings = settings;
     }
 
+    @NbBundle.Messages({
+        "ChainsawIngestModule.sigma.rules.error=Error loading the Sigma rules and mapping file, see log file."})
     @Override
     public void startUp(IngestJobContext context) throws IngestModuleException {
         this.context = context;
 
-        if (false == PlatformUtil.is64BitOS()) {
-            throw new IngestModuleException(NbBundle.getMessage(this.getClass(), "ChainsawIngestModule.not.64.bit.os"));
+        if (settings.isHuntInProcess()) {
+            try {
+                Path moduleDirectory = locateModuleDirectory().toPath();
+                rulesDirectory = moduleDirectory.resolve(SIGMA_RULES);
+                mappingFile = moduleDirectory.resolve(SIGMA_MAPPING);
+                sigmaEngine = ChainsawSigmaEngine.load(rulesDirectory, mappingFile);
+            } catch (IOException exception) {
+                logger.log(Level.WARNING, "Error loading sigma rules.", exception); //NON-NLS
+                throw new IngestModuleException(Bundle.ChainsawIngestModule_sigma_rules_error(), exception);
+            }
+        } else {
+            if (false == PlatformUtil.is64BitOS()) {
+                throw new IngestModuleException(NbBundle.getMessage(this.getClass(), "ChainsawIngestModule.not.64.bit.os"));
+            }
+
+            if (false == PlatformUtil.isWindowsOS()) {
+                throw new IngestModuleException(NbBundle.getMessage(this.getClass(), "ChainsawIngestModule_requires_windows"));
+            }
+
+            try {
+                chainsawExecutable = locateExecutable(CHAINSAW_EXECUTABLE);
+                executableFilePath = org.apache.commons.io.FilenameUtils.getFullPath(chainsawExecutable.toString());
+                rulesDirectory = Paths.get(executableFilePath, SIGMA_RULES);
+                mappingFile = Paths.get(executableFilePath, SIGMA_MAPPING);
+            } catch (FileNotFoundException exception) {
+                logger.log(Level.WARNING, "chainsaw executable not found.", exception); //NON-NLS
+                throw new IngestModuleException(NbBundle.getMessage(this.getClass(), "ChainsawIngestModule_executable_not_found"), exception);
+            }
+            chainsawMajorVersion = readMajorVersion(Paths.get(executableFilePath, VERSION_FILE));
         }
 
-        if (false == PlatformUtil.isWindowsOS()) {
-            throw new IngestModuleException(NbBundle.getMessage(this.getClass(), "ChainsawIngestModule_requires_windows"));
+        huntRulesDirectory = rulesDirectory;
+
+        if (settings.isTimeWindowEnabled()) {
+            huntWindowStart = Math.min(settings.getTimeWindowStart(), settings.getTimeWindowEnd());
+            huntWindowEnd = Math.max(settings.getTimeWindowStart(), settings.getTimeWindowEnd());
         }
 
-        try {
-            chainsawExecutable = locateExecutable(CHAINSAW_EXECUTABLE);
-            executableFilePath = org.apache.commons.io.FilenameUtils.getFullPath(chainsawExecutable.toString());
-            
-        } catch (FileNotFoundException exception) {
-            logger.log(Level.WARNING, "chainsaw executable not found.", exception); //NON-NLS
-            throw new IngestModuleException(NbBundle.getMessage(this.getClass(), "ChainsawIngestModule_executable_not_found"), exception);
+        if (settings.isCacheHuntResults()) {
+            resultCache = openResultCache();
+        }
+
+        if (settings.isAggregateDetections()) {
+            detectionAggregator = new ChainsawDetectionAggregator(Case.getCurrentCase().getSleuthkitCase(),
+                    TimeUnit.MINUTES.toSeconds(settings.getAggregationBucketMinutes()), MODULE_NAME);
         }
 
     }
 
+    /**
+     * Open the hunt result cache for the bundled rule set and Chainsaw
+     * executable. The cache is kept in the user config directory so it is
+     * shared by all cases. Hunts
+     * limited to a time window only find part of a log's detections, so the
+     * window is part of the key, and so is the engine, as the built in Sigma
+     * engine has no Chainsaw built in detections.
+     *
+     * @return the cache, or null if it could not be opened
+     */
+    private ChainsawResultCache openResultCache() {
+        Path cacheDirectory = Paths.get(PlatformUtil.getUserConfigDirectory(), CHAINSAW, RESULT_CACHE_DIR_NAME);
+        String outputMode = settings.isHuntInProcess() ? "sigma" : "csv"; //NON-NLS
+        if (settings.isTimeWindowEnabled()) {
+            outputMode += "_" + huntWindowStart + "_" + huntWindowEnd;
+        }
+        try {
+            return ChainsawResultCache.open(cacheDirectory, rulesDirectory, mappingFile,
+                    (chainsawExecutable == null) ? null : chainsawExecutable.toPath(), outputMode);
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, String.format("Error opening chainsaw result cache %s, hunting without it", cacheDirectory.toString()), ex); //NON-NLS
+            return null;
+        }
+    }
+
     @NbBundle.Messages({
         "ChainsawIngestModule.error.running.chainsaw=Error running chainsaw, see log file.",
         "ChainsawIngestModule.error.creating.output.dir=Error creating chainsaw module output directory.",
@@ -134,6 +223,7 @@ public class ChainsawIngestModule implements DataSourceIngestModule {
         "ChainsawIngestModule.chainsaw.cancelled=chainsaw run was canceled",
         "ChainsawIngestModule.completed=chainsaw Processing Completed",
         "ChainsawIngestModule.report.name=chainsaw Html Report",
+        "ChainsawIngestModule.carving.unallocated=Carving event log chunks from unallocated space",
         "ChainsawFileProcessor.postartifacts_error=Error posting Blackboard Artifact",})
     @Override
     public ProcessResult process(Content dataSource, DataSourceIngestModuleProgress statusHelper) {
@@ -149,87 +239,486 @@ public class ChainsawIngestModule implements DataSourceIngestModule {
 
         statusHelper.progress(Bundle.ChainsawIngestModule_starting_chainsaw(), 0);
 
-        extractFilesFromImage(dataSource, tempOutputPath.toString());
+        List<AbstractFile> foundEvtxFiles = findEvtxFiles(dataSource);
+        if (settings.isCarveUnallocated()) {
+            statusHelper.progress(Bundle.ChainsawIngestModule_carving_unallocated());
+            foundEvtxFiles = addCarvedEvtxFiles(dataSource, currentCase, foundEvtxFiles);
+        }
+        List<AbstractFile> evtxFiles = EvtxFileTriage.selectFilesToHunt(foundEvtxFiles, huntWindowStart, huntWindowEnd,
+                context::dataSourceIngestIsCancelled);
+        if (sigmaEngine != null) {
+            huntInProcess(dataSource, currentCase, statusHelper, evtxFiles);
+            writeAggregatedDetections();
+            postCompletedMessage();
+            return ProcessResult.OK;
+        }
+
+        List<List<AbstractFile>> evtxShards;
+        List<Map<String, String>> shardLogHashes = new ArrayList<>();
+        List<Detection> cachedDetections = new ArrayList<>();
+        if (resultCache != null) {
+            Map<Long, String> evtxHashes = new HashMap<>();
+            List<AbstractFile> uncachedFiles = new ArrayList<>();
+            for (AbstractFile evtxFile : evtxFiles) {
+                if (context.dataSourceIngestIsCancelled()) {
+                    logger.log(Level.INFO, "chainsaw Analyser ingest module run was canceled"); //NON-NLS
+                    return ProcessResult.OK;
+                }
+                String evtxHash = EvtxFileTriage.contentHash(evtxFile);
+                List<Detection> evtxDetections = (evtxHash == null) ? null : resultCache.get(evtxHash);
+                if (evtxDetections != null) {
+                    cachedDetections.addAll(evtxDetections);
+                } else {
+                    uncachedFiles.add(evtxFile);
+                    evtxHashes.put(evtxFile.getId(), evtxHash);
+                }
+            }
+            logger.log(Level.INFO, String.format("Found hunt results for %d of %d event logs in the chainsaw result cache", //NON-NLS
+                    evtxFiles.size() - uncachedFiles.size(), evtxFiles.size()));
+            evtxShards = planCachedHuntShards(uncachedFiles, settings.getHuntProcessCount());
+            for (List<AbstractFile> evtxShard : evtxShards) {
+                shardLogHashes.add(getShardLogHashes(evtxShard, evtxHashes));
+            }
+        } else {
+            evtxShards = planHuntShards(evtxFiles, settings.getHuntProcessCount());
+            evtxShards.forEach(evtxShard -> shardLogHashes.add(Collections.emptyMap()));
+        }
+        if (!evtxShards.isEmpty()) {
+            huntRulesDirectory = pruneRules(evtxShards.stream().flatMap(List::stream).collect(Collectors.toList()),
+                    tempOutputPath.resolve(SIGMA_RULES));
+        }
+        List<Path> shardPaths = new ArrayList<>();
+        for (List<AbstractFile> evtxShard : evtxShards) {
+            Path shardPath = tempOutputPath.resolve(SHARD + shardPaths.size());
+            try {
+                Files.createDirectories(shardPath);
+            } catch (IOException ex) {
+                logger.log(Level.SEVERE, String.format("Error creating chainsaw temp directory %s", shardPath.toString()), ex);
+                return ProcessResult.ERROR;
+            }
+            extractFilesFromImage(evtxShard, shardPath.toString());
+            shardPaths.add(shardPath);
+        }
 
         try {
-            processChainsaw(dataSource, currentCase, statusHelper, tempOutputPath);
+            processChainsaw(dataSource, currentCase, statusHelper, shardPaths, shardLogHashes, cachedDetections);
         } catch (NoCurrentCaseException ex) {
             return ProcessResult.ERROR;
         }
 
+        writeAggregatedDetections();
+        postCompletedMessage();
+        return ProcessResult.OK;
+    }
+
+    /**
+     * Carve event log chunks from the unallocated space of the data source
+     * into event logs, with the configured number of threads scanning, and
+     * add them to the event logs to hunt. The carved logs are also added to
+     * the ingest job so the file ingest modules see them.
+     *
+     * @param dataSource datasource to process
+     * @param currentCase current case that is being worked on
+     * @param evtxFiles the event logs found in the file system
+     *
+     * @return the event logs found in the file system and the carved logs
+     */
+    private List<AbstractFile> addCarvedEvtxFiles(Content dataSource, Case currentCase, List<AbstractFile> evtxFiles) {
+        Path carvedOutputPath = Paths.get(currentCase.getModuleDirectory(), CHAINSAW, CARVED, "DataSource" + dataSource.getId());
+        List<AbstractFile> carvedFiles;
+        ExecutorService carveExecutor = Executors.newFixedThreadPool(settings.getHuntProcessCount());
+        try {
+            carvedFiles = EvtxChunkCarver.carve(currentCase.getSleuthkitCase(), dataSource, Paths.get(currentCase.getCaseDirectory()),
+                    carvedOutputPath, carveExecutor, MODULE_NAME, context::dataSourceIngestIsCancelled);
+        } catch (TskCoreException | IOException ex) {
+            logger.log(Level.WARNING, "Error carving event log chunks from unallocated space", ex); //NON-NLS
+            return evtxFiles;
+        } catch (InterruptedException ex) {
+            logger.log(Level.INFO, "Event log carving interrupted"); //NON-NLS
+            Thread.currentThread().interrupt();
+            return evtxFiles;
+        } finally {
+            carveExecutor.shutdownNow();
+        }
+        if (carvedFiles.isEmpty()) {
+            return evtxFiles;
+        }
+
+        context.addFilesToJob(new ArrayList<>(carvedFiles));
+        IngestServices.getInstance().fireModuleContentEvent(new ModuleContentEvent(carvedFiles.get(0)));
+
+        Set<Long> foundIds = evtxFiles.stream().map(AbstractFile::getId).collect(Collectors.toSet());
+        List<AbstractFile> allEvtxFiles = new ArrayList<>(evtxFiles);
+        for (AbstractFile carvedFile : carvedFiles) {
+            if (!foundIds.contains(carvedFile.getId())) {
+                allEvtxFiles.add(carvedFile);
+            }
+        }
+        return allEvtxFiles;
+    }
+
+    /**
+     * Create the artifacts of the aggregated detections, once all of the
+     * detections of the data source have been added. Nothing is written if
+     * detections are not aggregated or the run was cancelled.
+     */
+    private void writeAggregatedDetections() {
+        if (detectionAggregator == null || artifactWriter == null || context.dataSourceIngestIsCancelled()) {
+            return;
+        }
+        detectionAggregator.writeArtifacts(artifactWriter);
+        artifactWriter.flush();
+    }
+
+    private void postCompletedMessage() {
         IngestMessage message = IngestMessage.createMessage(IngestMessage.MessageType.DATA,
                 Bundle.ChainsawIngestModule_has_run(),
                 Bundle.ChainsawIngestModule_completed());
         IngestServices.getInstance().postMessage(message);
-        return ProcessResult.OK;
     }
 
     /**
-     * Process a file from a logical image using the cLeapp program
-     * @param dataSource datasource to process
-     * @param currentCase current case that is being worked on
+     * Hunt the event logs with the built in Sigma engine, reading them
+     * straight from the data source. Logs are hunted one at a time with their
+     * chunks spread over the configured number of threads, and the artifacts
+     * of each log are created as soon as it has been hunted. Logs found in
+     * the result cache are not hunted again.
+     *
+     * @param dataSource   datasource to process
+     * @param currentCase  current case that is being worked on
      * @param statusHelper show progress and update what is being processed
-     * @param tempOutputPath path where the event logs are written to
+     * @param evtxFiles    the event logs to hunt
      */
-    private void processChainsaw(Content dataSource, Case currentCase, DataSourceIngestModuleProgress statusHelper, Path tempOutputPath) throws NoCurrentCaseException{
-        String currentTime = new SimpleDateFormat("yyyy-MM-dd HH-mm-ss z", Locale.US).format(System.currentTimeMillis());//NON-NLS
-        Path moduleOutputPath = Paths.get(currentCase.getModuleDirectory(), CHAINSAW, currentTime);
+    private void huntInProcess(Content dataSource, Case currentCase, DataSourceIngestModuleProgress statusHelper, List<AbstractFile> evtxFiles) {
+        blkBoard = currentCase.getSleuthkitCase().getBlackboard();
+        artifactWriter = new ChainsawArtifactWriter(currentCase.getSleuthkitCase(), dataSource, settings.getArtifactBatchSize(), MODULE_NAME);
+        SigmaRulePruner.LogSources logSources = SigmaRulePruner.survey(evtxFiles, context::dataSourceIngestIsCancelled);
+        logger.log(Level.INFO, String.format("Hunting event logs with channels %s and providers %s", //NON-NLS
+                logSources.getChannels(), logSources.getProviders()));
+        ChainsawSigmaEngine huntEngine = logSources.isComplete() ? sigmaEngine.prune(logSources) : sigmaEngine;
+        logger.log(Level.INFO, String.format("Kept %d of %d sigma rules for the channels present", //NON-NLS
+                huntEngine.getRuleCount(), sigmaEngine.getRuleCount()));
+        statusHelper.switchToDeterminate(evtxFiles.size());
+
+        ExecutorService chunkExecutor = Executors.newFixedThreadPool(settings.getHuntProcessCount());
         try {
-            Files.createDirectories(moduleOutputPath);
-        } catch (IOException ex) {
-            logger.log(Level.SEVERE, String.format("Error creating chainsaw output directory %s", moduleOutputPath.toString()), ex);
+            for (int fileNum = 0; fileNum < evtxFiles.size(); fileNum++) {
+                if (context.dataSourceIngestIsCancelled()) {
+                    logger.log(Level.INFO, "Chainsaw Analyser ingest module run was canceled"); //NON-NLS
+                    return;
+                }
+                AbstractFile evtxFile = evtxFiles.get(fileNum);
+                statusHelper.progress(evtxFile.getName(), fileNum);
+
+                String evtxHash = (resultCache == null) ? null : EvtxFileTriage.contentHash(evtxFile);
+                List<Detection> detections = (evtxHash == null) ? null : resultCache.get(evtxHash);
+                if (detections == null) {
+                    try {
+                        detections = huntEngine.hunt(evtxFile, huntWindowStart, huntWindowEnd, chunkExecutor, context::dataSourceIngestIsCancelled);
+                    } catch (TskCoreException ex) {
+                        logger.log(Level.WARNING, String.format("Error hunting file '%s' (id=%d).", evtxFile.getName(), evtxFile.getId()), ex); //NON-NLS
+                        continue;
+                    }
+                    if (evtxHash != null && !context.dataSourceIngestIsCancelled()) {
+                        resultCache.put(evtxHash, detections);
+                    }
+                }
+                createDetectionArtifacts(detections);
+            }
+        } catch (InterruptedException ex) {
+            logger.log(Level.INFO, "Chainsaw hunt interrupted, stopping the hunt"); //NON-NLS
+            Thread.currentThread().interrupt();
+        } finally {
+            chunkExecutor.shutdownNow();
+            artifactWriter.flush();
+        }
+    }
+
+    /**
+     * Run a Chainsaw hunt over each shard of event logs, at most the
+     * configured number of processes running at the same time, then process
+     * the csv files all of the hunts produced. Detections from the result
+     * cache are turned into artifacts first.
+     *
+     * @param dataSource       datasource to process
+     * @param currentCase      current case that is being worked on
+     * @param statusHelper     show progress and update what is being processed
+     * @param shardPaths       paths where each shard of event logs is written to
+     * @param shardLogHashes   content hash of each event log in each shard
+     *                         by extracted file name, empty for shards whose
+     *                         results are not cached
+     * @param cachedDetections detections replayed from the result cache
+     */
+    private void processChainsaw(Content dataSource, Case currentCase, DataSourceIngestModuleProgress statusHelper, List<Path> shardPaths,
+            List<Map<String, String>> shardLogHashes, List<Detection> cachedDetections) throws NoCurrentCaseException{
+        blkBoard = Case.getCurrentCaseThrows().getSleuthkitCase().getBlackboard();
+        artifactWriter = new ChainsawArtifactWriter(currentCase.getSleuthkitCase(), dataSource, settings.getArtifactBatchSize(), MODULE_NAME);
+        createDetectionArtifacts(cachedDetections);
+
+        if (shardPaths.isEmpty()) {
+            logger.log(Level.INFO, "No event logs found to hunt"); //NON-NLS
             return;
         }
 
-        statusHelper.progress(NbBundle.getMessage(this.getClass(), "ChainsawIngestModule.processing"));
-        ProcessBuilder chainsawCommand = buildChainsawHuntCommand(moduleOutputPath, tempOutputPath.toString());
-        try {
-            int result = ExecUtil.execute(chainsawCommand, new DataSourceIngestModuleProcessTerminator(context, true));
-            if (result != 0) {
-                logger.log(Level.WARNING, String.format("Error when trying to execute chainsaw program result is %d", result));
+        String currentTime = new SimpleDateFormat("yyyy-MM-dd HH-mm-ss z", Locale.US).format(System.currentTimeMillis());//NON-NLS
+        Path moduleOutputPath = Paths.get(currentCase.getModuleDirectory(), CHAINSAW, currentTime);
+        List<Path> shardOutputPaths = new ArrayList<>();
+        for (int shard = 0; shard < shardPaths.size(); shard++) {
+            Path shardOutputPath = moduleOutputPath.resolve(SHARD + shard);
+            try {
+                Files.createDirectories(shardOutputPath);
+            } catch (IOException ex) {
+                logger.log(Level.SEVERE, String.format("Error creating chainsaw output directory %s", shardOutputPath.toString()), ex);
                 return;
             }
+            shardOutputPaths.add(shardOutputPath);
+        }
 
-        } catch (IOException ex) {
-            logger.log(Level.SEVERE, "Error when trying to execute chainsaw program", ex);
-            return;
+        statusHelper.progress(NbBundle.getMessage(this.getClass(), "ChainsawIngestModule.processing"));
+
+        ExecutorService huntExecutor = Executors.newFixedThreadPool(Math.min(shardPaths.size(), settings.getHuntProcessCount()));
+        List<Future<Integer>> hunts = new ArrayList<>();
+        for (int shard = 0; shard < shardPaths.size(); shard++) {
+            ProcessBuilder chainsawCommand = buildChainsawHuntCommand(shardOutputPaths.get(shard), shardPaths.get(shard).toString());
+            hunts.add(huntExecutor.submit(() -> ExecUtil.execute(chainsawCommand, new DataSourceIngestModuleProcessTerminator(context, true))));
+        }
+        huntExecutor.shutdown();
+
+        List<String> allCsvFiles = new ArrayList<>();
+        List<Detection> huntedDetections = new ArrayList<>();
+        for (int shard = 0; shard < hunts.size(); shard++) {
+            try {
+                int result = hunts.get(shard).get();
+                if (result != 0) {
+                    logger.log(Level.WARNING, String.format("Error when trying to execute chainsaw program on shard %d result is %d", shard, result));
+                    continue;
+                }
+                List<String> csvFiles = findCsvFiles(shardOutputPaths.get(shard));
+                Map<String, String> logHashes = shardLogHashes.get(shard);
+                if (logHashes.isEmpty()) {
+                    allCsvFiles.addAll(csvFiles);
+                } else {
+                    List<Detection> shardDetections = new ArrayList<>();
+                    if (readCsvDetections(csvFiles, shardDetections)) {
+                        cacheShardDetections(logHashes, shardDetections);
+                    }
+                    huntedDetections.addAll(shardDetections);
+                }
+            } catch (ExecutionException ex) {
+                logger.log(Level.SEVERE, String.format("Error when trying to execute chainsaw program on shard %d", shard), ex.getCause());
+            } catch (InterruptedException ex) {
+                logger.log(Level.INFO, "Chainsaw hunt interrupted, stopping all hunt processes"); //NON-NLS
+                huntExecutor.shutdownNow();
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IngestModuleException ex) {
+                logger.log(Level.SEVERE, String.format("Error finding CSV files in  output directory %s", shardOutputPaths.get(shard).toString()), ex);
+            }
         }
 
         if (context.dataSourceIngestIsCancelled()) {
             logger.log(Level.INFO, "Chainsaw Analyser ingest module run was canceled"); //NON-NLS
             return;
         }
-        
-        List<String> allCsvFiles = new ArrayList<>();
-                
+
+        processChainsawCSVFiles(allCsvFiles);
+        createDetectionArtifacts(huntedDetections);
+
+    }
+
+    /**
+     * Create and post artifacts for a list of detections, in batches.
+     *
+     * @param detections the detections
+     */
+    private void createDetectionArtifacts(List<Detection> detections) {
+        int detectionNum = 0;
+        for (Detection detection : detections) {
+            if (context.dataSourceIngestIsCancelled()) {
+                logger.log(Level.INFO, "Chainsaw Analyser ingest module run was canceled"); //NON-NLS
+                break;
+            }
+            detectionNum++;
+            createDetectionArtifact(detection, detectionNum);
+        }
+        artifactWriter.flush();
+    }
+
+    /**
+     * Add an artifact for a detection read from the csv output of a cached
+     * hunt, found by the built in Sigma engine or from the result cache to
+     * the current batch.
+     *
+     * @param detection    the detection
+     * @param detectionNum number of the detection, used in log messages
+     */
+    private void createDetectionArtifact(Detection detection, int detectionNum) {
+        String groupName = detection.getGroup().toUpperCase();
+        BlackboardArtifact.Type artifactType = detectionArtifactTypes.get(groupName);
+        if (artifactType == null) {
+            try {
+                artifactType = blkBoard.getOrAddArtifactType("CS_" + groupName, groupName.replaceAll("_", " "));
+                detectionArtifactTypes.put(groupName, artifactType);
+            } catch (BlackboardException ex) {
+                logger.log(Level.WARNING, String.format("Error creating Artifact %s", groupName), ex);
+                return;
+            }
+        }
+
+        ChainsawColumnPlan columnPlan = detectionColumnPlans.computeIfAbsent(detection.getHeaders(),
+                headerItems -> ChainsawColumnPlan.compile(headerItems, Case.getCurrentCase().getSleuthkitCase()));
         try {
-            allCsvFiles = findCsvFiles(moduleOutputPath);
+            addDetection(artifactType, columnPlan, detection.getValues(), "chainsaw detection", detectionNum, detection.getRecordId());
         } catch (IngestModuleException ex) {
-            logger.log(Level.SEVERE, String.format("Error finding CSV files in  output directory %s", moduleOutputPath.toString()), ex);
+            logger.log(Level.WARNING, String.format("Error processing detection %d", detectionNum), ex);
         }
-        
-        blkBoard = Case.getCurrentCaseThrows().getSleuthkitCase().getBlackboard();
-        processChainsawCSVFiles(allCsvFiles, dataSource);
+    }
 
+    /**
+     * Build a rules directory with only the rules whose log source is among
+     * the event logs to hunt, so Chainsaw does not load and evaluate rules
+     * for channels that are not in the evidence.
+     *
+     * @param evtxFiles       the event logs to hunt
+     * @param prunedDirectory where to build the pruned rules directory
+     *
+     * @return the pruned rules directory, or the full rules directory if it
+     *         could not be built or the channels of some logs are not known
+     */
+    private Path pruneRules(List<AbstractFile> evtxFiles, Path prunedDirectory) {
+        SigmaRulePruner.LogSources logSources = SigmaRulePruner.survey(evtxFiles, context::dataSourceIngestIsCancelled);
+        logger.log(Level.INFO, String.format("Hunting event logs with channels %s and providers %s", //NON-NLS
+                logSources.getChannels(), logSources.getProviders()));
+        if (!logSources.isComplete()) {
+            return rulesDirectory;
+        }
+        try {
+            org.apache.commons.io.FileUtils.deleteDirectory(prunedDirectory.toFile());
+            SigmaRulePruner.buildPrunedRulesDirectory(rulesDirectory, prunedDirectory, logSources);
+            return prunedDirectory;
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, String.format("Error building pruned sigma rules directory %s, hunting with all rules", prunedDirectory.toString()), ex); //NON-NLS
+            return rulesDirectory;
+        }
+    }
+
+    /**
+     * Split the event logs into shards of roughly equal total size, one per
+     * hunt process. Files are handed out largest first, each to the shard
+     * with the least data so far.
+     *
+     * @param evtxFiles  the event logs to split
+     * @param shardCount the number of shards wanted
+     *
+     * @return the shards, never more than there are files and none empty
+     */
+    static List<List<AbstractFile>> planHuntShards(List<AbstractFile> evtxFiles, int shardCount) {
+        int numShards = Math.max(1, Math.min(shardCount, evtxFiles.size()));
+        List<List<AbstractFile>> shards = new ArrayList<>();
+        long[] shardSizes = new long[numShards];
+        for (int shard = 0; shard < numShards; shard++) {
+            shards.add(new ArrayList<>());
+        }
+
+        List<AbstractFile> bySize = new ArrayList<>(evtxFiles);
+        bySize.sort((file1, file2) -> Long.compare(file2.getSize(), file1.getSize()));
+        for (AbstractFile evtxFile : bySize) {
+            int smallest = 0;
+            for (int shard = 1; shard < numShards; shard++) {
+                if (shardSizes[shard] < shardSizes[smallest]) {
+                    smallest = shard;
+                }
+            }
+            shards.get(smallest).add(evtxFile);
+            shardSizes[smallest] += evtxFile.getSize();
+        }
+
+        shards.removeIf(List::isEmpty);
+        return shards;
+    }
+
+    /**
+     * Split the event logs that are not in the result cache into shards.
+     * Csv detections do not say which log they came from, so logs of at
+     * least SEPARATE_HUNT_MIN_SIZE are hunted on their own to be cached, and
+     * the smaller logs, which are quick to hunt again, share the remaining
+     * shards.
+     *
+     * @param evtxFiles  the event logs to split
+     * @param shardCount the number of shards wanted
+     *
+     * @return the shards, none empty
+     */
+    private List<List<AbstractFile>> planCachedHuntShards(List<AbstractFile> evtxFiles, int shardCount) {
+        List<List<AbstractFile>> shards = new ArrayList<>();
+        List<AbstractFile> smallFiles = new ArrayList<>();
+        for (AbstractFile evtxFile : evtxFiles) {
+            if (evtxFile.getSize() >= SEPARATE_HUNT_MIN_SIZE) {
+                shards.add(Collections.singletonList(evtxFile));
+            } else {
+                smallFiles.add(evtxFile);
+            }
+        }
+        if (!smallFiles.isEmpty()) {
+            shards.addAll(planHuntShards(smallFiles, shardCount - shards.size()));
+        }
+        return shards;
+    }
+
+    /**
+     * Get the content hashes of the event logs in a shard whose detections
+     * can be told apart, so they can be cached per log.
+     *
+     * @param evtxShard  the event logs of the shard
+     * @param evtxHashes content hash of each event log by object id, null
+     *                   for logs that could not be hashed
+     *
+     * @return the content hash of each log by extracted file name, null for
+     *         logs that could not be hashed, or an empty map if nothing from
+     *         the shard can be cached
+     */
+    private Map<String, String> getShardLogHashes(List<AbstractFile> evtxShard, Map<Long, String> evtxHashes) {
+        if (evtxShard.size() > 1) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> logHashes = new HashMap<>();
+        for (AbstractFile evtxFile : evtxShard) {
+            logHashes.put(extractedFileName(evtxFile), evtxHashes.get(evtxFile.getId()));
+        }
+        return logHashes.values().stream().allMatch(Objects::isNull) ? Collections.emptyMap() : logHashes;
+    }
+
+    /**
+     * Store the detections of a shard in the result cache. Csv detections do
+     * not say which log they came from, so only shards of one log are
+     * cached, see getShardLogHashes().
+     *
+     * @param logHashes  the content hash of the log of the shard by
+     *                   extracted file name, see getShardLogHashes()
+     * @param detections every detection found in the shard
+     */
+    private void cacheShardDetections(Map<String, String> logHashes, List<Detection> detections) {
+        for (String logHash : logHashes.values()) {
+            if (logHash != null) {
+                resultCache.put(logHash, detections);
+            }
+        }
     }
 
     /** 
      * 
      * Process the chainsaw csv files that are found in the module output directory
      *  @param csvFiles - List of csv files that are to be processed
-     *  @param dataSource datasource to process
      *
      **/
-    private void processChainsawCSVFiles(List<String> csvFiles, Content dataSource) {
-        List<BlackboardArtifact> bbartifacts = new ArrayList<>();
-        
+    private void processChainsawCSVFiles(List<String> csvFiles) {
         for (String csvFileName : csvFiles) {
             File csvFile = new File(csvFileName);
                 String baseFileName = org.apache.commons.io.FilenameUtils.getBaseName(csvFile.toString().toUpperCase());
                 String baseFileNameDesc = baseFileName.replaceAll("_", " ");
                 try {
                     BlackboardArtifact.Type artifactType = Case.getCurrentCase().getSleuthkitCase().getBlackboard().getOrAddArtifactType("CS_" + baseFileName, baseFileNameDesc); 
-                    processFile(csvFile, artifactType, bbartifacts, dataSource);
+                    processFile(csvFile, artifactType);
                 } catch (BlackboardException ex) {
                     logger.log(Level.WARNING, String.format("Error creating Artifact %s", csvFile.toString()), ex);         
                 } catch (IOException ex) {
@@ -238,48 +727,28 @@ public class ChainsawIngestModule implements DataSourceIngestModule {
                 Exceptions.printStackTrace(ex);
             }
         }
-        
-        if (!bbartifacts.isEmpty()) {
-            postArtifacts(bbartifacts);
-        }
 
+        artifactWriter.flush();
     }
     
     /**
      * Read each Csv file and process it to create an artifact and attributes for it.
+     * The artifacts are created and posted in batches by the artifact writer.
      * @param csvFile the csv file to process
      * @param artifactType the blackboard artifact that the csv file identifies as
-     * @param bbartifacts list of bbartifacts to add to
-     * @param dataSource the current datasource that you are running u=ingest from
      **/ 
      
-     private void processFile(File csvFile, BlackboardArtifact.Type artifactType,
-            List<BlackboardArtifact> bbartifacts, Content dataSource) throws FileNotFoundException, IOException, IngestModuleException {
+     private void processFile(File csvFile, BlackboardArtifact.Type artifactType) throws FileNotFoundException, IOException, IngestModuleException {
 
-        // based on https://stackoverflow.com/questions/56921465/jackson-csv-schema-for-array
-        try (MappingIterator<List<String>> iterator = new CsvMapper()
-                .enable(CsvParser.Feature.WRAP_AS_ARRAY)
-                .readerFor(List.class)
-                .with(CsvSchema.emptySchema().withColumnSeparator(','))
-                .readValues(csvFile)) {
+        try (MappingIterator<List<String>> iterator = readCsvRows(csvFile)) {
 
             if (iterator.hasNext()) {
                 List<String> headerItems = iterator.next();
-                Map<Integer, String> columnIndexes = IntStream.range(0, headerItems.size())
-                        .mapToObj(idx -> idx)
-                        .collect(Collectors.toMap(
-                                idx -> idx,
-                                idx -> headerItems.get(idx) == null ? null : headerItems.get(idx).trim().toLowerCase(),
-                                (val2, val1) -> val1));
-                createOrGetColumnAttributes(headerItems);
+                ChainsawColumnPlan columnPlan = ChainsawColumnPlan.compile(headerItems, Case.getCurrentCase().getSleuthkitCase());
                 int lineNum = 2;
                 while (iterator.hasNext()) {
                     List<String> columnItems = iterator.next();
-                    Collection<BlackboardAttribute> bbattributes = processReadLine(columnItems, columnIndexes, csvFile.toString(), lineNum);
-                    BlackboardArtifact bbartifact = createArtifactWithAttributes(artifactType.getTypeID(), dataSource, bbattributes);
-                    if (bbartifact != null) {
-                        bbartifacts.add(bbartifact);
-                    }
+                    addDetection(artifactType, columnPlan, columnItems, csvFile.toString(), lineNum, Detection.UNKNOWN_RECORD_ID);
                     lineNum++;
                 }
             }
@@ -287,112 +756,119 @@ public class ChainsawIngestModule implements DataSourceIngestModule {
     }
 
     /**
-     * create or get column attributes based on the header row of the csv file
-     * @param headerItems header row of the csv file
+     * Add the artifact for one detection row to the current batch, or to its
+     * aggregate when detections are aggregated.
+     *
+     * @param artifactType the artifact type of the detection
+     * @param columnPlan   the compiled header row
+     * @param lineValues   the column values of the detection
+     * @param fileName     the name of the file being processed
+     * @param lineNum      the line number in the file
+     * @param recordId     the event record id of the detection, or
+     *                     Detection.UNKNOWN_RECORD_ID
+     *
+     * @throws IngestModuleException
      */
-     private void createOrGetColumnAttributes(List<String> headerItems) {
-        
-        for (String header : headerItems) {
-                BlackboardAttribute.Type foundAttrType = null;
-                try {
-                    foundAttrType = Case.getCurrentCase().getSleuthkitCase().getAttributeType("CS_" + header.toUpperCase());
-                } catch (TskCoreException ex) {
-                    logger.log(Level.SEVERE, String.format("There was an issue that arose while trying to fetch attribute type for %s.", header), ex);
-                }
+    private void addDetection(BlackboardArtifact.Type artifactType, ChainsawColumnPlan columnPlan, List<String> lineValues,
+            String fileName, int lineNum, long recordId) throws IngestModuleException {
+        List<BlackboardAttribute> bbattributes = processReadLine(lineValues, columnPlan, fileName, lineNum);
+        if (detectionAggregator != null && !bbattributes.isEmpty()) {
+            detectionAggregator.add(artifactType, columnPlan, lineValues, bbattributes, recordId);
+        } else {
+            artifactWriter.addArtifact(artifactType, bbattributes);
+        }
+    }
 
-                if (foundAttrType == null) {
-                   try {
-                       if (header.toUpperCase().contains("SYSTEM_TIME")) {
-                           foundAttrType = blkBoard.getOrAddAttributeType("CS_" + header.toUpperCase(), BlackboardAttribute.TSK_BLACKBOARD_ATTRIBUTE_VALUE_TYPE.DATETIME, header.replaceAll("_", " "));
-                       } else if (header.toUpperCase().equals("ID")) {
-                           foundAttrType = blkBoard.getOrAddAttributeType("CS_" + header.toUpperCase(), BlackboardAttribute.TSK_BLACKBOARD_ATTRIBUTE_VALUE_TYPE.INTEGER, header.replaceAll("_", " "));
-                       } else {
-                           foundAttrType = blkBoard.getOrAddAttributeType("CS_" + header.toUpperCase(), BlackboardAttribute.TSK_BLACKBOARD_ATTRIBUTE_VALUE_TYPE.STRING, header.replaceAll("_", " "));
-                       }
-                   } catch (Blackboard.BlackboardException ex) {
-                       logger.log(Level.WARNING, String.format("Failed to create custom attribute type %s.", "CS_" + header.toUpperCase()), ex);
-                   }
+    /**
+     * Read the detections in the csv files of a hunt, one per row, with the
+     * csv file name as the detection group.
+     *
+     * @param csvFiles   the csv files
+     * @param detections list the detections are added to
+     *
+     * @return true if every file was read completely
+     */
+    private boolean readCsvDetections(List<String> csvFiles, List<Detection> detections) {
+        boolean allRead = true;
+        for (String csvFileName : csvFiles) {
+            File csvFile = new File(csvFileName);
+            String group = org.apache.commons.io.FilenameUtils.getBaseName(csvFile.getName()).toUpperCase();
+            try (MappingIterator<List<String>> iterator = readCsvRows(csvFile)) {
+                if (iterator.hasNext()) {
+                    List<String> headerItems = iterator.next();
+                    while (iterator.hasNext()) {
+                        detections.add(new Detection(group, headerItems, iterator.next()));
+                    }
                 }
-                
-                columnAttributes.put(header.toUpperCase(), foundAttrType);
+            } catch (IOException ex) {
+                logger.log(Level.WARNING, String.format("Error reading file %s", csvFile.toString()), ex);
+                allRead = false;
+            }
         }
+        return allRead;
+    }
+
+    /**
+     * Open a csv file as rows of column values.
+     *
+     * @param csvFile the csv file
+     *
+     * @return iterator over the rows, the first one being the header row
+     *
+     * @throws IOException
+     */
+    private static MappingIterator<List<String>> readCsvRows(File csvFile) throws IOException {
+        // based on https://stackoverflow.com/questions/56921465/jackson-csv-schema-for-array
+        return new CsvMapper()
+                .enable(CsvParser.Feature.WRAP_AS_ARRAY)
+                .readerFor(List.class)
+                .with(CsvSchema.emptySchema().withColumnSeparator(','))
+                .readValues(csvFile);
     }
 
     /**
      * Process the line read and create the necessary attributes for it.
      *
      * @param lineValues List of column values.
-     * @param columnIndexes Mapping of column headers (trimmed; to lower case)
-     * to column index. All header columns and only all header columns should be
-     * present.
+     * @param columnPlan The compiled header row. All header columns and only
+     * all header columns should be present.
      * @param fileName The name of the file being processed.
      * @param lineNum The line number in the file.
      * @return The collection of blackboard attributes for the artifact created
      * from this line.
      * @throws IngestModuleException
      */
-    private Collection<BlackboardAttribute> processReadLine(List<String> lineValues, Map<Integer, String> columnIndexes,
+    private List<BlackboardAttribute> processReadLine(List<String> lineValues, ChainsawColumnPlan columnPlan,
             String fileName, int lineNum) throws IngestModuleException {
-        List<BlackboardAttribute> attrsToRet = new ArrayList<>();
-        if (MapUtils.isEmpty(columnIndexes) || CollectionUtils.isEmpty(lineValues)
+        if (columnPlan.size() == 0 || CollectionUtils.isEmpty(lineValues)
                 || (lineValues.size() == 1 && StringUtils.isEmpty(lineValues.get(0)))) {
             return Collections.emptyList();
-        } else if (lineValues.size() != columnIndexes.size()) {
+        } else if (lineValues.size() != columnPlan.size()) {
             logger.log(Level.WARNING, String.format(
                     "Row at line number %d in file %s has %d columns when %d were expected based on the header row.",
-                    lineNum, fileName, lineValues.size(), columnIndexes.size()));
+                    lineNum, fileName, lineValues.size(), columnPlan.size()));
             return Collections.emptyList();
         }
-        
+
+        List<BlackboardAttribute> attrsToRet = new ArrayList<>(lineValues.size());
         for (int i = 0; i < lineValues.size(); i++) {
-            String columnName = columnIndexes.get(i);
-            BlackboardAttribute attr = null;
-            logger.log(Level.WARNING, String.format("Column Name %s and lineValue %s and forloop %d", columnName, lineValues.get(i), i));
-            if (columnName.toUpperCase().contains("SYSTEM_TIME")) {
-                try {
-                    Long dateTime = TIMESTAMP_FORMAT.parse(lineValues.get(i)).getTime() / 1000;
-                    attr = (lineValues.get(i) == null) ? null : new BlackboardAttribute(columnAttributes.get(columnName.toUpperCase()), MODULE_NAME, dateTime);
-                } catch (ParseException ex) {
-                    logger.log(Level.WARNING, String.format("Error parsing date %s", lineValues.get(i)), ex);
-                }
-            } else if (columnName.toUpperCase().equals("ID")) {
-                attr = (lineValues.get(i) == null) ? null : new BlackboardAttribute(columnAttributes.get(columnName.toUpperCase()), MODULE_NAME, Integer.valueOf(lineValues.get(i)));
-            } else {
-                attr = (lineValues.get(i) == null) ? null : new BlackboardAttribute(columnAttributes.get(columnName.toUpperCase()), MODULE_NAME, lineValues.get(i));
-            }
-//            BlackboardAttribute attr = (lineValues.get(i) == null) ? null : new BlackboardAttribute(columnAttributes.get(columnName.toUpperCase()), MODULE_NAME, lineValues.get(i));
+            BlackboardAttribute attr = columnPlan.toAttribute(i, lineValues.get(i), MODULE_NAME);
             if (attr == null) {
-                logger.log(Level.WARNING, String.format("Blackboard attribute could not be parsed column %s at line %d in file %s.  Omitting row.", columnName, i, fileName));
+                logger.log(Level.WARNING, String.format("Blackboard attribute could not be parsed column %s at line %d in file %s.  Omitting row.", columnPlan.getColumnName(i), lineNum, fileName));
                 return Collections.emptyList();
             }
             attrsToRet.add(attr);
-            
         }
-        
-        return attrsToRet;
-    }
-    
-    /**
-     * Generic method for creating a blackboard artifact with attributes
-     *
-     * @param type is a blackboard.artifact_type enum to determine which type
-     * the artifact should be
-     * @param dataSource is the Content object that needs to have the artifact
-     * added for it
-     * @param bbattributes is the collection of blackboard attributes that need
-     * to be added to the artifact after the artifact has been created
-     *
-     * @return The newly-created artifact, or null on error
-     */
-    private BlackboardArtifact createArtifactWithAttributes(int type, Content dataSource, Collection<BlackboardAttribute> bbattributes) {
-        try {
-            BlackboardArtifact bbart = dataSource.newArtifact(type);
-            bbart.addAttributes(bbattributes);
-            return bbart;
-        } catch (TskException ex) {
-            logger.log(Level.WARNING, "Chainsaw Error creating artifacts with attributes", ex); //NON-NLS
+
+        int systemTimeColumn = columnPlan.getSystemTimeColumn();
+        if (systemTimeColumn >= 0) {
+            long eventTime = attrsToRet.get(systemTimeColumn).getValueLong();
+            if (eventTime < huntWindowStart || eventTime > huntWindowEnd) {
+                return Collections.emptyList();
+            }
         }
-        return null;
+
+        return attrsToRet;
     }
 
     /**
@@ -408,17 +884,58 @@ public class ChainsawIngestModule implements DataSourceIngestModule {
                 "hunt", //NON-NLS
                 tempOutputPath + "/",
                 "--rules",
-                executableFilePath + "sigma_rules",
+                huntRulesDirectory.toString(),
                 "--mapping",
-                executableFilePath + "mapping_files/sigma-mapping.yml",
+                executableFilePath + SIGMA_MAPPING,
                 "--csv",
                 moduleOutputPath.toString()
         );
+        addTimeWindowArguments(processBuilder);
         processBuilder.redirectError(moduleOutputPath.resolve("chainsaw_hunt_error.txt").toFile());  //NON-NLS
         processBuilder.redirectOutput(moduleOutputPath.resolve("chainsaw_hunt.txt").toFile());  //NON-NLS
         return processBuilder;
     }
 
+    /**
+     * Add Chainsaw's date filters for the time window, if there is one and
+     * the installed Chainsaw has them. 1.x releases have no date filters, so
+     * their hunts rely on the logs outside the window being skipped before
+     * the hunt and on detections outside the window being dropped when the
+     * csv rows are read.
+     * @param processBuilder the hunt command to add the filters to
+     */
+    private void addTimeWindowArguments(ProcessBuilder processBuilder) {
+        if (chainsawMajorVersion < DATE_FILTER_MAJOR_VERSION) {
+            return;
+        }
+        if (huntWindowStart != Long.MIN_VALUE) {
+            processBuilder.command().add("--from"); //NON-NLS
+            processBuilder.command().add(HUNT_DATE_FORMAT.format(Instant.ofEpochSecond(huntWindowStart)));
+        }
+        if (huntWindowEnd != Long.MAX_VALUE) {
+            processBuilder.command().add("--to"); //NON-NLS
+            processBuilder.command().add(HUNT_DATE_FORMAT.format(Instant.ofEpochSecond(huntWindowEnd)));
+        }
+    }
+
+    /**
+     * Read the major version of the installed Chainsaw from the version file
+     * installed with it.
+     *
+     * @param versionFile the version file
+     *
+     * @return the major version, or 0 if it is not known
+     */
+    private static int readMajorVersion(Path versionFile) {
+        try {
+            Matcher version = VERSION_PATTERN.matcher(new String(Files.readAllBytes(versionFile), StandardCharsets.UTF_8));
+            return version.find() ? Integer.parseInt(version.group(1)) : 0;
+        } catch (IOException | NumberFormatException ex) {
+            logger.log(Level.WARNING, String.format("Error reading the installed chainsaw version from %s", versionFile.toString()), ex); //NON-NLS
+            return 0;
+        }
+    }
+
     static private ProcessBuilder buildProcessWithRunAsInvoker(String... commandLine) {
         ProcessBuilder processBuilder = new ProcessBuilder(commandLine);
         /*
@@ -446,6 +963,20 @@ public class ChainsawIngestModule implements DataSourceIngestModule {
         return exeFile;
     }
 
+    /**
+     * Search for the directory the Chainsaw module files are installed in
+     * @return the module directory
+     * @throws FileNotFoundException 
+     */
+    private static File locateModuleDirectory() throws FileNotFoundException {
+        File moduleDirectory = InstalledFileLocator.getDefault().locate(Paths.get(BASE_DIR_NAME, CHAINSAW).toString(),
+                ChainsawIngestModule.class.getPackage().getName(), false);
+        if (null == moduleDirectory || moduleDirectory.isDirectory() == false) {
+            throw new FileNotFoundException(CHAINSAW + " module directory not found.");
+        }
+        return moduleDirectory;
+    }
+
     @NbBundle.Messages({"ChainsawFileProcessor.error.reading.chainsaw.directory=Error reading Chainsaw Output Directory"})
     /**
      * Find the csv files in the chainsaw output directory and match them to files
@@ -471,42 +1002,53 @@ public class ChainsawIngestModule implements DataSourceIngestModule {
     }
     
     /**
-     * 
-     * @param dataSource datasource to extract the evtx files from 
-     * @param moduleOutputPath output path to write the evtx files to
+     * Find the event logs in the data source.
+     *
+     * @param dataSource datasource to find the evtx files in
+     *
+     * @return the evtx files found
      */
-    private void extractFilesFromImage(Content dataSource, String moduleOutputPath) {
+    private List<AbstractFile> findEvtxFiles(Content dataSource) {
         FileManager fileManager = getCurrentCase().getServices().getFileManager();
 
         if (context.dataSourceIngestIsCancelled()) {
             logger.log(Level.INFO, "chainsaw Analyser ingest module run was canceled"); //NON-NLS
-            return;
+            return Collections.emptyList();
         }
 
-        List<AbstractFile> evtxFiles = new ArrayList<>();
         try {
-            evtxFiles = fileManager.findFiles(dataSource, "%.evtx"); //NON-NLS                
+            return fileManager.findFiles(dataSource, "%.evtx"); //NON-NLS                
         } catch (TskCoreException ex) {
             logger.log(Level.WARNING, "No files found to process"); //NON-NLS
-            return;
+            return Collections.emptyList();
         }
+    }
 
+    /**
+     * 
+     * @param evtxFiles the evtx files to extract
+     * @param moduleOutputPath output path to write the evtx files to
+     */
+    private void extractFilesFromImage(List<AbstractFile> evtxFiles, String moduleOutputPath) {
         for (AbstractFile evtxFile : evtxFiles) {
-            writeEvtxFile(dataSource, evtxFile, moduleOutputPath);
+            if (context.dataSourceIngestIsCancelled()) {
+                logger.log(Level.INFO, "chainsaw Analyser ingest module run was canceled"); //NON-NLS
+                return;
+            }
+            writeEvtxFile(evtxFile, moduleOutputPath);
         }
         
     }
 
     /**
      * 
-     * @param dataSource datasource to pull the evtx file from 
      * @param evtxFile the evtf file to extract
      * @param moduleOutputPath the output path to write the evtx file to
      */
-    private void writeEvtxFile(Content dataSource, AbstractFile evtxFile, String moduleOutputPath) {
+    private void writeEvtxFile(AbstractFile evtxFile, String moduleOutputPath) {
         String fileName = evtxFile.getName().replace(":", "-");
         if (!fileName.matches(".") && !fileName.matches("..") && !fileName.toLowerCase().endsWith("-slack")) {
-            Path filePath = Paths.get(moduleOutputPath, fileName);
+            Path filePath = Paths.get(moduleOutputPath, extractedFileName(evtxFile));
             File localFile = new File(filePath.toString());
             try {
                 ContentUtils.writeToFile(evtxFile, localFile, context::dataSourceIngestIsCancelled);
@@ -521,21 +1063,14 @@ public class ChainsawIngestModule implements DataSourceIngestModule {
     }
 
     /**
-     * Method to post a list of BlackboardArtifacts to the blackboard.
+     * Get the name an event log is extracted under for a hunt. The object id
+     * keeps logs of the same name apart when they share a shard.
+     *
+     * @param evtxFile the event log
      *
-     * @param artifacts A list of artifacts. IF list is empty or null, the
-     * function will return.
+     * @return the file name
      */
-    void postArtifacts(Collection<BlackboardArtifact> artifacts) {
-        if (artifacts == null || artifacts.isEmpty()) {
-            return;
-        }
-
-        try {
-            Case.getCurrentCase().getSleuthkitCase().getBlackboard().postArtifacts(artifacts, MODULE_NAME);
-        } catch (Blackboard.BlackboardException ex) {
-            logger.log(Level.SEVERE, Bundle.ChainsawFileProcessor_postartifacts_error(), ex); //NON-NLS
-        }
+    private static String extractedFileName(AbstractFile evtxFile) {
+        return evtxFile.getId() + "_" + evtxFile.getName().replace(":", "-");
     }
-
 }
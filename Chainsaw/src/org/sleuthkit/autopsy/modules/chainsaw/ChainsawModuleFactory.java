@@ -25,6 +25,7 @@ import org.sleuthkit.autopsy.ingest.DataSourceIngestModule;
 import org.sleuthkit.autopsy.ingest.IngestModuleFactory;
 import org.sleuthkit.autopsy.ingest.IngestModuleFactoryAdapter;
 import org.sleuthkit.autopsy.ingest.IngestModuleIngestJobSettings;
+import org.sleuthkit.autopsy.ingest.IngestModuleIngestJobSettingsPanel;
 
 /**
  * A factory that creates data source ingest modules that will run chainsaw against event logs.
@@ -58,9 +59,39 @@ public class ChainsawModuleFactory extends IngestModuleFactoryAdapter {
         return true;
     }
 
+    @Override
+    public IngestModuleIngestJobSettings getDefaultIngestJobSettings() {
+        return new ChainsawIngestJobSettings();
+    }
+
+    @Override
+    public boolean hasIngestJobSettingsPanel() {
+        return true;
+    }
+
+    @Override
+    public IngestModuleIngestJobSettingsPanel getIngestJobSettingsPanel(IngestModuleIngestJobSettings settings) {
+        return new ChainsawIngestJobSettingsPanel(toChainsawSettings(settings));
+    }
+
     @Override
     public DataSourceIngestModule createDataSourceIngestModule(IngestModuleIngestJobSettings ingestJobOptions) {
-        return new ChainsawIngestModule();
+        return new ChainsawIngestModule(toChainsawSettings(ingestJobOptions));
+    }
+
+    /**
+     * Use the given settings if they are Chainsaw settings, otherwise fall back
+     * to the defaults.
+     *
+     * @param settings the ingest job settings handed to the factory
+     *
+     * @return the Chainsaw settings to use
+     */
+    private static ChainsawIngestJobSettings toChainsawSettings(IngestModuleIngestJobSettings settings) {
+        if (settings instanceof ChainsawIngestJobSettings) {
+            return (ChainsawIngestJobSettings) settings;
+        }
+        return new ChainsawIngestJobSettings();
     }
 
 }
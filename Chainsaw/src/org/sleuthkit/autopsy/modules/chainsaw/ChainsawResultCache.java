@@ -0,0 +1,290 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2021 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.modules.chainsaw;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.sleuthkit.autopsy.coreutils.Logger;
+
+/**
+ * A cache of Chainsaw hunt results that outlives cases. The detections a hunt
+ * found in one event log are stored under the hash of the log's content, the
+ * hash of the Sigma rule set, the hash of the mapping file, the hash of the
+ * Chainsaw executable and the output mode, so a log is only hunted again when
+ * its content, the rules or the Chainsaw release change.
+ *
+ * Each entry is a small JSON file, written to a temporary file first and then
+ * moved into place so a cancelled run never leaves a partial entry behind.
+ *
+ * The cache is shared by every case, so it is bounded when it is opened:
+ * entries not used for MAX_ENTRY_AGE_DAYS are deleted, and then the least
+ * recently used entries until the cache is no larger than MAX_CACHE_SIZE.
+ * Reading an entry marks it as used.
+ */
+final class ChainsawResultCache {
+
+    private static final Logger logger = Logger.getLogger(ChainsawResultCache.class.getName());
+
+    private static final String ENTRY_EXTENSION = ".json"; //NON-NLS
+    private static final String GROUP = "group"; //NON-NLS
+    private static final String HEADERS = "headers"; //NON-NLS
+    private static final String VALUES = "values"; //NON-NLS
+    private static final String RECORD_ID = "record_id"; //NON-NLS
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+    static final long MAX_CACHE_SIZE = 512L * 1024 * 1024;
+    static final long MAX_ENTRY_AGE_DAYS = 90;
+
+    private final Path cacheDirectory;
+    private final String ruleSetKey;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private ChainsawResultCache(Path cacheDirectory, String ruleSetKey) {
+        this.cacheDirectory = cacheDirectory;
+        this.ruleSetKey = ruleSetKey;
+    }
+
+    /**
+     * Open the cache for the given rule set.
+     *
+     * @param cacheDirectory directory the cache entries are kept in
+     * @param rulesDirectory the Sigma rules directory
+     * @param mappingFile    the Sigma mapping file
+     * @param executable     the Chainsaw executable that hunts, or null when
+     *                       hunting with the built in Sigma engine
+     * @param outputMode     the hunt output the detections come from, csv
+     *                       and built in engine detections have different
+     *                       columns
+     *
+     * @return the cache
+     *
+     * @throws IOException if the rules can not be hashed or the cache
+     *                     directory can not be created
+     */
+    static ChainsawResultCache open(Path cacheDirectory, Path rulesDirectory, Path mappingFile, Path executable, String outputMode) throws IOException {
+        Files.createDirectories(cacheDirectory);
+        evictEntries(cacheDirectory);
+        String ruleSetKey = hashRuleSet(rulesDirectory) + "_" + hashFile(mappingFile) + "_"
+                + (executable == null ? "" : hashFile(executable) + "_") + outputMode;
+        return new ChainsawResultCache(cacheDirectory, ruleSetKey);
+    }
+
+    /**
+     * Get the cached detections for an event log.
+     *
+     * @param evtxHash hash of the event log's content
+     *
+     * @return the detections, or null if the log has not been hunted with
+     *         this rule set
+     */
+    List<Detection> get(String evtxHash) {
+        Path entry = entryPath(evtxHash);
+        if (!Files.isRegularFile(entry)) {
+            return null;
+        }
+
+        try {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException ex) {
+            logger.log(Level.FINE, String.format("Error marking chainsaw result cache entry %s as used", entry.toString()), ex); //NON-NLS
+        }
+
+        try {
+            JsonNode detectionsNode = mapper.readTree(entry.toFile());
+            List<Detection> detections = new ArrayList<>(detectionsNode.size());
+            for (JsonNode detectionNode : detectionsNode) {
+                detections.add(new Detection(detectionNode.path(GROUP).asText(),
+                        toStrings(detectionNode.path(HEADERS)), toStrings(detectionNode.path(VALUES)),
+                        detectionNode.path(RECORD_ID).asLong(Detection.UNKNOWN_RECORD_ID)));
+            }
+            return detections;
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, String.format("Error reading chainsaw result cache entry %s, the event log will be hunted again", entry.toString()), ex); //NON-NLS
+            return null;
+        }
+    }
+
+    /**
+     * Store the detections a hunt found in an event log.
+     *
+     * @param evtxHash   hash of the event log's content
+     * @param detections all of the detections found in the log
+     */
+    void put(String evtxHash, List<Detection> detections) {
+        ArrayNode detectionsNode = mapper.createArrayNode();
+        for (Detection detection : detections) {
+            ObjectNode detectionNode = detectionsNode.addObject();
+            detectionNode.put(GROUP, detection.getGroup());
+            detection.getHeaders().forEach(detectionNode.putArray(HEADERS)::add);
+            detection.getValues().forEach(detectionNode.putArray(VALUES)::add);
+            if (detection.getRecordId() != Detection.UNKNOWN_RECORD_ID) {
+                detectionNode.put(RECORD_ID, detection.getRecordId());
+            }
+        }
+
+        Path entry = entryPath(evtxHash);
+        Path tempEntry = null;
+        try {
+            tempEntry = Files.createTempFile(cacheDirectory, evtxHash, ENTRY_EXTENSION);
+            mapper.writeValue(tempEntry.toFile(), detectionsNode);
+            Files.move(tempEntry, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, String.format("Error writing chainsaw result cache entry %s", entry.toString()), ex); //NON-NLS
+            if (tempEntry != null) {
+                try {
+                    Files.deleteIfExists(tempEntry);
+                } catch (IOException ex2) {
+                    logger.log(Level.WARNING, String.format("Error deleting %s", tempEntry.toString()), ex2); //NON-NLS
+                }
+            }
+        }
+    }
+
+    /**
+     * Delete the entries, of any rule set, that have not been used for
+     * MAX_ENTRY_AGE_DAYS, then the least recently used entries until the
+     * rest fit in MAX_CACHE_SIZE. Temporary files left by runs that were
+     * killed while writing an entry age out the same way.
+     *
+     * @param cacheDirectory directory the cache entries are kept in
+     *
+     * @throws IOException if the cache directory can not be listed
+     */
+    private static void evictEntries(Path cacheDirectory) throws IOException {
+        List<Path> entries;
+        try (Stream<Path> list = Files.list(cacheDirectory)) {
+            entries = list.filter(path -> path.getFileName().toString().endsWith(ENTRY_EXTENSION) && Files.isRegularFile(path))
+                    .collect(Collectors.toList());
+        }
+
+        long oldestKept = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(MAX_ENTRY_AGE_DAYS);
+        Map<Path, Long> lastUsed = new HashMap<>();
+        Map<Path, Long> sizes = new HashMap<>();
+        for (Path entry : entries) {
+            try {
+                lastUsed.put(entry, Files.getLastModifiedTime(entry).toMillis());
+                sizes.put(entry, Files.size(entry));
+            } catch (IOException ex) {
+                // Deleted by a job sharing the cache
+                lastUsed.remove(entry);
+            }
+        }
+
+        List<Path> byLastUse = new ArrayList<>(lastUsed.keySet());
+        byLastUse.sort((entry1, entry2) -> Long.compare(lastUsed.get(entry2), lastUsed.get(entry1)));
+        long cacheSize = 0;
+        int evicted = 0;
+        for (Path entry : byLastUse) {
+            cacheSize += sizes.get(entry);
+            if (lastUsed.get(entry) < oldestKept || cacheSize > MAX_CACHE_SIZE) {
+                try {
+                    Files.deleteIfExists(entry);
+                    evicted++;
+                } catch (IOException ex) {
+                    logger.log(Level.WARNING, String.format("Error deleting chainsaw result cache entry %s", entry.toString()), ex); //NON-NLS
+                }
+                cacheSize -= sizes.get(entry);
+            }
+        }
+        if (evicted > 0) {
+            logger.log(Level.INFO, String.format("Deleted %d old chainsaw result cache entries from %s", evicted, cacheDirectory.toString())); //NON-NLS
+        }
+    }
+
+    private Path entryPath(String evtxHash) {
+        return cacheDirectory.resolve(evtxHash + "_" + ruleSetKey + ENTRY_EXTENSION);
+    }
+
+    private static List<String> toStrings(JsonNode arrayNode) {
+        List<String> strings = new ArrayList<>(arrayNode.size());
+        for (JsonNode node : arrayNode) {
+            strings.add(node.isNull() ? null : node.asText());
+        }
+        return strings;
+    }
+
+    /**
+     * Hash every rule file, and its path relative to the rules directory, in
+     * path order so the hash changes when a rule is added, removed, renamed
+     * or edited.
+     */
+    private static String hashRuleSet(Path rulesDirectory) throws IOException {
+        MessageDigest digest = newDigest();
+        List<Path> ruleFiles;
+        try (Stream<Path> walk = Files.walk(rulesDirectory)) {
+            ruleFiles = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        for (Path ruleFile : ruleFiles) {
+            digest.update(rulesDirectory.relativize(ruleFile).toString().replace('\\', '/').getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            updateDigest(digest, ruleFile);
+        }
+        return toHex(digest.digest());
+    }
+
+    private static String hashFile(Path file) throws IOException {
+        MessageDigest digest = newDigest();
+        updateDigest(digest, file);
+        return toHex(digest.digest());
+    }
+
+    private static void updateDigest(MessageDigest digest, Path file) throws IOException {
+        try (InputStream stream = new DigestInputStream(Files.newInputStream(file), digest)) {
+            byte[] buffer = new byte[HASH_BUFFER_SIZE];
+            while (stream.read(buffer) != -1) {
+                // Read only to update the digest.
+            }
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("MD5"); //NON-NLS
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("MD5 is not available", ex); //NON-NLS
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,412 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2021 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.modules.chainsaw;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.sleuthkit.autopsy.coreutils.Logger;
+import org.sleuthkit.autopsy.modules.chainsaw.EvtxChunkParser.EvtxRecord;
+import org.sleuthkit.autopsy.modules.chainsaw.SigmaRule.SigmaRuleException;
+import org.sleuthkit.autopsy.modules.chainsaw.SigmaYaml.SigmaYamlException;
+import org.sleuthkit.datamodel.AbstractFile;
+import org.sleuthkit.datamodel.TskCoreException;
+
+/**
+ * Hunts event logs with the Sigma rules in process, without running the
+ * Chainsaw executable or extracting the logs. The logs are read chunk by
+ * chunk straight from the image and the chunks are parsed and evaluated in
+ * parallel.
+ *
+ * The mapping file drives the hunt the same way it drives Chainsaw: each
+ * mapping is an event group keyed by event id and provider, whose search
+ * fields translate Sigma field names to event fields and whose table headers
+ * are the extra columns of a detection. Rules are compiled once and indexed
+ * by event id, and each group only keeps the rules that read at least one of
+ * its fields, so an event is only evaluated against rules that could match
+ * it. Detections have the same group and columns as the rows of Chainsaw's
+ * csv output, so they become the same CS_ artifacts.
+ */
+final class ChainsawSigmaEngine {
+
+    private static final Logger logger = Logger.getLogger(ChainsawSigmaEngine.class.getName());
+
+    private static final String EXCLUSIONS = "exclusions"; //NON-NLS
+    private static final String MAPPINGS = "mappings"; //NON-NLS
+    private static final String TITLE = "title"; //NON-NLS
+    private static final String PROVIDER = "provider"; //NON-NLS
+    private static final String SEARCH_FIELDS = "search_fields"; //NON-NLS
+    private static final String TABLE_HEADERS = "table_headers"; //NON-NLS
+    private static final String CONTEXT_FIELD = "context_field"; //NON-NLS
+    private static final String EVENT_ID_FIELD = "EventID"; //NON-NLS
+    private static final String RULE_EXTENSION = ".yml"; //NON-NLS
+
+    static final String EVENT_ID_PATH = "Event.System.EventID"; //NON-NLS
+    static final String PROVIDER_PATH = "Event.System.Provider_attributes.Name"; //NON-NLS
+    static final String CHANNEL_PATH = "Event.System.Channel"; //NON-NLS
+    private static final String SYSTEM_TIME_PATH = "Event.System.TimeCreated_attributes.SystemTime"; //NON-NLS
+    private static final String COMPUTER_PATH = "Event.System.Computer"; //NON-NLS
+
+    private static final List<String> DETECTION_HEADERS = Collections.unmodifiableList(Arrays.asList(
+            "system_time", "id", "detection_rules", "computer_name")); //NON-NLS
+    private static final String RULE_TITLE_PREFIX = "\u2023 "; //NON-NLS
+    private static final String EMPTY_VALUE = "<empty>"; //NON-NLS
+
+    private static final int FILE_HEADER_SIZE = 4096;
+    private static final int HEADER_BLOCK_SIZE_OFFSET = 40;
+
+    private final Map<String, List<EventGroup>> groupsByEventId;
+    private final int ruleCount;
+
+    private ChainsawSigmaEngine(Map<String, List<EventGroup>> groupsByEventId, int ruleCount) {
+        this.groupsByEventId = groupsByEventId;
+        this.ruleCount = ruleCount;
+    }
+
+    /**
+     * Load the mapping file and compile the rules, one per rule in each file,
+     * so a rule collection file gives one rule per document. Rules that can
+     * not be read or use Sigma features the engine does not support are
+     * logged and skipped, as Chainsaw does.
+     *
+     * @param rulesDirectory the Sigma rules directory, searched recursively
+     * @param mappingFile    the Sigma mapping file
+     *
+     * @return the engine
+     *
+     * @throws IOException if the mapping file or the rules directory can not
+     *                     be read
+     */
+    static ChainsawSigmaEngine load(Path rulesDirectory, Path mappingFile) throws IOException {
+        Map<String, Object> mapping;
+        try {
+            mapping = asMap(SigmaYaml.parse(new String(Files.readAllBytes(mappingFile), StandardCharsets.UTF_8)));
+        } catch (SigmaYamlException ex) {
+            throw new IOException(String.format("Error reading mapping file %s", mappingFile.toString()), ex); //NON-NLS
+        }
+        Set<String> exclusions = new HashSet<>();
+        if (mapping.get(EXCLUSIONS) instanceof List) {
+            for (Object exclusion : (List<?>) mapping.get(EXCLUSIONS)) {
+                exclusions.add(String.valueOf(exclusion));
+            }
+        }
+
+        List<SigmaRule> rules = new ArrayList<>();
+        List<Path> ruleFiles;
+        try (Stream<Path> walk = Files.walk(rulesDirectory)) {
+            ruleFiles = walk.filter(path -> Files.isRegularFile(path) && path.toString().toLowerCase().endsWith(RULE_EXTENSION))
+                    .sorted().collect(Collectors.toList());
+        }
+        int skipped = 0;
+        for (Path ruleFile : ruleFiles) {
+            List<Object> ruleDocuments;
+            try {
+                ruleDocuments = SigmaRule.expandCollection(SigmaYaml.parseAll(new String(Files.readAllBytes(ruleFile), StandardCharsets.UTF_8)));
+            } catch (SigmaYamlException | SigmaRuleException | IOException ex) {
+                logger.log(Level.WARNING, String.format("Skipping sigma rule file %s: %s", ruleFile.toString(), ex.getMessage())); //NON-NLS
+                skipped++;
+                continue;
+            }
+            for (int documentNum = 0; documentNum < ruleDocuments.size(); documentNum++) {
+                try {
+                    SigmaRule rule = SigmaRule.compile(ruleDocuments.get(documentNum));
+                    if (!exclusions.contains(rule.getTitle())) {
+                        rules.add(rule);
+                    }
+                } catch (SigmaRuleException ex) {
+                    logger.log(Level.WARNING, String.format("Skipping sigma rule %d of %s: %s", documentNum + 1, ruleFile.toString(), ex.getMessage())); //NON-NLS
+                    skipped++;
+                }
+            }
+        }
+        logger.log(skipped > 0 ? Level.WARNING : Level.INFO, String.format("Loaded %d sigma rules, %d were not loaded", rules.size(), skipped)); //NON-NLS
+
+        Map<String, List<EventGroup>> groupsByEventId = new HashMap<>();
+        for (Map.Entry<String, Object> entry : asMap(mapping.get(MAPPINGS)).entrySet()) {
+            EventGroup group = EventGroup.create(entry.getKey(), asMap(entry.getValue()), rules);
+            if (!group.rules.isEmpty()) {
+                groupsByEventId.computeIfAbsent(group.eventId, eventId -> new ArrayList<>()).add(group);
+            }
+        }
+        return new ChainsawSigmaEngine(groupsByEventId, rules.size());
+    }
+
+    /**
+     * @return the number of rules loaded
+     */
+    int getRuleCount() {
+        return ruleCount;
+    }
+
+    /**
+     * Get an engine with only the rules whose log source is present, so
+     * events are not evaluated against rules written for channels that are
+     * not in the evidence.
+     *
+     * @param present the log sources of the event logs to hunt
+     *
+     * @return the pruned engine
+     */
+    ChainsawSigmaEngine prune(SigmaRulePruner.LogSources present) {
+        Map<String, List<EventGroup>> prunedGroups = new HashMap<>();
+        Set<SigmaRule> keptRules = new HashSet<>();
+        for (List<EventGroup> groups : groupsByEventId.values()) {
+            for (EventGroup group : groups) {
+                List<SigmaRule> rules = group.rules.stream()
+                        .filter(rule -> SigmaRulePruner.isPresent(rule.getLogSource(), present))
+                        .collect(Collectors.toList());
+                if (!rules.isEmpty()) {
+                    prunedGroups.computeIfAbsent(group.eventId, eventId -> new ArrayList<>()).add(group.withRules(rules));
+                    keptRules.addAll(rules);
+                }
+            }
+        }
+        return new ChainsawSigmaEngine(prunedGroups, keptRules.size());
+    }
+
+    /**
+     * Hunt an event log. Every chunk of the log, including chunks past the
+     * count in the file header of a log that was not closed cleanly, is
+     * evaluated as its own task on the executor.
+     *
+     * @param evtxFile      the event log
+     * @param windowStart   start of the time window in epoch seconds, or
+     *                      Long.MIN_VALUE
+     * @param windowEnd     end of the time window in epoch seconds, or
+     *                      Long.MAX_VALUE
+     * @param chunkExecutor executor the chunks are evaluated on
+     * @param cancelCheck   returns true when the hunt should stop
+     *
+     * @return the detections, in record order
+     *
+     * @throws TskCoreException     if the log can not be read
+     * @throws InterruptedException if interrupted while waiting for the
+     *                              chunks
+     */
+    List<Detection> hunt(AbstractFile evtxFile, long windowStart, long windowEnd, ExecutorService chunkExecutor,
+            Supplier<Boolean> cancelCheck) throws TskCoreException, InterruptedException {
+        byte[] fileHeader = new byte[FILE_HEADER_SIZE];
+        if (evtxFile.read(fileHeader, 0, FILE_HEADER_SIZE) != FILE_HEADER_SIZE) {
+            return Collections.emptyList();
+        }
+        int headerBlockSize = EvtxChunkParser.readShort(fileHeader, HEADER_BLOCK_SIZE_OFFSET);
+        if (headerBlockSize <= 0) {
+            headerBlockSize = FILE_HEADER_SIZE;
+        }
+
+        List<Future<List<Detection>>> chunkHunts = new ArrayList<>();
+        for (long chunkOffset = headerBlockSize; chunkOffset + EvtxChunkParser.CHUNK_SIZE <= evtxFile.getSize();
+                chunkOffset += EvtxChunkParser.CHUNK_SIZE) {
+            long offset = chunkOffset;
+            chunkHunts.add(chunkExecutor.submit(() -> {
+                if (cancelCheck.get()) {
+                    return Collections.<Detection>emptyList();
+                }
+                byte[] chunk = new byte[EvtxChunkParser.CHUNK_SIZE];
+                if (evtxFile.read(chunk, offset, chunk.length) != chunk.length) {
+                    return Collections.<Detection>emptyList();
+                }
+                return huntChunk(chunk, windowStart, windowEnd);
+            }));
+        }
+
+        List<Detection> detections = new ArrayList<>();
+        try {
+            for (Future<List<Detection>> chunkHunt : chunkHunts) {
+                try {
+                    detections.addAll(chunkHunt.get());
+                } catch (ExecutionException ex) {
+                    logger.log(Level.WARNING, String.format("Error hunting a chunk of %s (id=%d)", evtxFile.getName(), evtxFile.getId()), ex.getCause()); //NON-NLS
+                }
+            }
+        } finally {
+            chunkHunts.forEach(chunkHunt -> chunkHunt.cancel(true));
+        }
+        return detections;
+    }
+
+    /**
+     * Hunt the records of one chunk.
+     *
+     * @param chunk       the chunk
+     * @param windowStart start of the time window in epoch seconds
+     * @param windowEnd   end of the time window in epoch seconds
+     *
+     * @return the detections
+     */
+    List<Detection> huntChunk(byte[] chunk, long windowStart, long windowEnd) {
+        List<Detection> detections = new ArrayList<>();
+        EvtxChunkParser.parseRecords(chunk, record -> {
+            List<EventGroup> groups = groupsByEventId.get(record.get(EVENT_ID_PATH));
+            if (groups == null) {
+                return;
+            }
+            for (EventGroup group : groups) {
+                if (!group.provider.equals(record.get(PROVIDER_PATH))) {
+                    continue;
+                }
+                String systemTime = formatSystemTime(record.get(SYSTEM_TIME_PATH));
+                if (windowStart != Long.MIN_VALUE || windowEnd != Long.MAX_VALUE) {
+                    Long eventTime = (systemTime == null) ? null : ChainsawColumnPlan.parseSystemTime(systemTime);
+                    if (eventTime == null || eventTime < windowStart || eventTime > windowEnd) {
+                        continue;
+                    }
+                }
+                Detection detection = group.evaluate(record, systemTime);
+                if (detection != null) {
+                    detections.add(detection);
+                }
+            }
+        });
+        return detections;
+    }
+
+    /**
+     * Turn an event's ISO 8601 creation time into the yyyy-MM-dd HH:mm:ss
+     * form Chainsaw writes.
+     */
+    private static String formatSystemTime(String isoTime) {
+        if (isoTime == null || isoTime.length() < 19) {
+            return isoTime;
+        }
+        return isoTime.substring(0, 10) + " " + isoTime.substring(11, 19);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asMap(Object value) throws IOException {
+        if (!(value instanceof Map)) {
+            throw new IOException("Mapping file entry is not a mapping"); //NON-NLS
+        }
+        return (Map<String, Object>) value;
+    }
+
+    /**
+     * The events of one mapping: an event id from a provider, with the rules
+     * that can match it.
+     */
+    private static final class EventGroup {
+
+        private final String eventId;
+        private final String provider;
+        private final String detectionGroup;
+        private final Map<String, String> searchFields;
+        private final List<String> headers;
+        private final List<String> headerPaths;
+        private final List<SigmaRule> rules;
+
+        private EventGroup(String eventId, String provider, String detectionGroup, Map<String, String> searchFields,
+                List<String> headers, List<String> headerPaths, List<SigmaRule> rules) {
+            this.eventId = eventId;
+            this.provider = provider;
+            this.detectionGroup = detectionGroup;
+            this.searchFields = searchFields;
+            this.headers = headers;
+            this.headerPaths = headerPaths;
+            this.rules = rules;
+        }
+
+        static EventGroup create(String eventId, Map<String, Object> mapping, List<SigmaRule> allRules) throws IOException {
+            String title = String.valueOf(mapping.get(TITLE));
+            Map<String, String> searchFields = new LinkedHashMap<>();
+            if (mapping.get(SEARCH_FIELDS) != null) {
+                asMap(mapping.get(SEARCH_FIELDS)).forEach((field, path) -> searchFields.put(field, String.valueOf(path)));
+            }
+            searchFields.putIfAbsent(EVENT_ID_FIELD, EVENT_ID_PATH);
+
+            List<String> headers = new ArrayList<>(DETECTION_HEADERS);
+            List<String> headerPaths = new ArrayList<>();
+            if (mapping.get(TABLE_HEADERS) != null) {
+                for (Map.Entry<String, Object> header : asMap(mapping.get(TABLE_HEADERS)).entrySet()) {
+                    String path = String.valueOf(header.getValue());
+                    headers.add(header.getKey().equals(CONTEXT_FIELD) ? path : header.getKey());
+                    headerPaths.add(path);
+                }
+            }
+
+            List<SigmaRule> rules = new ArrayList<>();
+            for (SigmaRule rule : allRules) {
+                if (rule.hasKeywords() || !Collections.disjoint(rule.getFields(), searchFields.keySet())) {
+                    rules.add(rule);
+                }
+            }
+
+            return new EventGroup(eventId, String.valueOf(mapping.get(PROVIDER)),
+                    title.toLowerCase().replace(' ', '_'), searchFields,
+                    Collections.unmodifiableList(headers), headerPaths, rules);
+        }
+
+        EventGroup withRules(List<SigmaRule> groupRules) {
+            return new EventGroup(eventId, provider, detectionGroup, searchFields, headers, headerPaths, groupRules);
+        }
+
+        /**
+         * Evaluate the group's rules against an event.
+         *
+         * @return a detection naming every rule that matched, or null if none
+         *         did
+         */
+        Detection evaluate(EvtxRecord record, String systemTime) {
+            List<String> searchValues = new ArrayList<>(searchFields.size());
+            for (String path : searchFields.values()) {
+                searchValues.add(record.get(path));
+            }
+            List<String> matchedTitles = new ArrayList<>();
+            for (SigmaRule rule : rules) {
+                if (rule.matches(field -> {
+                    String path = searchFields.get(field);
+                    return (path == null) ? null : record.get(path);
+                }, searchValues)) {
+                    matchedTitles.add(RULE_TITLE_PREFIX + rule.getTitle());
+                }
+            }
+            if (matchedTitles.isEmpty()) {
+                return null;
+            }
+
+            List<String> values = new ArrayList<>(headers.size());
+            values.add(systemTime);
+            values.add(record.get(EVENT_ID_PATH));
+            values.add(String.join("\n", matchedTitles));
+            String computer = record.get(COMPUTER_PATH);
+            values.add(computer == null ? EMPTY_VALUE : "\"" + computer + "\"");
+            for (String path : headerPaths) {
+                String value = record.get(path);
+                values.add(value == null || value.isEmpty() ? EMPTY_VALUE : value);
+            }
+            return new Detection(detectionGroup, headers, values, record.getRecordId());
+        }
+    }
+}
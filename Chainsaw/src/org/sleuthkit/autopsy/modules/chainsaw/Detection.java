@@ -0,0 +1,79 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2021 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.modules.chainsaw;
+
+import java.util.List;
+
+/**
+ * A Chainsaw detection in csv row form: a group name, which becomes the
+ * artifact type, and an ordered set of column names and values.
+ */
+final class Detection {
+
+    /**
+     * Record id of a detection whose event record is not known, as with
+     * detections read from csv output.
+     */
+    static final long UNKNOWN_RECORD_ID = -1;
+
+    private final String group;
+    private final List<String> headers;
+    private final List<String> values;
+    private final long recordId;
+
+    Detection(String group, List<String> headers, List<String> values) {
+        this(group, headers, values, UNKNOWN_RECORD_ID);
+    }
+
+    Detection(String group, List<String> headers, List<String> values, long recordId) {
+        this.group = group;
+        this.headers = headers;
+        this.values = values;
+        this.recordId = recordId;
+    }
+
+    /**
+     * @return the detection group, used as the artifact type name
+     */
+    String getGroup() {
+        return group;
+    }
+
+    /**
+     * @return the column names, in the same order as the values
+     */
+    List<String> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * @return the column values
+     */
+    List<String> getValues() {
+        return values;
+    }
+
+    /**
+     * @return the event record id of the event the detection was made
+     *         on, or UNKNOWN_RECORD_ID
+     */
+    long getRecordId() {
+        return recordId;
+    }
+}
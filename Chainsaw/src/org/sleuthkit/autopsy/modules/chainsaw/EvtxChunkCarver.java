@@ -0,0 +1,378 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2021 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.modules.chainsaw;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.zip.CRC32;
+import org.sleuthkit.autopsy.coreutils.Logger;
+import org.sleuthkit.datamodel.AbstractFile;
+import org.sleuthkit.datamodel.Content;
+import org.sleuthkit.datamodel.DerivedFile;
+import org.sleuthkit.datamodel.SleuthkitCase;
+import org.sleuthkit.datamodel.TskCoreException;
+import org.sleuthkit.datamodel.TskData;
+
+/**
+ * Carves event log chunks out of the unallocated space of a data source.
+ * Each unallocated space file is split into ranges that are scanned in
+ * parallel for the chunk signature on sector boundaries. A candidate is only
+ * kept when its header and event records checksums are both valid, and
+ * chunks with the same checksums and first record id as one already found
+ * are dropped.
+ *
+ * The chunks found in each unallocated space file are grouped by the
+ * channels of their records, so a carved log only holds chunks of one
+ * channel, or of one set of channels for forwarded events, and the channels
+ * of its first chunk are those of the whole log. Each group is written, in
+ * the order the chunks were found, to synthetic event logs of at most
+ * MAX_CHUNKS_PER_FILE chunks with a file header of their own, and added to
+ * the case as derived files of the unallocated space file so they can be
+ * hunted like any other event log. The header is marked dirty, as the chunks
+ * of a carved log need not come from one log or be in time order.
+ */
+final class EvtxChunkCarver {
+
+    private static final Logger logger = Logger.getLogger(EvtxChunkCarver.class.getName());
+
+    static final String CARVED_FILE_PREFIX = "Carved_"; //NON-NLS
+    private static final String CARVED_FILE_EXTENSION = ".evtx"; //NON-NLS
+
+    private static final byte[] FILE_SIGNATURE = "ElfFile\0".getBytes(StandardCharsets.US_ASCII); //NON-NLS
+    private static final byte[] CHUNK_SIGNATURE = "ElfChnk\0".getBytes(StandardCharsets.US_ASCII); //NON-NLS
+    private static final int FILE_HEADER_SIZE = 128;
+    private static final int FILE_HEADER_CHECKSUM_LENGTH = 120;
+    private static final int FILE_HEADER_BLOCK_SIZE = 4096;
+    private static final short FILE_MINOR_VERSION = 1;
+    private static final short FILE_MAJOR_VERSION = 3;
+    private static final int FILE_FLAG_DIRTY = 0x1;
+    private static final int CHUNK_SIZE = EvtxChunkParser.CHUNK_SIZE;
+    private static final int CHUNK_HEADER_SIZE = 512;
+    private static final int CHUNK_HEADER_CHECKSUM_LENGTH = 120;
+    private static final int CHUNK_HEADER_CHECKSUM_RESUME = 128;
+    private static final int CHUNK_FIRST_RECORD_ID_OFFSET = 24;
+    private static final int CHUNK_LAST_RECORD_ID_OFFSET = 32;
+    private static final int CHUNK_HEADER_SIZE_OFFSET = 40;
+    private static final int CHUNK_FREE_SPACE_OFFSET = 48;
+    private static final int CHUNK_DATA_CHECKSUM_OFFSET = 52;
+    private static final int CHUNK_HEADER_CHECKSUM_OFFSET = 124;
+    private static final int CHUNK_HEADER_SIZE_VALUE = 128;
+    private static final int SECTOR_SIZE = 512;
+    private static final int READ_SIZE = 1024 * 1024;
+    private static final long RANGE_SIZE = 64L * 1024 * 1024;
+    private static final int MAX_CHUNKS_PER_FILE = 1024;
+
+    private EvtxChunkCarver() {
+    }
+
+    /**
+     * Carve the event log chunks in the unallocated space of a data source
+     * into synthetic event logs. Unallocated space files that already have
+     * carved logs from an earlier run are not carved again.
+     *
+     * @param caseDb          the case database
+     * @param dataSource      the data source
+     * @param caseDirectory   the case directory, derived file paths are
+     *                        relative to it
+     * @param outputDirectory directory the carved logs are written to
+     * @param executor        executor the ranges are scanned on
+     * @param moduleName      the module creating the derived files
+     * @param cancelCheck     returns true when the ingest job has been
+     *                        cancelled
+     *
+     * @return the derived files of the carved logs
+     *
+     * @throws TskCoreException     if the unallocated space files can not be
+     *                              found
+     * @throws IOException          if the output directory can not be
+     *                              created
+     * @throws InterruptedException if interrupted while waiting for the scans
+     */
+    static List<AbstractFile> carve(SleuthkitCase caseDb, Content dataSource, Path caseDirectory, Path outputDirectory,
+            ExecutorService executor, String moduleName, Supplier<Boolean> cancelCheck) throws TskCoreException, IOException, InterruptedException {
+        List<AbstractFile> unallocatedFiles = new ArrayList<>();
+        for (AbstractFile unallocatedFile : caseDb.findAllFilesWhere("data_source_obj_id = " + dataSource.getId() //NON-NLS
+                + " AND type = " + TskData.TSK_DB_FILES_TYPE_ENUM.UNALLOC_BLOCKS.getFileType())) { //NON-NLS
+            if (!hasCarvedFiles(unallocatedFile)) {
+                unallocatedFiles.add(unallocatedFile);
+            }
+        }
+        if (unallocatedFiles.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Future<List<CarvedChunk>>> scans = new ArrayList<>();
+        for (AbstractFile unallocatedFile : unallocatedFiles) {
+            for (long rangeStart = 0; rangeStart < unallocatedFile.getSize(); rangeStart += RANGE_SIZE) {
+                long start = rangeStart;
+                long end = Math.min(rangeStart + RANGE_SIZE, unallocatedFile.getSize());
+                scans.add(executor.submit(() -> scanRange(unallocatedFile, start, end, cancelCheck)));
+            }
+        }
+
+        Map<AbstractFile, Map<Set<String>, List<CarvedChunk>>> chunksPerFile = new LinkedHashMap<>();
+        Set<List<Long>> seenChunks = new HashSet<>();
+        int chunkCount = 0;
+        for (Future<List<CarvedChunk>> scan : scans) {
+            List<CarvedChunk> rangeChunks;
+            try {
+                rangeChunks = scan.get();
+            } catch (ExecutionException ex) {
+                logger.log(Level.WARNING, "Error scanning unallocated space for event log chunks", ex.getCause()); //NON-NLS
+                continue;
+            }
+            for (CarvedChunk chunk : rangeChunks) {
+                if (seenChunks.add(Arrays.asList(chunk.headerChecksum, chunk.dataChecksum, chunk.firstRecordId))) {
+                    chunksPerFile.computeIfAbsent(chunk.sourceFile, file -> new LinkedHashMap<>())
+                            .computeIfAbsent(chunk.channels, channels -> new ArrayList<>()).add(chunk);
+                    chunkCount++;
+                }
+            }
+        }
+        logger.log(Level.INFO, String.format("Carved %d event log chunks from %d unallocated space files", chunkCount, unallocatedFiles.size())); //NON-NLS
+        if (cancelCheck.get() || chunksPerFile.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Files.createDirectories(outputDirectory);
+        List<AbstractFile> carvedFiles = new ArrayList<>();
+        for (Map.Entry<AbstractFile, Map<Set<String>, List<CarvedChunk>>> entry : chunksPerFile.entrySet()) {
+            AbstractFile sourceFile = entry.getKey();
+            int fileIndex = 0;
+            for (List<CarvedChunk> chunks : entry.getValue().values()) {
+                for (int first = 0; first < chunks.size(); first += MAX_CHUNKS_PER_FILE) {
+                    if (cancelCheck.get()) {
+                        return carvedFiles;
+                    }
+                    String fileName = CARVED_FILE_PREFIX + sourceFile.getName() + "_" + fileIndex++ + CARVED_FILE_EXTENSION;
+                    Path carvedPath = outputDirectory.resolve(fileName);
+                    try {
+                        long size = writeCarvedFile(chunks.subList(first, Math.min(first + MAX_CHUNKS_PER_FILE, chunks.size())), carvedPath);
+                        DerivedFile carvedFile = caseDb.addDerivedFile(fileName, caseDirectory.relativize(carvedPath).toString(), size,
+                                0, 0, 0, 0, true, sourceFile, "", moduleName, "", "", TskData.EncodingType.NONE);
+                        carvedFiles.add(carvedFile);
+                    } catch (IOException | TskCoreException ex) {
+                        logger.log(Level.WARNING, String.format("Error creating carved event log %s", carvedPath.toString()), ex); //NON-NLS
+                    }
+                }
+            }
+        }
+        return carvedFiles;
+    }
+
+    /**
+     * Check whether an unallocated space file was carved by an earlier run.
+     */
+    private static boolean hasCarvedFiles(AbstractFile unallocatedFile) throws TskCoreException {
+        if (!unallocatedFile.hasChildren()) {
+            return false;
+        }
+        for (Content child : unallocatedFile.getChildren()) {
+            if (child.getName().startsWith(CARVED_FILE_PREFIX) && child.getName().endsWith(CARVED_FILE_EXTENSION)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Scan a range of an unallocated space file for valid chunks. Chunks
+     * starting in the range are found even when they end past it.
+     *
+     * @param unallocatedFile the unallocated space file
+     * @param start           offset of the range, on a sector boundary
+     * @param end             offset of the end of the range
+     * @param cancelCheck     returns true when the ingest job has been
+     *                        cancelled
+     *
+     * @return the valid chunks starting in the range
+     */
+    private static List<CarvedChunk> scanRange(AbstractFile unallocatedFile, long start, long end, Supplier<Boolean> cancelCheck) {
+        List<CarvedChunk> chunks = new ArrayList<>();
+        byte[] buffer = new byte[READ_SIZE + CHUNK_SIZE];
+        long position = start;
+        try {
+            while (position < end && !cancelCheck.get()) {
+                long blockStart = position;
+                int length = (int) Math.min(buffer.length, unallocatedFile.getSize() - blockStart);
+                if (length < CHUNK_SIZE) {
+                    break;
+                }
+                int read = unallocatedFile.read(buffer, blockStart, length);
+                if (read < CHUNK_SIZE) {
+                    break;
+                }
+                long blockEnd = Math.min(end, blockStart + read - CHUNK_SIZE + 1);
+                while (position < blockEnd) {
+                    int offset = (int) (position - blockStart);
+                    if (isValidChunk(buffer, offset)) {
+                        chunks.add(new CarvedChunk(unallocatedFile, position, buffer, offset));
+                        position += CHUNK_SIZE;
+                    } else {
+                        position += SECTOR_SIZE;
+                    }
+                }
+            }
+        } catch (TskCoreException ex) {
+            logger.log(Level.WARNING, String.format("Error reading unallocated space file %s (id=%d) at offset %d", //NON-NLS
+                    unallocatedFile.getName(), unallocatedFile.getId(), position), ex);
+        }
+        return chunks;
+    }
+
+    /**
+     * Check whether a complete chunk with valid checksums and at least one
+     * record starts at an offset in a buffer.
+     *
+     * @param buffer the buffer, with at least CHUNK_SIZE bytes after offset
+     * @param offset offset of the candidate chunk
+     *
+     * @return true if the chunk is valid
+     */
+    static boolean isValidChunk(byte[] buffer, int offset) {
+        for (int i = 0; i < CHUNK_SIGNATURE.length; i++) {
+            if (buffer[offset + i] != CHUNK_SIGNATURE[i]) {
+                return false;
+            }
+        }
+        if (EvtxChunkParser.readInt(buffer, offset + CHUNK_HEADER_SIZE_OFFSET) != CHUNK_HEADER_SIZE_VALUE) {
+            return false;
+        }
+        long freeSpaceOffset = Integer.toUnsignedLong(EvtxChunkParser.readInt(buffer, offset + CHUNK_FREE_SPACE_OFFSET));
+        if (freeSpaceOffset <= CHUNK_HEADER_SIZE || freeSpaceOffset > CHUNK_SIZE) {
+            return false;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer, offset, CHUNK_HEADER_CHECKSUM_LENGTH);
+        crc.update(buffer, offset + CHUNK_HEADER_CHECKSUM_RESUME, CHUNK_HEADER_SIZE - CHUNK_HEADER_CHECKSUM_RESUME);
+        if ((int) crc.getValue() != EvtxChunkParser.readInt(buffer, offset + CHUNK_HEADER_CHECKSUM_OFFSET)) {
+            return false;
+        }
+        crc.reset();
+        crc.update(buffer, offset + CHUNK_HEADER_SIZE, (int) freeSpaceOffset - CHUNK_HEADER_SIZE);
+        return (int) crc.getValue() == EvtxChunkParser.readInt(buffer, offset + CHUNK_DATA_CHECKSUM_OFFSET);
+    }
+
+    /**
+     * Write a synthetic event log of the given chunks, re-reading each chunk
+     * from its unallocated space file.
+     *
+     * @param chunks     the chunks, in the order they are written
+     * @param carvedPath the file to write
+     *
+     * @return the size of the file written
+     */
+    private static long writeCarvedFile(List<CarvedChunk> chunks, Path carvedPath) throws IOException, TskCoreException {
+        long nextRecordId = 1;
+        for (CarvedChunk chunk : chunks) {
+            nextRecordId = Math.max(nextRecordId, chunk.lastRecordId + 1);
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BLOCK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(FILE_SIGNATURE);
+        header.putLong(0);
+        header.putLong(chunks.size() - 1);
+        header.putLong(nextRecordId);
+        header.putInt(FILE_HEADER_SIZE);
+        header.putShort(FILE_MINOR_VERSION);
+        header.putShort(FILE_MAJOR_VERSION);
+        header.putShort((short) FILE_HEADER_BLOCK_SIZE);
+        header.putShort((short) chunks.size());
+        header.putInt(FILE_HEADER_CHECKSUM_LENGTH, FILE_FLAG_DIRTY);
+        CRC32 crc = new CRC32();
+        crc.update(header.array(), 0, FILE_HEADER_CHECKSUM_LENGTH);
+        header.putInt(FILE_HEADER_CHECKSUM_LENGTH + Integer.BYTES, (int) crc.getValue());
+
+        byte[] chunkBuffer = new byte[CHUNK_SIZE];
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(carvedPath))) {
+            out.write(header.array());
+            for (CarvedChunk chunk : chunks) {
+                if (chunk.sourceFile.read(chunkBuffer, chunk.offset, CHUNK_SIZE) != CHUNK_SIZE) {
+                    throw new IOException(String.format("Short read of chunk at offset %d of %s", chunk.offset, chunk.sourceFile.getName())); //NON-NLS
+                }
+                out.write(chunkBuffer);
+            }
+        }
+        return FILE_HEADER_BLOCK_SIZE + (long) chunks.size() * CHUNK_SIZE;
+    }
+
+    /**
+     * Read the channels of the records of a chunk.
+     *
+     * @param buffer the buffer, with at least CHUNK_SIZE bytes after offset
+     * @param offset offset of the chunk
+     *
+     * @return the channels, empty if no record has one
+     */
+    private static Set<String> readChannels(byte[] buffer, int offset) {
+        Set<String> channels = new TreeSet<>();
+        EvtxChunkParser.parseRecords(Arrays.copyOfRange(buffer, offset, offset + CHUNK_SIZE), record -> {
+            String channel = record.get(ChainsawSigmaEngine.CHANNEL_PATH);
+            if (channel != null) {
+                channels.add(channel);
+            }
+        });
+        return channels;
+    }
+
+    /**
+     * A valid chunk found in unallocated space.
+     */
+    private static final class CarvedChunk {
+
+        private final AbstractFile sourceFile;
+        private final long offset;
+        private final long firstRecordId;
+        private final long lastRecordId;
+        private final long headerChecksum;
+        private final long dataChecksum;
+        private final Set<String> channels;
+
+        private CarvedChunk(AbstractFile sourceFile, long offset, byte[] buffer, int bufferOffset) {
+            this.sourceFile = sourceFile;
+            this.offset = offset;
+            this.firstRecordId = EvtxChunkParser.readLong(buffer, bufferOffset + CHUNK_FIRST_RECORD_ID_OFFSET);
+            this.lastRecordId = EvtxChunkParser.readLong(buffer, bufferOffset + CHUNK_LAST_RECORD_ID_OFFSET);
+            this.headerChecksum = Integer.toUnsignedLong(EvtxChunkParser.readInt(buffer, bufferOffset + CHUNK_HEADER_CHECKSUM_OFFSET));
+            this.dataChecksum = Integer.toUnsignedLong(EvtxChunkParser.readInt(buffer, bufferOffset + CHUNK_DATA_CHECKSUM_OFFSET));
+            this.channels = readChannels(buffer, bufferOffset);
+        }
+    }
+}
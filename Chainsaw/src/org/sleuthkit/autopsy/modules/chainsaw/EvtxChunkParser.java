@@ -0,0 +1,730 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2021 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.modules.chainsaw;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import org.sleuthkit.autopsy.coreutils.Logger;
+
+/**
+ * Parses the event records of one 64 KiB EVTX chunk. Each record's binary
+ * XML is expanded against the chunk's templates and flattened into a map of
+ * field paths, the same paths the Chainsaw mapping file uses:
+ * Event.System.EventID, Event.System.Provider_attributes.Name,
+ * Event.EventData.CommandLine and so on. Data elements with a Name attribute
+ * are keyed by that name, as Chainsaw's event log reader does.
+ *
+ * A chunk is self contained, its string table and templates are never shared
+ * with another chunk, so chunks can be parsed on separate threads.
+ */
+final class EvtxChunkParser {
+
+    private static final Logger logger = Logger.getLogger(EvtxChunkParser.class.getName());
+
+    static final int CHUNK_SIZE = 65536;
+    private static final byte[] CHUNK_SIGNATURE = "ElfChnk\0".getBytes(StandardCharsets.US_ASCII); //NON-NLS
+    private static final int CHUNK_HEADER_SIZE = 512;
+    private static final int FREE_SPACE_OFFSET = 48;
+    private static final int RECORD_SIGNATURE = 0x00002a2a;
+    private static final int RECORD_HEADER_SIZE = 24;
+    private static final int TEMPLATE_DEFINITION_HEADER_SIZE = 24;
+    private static final long FILETIME_EPOCH_OFFSET = 116444736000000000L;
+    private static final int MAX_NESTING = 64;
+    private static final Charset WINDOWS_1252 = Charset.forName("windows-1252"); //NON-NLS
+    private static final DateTimeFormatter ISO_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSSSS'Z'"); //NON-NLS
+
+    private static final String ATTRIBUTES_SUFFIX = "_attributes."; //NON-NLS
+    private static final String DATA_ELEMENT = "Data"; //NON-NLS
+    private static final String NAME_ATTRIBUTE = "Name"; //NON-NLS
+
+    // Binary XML tokens, without the 0x40 "more data" flag.
+    private static final int TOKEN_END_OF_STREAM = 0x00;
+    private static final int TOKEN_OPEN_START_ELEMENT = 0x01;
+    private static final int TOKEN_CLOSE_START_ELEMENT = 0x02;
+    private static final int TOKEN_CLOSE_EMPTY_ELEMENT = 0x03;
+    private static final int TOKEN_END_ELEMENT = 0x04;
+    private static final int TOKEN_VALUE = 0x05;
+    private static final int TOKEN_ATTRIBUTE = 0x06;
+    private static final int TOKEN_CDATA = 0x07;
+    private static final int TOKEN_CHAR_REF = 0x08;
+    private static final int TOKEN_ENTITY_REF = 0x09;
+    private static final int TOKEN_PI_TARGET = 0x0a;
+    private static final int TOKEN_PI_DATA = 0x0b;
+    private static final int TOKEN_TEMPLATE_INSTANCE = 0x0c;
+    private static final int TOKEN_NORMAL_SUBSTITUTION = 0x0d;
+    private static final int TOKEN_OPTIONAL_SUBSTITUTION = 0x0e;
+    private static final int TOKEN_FRAGMENT_HEADER = 0x0f;
+
+    // Value types.
+    private static final int TYPE_NULL = 0x00;
+    private static final int TYPE_STRING = 0x01;
+    private static final int TYPE_ANSI_STRING = 0x02;
+    private static final int TYPE_INT8 = 0x03;
+    private static final int TYPE_UINT8 = 0x04;
+    private static final int TYPE_INT16 = 0x05;
+    private static final int TYPE_UINT16 = 0x06;
+    private static final int TYPE_INT32 = 0x07;
+    private static final int TYPE_UINT32 = 0x08;
+    private static final int TYPE_INT64 = 0x09;
+    private static final int TYPE_UINT64 = 0x0a;
+    private static final int TYPE_REAL32 = 0x0b;
+    private static final int TYPE_REAL64 = 0x0c;
+    private static final int TYPE_BOOL = 0x0d;
+    private static final int TYPE_BINARY = 0x0e;
+    private static final int TYPE_GUID = 0x0f;
+    private static final int TYPE_SIZE_T = 0x10;
+    private static final int TYPE_FILETIME = 0x11;
+    private static final int TYPE_SYSTEMTIME = 0x12;
+    private static final int TYPE_SID = 0x13;
+    private static final int TYPE_HEX_INT32 = 0x14;
+    private static final int TYPE_HEX_INT64 = 0x15;
+    private static final int TYPE_BINXML = 0x21;
+    private static final int TYPE_ARRAY_FLAG = 0x80;
+
+    private final byte[] chunk;
+    private final int limit;
+    private final Map<Integer, String> names = new HashMap<>();
+
+    private EvtxChunkParser(byte[] chunk, int limit) {
+        this.chunk = chunk;
+        this.limit = limit;
+    }
+
+    /**
+     * Check whether a block of an event log is a chunk.
+     *
+     * @param chunk the block, at least CHUNK_SIZE bytes
+     *
+     * @return true if the block starts with the chunk signature
+     */
+    static boolean isChunk(byte[] chunk) {
+        if (chunk.length < CHUNK_SIZE) {
+            return false;
+        }
+        for (int i = 0; i < CHUNK_SIGNATURE.length; i++) {
+            if (chunk[i] != CHUNK_SIGNATURE[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parse the records of a chunk. Records that can not be parsed are
+     * skipped.
+     *
+     * @param chunk    the chunk, CHUNK_SIZE bytes starting with its signature
+     * @param consumer receives each record
+     */
+    static void parseRecords(byte[] chunk, Consumer<EvtxRecord> consumer) {
+        if (!isChunk(chunk)) {
+            return;
+        }
+        int freeSpaceOffset = readInt(chunk, FREE_SPACE_OFFSET);
+        int end = (freeSpaceOffset > CHUNK_HEADER_SIZE && freeSpaceOffset <= CHUNK_SIZE) ? freeSpaceOffset : CHUNK_SIZE;
+        EvtxChunkParser parser = new EvtxChunkParser(chunk, CHUNK_SIZE);
+
+        int offset = CHUNK_HEADER_SIZE;
+        while (offset + RECORD_HEADER_SIZE + 4 <= end && readInt(chunk, offset) == RECORD_SIGNATURE) {
+            int recordSize = readInt(chunk, offset + 4);
+            if (recordSize < RECORD_HEADER_SIZE + 4 || offset + recordSize > end) {
+                break;
+            }
+            long recordId = readLong(chunk, offset + 8);
+            try {
+                Map<String, String> fields = new LinkedHashMap<>();
+                List<Object> nodes = parser.parseFragment(new Cursor(offset + RECORD_HEADER_SIZE), Collections.emptyList(), false, 0);
+                for (Object node : nodes) {
+                    if (node instanceof Element) {
+                        flatten((Element) node, ((Element) node).name, fields);
+                    }
+                }
+                consumer.accept(new EvtxRecord(recordId, fields));
+            } catch (RuntimeException ex) {
+                logger.log(Level.FINE, String.format("Error parsing event record %d, skipping it", recordId), ex); //NON-NLS
+            }
+            offset += recordSize;
+        }
+    }
+
+    /**
+     * Parse binary XML up to the end of the stream or the end of the
+     * enclosing element.
+     *
+     * @param cursor         position in the chunk, advanced past what is
+     *                       parsed
+     * @param substitutions  the substitution values of the template being
+     *                       expanded
+     * @param inSubstitution true when parsing binary XML held in a
+     *                       substitution value, where elements have no
+     *                       dependency identifier
+     * @param depth          nesting depth, to stop on corrupt data
+     *
+     * @return the elements and text parsed
+     */
+    private List<Object> parseFragment(Cursor cursor, List<Value> substitutions, boolean inSubstitution, int depth) {
+        if (depth > MAX_NESTING) {
+            throw new IllegalStateException("Binary XML is nested too deeply"); //NON-NLS
+        }
+        List<Object> nodes = new ArrayList<>();
+        while (cursor.position < limit) {
+            int token = chunk[cursor.position] & 0x0f;
+            switch (token) {
+                case TOKEN_END_OF_STREAM:
+                    cursor.position++;
+                    return nodes;
+                case TOKEN_END_ELEMENT:
+                    return nodes;
+                case TOKEN_FRAGMENT_HEADER:
+                    cursor.position += 4;
+                    break;
+                case TOKEN_OPEN_START_ELEMENT:
+                    nodes.add(parseElement(cursor, substitutions, inSubstitution, depth));
+                    break;
+                case TOKEN_TEMPLATE_INSTANCE:
+                    nodes.addAll(parseTemplateInstance(cursor, depth));
+                    break;
+                case TOKEN_VALUE:
+                case TOKEN_CDATA:
+                case TOKEN_CHAR_REF:
+                case TOKEN_ENTITY_REF:
+                    nodes.add(parseText(cursor));
+                    break;
+                case TOKEN_NORMAL_SUBSTITUTION:
+                case TOKEN_OPTIONAL_SUBSTITUTION:
+                    addSubstitution(cursor, substitutions, nodes, depth);
+                    break;
+                case TOKEN_PI_TARGET:
+                    cursor.position++;
+                    readName(cursor);
+                    break;
+                case TOKEN_PI_DATA:
+                    cursor.position++;
+                    readCountedString(cursor);
+                    break;
+                default:
+                    throw new IllegalStateException(String.format("Unexpected binary XML token 0x%02x", chunk[cursor.position])); //NON-NLS
+            }
+        }
+        return nodes;
+    }
+
+    private Element parseElement(Cursor cursor, List<Value> substitutions, boolean inSubstitution, int depth) {
+        boolean hasAttributes = (chunk[cursor.position] & 0x40) != 0;
+        cursor.position++;
+        if (!inSubstitution) {
+            cursor.position += 2; // dependency identifier
+        }
+        cursor.position += 4; // data size
+        Element element = new Element(readName(cursor));
+        if (hasAttributes) {
+            cursor.position += 4; // attribute list size
+        }
+
+        while ((chunk[cursor.position] & 0x0f) == TOKEN_ATTRIBUTE) {
+            cursor.position++;
+            String attributeName = readName(cursor);
+            StringBuilder value = new StringBuilder();
+            boolean present = false;
+            while (true) {
+                int token = chunk[cursor.position] & 0x0f;
+                if (token == TOKEN_VALUE || token == TOKEN_CHAR_REF || token == TOKEN_ENTITY_REF) {
+                    value.append(parseText(cursor));
+                    present = true;
+                } else if (token == TOKEN_NORMAL_SUBSTITUTION || token == TOKEN_OPTIONAL_SUBSTITUTION) {
+                    List<Object> parts = new ArrayList<>();
+                    addSubstitution(cursor, substitutions, parts, depth);
+                    for (Object part : parts) {
+                        if (part instanceof String) {
+                            value.append(part);
+                            present = true;
+                        }
+                    }
+                } else {
+                    break;
+                }
+            }
+            if (present) {
+                element.attributes.put(attributeName, value.toString());
+            }
+        }
+
+        int token = chunk[cursor.position] & 0x0f;
+        cursor.position++;
+        if (token == TOKEN_CLOSE_START_ELEMENT) {
+            element.children.addAll(parseFragment(cursor, substitutions, inSubstitution, depth + 1));
+            if ((chunk[cursor.position] & 0x0f) == TOKEN_END_ELEMENT) {
+                cursor.position++;
+            }
+        } else if (token != TOKEN_CLOSE_EMPTY_ELEMENT) {
+            throw new IllegalStateException(String.format("Unexpected binary XML token 0x%02x closing element %s", token, element.name)); //NON-NLS
+        }
+        return element;
+    }
+
+    private List<Object> parseTemplateInstance(Cursor cursor, int depth) {
+        cursor.position += 2; // token and unknown byte
+        cursor.position += 4; // template identifier
+        int definitionOffset = readInt(chunk, cursor.position);
+        cursor.position += 4;
+        if (definitionOffset == cursor.position) {
+            // The definition is inline, skip over it.
+            int dataSize = readInt(chunk, cursor.position + 20);
+            cursor.position += TEMPLATE_DEFINITION_HEADER_SIZE + dataSize;
+        }
+        if (definitionOffset < CHUNK_HEADER_SIZE || definitionOffset >= limit) {
+            throw new IllegalStateException(String.format("Template definition offset %d is outside the chunk", definitionOffset)); //NON-NLS
+        }
+
+        int count = readInt(chunk, cursor.position);
+        cursor.position += 4;
+        if (count < 0 || cursor.position + count * 4 > limit) {
+            throw new IllegalStateException(String.format("Bad substitution count %d", count)); //NON-NLS
+        }
+        int[] sizes = new int[count];
+        int[] types = new int[count];
+        for (int i = 0; i < count; i++) {
+            sizes[i] = readShort(chunk, cursor.position);
+            types[i] = chunk[cursor.position + 2] & 0xff;
+            cursor.position += 4;
+        }
+        List<Value> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(new Value(types[i], cursor.position, sizes[i]));
+            cursor.position += sizes[i];
+        }
+
+        return parseFragment(new Cursor(definitionOffset + TEMPLATE_DEFINITION_HEADER_SIZE), values, false, depth + 1);
+    }
+
+    private void addSubstitution(Cursor cursor, List<Value> substitutions, List<Object> nodes, int depth) {
+        cursor.position++;
+        int index = readShort(chunk, cursor.position);
+        cursor.position += 3; // index and value type
+        if (index >= substitutions.size()) {
+            return;
+        }
+        Value value = substitutions.get(index);
+        if (value.type == TYPE_BINXML) {
+            if (value.size > 0) {
+                nodes.addAll(parseFragment(new Cursor(value.offset), Collections.emptyList(), true, depth + 1));
+            }
+            return;
+        }
+        String text = decodeValue(value.type, value.offset, value.size);
+        if (text != null) {
+            nodes.add(text);
+        }
+    }
+
+    private String parseText(Cursor cursor) {
+        int token = chunk[cursor.position] & 0x0f;
+        cursor.position++;
+        switch (token) {
+            case TOKEN_VALUE:
+                int type = chunk[cursor.position] & 0xff;
+                cursor.position++;
+                if (type == TYPE_STRING) {
+                    return readCountedString(cursor);
+                }
+                throw new IllegalStateException(String.format("Unexpected value text type 0x%02x", type)); //NON-NLS
+            case TOKEN_CDATA:
+                return readCountedString(cursor);
+            case TOKEN_CHAR_REF:
+                char c = (char) readShort(chunk, cursor.position);
+                cursor.position += 2;
+                return String.valueOf(c);
+            default:
+                return decodeEntity(readName(cursor));
+        }
+    }
+
+    private static String decodeEntity(String entity) {
+        switch (entity) {
+            case "amp": //NON-NLS
+                return "&";
+            case "lt": //NON-NLS
+                return "<";
+            case "gt": //NON-NLS
+                return ">";
+            case "quot": //NON-NLS
+                return "\"";
+            case "apos": //NON-NLS
+                return "'";
+            default:
+                return "&" + entity + ";";
+        }
+    }
+
+    /**
+     * Read a name reference. The name lives in the chunk's string table, or
+     * inline right after the reference the first time the name is used.
+     */
+    private String readName(Cursor cursor) {
+        int nameOffset = readInt(chunk, cursor.position);
+        cursor.position += 4;
+        String name = readNameAt(nameOffset);
+        if (nameOffset == cursor.position) {
+            cursor.position += 8 + name.length() * 2 + 2;
+        }
+        return name;
+    }
+
+    private String readNameAt(int nameOffset) {
+        String name = names.get(nameOffset);
+        if (name == null) {
+            if (nameOffset < 0 || nameOffset + 8 > limit) {
+                throw new IllegalStateException(String.format("Name offset %d is outside the chunk", nameOffset)); //NON-NLS
+            }
+            int length = readShort(chunk, nameOffset + 6);
+            name = readUtf16(nameOffset + 8, length * 2);
+            names.put(nameOffset, name);
+        }
+        return name;
+    }
+
+    private String readCountedString(Cursor cursor) {
+        int length = readShort(chunk, cursor.position);
+        cursor.position += 2;
+        String text = readUtf16(cursor.position, length * 2);
+        cursor.position += length * 2;
+        return text;
+    }
+
+    private String readUtf16(int offset, int byteCount) {
+        if (offset < 0 || byteCount < 0 || offset + byteCount > limit) {
+            throw new IllegalStateException(String.format("String at %d is outside the chunk", offset)); //NON-NLS
+        }
+        return new String(chunk, offset, byteCount, StandardCharsets.UTF_16LE);
+    }
+
+    /**
+     * Decode a substitution value to the text Chainsaw's event log reader
+     * would show for it.
+     *
+     * @return the text, or null for a null value
+     */
+    private String decodeValue(int type, int offset, int size) {
+        if (size == 0 || type == TYPE_NULL) {
+            return null;
+        }
+        if (offset < 0 || offset + size > limit) {
+            throw new IllegalStateException(String.format("Value at %d is outside the chunk", offset)); //NON-NLS
+        }
+        if ((type & TYPE_ARRAY_FLAG) != 0) {
+            return decodeArray(type & ~TYPE_ARRAY_FLAG, offset, size);
+        }
+        switch (type) {
+            case TYPE_STRING:
+                return trimNulls(new String(chunk, offset, size, StandardCharsets.UTF_16LE));
+            case TYPE_ANSI_STRING:
+                return trimNulls(new String(chunk, offset, size, WINDOWS_1252));
+            case TYPE_INT8:
+                return Integer.toString(chunk[offset]);
+            case TYPE_UINT8:
+                return Integer.toString(chunk[offset] & 0xff);
+            case TYPE_INT16:
+                return Integer.toString((short) readShort(chunk, offset));
+            case TYPE_UINT16:
+                return Integer.toString(readShort(chunk, offset));
+            case TYPE_INT32:
+                return Integer.toString(readInt(chunk, offset));
+            case TYPE_UINT32:
+                return Long.toString(readInt(chunk, offset) & 0xffffffffL);
+            case TYPE_INT64:
+                return Long.toString(readLong(chunk, offset));
+            case TYPE_UINT64:
+                return Long.toUnsignedString(readLong(chunk, offset));
+            case TYPE_REAL32:
+                return Float.toString(Float.intBitsToFloat(readInt(chunk, offset)));
+            case TYPE_REAL64:
+                return Double.toString(Double.longBitsToDouble(readLong(chunk, offset)));
+            case TYPE_BOOL:
+                return Boolean.toString(readInt(chunk, offset) != 0);
+            case TYPE_BINARY:
+                return toHex(offset, size);
+            case TYPE_GUID:
+                return decodeGuid(offset);
+            case TYPE_SIZE_T:
+            case TYPE_HEX_INT32:
+            case TYPE_HEX_INT64:
+                return "0x" + Long.toHexString(size >= 8 ? readLong(chunk, offset) : readInt(chunk, offset) & 0xffffffffL); //NON-NLS
+            case TYPE_FILETIME:
+                return formatFileTime(readLong(chunk, offset));
+            case TYPE_SYSTEMTIME:
+                return decodeSystemTime(offset);
+            case TYPE_SID:
+                return decodeSid(offset, size);
+            default:
+                return toHex(offset, size);
+        }
+    }
+
+    private String decodeArray(int elementType, int offset, int size) {
+        List<String> elements = new ArrayList<>();
+        if (elementType == TYPE_STRING) {
+            for (String element : new String(chunk, offset, size, StandardCharsets.UTF_16LE).split("\0")) {
+                elements.add(element);
+            }
+        } else {
+            int elementSize = fixedSize(elementType);
+            if (elementSize <= 0) {
+                return toHex(offset, size);
+            }
+            for (int elementOffset = offset; elementOffset + elementSize <= offset + size; elementOffset += elementSize) {
+                elements.add(decodeValue(elementType, elementOffset, elementSize));
+            }
+        }
+        return String.join(",", elements);
+    }
+
+    private static int fixedSize(int type) {
+        switch (type) {
+            case TYPE_INT8:
+            case TYPE_UINT8:
+                return 1;
+            case TYPE_INT16:
+            case TYPE_UINT16:
+                return 2;
+            case TYPE_INT32:
+            case TYPE_UINT32:
+            case TYPE_REAL32:
+            case TYPE_BOOL:
+            case TYPE_HEX_INT32:
+                return 4;
+            case TYPE_INT64:
+            case TYPE_UINT64:
+            case TYPE_REAL64:
+            case TYPE_FILETIME:
+            case TYPE_HEX_INT64:
+                return 8;
+            case TYPE_GUID:
+            case TYPE_SYSTEMTIME:
+                return 16;
+            default:
+                return 0;
+        }
+    }
+
+    private String decodeGuid(int offset) {
+        return String.format("{%08X-%04X-%04X-%02X%02X-%02X%02X%02X%02X%02X%02X}", //NON-NLS
+                readInt(chunk, offset), readShort(chunk, offset + 4), readShort(chunk, offset + 6),
+                chunk[offset + 8], chunk[offset + 9], chunk[offset + 10], chunk[offset + 11],
+                chunk[offset + 12], chunk[offset + 13], chunk[offset + 14], chunk[offset + 15]);
+    }
+
+    private String decodeSystemTime(int offset) {
+        LocalDateTime time = LocalDateTime.of(readShort(chunk, offset), readShort(chunk, offset + 2),
+                readShort(chunk, offset + 6), readShort(chunk, offset + 8), readShort(chunk, offset + 10),
+                readShort(chunk, offset + 12), readShort(chunk, offset + 14) * 1000000);
+        return ISO_TIME_FORMAT.format(time);
+    }
+
+    private String decodeSid(int offset, int size) {
+        int subAuthorityCount = chunk[offset + 1] & 0xff;
+        if (8 + subAuthorityCount * 4 > size) {
+            return toHex(offset, size);
+        }
+        long authority = 0;
+        for (int i = 2; i < 8; i++) {
+            authority = (authority << 8) | (chunk[offset + i] & 0xff);
+        }
+        StringBuilder sid = new StringBuilder("S-").append(chunk[offset] & 0xff).append('-').append(authority); //NON-NLS
+        for (int i = 0; i < subAuthorityCount; i++) {
+            sid.append('-').append(readInt(chunk, offset + 8 + i * 4) & 0xffffffffL);
+        }
+        return sid.toString();
+    }
+
+    private String toHex(int offset, int size) {
+        StringBuilder hex = new StringBuilder(size * 2);
+        for (int i = offset; i < offset + size; i++) {
+            hex.append(String.format("%02X", chunk[i]));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Format a FILETIME as an ISO 8601 UTC time with microseconds.
+     *
+     * @param fileTime 100 nanosecond intervals since 1601
+     *
+     * @return the formatted time
+     */
+    static String formatFileTime(long fileTime) {
+        long sinceEpoch = fileTime - FILETIME_EPOCH_OFFSET;
+        Instant instant = Instant.ofEpochSecond(Math.floorDiv(sinceEpoch, 10000000L), Math.floorMod(sinceEpoch, 10000000L) * 100);
+        return ISO_TIME_FORMAT.format(LocalDateTime.ofInstant(instant, ZoneOffset.UTC));
+    }
+
+    private static String trimNulls(String value) {
+        int end = value.length();
+        while (end > 0 && value.charAt(end - 1) == '\0') {
+            end--;
+        }
+        return value.substring(0, end);
+    }
+
+    /**
+     * Flatten an element into field paths. Attributes go under
+     * path_attributes.name, text under the element's own path and Data
+     * elements with a Name attribute under their parent's path and that
+     * name. A path seen twice gets its values joined with commas.
+     */
+    private static void flatten(Element element, String path, Map<String, String> fields) {
+        for (Map.Entry<String, String> attribute : element.attributes.entrySet()) {
+            putField(fields, path + ATTRIBUTES_SUFFIX + attribute.getKey(), attribute.getValue());
+        }
+        StringBuilder text = new StringBuilder();
+        for (Object child : element.children) {
+            if (child instanceof String) {
+                text.append((String) child);
+            } else {
+                Element childElement = (Element) child;
+                String dataName = childElement.name.equals(DATA_ELEMENT) ? childElement.attributes.get(NAME_ATTRIBUTE) : null;
+                if (dataName != null) {
+                    putField(fields, path + "." + dataName, childElement.text());
+                } else {
+                    flatten(childElement, path + "." + childElement.name, fields);
+                }
+            }
+        }
+        if (text.length() > 0) {
+            putField(fields, path, text.toString());
+        }
+    }
+
+    private static void putField(Map<String, String> fields, String path, String value) {
+        fields.merge(path, value, (existing, added) -> existing + "," + added);
+    }
+
+    static int readShort(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xff) | (bytes[offset + 1] & 0xff) << 8;
+    }
+
+    static int readInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xff) | (bytes[offset + 1] & 0xff) << 8
+                | (bytes[offset + 2] & 0xff) << 16 | (bytes[offset + 3] & 0xff) << 24;
+    }
+
+    static long readLong(byte[] bytes, int offset) {
+        return (readInt(bytes, offset) & 0xffffffffL) | ((long) readInt(bytes, offset + 4)) << 32;
+    }
+
+    /**
+     * A position in the chunk.
+     */
+    private static final class Cursor {
+
+        private int position;
+
+        Cursor(int position) {
+            this.position = position;
+        }
+    }
+
+    /**
+     * A substitution value of a template instance.
+     */
+    private static final class Value {
+
+        private final int type;
+        private final int offset;
+        private final int size;
+
+        Value(int type, int offset, int size) {
+            this.type = type;
+            this.offset = offset;
+            this.size = size;
+        }
+    }
+
+    /**
+     * An expanded XML element.
+     */
+    private static final class Element {
+
+        private final String name;
+        private final Map<String, String> attributes = new LinkedHashMap<>();
+        private final List<Object> children = new ArrayList<>();
+
+        Element(String name) {
+            this.name = name;
+        }
+
+        String text() {
+            StringBuilder text = new StringBuilder();
+            for (Object child : children) {
+                if (child instanceof String) {
+                    text.append((String) child);
+                }
+            }
+            return text.toString();
+        }
+    }
+
+    /**
+     * An event record flattened into field paths.
+     */
+    static final class EvtxRecord {
+
+        private final long recordId;
+        private final Map<String, String> fields;
+
+        EvtxRecord(long recordId, Map<String, String> fields) {
+            this.recordId = recordId;
+            this.fields = fields;
+        }
+
+        /**
+         * @return the record identifier
+         */
+        long getRecordId() {
+            return recordId;
+        }
+
+        /**
+         * @param path a field path such as Event.System.EventID
+         *
+         * @return the field's value, or null if the record does not have it
+         */
+        String get(String path) {
+            return fields.get(path);
+        }
+
+        /**
+         * @return all of the record's fields by path
+         */
+        Map<String, String> getFields() {
+            return Collections.unmodifiableMap(fields);
+        }
+    }
+}
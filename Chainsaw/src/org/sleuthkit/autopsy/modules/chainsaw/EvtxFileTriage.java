@@ -0,0 +1,328 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2021 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.modules.chainsaw;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.zip.CRC32;
+import org.apache.commons.lang3.StringUtils;
+import org.sleuthkit.autopsy.coreutils.Logger;
+import org.sleuthkit.datamodel.AbstractFile;
+import org.sleuthkit.datamodel.ReadContentInputStream;
+
+/**
+ * Decides which event logs are worth extracting and hunting before any of
+ * them are copied out of the image. Only the file header, and for logs that
+ * were not closed cleanly the first chunk header, is read to find logs with
+ * no records. When a time window is given, the written times of the oldest
+ * and newest records are read to drop logs that end before or start after
+ * the window. Logs with the same content as one already selected are
+ * dropped; content is only hashed when another log has the same size.
+ *
+ * Anything that can not be read or does not look like an event log is kept,
+ * so Chainsaw still gets to decide what to do with it.
+ */
+final class EvtxFileTriage {
+
+    private static final Logger logger = Logger.getLogger(EvtxFileTriage.class.getName());
+
+    private static final byte[] FILE_SIGNATURE = "ElfFile\0".getBytes(StandardCharsets.US_ASCII); //NON-NLS
+    private static final byte[] CHUNK_SIGNATURE = "ElfChnk\0".getBytes(StandardCharsets.US_ASCII); //NON-NLS
+    private static final int FILE_HEADER_SIZE = 128;
+    private static final int FILE_HEADER_CHECKSUM_LENGTH = 120;
+    private static final int FIRST_CHUNK_NUMBER_OFFSET = 8;
+    private static final int LAST_CHUNK_NUMBER_OFFSET = 16;
+    private static final int NEXT_RECORD_ID_OFFSET = 24;
+    private static final int HEADER_BLOCK_SIZE_OFFSET = 40;
+    private static final int CHUNK_COUNT_OFFSET = 42;
+    private static final int FILE_FLAGS_OFFSET = 120;
+    private static final int FILE_CHECKSUM_OFFSET = 124;
+    private static final int FILE_FLAG_DIRTY = 0x1;
+    private static final int CHUNK_HEADER_SIZE = 512;
+    private static final int CHUNK_FREE_SPACE_OFFSET = 48;
+    private static final int CHUNK_LAST_RECORD_OFFSET = 44;
+    private static final int CHUNK_SIZE = 65536;
+    private static final byte[] RECORD_SIGNATURE = {0x2a, 0x2a, 0x00, 0x00};
+    private static final int RECORD_WRITTEN_TIME_OFFSET = 16;
+    private static final int RECORD_HEADER_SIZE = 24;
+    private static final long FILETIME_TICKS_PER_SECOND = 10_000_000L;
+    private static final long FILETIME_EPOCH_OFFSET_SECONDS = 11_644_473_600L;
+    private static final int DEFAULT_HEADER_BLOCK_SIZE = 4096;
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+
+    private EvtxFileTriage() {
+    }
+
+    /**
+     * Select the event logs to hunt.
+     *
+     * @param evtxFiles   the event logs found in the data source
+     * @param windowStart start of the time window in epoch seconds, or
+     *                    Long.MIN_VALUE for no start
+     * @param windowEnd   end of the time window in epoch seconds, or
+     *                    Long.MAX_VALUE for no end
+     * @param cancelCheck returns true when the ingest job has been cancelled
+     *
+     * @return the logs that have records, may have records in the time
+     *         window, without content duplicates, in the order they were
+     *         found
+     */
+    static List<AbstractFile> selectFilesToHunt(List<AbstractFile> evtxFiles, long windowStart, long windowEnd, Supplier<Boolean> cancelCheck) {
+        boolean hasTimeWindow = windowStart != Long.MIN_VALUE || windowEnd != Long.MAX_VALUE;
+        List<AbstractFile> withRecords = new ArrayList<>();
+        Map<Long, Integer> filesPerSize = new HashMap<>();
+        int outsideTimeWindow = 0;
+        for (AbstractFile evtxFile : evtxFiles) {
+            if (cancelCheck.get()) {
+                return Collections.emptyList();
+            }
+            if (!hasRecords(evtxFile)) {
+                continue;
+            }
+            if (hasTimeWindow && !overlapsTimeWindow(evtxFile, windowStart, windowEnd)) {
+                outsideTimeWindow++;
+                continue;
+            }
+            withRecords.add(evtxFile);
+            filesPerSize.merge(evtxFile.getSize(), 1, Integer::sum);
+        }
+
+        List<AbstractFile> selected = new ArrayList<>();
+        Set<String> seenHashes = new HashSet<>();
+        for (AbstractFile evtxFile : withRecords) {
+            if (cancelCheck.get()) {
+                return Collections.emptyList();
+            }
+            if (filesPerSize.get(evtxFile.getSize()) > 1) {
+                String hash = contentHash(evtxFile);
+                if (hash != null && !seenHashes.add(hash)) {
+                    logger.log(Level.FINE, String.format("Skipping event log %s (id=%d), same content as an earlier log", evtxFile.getName(), evtxFile.getId())); //NON-NLS
+                    continue;
+                }
+            }
+            selected.add(evtxFile);
+        }
+
+        logger.log(Level.INFO, String.format("Selected %d of %d event logs to hunt, %d had no records, %d were outside the time window and %d were duplicates", //NON-NLS
+                selected.size(), evtxFiles.size(), evtxFiles.size() - withRecords.size() - outsideTimeWindow, outsideTimeWindow, withRecords.size() - selected.size()));
+        return selected;
+    }
+
+    /**
+     * Check the file header of an event log for records.
+     *
+     * @param evtxFile the event log
+     *
+     * @return false only if the header is valid and says there are no
+     *         records, true otherwise
+     */
+    static boolean hasRecords(AbstractFile evtxFile) {
+        if (evtxFile.getSize() == 0) {
+            return false;
+        }
+        if (evtxFile.getSize() < FILE_HEADER_SIZE) {
+            return true;
+        }
+
+        try (ReadContentInputStream stream = new ReadContentInputStream(evtxFile)) {
+            byte[] header = new byte[FILE_HEADER_SIZE];
+            if (readFully(stream, header) < FILE_HEADER_SIZE || !startsWith(header, FILE_SIGNATURE)) {
+                return true;
+            }
+
+            ByteBuffer headerBuffer = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+            CRC32 crc = new CRC32();
+            crc.update(header, 0, FILE_HEADER_CHECKSUM_LENGTH);
+            if ((int) crc.getValue() != headerBuffer.getInt(FILE_CHECKSUM_OFFSET)) {
+                return true;
+            }
+
+            long nextRecordId = headerBuffer.getLong(NEXT_RECORD_ID_OFFSET);
+            int chunkCount = Short.toUnsignedInt(headerBuffer.getShort(CHUNK_COUNT_OFFSET));
+            if (chunkCount > 0 && nextRecordId > 1) {
+                return true;
+            }
+            if ((headerBuffer.getInt(FILE_FLAGS_OFFSET) & FILE_FLAG_DIRTY) == 0) {
+                return false;
+            }
+
+            // The header of a log that was not closed cleanly can lag behind
+            // its chunks, so look for records written to the first chunk.
+            int headerBlockSize = Short.toUnsignedInt(headerBuffer.getShort(HEADER_BLOCK_SIZE_OFFSET));
+            if (headerBlockSize < FILE_HEADER_SIZE) {
+                headerBlockSize = DEFAULT_HEADER_BLOCK_SIZE;
+            }
+            if (evtxFile.getSize() < headerBlockSize + CHUNK_HEADER_SIZE) {
+                return false;
+            }
+            stream.seek(headerBlockSize);
+            byte[] chunkHeader = new byte[CHUNK_FREE_SPACE_OFFSET + Integer.BYTES];
+            if (readFully(stream, chunkHeader) < chunkHeader.length) {
+                return true;
+            }
+            long freeSpaceOffset = Integer.toUnsignedLong(ByteBuffer.wrap(chunkHeader).order(ByteOrder.LITTLE_ENDIAN).getInt(CHUNK_FREE_SPACE_OFFSET));
+            return startsWith(chunkHeader, CHUNK_SIGNATURE) && freeSpaceOffset > CHUNK_HEADER_SIZE;
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, String.format("Error reading header of event log %s (id=%d)", evtxFile.getName(), evtxFile.getId()), ex); //NON-NLS
+            return true;
+        }
+    }
+
+    /**
+     * Check whether an event log may have records in a time window, from the
+     * written times of the first record of its oldest chunk and the last
+     * record of its newest chunk.
+     *
+     * @param evtxFile    the event log
+     * @param windowStart start of the time window in epoch seconds
+     * @param windowEnd   end of the time window in epoch seconds
+     *
+     * @return false only if both times could be read and the log ends before
+     *         or starts after the window, true otherwise
+     */
+    static boolean overlapsTimeWindow(AbstractFile evtxFile, long windowStart, long windowEnd) {
+        if (evtxFile.getSize() < FILE_HEADER_SIZE) {
+            return true;
+        }
+
+        try (ReadContentInputStream stream = new ReadContentInputStream(evtxFile)) {
+            byte[] header = new byte[FILE_HEADER_SIZE];
+            if (readFully(stream, header) < FILE_HEADER_SIZE || !startsWith(header, FILE_SIGNATURE)) {
+                return true;
+            }
+            ByteBuffer headerBuffer = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+            if ((headerBuffer.getInt(FILE_FLAGS_OFFSET) & FILE_FLAG_DIRTY) != 0) {
+                // The newest chunk in the header may not be the newest one.
+                return true;
+            }
+            int headerBlockSize = Short.toUnsignedInt(headerBuffer.getShort(HEADER_BLOCK_SIZE_OFFSET));
+            if (headerBlockSize < FILE_HEADER_SIZE) {
+                headerBlockSize = DEFAULT_HEADER_BLOCK_SIZE;
+            }
+
+            long oldestChunkOffset = headerBlockSize + headerBuffer.getLong(FIRST_CHUNK_NUMBER_OFFSET) * CHUNK_SIZE;
+            long newestChunkOffset = headerBlockSize + headerBuffer.getLong(LAST_CHUNK_NUMBER_OFFSET) * CHUNK_SIZE;
+            Long oldestTime = readRecordTime(stream, evtxFile, oldestChunkOffset, CHUNK_HEADER_SIZE);
+            Long newestTime = readRecordTime(stream, evtxFile, newestChunkOffset, readLastRecordOffset(stream, evtxFile, newestChunkOffset));
+            if (oldestTime == null || newestTime == null) {
+                return true;
+            }
+            return newestTime >= windowStart && oldestTime <= windowEnd;
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, String.format("Error reading record times of event log %s (id=%d)", evtxFile.getName(), evtxFile.getId()), ex); //NON-NLS
+            return true;
+        }
+    }
+
+    /**
+     * Read the offset of the last record in a chunk from the chunk header.
+     *
+     * @return the offset within the chunk, or -1 if the chunk header is not
+     *         valid
+     */
+    private static long readLastRecordOffset(ReadContentInputStream stream, AbstractFile evtxFile, long chunkOffset) throws IOException {
+        if (chunkOffset < 0 || chunkOffset + CHUNK_HEADER_SIZE > evtxFile.getSize()) {
+            return -1;
+        }
+        stream.seek(chunkOffset);
+        byte[] chunkHeader = new byte[CHUNK_FREE_SPACE_OFFSET];
+        if (readFully(stream, chunkHeader) < chunkHeader.length || !startsWith(chunkHeader, CHUNK_SIGNATURE)) {
+            return -1;
+        }
+        return Integer.toUnsignedLong(ByteBuffer.wrap(chunkHeader).order(ByteOrder.LITTLE_ENDIAN).getInt(CHUNK_LAST_RECORD_OFFSET));
+    }
+
+    /**
+     * Read the written time of the record at an offset in a chunk.
+     *
+     * @return the time in epoch seconds, or null if there is no record at the
+     *         offset
+     */
+    private static Long readRecordTime(ReadContentInputStream stream, AbstractFile evtxFile, long chunkOffset, long recordOffset) throws IOException {
+        if (chunkOffset < 0 || recordOffset < CHUNK_HEADER_SIZE || recordOffset + RECORD_HEADER_SIZE > CHUNK_SIZE
+                || chunkOffset + recordOffset + RECORD_HEADER_SIZE > evtxFile.getSize()) {
+            return null;
+        }
+        stream.seek(chunkOffset + recordOffset);
+        byte[] recordHeader = new byte[RECORD_HEADER_SIZE];
+        if (readFully(stream, recordHeader) < RECORD_HEADER_SIZE || !startsWith(recordHeader, RECORD_SIGNATURE)) {
+            return null;
+        }
+        long fileTime = ByteBuffer.wrap(recordHeader).order(ByteOrder.LITTLE_ENDIAN).getLong(RECORD_WRITTEN_TIME_OFFSET);
+        return Long.divideUnsigned(fileTime, FILETIME_TICKS_PER_SECOND) - FILETIME_EPOCH_OFFSET_SECONDS;
+    }
+
+    /**
+     * Get the MD5 of an event log, from the case database if it has already
+     * been calculated.
+     *
+     * @param evtxFile the event log
+     *
+     * @return the hash, or null if the content could not be read
+     */
+    static String contentHash(AbstractFile evtxFile) {
+        if (StringUtils.isNotBlank(evtxFile.getMd5Hash())) {
+            return evtxFile.getMd5Hash().toLowerCase();
+        }
+
+        try (InputStream stream = new ReadContentInputStream(evtxFile)) {
+            MessageDigest digest = MessageDigest.getInstance("MD5"); //NON-NLS
+            byte[] buffer = new byte[HASH_BUFFER_SIZE];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+            return ChainsawResultCache.toHex(digest.digest());
+        } catch (IOException | NoSuchAlgorithmException ex) {
+            logger.log(Level.WARNING, String.format("Error hashing event log %s (id=%d)", evtxFile.getName(), evtxFile.getId()), ex); //NON-NLS
+            return null;
+        }
+    }
+
+    private static int readFully(InputStream stream, byte[] buffer) throws IOException {
+        int total = 0;
+        while (total < buffer.length) {
+            int read = stream.read(buffer, total, buffer.length - total);
+            if (read == -1) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    private static boolean startsWith(byte[] bytes, byte[] prefix) {
+        return bytes.length >= prefix.length && Arrays.equals(Arrays.copyOf(bytes, prefix.length), prefix);
+    }
+}
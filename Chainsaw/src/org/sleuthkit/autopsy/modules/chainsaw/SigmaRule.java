@@ -0,0 +1,731 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2021 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.modules.chainsaw;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A Sigma rule compiled into a tree of matchers. Field names are the rule's
+ * own, they are resolved to event fields by the caller, which lets one
+ * compiled rule be evaluated against any of the mapping file's event groups.
+ *
+ * The usual Sigma semantics are followed: values are compared without regard
+ * to case and may use * and ? wildcards, the values of a list are ORed (ANDed
+ * with the all modifier), the fields of a selection are ANDed, and the
+ * contains, startswith, endswith, all, re, base64, base64offset, wide and
+ * utf16le modifiers are supported. Conditions may use and, or, not,
+ * parentheses, "1 of" and "all of" with wildcards and "them". Rules using
+ * anything else, such as aggregations, are rejected when compiled.
+ */
+final class SigmaRule {
+
+    private static final String TITLE = "title"; //NON-NLS
+    private static final String LOGSOURCE = "logsource"; //NON-NLS
+    private static final String DETECTION = "detection"; //NON-NLS
+    private static final String CONDITION = "condition"; //NON-NLS
+    private static final String TIMEFRAME = "timeframe"; //NON-NLS
+    private static final String KEYWORDS_FIELD = ""; //NON-NLS
+    private static final String ACTION = "action"; //NON-NLS
+    private static final String ACTION_GLOBAL = "global"; //NON-NLS
+    private static final String ACTION_RESET = "reset"; //NON-NLS
+    private static final String ACTION_REPEAT = "repeat"; //NON-NLS
+
+    private final String title;
+    private final Map<String, String> logSource;
+    private final Matcher condition;
+    private final Set<String> fields;
+
+    private SigmaRule(String title, Map<String, String> logSource, Matcher condition, Set<String> fields) {
+        this.title = title;
+        this.logSource = logSource;
+        this.condition = condition;
+        this.fields = fields;
+    }
+
+    /**
+     * @return the rule's title
+     */
+    String getTitle() {
+        return title;
+    }
+
+    /**
+     * @return the rule's logsource entries, such as product, service and
+     *         category
+     */
+    Map<String, String> getLogSource() {
+        return Collections.unmodifiableMap(logSource);
+    }
+
+    /**
+     * @return the names of the fields the rule reads, not including keyword
+     *         searches
+     */
+    Set<String> getFields() {
+        return Collections.unmodifiableSet(fields);
+    }
+
+    /**
+     * @return true if the rule has keyword searches, which look at every
+     *         field
+     */
+    boolean hasKeywords() {
+        return fields.contains(KEYWORDS_FIELD);
+    }
+
+    /**
+     * Evaluate the rule.
+     *
+     * @param fieldValues resolves a rule field name to the event's value, or
+     *                    null if the event does not have it
+     * @param allValues   every value the keyword searches should look at
+     *
+     * @return true if the event matches
+     */
+    boolean matches(Function<String, String> fieldValues, Iterable<String> allValues) {
+        return condition.matches(new Event(fieldValues, allValues));
+    }
+
+    /**
+     * Turn the documents of a rule file into the rules it defines. A file of
+     * one document is one rule. A file of several documents is a Sigma rule
+     * collection, read the way the Sigma tools read it: an "action: global"
+     * document is merged into every later rule, "action: reset" drops what
+     * the global documents set, and "action: repeat" is merged into a copy of
+     * the rule before it. Values set by the global documents win over those
+     * of the rule.
+     *
+     * @param documents the documents of the file, as read by
+     *                  SigmaYaml.parseAll()
+     *
+     * @return one document per rule, to be compiled
+     *
+     * @throws SigmaRuleException if the collection is not valid
+     */
+    static List<Object> expandCollection(List<Object> documents) throws SigmaRuleException {
+        if (documents.size() == 1) {
+            return documents;
+        }
+        Map<String, Object> global = new LinkedHashMap<>();
+        Map<String, Object> previous = null;
+        List<Object> rules = new ArrayList<>();
+        for (Object document : documents) {
+            Map<String, Object> rule = new LinkedHashMap<>(asMap(document, "rule")); //NON-NLS
+            Object action = rule.remove(ACTION);
+            if (ACTION_GLOBAL.equals(action)) {
+                mergeInto(global, rule);
+            } else if (ACTION_RESET.equals(action)) {
+                global = new LinkedHashMap<>();
+            } else if (ACTION_REPEAT.equals(action)) {
+                if (previous == null) {
+                    throw new SigmaRuleException("Repeat action before the first rule"); //NON-NLS
+                }
+                Map<String, Object> repeated = deepCopy(previous);
+                mergeInto(repeated, rule);
+                rules.add(repeated);
+                previous = repeated;
+            } else if (action == null) {
+                mergeInto(rule, deepCopy(global));
+                rules.add(rule);
+                previous = rule;
+            } else {
+                throw new SigmaRuleException(String.format("Unknown collection action %s", action)); //NON-NLS
+            }
+        }
+        return rules;
+    }
+
+    /**
+     * Merge a mapping into another, recursing into the mappings both have
+     * and otherwise replacing the target's value.
+     */
+    @SuppressWarnings("unchecked")
+    private static void mergeInto(Map<String, Object> target, Map<String, Object> source) {
+        for (Map.Entry<String, Object> entry : source.entrySet()) {
+            Object targetValue = target.get(entry.getKey());
+            if (entry.getValue() instanceof Map && targetValue instanceof Map) {
+                Map<String, Object> merged = new LinkedHashMap<>((Map<String, Object>) targetValue);
+                mergeInto(merged, (Map<String, Object>) entry.getValue());
+                target.put(entry.getKey(), merged);
+            } else {
+                target.put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T deepCopy(T value) {
+        if (value instanceof Map) {
+            Map<String, Object> copy = new LinkedHashMap<>();
+            ((Map<String, Object>) value).forEach((key, item) -> copy.put(key, deepCopy(item)));
+            return (T) copy;
+        }
+        if (value instanceof List) {
+            List<Object> copy = new ArrayList<>();
+            ((List<Object>) value).forEach(item -> copy.add(deepCopy(item)));
+            return (T) copy;
+        }
+        return value;
+    }
+
+    /**
+     * Compile a parsed Sigma rule.
+     *
+     * @param document the rule as read by SigmaYaml
+     *
+     * @return the compiled rule
+     *
+     * @throws SigmaRuleException if the rule is not valid or uses features
+     *                            that are not supported
+     */
+    static SigmaRule compile(Object document) throws SigmaRuleException {
+        Map<String, Object> rule = asMap(document, "rule"); //NON-NLS
+        Object title = rule.get(TITLE);
+        if (!(title instanceof String)) {
+            throw new SigmaRuleException("The rule has no title"); //NON-NLS
+        }
+        Map<String, String> logSource = new LinkedHashMap<>();
+        if (rule.get(LOGSOURCE) instanceof Map) {
+            for (Map.Entry<String, Object> entry : asMap(rule.get(LOGSOURCE), LOGSOURCE).entrySet()) {
+                if (entry.getValue() != null) {
+                    logSource.put(entry.getKey(), entry.getValue().toString());
+                }
+            }
+        }
+
+        Map<String, Object> detection = asMap(rule.get(DETECTION), DETECTION);
+        if (detection.containsKey(TIMEFRAME)) {
+            throw new SigmaRuleException("Timeframes are not supported"); //NON-NLS
+        }
+        Set<String> fields = new HashSet<>();
+        Map<String, Matcher> identifiers = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : detection.entrySet()) {
+            if (!entry.getKey().equals(CONDITION)) {
+                identifiers.put(entry.getKey(), compileSearch(entry.getValue(), fields));
+            }
+        }
+
+        Object conditionValue = detection.get(CONDITION);
+        List<Matcher> conditions = new ArrayList<>();
+        if (conditionValue instanceof String) {
+            conditions.add(new ConditionParser((String) conditionValue, identifiers).parse());
+        } else if (conditionValue instanceof List) {
+            for (Object item : (List<?>) conditionValue) {
+                conditions.add(new ConditionParser(String.valueOf(item), identifiers).parse());
+            }
+        } else {
+            throw new SigmaRuleException("The rule has no condition"); //NON-NLS
+        }
+
+        return new SigmaRule((String) title, logSource, anyOf(conditions), fields);
+    }
+
+    /**
+     * Compile a search identifier: a map of field to values, a list of such
+     * maps, or a list of keywords.
+     */
+    private static Matcher compileSearch(Object search, Set<String> fields) throws SigmaRuleException {
+        if (search instanceof Map) {
+            List<Matcher> fieldMatchers = new ArrayList<>();
+            for (Map.Entry<String, Object> entry : asMap(search, "selection").entrySet()) { //NON-NLS
+                fieldMatchers.add(compileField(entry.getKey(), entry.getValue(), fields));
+            }
+            return allOf(fieldMatchers);
+        }
+        if (search instanceof List) {
+            List<Matcher> alternatives = new ArrayList<>();
+            List<ValueMatcher> keywords = new ArrayList<>();
+            for (Object item : (List<?>) search) {
+                if (item instanceof Map) {
+                    alternatives.add(compileSearch(item, fields));
+                } else if (item != null) {
+                    keywords.add(ValueMatcher.compile(item.toString(), Arrays.asList("contains"))); //NON-NLS
+                }
+            }
+            if (!keywords.isEmpty()) {
+                fields.add(KEYWORDS_FIELD);
+                alternatives.add(event -> {
+                    for (String value : event.allValues) {
+                        for (ValueMatcher keyword : keywords) {
+                            if (value != null && keyword.matches(value)) {
+                                return true;
+                            }
+                        }
+                    }
+                    return false;
+                });
+            }
+            return anyOf(alternatives);
+        }
+        if (search instanceof String) {
+            fields.add(KEYWORDS_FIELD);
+            ValueMatcher keyword = ValueMatcher.compile((String) search, Arrays.asList("contains")); //NON-NLS
+            return event -> {
+                for (String value : event.allValues) {
+                    if (value != null && keyword.matches(value)) {
+                        return true;
+                    }
+                }
+                return false;
+            };
+        }
+        throw new SigmaRuleException("Unsupported search identifier"); //NON-NLS
+    }
+
+    private static Matcher compileField(String key, Object value, Set<String> fields) throws SigmaRuleException {
+        String[] parts = key.split("\\|");
+        String field = parts[0];
+        List<String> modifiers = new ArrayList<>(Arrays.asList(parts).subList(1, parts.length));
+        boolean all = modifiers.remove("all"); //NON-NLS
+        fields.add(field);
+
+        List<Object> values = (value instanceof List) ? new ArrayList<>((List<?>) value) : Collections.singletonList(value);
+        List<ValueMatcher> valueMatchers = new ArrayList<>(values.size());
+        boolean matchesNull = false;
+        for (Object item : values) {
+            if (item == null) {
+                matchesNull = true;
+            } else {
+                valueMatchers.add(ValueMatcher.compile(item.toString(), modifiers));
+            }
+        }
+
+        boolean nullAllowed = matchesNull;
+        return event -> {
+            String fieldValue = event.fieldValues.apply(field);
+            if (fieldValue == null) {
+                return nullAllowed;
+            }
+            if (valueMatchers.isEmpty()) {
+                return false;
+            }
+            for (ValueMatcher valueMatcher : valueMatchers) {
+                boolean matched = valueMatcher.matches(fieldValue);
+                if (all && !matched) {
+                    return false;
+                }
+                if (!all && matched) {
+                    return true;
+                }
+            }
+            return all;
+        };
+    }
+
+    private static Matcher allOf(List<Matcher> matchers) {
+        if (matchers.size() == 1) {
+            return matchers.get(0);
+        }
+        return event -> {
+            for (Matcher matcher : matchers) {
+                if (!matcher.matches(event)) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    private static Matcher anyOf(List<Matcher> matchers) {
+        if (matchers.size() == 1) {
+            return matchers.get(0);
+        }
+        return event -> {
+            for (Matcher matcher : matchers) {
+                if (matcher.matches(event)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asMap(Object value, String what) throws SigmaRuleException {
+        if (!(value instanceof Map)) {
+            throw new SigmaRuleException(String.format("The %s is not a mapping", what)); //NON-NLS
+        }
+        return (Map<String, Object>) value;
+    }
+
+    /**
+     * The event being evaluated.
+     */
+    private static final class Event {
+
+        private final Function<String, String> fieldValues;
+        private final Iterable<String> allValues;
+
+        Event(Function<String, String> fieldValues, Iterable<String> allValues) {
+            this.fieldValues = fieldValues;
+            this.allValues = allValues;
+        }
+    }
+
+    /**
+     * A compiled piece of a rule.
+     */
+    @FunctionalInterface
+    private interface Matcher {
+
+        boolean matches(Event event);
+    }
+
+    /**
+     * Matches a field value against one rule value. Every value is turned
+     * into a case insensitive regular expression, anchored at both ends
+     * unless the modifiers say otherwise.
+     */
+    private static final class ValueMatcher {
+
+        private static final Pattern REPETITION = Pattern.compile("\\{\\d+(,\\d*)?\\}"); //NON-NLS
+
+        private final Pattern pattern;
+        private final String exact;
+
+        private ValueMatcher(Pattern pattern, String exact) {
+            this.pattern = pattern;
+            this.exact = exact;
+        }
+
+        boolean matches(String value) {
+            if (exact != null) {
+                return exact.equalsIgnoreCase(value);
+            }
+            return pattern.matcher(value).find();
+        }
+
+        static ValueMatcher compile(String value, List<String> modifiers) throws SigmaRuleException {
+            boolean contains = false;
+            boolean startsWith = false;
+            boolean endsWith = false;
+            boolean regex = false;
+            boolean base64 = false;
+            boolean base64Offset = false;
+            boolean wide = false;
+            for (String modifier : modifiers) {
+                switch (modifier) {
+                    case "contains": //NON-NLS
+                        contains = true;
+                        break;
+                    case "startswith": //NON-NLS
+                        startsWith = true;
+                        break;
+                    case "endswith": //NON-NLS
+                        endsWith = true;
+                        break;
+                    case "re": //NON-NLS
+                        regex = true;
+                        break;
+                    case "base64": //NON-NLS
+                        base64 = true;
+                        break;
+                    case "base64offset": //NON-NLS
+                        base64Offset = true;
+                        break;
+                    case "wide": //NON-NLS
+                    case "utf16le": //NON-NLS
+                        wide = true;
+                        break;
+                    default:
+                        throw new SigmaRuleException(String.format("Unsupported modifier %s", modifier)); //NON-NLS
+                }
+            }
+
+            if (regex) {
+                try {
+                    return new ValueMatcher(Pattern.compile(escapeLiteralBraces(value)), null);
+                } catch (PatternSyntaxException ex) {
+                    throw new SigmaRuleException(String.format("Bad regular expression %s", value), ex); //NON-NLS
+                }
+            }
+
+            List<String> alternatives;
+            if (base64 || base64Offset) {
+                byte[] bytes = value.getBytes(wide ? StandardCharsets.UTF_16LE : StandardCharsets.UTF_8);
+                alternatives = base64Offset ? base64OffsetVariants(bytes) : Collections.singletonList(Base64.getEncoder().encodeToString(bytes));
+            } else if (wide) {
+                throw new SigmaRuleException("The wide modifier is only supported with base64"); //NON-NLS
+            } else {
+                alternatives = Collections.singletonList(value);
+            }
+
+            boolean encoded = base64 || base64Offset;
+            if (!contains && !startsWith && !endsWith && !encoded && !hasWildcards(value)) {
+                return new ValueMatcher(null, unescape(value));
+            }
+
+            StringBuilder expression = new StringBuilder();
+            expression.append(contains || endsWith ? "" : "^");
+            expression.append("(?:");
+            for (int i = 0; i < alternatives.size(); i++) {
+                if (i > 0) {
+                    expression.append('|');
+                }
+                expression.append(encoded ? Pattern.quote(alternatives.get(i)) : wildcardToRegex(alternatives.get(i)));
+            }
+            expression.append(')');
+            expression.append(contains || startsWith ? "" : "$");
+            int flags = encoded ? 0 : Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+            return new ValueMatcher(Pattern.compile(expression.toString(), flags | Pattern.DOTALL), null);
+        }
+
+        /**
+         * Escape the braces of a regular expression that do not belong to a
+         * repetition such as {2} or {2,5}. The Sigma rules are written for
+         * regex engines that read such braces as literal characters, while
+         * Java rejects them.
+         */
+        private static String escapeLiteralBraces(String regex) {
+            StringBuilder escaped = new StringBuilder(regex.length());
+            boolean inClass = false;
+            boolean inRepetition = false;
+            for (int i = 0; i < regex.length(); i++) {
+                char c = regex.charAt(i);
+                if (c == '\\' && i + 1 < regex.length()) {
+                    escaped.append(c).append(regex.charAt(++i));
+                    continue;
+                }
+                if (inClass) {
+                    inClass = c != ']';
+                } else if (c == '[') {
+                    inClass = true;
+                } else if (c == '{') {
+                    inRepetition = REPETITION.matcher(regex).region(i, regex.length()).lookingAt();
+                    if (!inRepetition) {
+                        escaped.append('\\');
+                    }
+                } else if (c == '}') {
+                    if (!inRepetition) {
+                        escaped.append('\\');
+                    }
+                    inRepetition = false;
+                }
+                escaped.append(c);
+            }
+            return escaped.toString();
+        }
+
+        /**
+         * The three base64 encodings of a value at each offset within a
+         * larger encoded string, with the characters that depend on the
+         * surrounding bytes removed.
+         */
+        private static List<String> base64OffsetVariants(byte[] bytes) {
+            int[] startTrim = {0, 2, 3};
+            int[] endTrim = {0, 3, 2};
+            List<String> variants = new ArrayList<>(3);
+            for (int shift = 0; shift < 3; shift++) {
+                byte[] shifted = new byte[bytes.length + shift];
+                System.arraycopy(bytes, 0, shifted, shift, bytes.length);
+                String encoded = Base64.getEncoder().encodeToString(shifted);
+                int end = encoded.length() - endTrim[(bytes.length + shift) % 3];
+                int start = startTrim[shift];
+                if (end > start) {
+                    variants.add(encoded.substring(start, end));
+                }
+            }
+            return variants;
+        }
+
+        private static boolean hasWildcards(String value) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '\\') {
+                    i++;
+                } else if (c == '*' || c == '?') {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static String unescape(String value) {
+            StringBuilder unescaped = new StringBuilder(value.length());
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '\\' && i + 1 < value.length() && "*?\\".indexOf(value.charAt(i + 1)) >= 0) {
+                    c = value.charAt(++i);
+                }
+                unescaped.append(c);
+            }
+            return unescaped.toString();
+        }
+
+        private static String wildcardToRegex(String value) {
+            StringBuilder regex = new StringBuilder();
+            StringBuilder literal = new StringBuilder();
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '\\' && i + 1 < value.length() && "*?\\".indexOf(value.charAt(i + 1)) >= 0) {
+                    literal.append(value.charAt(++i));
+                } else if (c == '*' || c == '?') {
+                    if (literal.length() > 0) {
+                        regex.append(Pattern.quote(literal.toString()));
+                        literal.setLength(0);
+                    }
+                    regex.append(c == '*' ? ".*" : ".");
+                } else {
+                    literal.append(c);
+                }
+            }
+            if (literal.length() > 0) {
+                regex.append(Pattern.quote(literal.toString()));
+            }
+            return regex.toString();
+        }
+    }
+
+    /**
+     * Parses a condition into a matcher. "not" binds tighter than "and",
+     * which binds tighter than "or".
+     */
+    private static final class ConditionParser {
+
+        private final List<String> tokens = new ArrayList<>();
+        private final Map<String, Matcher> identifiers;
+        private int index;
+
+        ConditionParser(String condition, Map<String, Matcher> identifiers) throws SigmaRuleException {
+            this.identifiers = identifiers;
+            if (condition.contains("|")) {
+                throw new SigmaRuleException("Aggregations are not supported"); //NON-NLS
+            }
+            for (String token : condition.replace("(", " ( ").replace(")", " ) ").trim().split("\\s+")) {
+                if (!token.isEmpty()) {
+                    tokens.add(token);
+                }
+            }
+        }
+
+        Matcher parse() throws SigmaRuleException {
+            Matcher matcher = parseOr();
+            if (index != tokens.size()) {
+                throw new SigmaRuleException(String.format("Unexpected %s in condition", tokens.get(index))); //NON-NLS
+            }
+            return matcher;
+        }
+
+        private Matcher parseOr() throws SigmaRuleException {
+            List<Matcher> alternatives = new ArrayList<>();
+            alternatives.add(parseAnd());
+            while (accept("or")) { //NON-NLS
+                alternatives.add(parseAnd());
+            }
+            return anyOf(alternatives);
+        }
+
+        private Matcher parseAnd() throws SigmaRuleException {
+            List<Matcher> terms = new ArrayList<>();
+            terms.add(parseNot());
+            while (accept("and")) { //NON-NLS
+                terms.add(parseNot());
+            }
+            return allOf(terms);
+        }
+
+        private Matcher parseNot() throws SigmaRuleException {
+            if (accept("not")) { //NON-NLS
+                Matcher negated = parseNot();
+                return event -> !negated.matches(event);
+            }
+            return parsePrimary();
+        }
+
+        private Matcher parsePrimary() throws SigmaRuleException {
+            String token = next();
+            if (token.equals("(")) {
+                Matcher grouped = parseOr();
+                if (!accept(")")) {
+                    throw new SigmaRuleException("Missing ) in condition"); //NON-NLS
+                }
+                return grouped;
+            }
+            if ((token.equals("1") || token.equalsIgnoreCase("any") || token.equalsIgnoreCase("all")) && accept("of")) { //NON-NLS
+                List<Matcher> selected = selectIdentifiers(next());
+                return token.equalsIgnoreCase("all") ? allOf(selected) : anyOf(selected); //NON-NLS
+            }
+            Matcher matcher = identifiers.get(token);
+            if (matcher == null) {
+                throw new SigmaRuleException(String.format("Unknown identifier %s in condition", token)); //NON-NLS
+            }
+            return matcher;
+        }
+
+        private List<Matcher> selectIdentifiers(String pattern) throws SigmaRuleException {
+            List<Matcher> selected = new ArrayList<>();
+            Pattern namePattern = pattern.equalsIgnoreCase("them") //NON-NLS
+                    ? null
+                    : Pattern.compile(Pattern.quote(pattern).replace("*", "\\E.*\\Q"));
+            for (Map.Entry<String, Matcher> identifier : identifiers.entrySet()) {
+                if (namePattern == null ? !identifier.getKey().startsWith("_") : namePattern.matcher(identifier.getKey()).matches()) {
+                    selected.add(identifier.getValue());
+                }
+            }
+            if (selected.isEmpty()) {
+                throw new SigmaRuleException(String.format("No identifiers match %s in condition", pattern)); //NON-NLS
+            }
+            return selected;
+        }
+
+        private boolean accept(String expected) {
+            if (index < tokens.size() && tokens.get(index).equalsIgnoreCase(expected)) {
+                index++;
+                return true;
+            }
+            return false;
+        }
+
+        private String next() throws SigmaRuleException {
+            if (index >= tokens.size()) {
+                throw new SigmaRuleException("Condition ends unexpectedly"); //NON-NLS
+            }
+            return tokens.get(index++);
+        }
+    }
+
+    /**
+     * Thrown when a rule can not be compiled.
+     */
+    static final class SigmaRuleException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        SigmaRuleException(String message) {
+            super(message);
+        }
+
+        SigmaRuleException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2021 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.modules.chainsaw;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.sleuthkit.autopsy.coreutils.Logger;
+import org.sleuthkit.autopsy.modules.chainsaw.SigmaRule.SigmaRuleException;
+import org.sleuthkit.autopsy.modules.chainsaw.SigmaYaml.SigmaYamlException;
+import org.sleuthkit.datamodel.AbstractFile;
+import org.sleuthkit.datamodel.TskCoreException;
+
+/**
+ * Prunes the Sigma rule set down to the rules whose log source is among the
+ * event logs being hunted. The channels and providers present are surveyed
+ * from the records of the first chunk of each log; the chunks of a carved log
+ * are grouped by channel, so its first chunk has them all. A rule's logsource
+ * service or category is mapped to the channels it is written for, the same
+ * way the Sigma Windows backends map them.
+ *
+ * Pruning only ever drops rules that can not match: every log's own channel
+ * is present, so a rule written for that channel is always kept. That only
+ * holds if a channel was read from every log, so a survey that missed a log
+ * is incomplete and the callers hunt with the full rule set. Rules with a log
+ * source that is not known here, or that can not be read, are kept.
+ */
+final class SigmaRulePruner {
+
+    private static final Logger logger = Logger.getLogger(SigmaRulePruner.class.getName());
+
+    private static final String LOGSOURCE = "logsource"; //NON-NLS
+    private static final String PRODUCT = "product"; //NON-NLS
+    private static final String SERVICE = "service"; //NON-NLS
+    private static final String CATEGORY = "category"; //NON-NLS
+    private static final String WINDOWS = "windows"; //NON-NLS
+    private static final String RULE_EXTENSION = ".yml"; //NON-NLS
+    private static final int FILE_HEADER_SIZE = 4096;
+    private static final int HEADER_BLOCK_SIZE_OFFSET = 40;
+
+    private static final String SYSMON = "Microsoft-Windows-Sysmon/Operational"; //NON-NLS
+    private static final String SECURITY = "Security"; //NON-NLS
+    private static final String POWERSHELL = "Microsoft-Windows-PowerShell/Operational"; //NON-NLS
+    private static final String POWERSHELL_CLASSIC = "Windows PowerShell"; //NON-NLS
+
+    private static final Map<String, List<String>> SERVICE_CHANNELS = new HashMap<>();
+    private static final Map<String, List<String>> CATEGORY_CHANNELS = new HashMap<>();
+
+    static {
+        SERVICE_CHANNELS.put("security", Arrays.asList(SECURITY)); //NON-NLS
+        SERVICE_CHANNELS.put("system", Arrays.asList("System")); //NON-NLS
+        SERVICE_CHANNELS.put("application", Arrays.asList("Application")); //NON-NLS
+        SERVICE_CHANNELS.put("sysmon", Arrays.asList(SYSMON)); //NON-NLS
+        SERVICE_CHANNELS.put("powershell", Arrays.asList(POWERSHELL)); //NON-NLS
+        SERVICE_CHANNELS.put("powershell-classic", Arrays.asList(POWERSHELL_CLASSIC)); //NON-NLS
+        SERVICE_CHANNELS.put("taskscheduler", Arrays.asList("Microsoft-Windows-TaskScheduler/Operational")); //NON-NLS
+        SERVICE_CHANNELS.put("wmi", Arrays.asList("Microsoft-Windows-WMI-Activity/Operational")); //NON-NLS
+        SERVICE_CHANNELS.put("windefend", Arrays.asList("Microsoft-Windows-Windows Defender/Operational")); //NON-NLS
+        SERVICE_CHANNELS.put("dns-server", Arrays.asList("DNS Server")); //NON-NLS
+        SERVICE_CHANNELS.put("driver-framework", Arrays.asList("Microsoft-Windows-DriverFrameworks-UserMode/Operational")); //NON-NLS
+        SERVICE_CHANNELS.put("ntlm", Arrays.asList("Microsoft-Windows-NTLM/Operational")); //NON-NLS
+        SERVICE_CHANNELS.put("bits-client", Arrays.asList("Microsoft-Windows-Bits-Client/Operational")); //NON-NLS
+        SERVICE_CHANNELS.put("firewall-as", Arrays.asList("Microsoft-Windows-Windows Firewall With Advanced Security/Firewall")); //NON-NLS
+        SERVICE_CHANNELS.put("codeintegrity-operational", Arrays.asList("Microsoft-Windows-CodeIntegrity/Operational")); //NON-NLS
+        SERVICE_CHANNELS.put("msexchange-management", Arrays.asList("MSExchange Management")); //NON-NLS
+        SERVICE_CHANNELS.put("printservice-admin", Arrays.asList("Microsoft-Windows-PrintService/Admin")); //NON-NLS
+        SERVICE_CHANNELS.put("printservice-operational", Arrays.asList("Microsoft-Windows-PrintService/Operational")); //NON-NLS
+        SERVICE_CHANNELS.put("smbclient-security", Arrays.asList("Microsoft-Windows-SmbClient/Security")); //NON-NLS
+        SERVICE_CHANNELS.put("terminalservices-localsessionmanager", Arrays.asList("Microsoft-Windows-TerminalServices-LocalSessionManager/Operational")); //NON-NLS
+        SERVICE_CHANNELS.put("openssh", Arrays.asList("OpenSSH/Operational")); //NON-NLS
+        SERVICE_CHANNELS.put("applocker", Arrays.asList( //NON-NLS
+                "Microsoft-Windows-AppLocker/EXE and DLL", "Microsoft-Windows-AppLocker/MSI and Script", //NON-NLS
+                "Microsoft-Windows-AppLocker/Packaged app-Execution", "Microsoft-Windows-AppLocker/Packaged app-Deployment")); //NON-NLS
+
+        CATEGORY_CHANNELS.put("process_creation", Arrays.asList(SYSMON, SECURITY)); //NON-NLS
+        for (String sysmonCategory : Arrays.asList("network_connection", "image_load", "file_event", "file_delete", //NON-NLS
+                "file_change", "file_rename", "registry_event", "registry_add", "registry_set", "registry_delete", //NON-NLS
+                "registry_rename", "create_remote_thread", "process_access", "raw_access_thread", "driver_load", //NON-NLS
+                "dns_query", "pipe_created", "process_tampering", "sysmon_status", "sysmon_error", //NON-NLS
+                "create_stream_hash", "wmi_event", "clipboard_capture", "process_termination")) { //NON-NLS
+            CATEGORY_CHANNELS.put(sysmonCategory, Arrays.asList(SYSMON));
+        }
+        CATEGORY_CHANNELS.put("ps_script", Arrays.asList(POWERSHELL)); //NON-NLS
+        CATEGORY_CHANNELS.put("ps_module", Arrays.asList(POWERSHELL)); //NON-NLS
+        CATEGORY_CHANNELS.put("ps_classic_start", Arrays.asList(POWERSHELL_CLASSIC)); //NON-NLS
+        CATEGORY_CHANNELS.put("ps_classic_provider_start", Arrays.asList(POWERSHELL_CLASSIC)); //NON-NLS
+        CATEGORY_CHANNELS.put("ps_classic_script", Arrays.asList(POWERSHELL_CLASSIC)); //NON-NLS
+    }
+
+    private SigmaRulePruner() {
+    }
+
+    /**
+     * Survey the channels and providers of the records in the first chunk of
+     * each event log.
+     *
+     * @param evtxFiles   the event logs
+     * @param cancelCheck returns true when the ingest job has been cancelled
+     *
+     * @return the log sources present, incomplete if no channel could be
+     *         read from one of the logs or the survey was cancelled
+     */
+    static LogSources survey(List<AbstractFile> evtxFiles, Supplier<Boolean> cancelCheck) {
+        Set<String> channels = new HashSet<>();
+        Set<String> providers = new HashSet<>();
+        byte[] fileHeader = new byte[FILE_HEADER_SIZE];
+        byte[] chunk = new byte[EvtxChunkParser.CHUNK_SIZE];
+        boolean complete = true;
+        for (AbstractFile evtxFile : evtxFiles) {
+            if (cancelCheck.get()) {
+                complete = false;
+                break;
+            }
+            Set<String> logChannels = new HashSet<>();
+            try {
+                if (evtxFile.read(fileHeader, 0, FILE_HEADER_SIZE) == FILE_HEADER_SIZE) {
+                    int headerBlockSize = EvtxChunkParser.readShort(fileHeader, HEADER_BLOCK_SIZE_OFFSET);
+                    if (evtxFile.read(chunk, headerBlockSize > 0 ? headerBlockSize : FILE_HEADER_SIZE, chunk.length) == chunk.length) {
+                        EvtxChunkParser.parseRecords(chunk, record -> {
+                            String channel = record.get(ChainsawSigmaEngine.CHANNEL_PATH);
+                            if (channel != null) {
+                                logChannels.add(channel.toLowerCase(Locale.ROOT));
+                            }
+                            String provider = record.get(ChainsawSigmaEngine.PROVIDER_PATH);
+                            if (provider != null) {
+                                providers.add(provider);
+                            }
+                        });
+                    }
+                }
+            } catch (TskCoreException ex) {
+                logger.log(Level.WARNING, String.format("Error reading file '%s' (id=%d).", evtxFile.getName(), evtxFile.getId()), ex); //NON-NLS
+            }
+            if (logChannels.isEmpty()) {
+                logger.log(Level.INFO, String.format("No channel found in the first chunk of '%s' (id=%d), the sigma rules will not be pruned", //NON-NLS
+                        evtxFile.getName(), evtxFile.getId()));
+                complete = false;
+            }
+            channels.addAll(logChannels);
+        }
+        return new LogSources(channels, providers, complete);
+    }
+
+    /**
+     * Check whether a rule's log source is present.
+     *
+     * @param logSource the rule's logsource entries
+     * @param present   the log sources present
+     *
+     * @return false if the rule is written for a product other than Windows
+     *         or for channels that are not present, true otherwise
+     */
+    static boolean isPresent(Map<String, String> logSource, LogSources present) {
+        String product = logSource.get(PRODUCT);
+        if (product != null && !product.equalsIgnoreCase(WINDOWS)) {
+            return false;
+        }
+        List<String> channels = null;
+        String service = logSource.get(SERVICE);
+        if (service != null) {
+            channels = SERVICE_CHANNELS.get(service.toLowerCase(Locale.ROOT));
+        } else {
+            String category = logSource.get(CATEGORY);
+            if (category != null) {
+                channels = CATEGORY_CHANNELS.get(category.toLowerCase(Locale.ROOT));
+            }
+        }
+        if (channels == null) {
+            return true;
+        }
+        for (String channel : channels) {
+            if (present.channels.contains(channel.toLowerCase(Locale.ROOT))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Copy the rules whose log source is present into a new rules directory,
+     * keeping their paths relative to the rules directory.
+     *
+     * @param rulesDirectory  the full Sigma rules directory
+     * @param prunedDirectory the directory to copy the rules to, created if
+     *                        needed
+     * @param present         the log sources present
+     *
+     * @return the number of rules copied
+     *
+     * @throws IOException if the rules can not be read or copied
+     */
+    static int buildPrunedRulesDirectory(Path rulesDirectory, Path prunedDirectory, LogSources present) throws IOException {
+        List<Path> ruleFiles;
+        try (Stream<Path> walk = Files.walk(rulesDirectory)) {
+            ruleFiles = walk.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+        int copied = 0;
+        for (Path ruleFile : ruleFiles) {
+            if (ruleFile.toString().toLowerCase().endsWith(RULE_EXTENSION) && !isAnyPresent(readLogSources(ruleFile), present)) {
+                continue;
+            }
+            Path target = prunedDirectory.resolve(rulesDirectory.relativize(ruleFile).toString());
+            Files.createDirectories(target.getParent());
+            Files.copy(ruleFile, target);
+            copied++;
+        }
+        logger.log(Level.INFO, String.format("Kept %d of %d sigma rule files for channels %s", copied, ruleFiles.size(), present.channels)); //NON-NLS
+        return copied;
+    }
+
+    /**
+     * @return true if any of the log sources is present, or there are none
+     */
+    private static boolean isAnyPresent(List<Map<String, String>> logSources, LogSources present) {
+        return logSources.isEmpty() || logSources.stream().anyMatch(logSource -> isPresent(logSource, present));
+    }
+
+    /**
+     * Read the logsource of each rule of a rule file, which has several for a
+     * rule collection.
+     *
+     * @return the logsource entries of each rule, empty if the file can not
+     *         be read
+     */
+    private static List<Map<String, String>> readLogSources(Path ruleFile) {
+        List<Map<String, String>> logSources = new ArrayList<>();
+        try {
+            for (Object rule : SigmaRule.expandCollection(SigmaYaml.parseAll(new String(Files.readAllBytes(ruleFile), StandardCharsets.UTF_8)))) {
+                Map<String, String> logSource = new HashMap<>();
+                if (rule instanceof Map && ((Map<?, ?>) rule).get(LOGSOURCE) instanceof Map) {
+                    ((Map<?, ?>) ((Map<?, ?>) rule).get(LOGSOURCE)).forEach((key, value) -> {
+                        if (value != null) {
+                            logSource.put(String.valueOf(key), String.valueOf(value));
+                        }
+                    });
+                }
+                logSources.add(logSource);
+            }
+        } catch (SigmaYamlException | SigmaRuleException | IOException ex) {
+            logger.log(Level.FINE, String.format("Error reading logsource of sigma rule %s, keeping it", ruleFile.toString()), ex); //NON-NLS
+            return Collections.emptyList();
+        }
+        return logSources;
+    }
+
+    /**
+     * The channels and providers seen in the event logs being hunted.
+     */
+    static final class LogSources {
+
+        private final Set<String> channels;
+        private final Set<String> providers;
+        private final boolean complete;
+
+        LogSources(Set<String> channels, Set<String> providers, boolean complete) {
+            this.channels = channels;
+            this.providers = providers;
+            this.complete = complete;
+        }
+
+        /**
+         * @return true if a channel was read from every log, so the rule set
+         *         can be pruned to the channels present
+         */
+        boolean isComplete() {
+            return complete;
+        }
+
+        /**
+         * @return the channels present, in lower case
+         */
+        Set<String> getChannels() {
+            return Collections.unmodifiableSet(channels);
+        }
+
+        /**
+         * @return the providers present
+         */
+        Set<String> getProviders() {
+            return Collections.unmodifiableSet(providers);
+        }
+    }
+}
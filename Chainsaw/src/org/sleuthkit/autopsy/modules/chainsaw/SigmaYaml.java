@@ -0,0 +1,516 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2021 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.modules.chainsaw;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the subset of YAML that Sigma rules and Chainsaw mapping files use:
+ * block mappings and sequences, flow sequences, plain and quoted scalars,
+ * which may continue on more indented lines, literal and folded block
+ * scalars, comments and multiple documents separated by --- lines. Mappings
+ * are read into LinkedHashMaps so key order is kept, sequences into Lists and
+ * scalars into Strings, with null for an empty value or a ~ / null scalar.
+ */
+final class SigmaYaml {
+
+    private final List<Line> lines;
+    private int lineIndex;
+
+    private SigmaYaml(List<Line> lines) {
+        this.lines = lines;
+    }
+
+    /**
+     * Parse the first document of a YAML file.
+     *
+     * @param text the file
+     *
+     * @return the root value of the first document that is not empty, or
+     *         null if there is none
+     *
+     * @throws SigmaYamlException if the document uses YAML this reader does
+     *                            not support or is not valid
+     */
+    static Object parse(String text) throws SigmaYamlException {
+        for (List<Line> documentLines : splitDocuments(text)) {
+            SigmaYaml yaml = new SigmaYaml(documentLines);
+            if (yaml.hasContent()) {
+                return yaml.parseDocument();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Parse every document of a YAML file, as used by Sigma rule collections.
+     *
+     * @param text the file
+     *
+     * @return the root value of each document that is not empty, in file
+     *         order
+     *
+     * @throws SigmaYamlException if a document uses YAML this reader does not
+     *                            support or is not valid
+     */
+    static List<Object> parseAll(String text) throws SigmaYamlException {
+        List<Object> documents = new ArrayList<>();
+        for (List<Line> documentLines : splitDocuments(text)) {
+            SigmaYaml yaml = new SigmaYaml(documentLines);
+            if (yaml.hasContent()) {
+                documents.add(yaml.parseDocument());
+            }
+        }
+        return documents;
+    }
+
+    /**
+     * Split a file into the lines of each document, at --- and ... lines.
+     */
+    private static List<List<Line>> splitDocuments(String text) {
+        String[] rawLines = text.replace("\r\n", "\n").replace('\r', '\n').split("\n", -1);
+        List<List<Line>> documents = new ArrayList<>();
+        List<Line> document = new ArrayList<>();
+        for (int i = 0; i < rawLines.length; i++) {
+            String raw = rawLines[i];
+            if (raw.startsWith("---") || raw.startsWith("...")) {
+                documents.add(document);
+                document = new ArrayList<>();
+                continue;
+            }
+            document.add(new Line(raw, i + 1));
+        }
+        documents.add(document);
+        return documents;
+    }
+
+    private boolean hasContent() {
+        skipBlankLines();
+        return lineIndex < lines.size();
+    }
+
+    private Object parseDocument() throws SigmaYamlException {
+        skipBlankLines();
+        return parseBlock(lines.get(lineIndex).indent());
+    }
+
+    private Object parseBlock(int indent) throws SigmaYamlException {
+        skipBlankLines();
+        if (lineIndex >= lines.size()) {
+            return null;
+        }
+        Line line = lines.get(lineIndex);
+        String content = line.content();
+        if (content.equals("-") || content.startsWith("- ")) {
+            return parseSequence(line.indent());
+        }
+        if (findMappingColon(content) >= 0) {
+            return parseMapping(line.indent());
+        }
+        lineIndex++;
+        return parseScalar(readContinuation(content, indent - 1), line.number);
+    }
+
+    private Map<String, Object> parseMapping(int indent) throws SigmaYamlException {
+        Map<String, Object> mapping = new LinkedHashMap<>();
+        while (true) {
+            skipBlankLines();
+            if (lineIndex >= lines.size()) {
+                break;
+            }
+            Line line = lines.get(lineIndex);
+            if (line.indent() < indent) {
+                break;
+            }
+            if (line.indent() > indent) {
+                throw new SigmaYamlException("Unexpected indentation", line.number); //NON-NLS
+            }
+            String content = line.content();
+            int colon = findMappingColon(content);
+            if (colon < 0) {
+                throw new SigmaYamlException("Expected a mapping key", line.number); //NON-NLS
+            }
+            String key = unquote(content.substring(0, colon).trim(), line.number);
+            String rest = content.substring(colon + 1).trim();
+            lineIndex++;
+            mapping.put(key, parseValue(rest, indent, line.number));
+        }
+        return mapping;
+    }
+
+    private List<Object> parseSequence(int indent) throws SigmaYamlException {
+        List<Object> sequence = new ArrayList<>();
+        while (true) {
+            skipBlankLines();
+            if (lineIndex >= lines.size()) {
+                break;
+            }
+            Line line = lines.get(lineIndex);
+            String content = line.content();
+            if (line.indent() != indent || !(content.equals("-") || content.startsWith("- "))) {
+                if (line.indent() > indent) {
+                    throw new SigmaYamlException("Unexpected indentation", line.number); //NON-NLS
+                }
+                break;
+            }
+            String rest = content.substring(1).trim();
+            if (!rest.isEmpty() && findMappingColon(rest) >= 0 && !rest.startsWith("[") && !rest.startsWith("{")) {
+                // A mapping that starts on the same line as the dash; the
+                // rest of its keys line up with the first one.
+                int itemIndent = indent + content.indexOf(rest);
+                lines.set(lineIndex, new Line(spaces(itemIndent) + rest, line.number));
+                sequence.add(parseMapping(itemIndent));
+            } else {
+                lineIndex++;
+                sequence.add(parseValue(rest, indent, line.number));
+            }
+        }
+        return sequence;
+    }
+
+    /**
+     * Parse the value after a key or a dash: inline, a block scalar, or a
+     * nested block on the following lines.
+     */
+    private Object parseValue(String rest, int parentIndent, int lineNumber) throws SigmaYamlException {
+        if (rest.startsWith("|") || rest.startsWith(">")) {
+            return parseBlockScalar(rest.startsWith("|"), parentIndent);
+        }
+        if (!rest.isEmpty()) {
+            return parseScalar(readContinuation(rest, parentIndent), lineNumber);
+        }
+        skipBlankLines();
+        if (lineIndex >= lines.size()) {
+            return null;
+        }
+        Line next = lines.get(lineIndex);
+        boolean nestedSequence = next.indent() == parentIndent && (next.content().equals("-") || next.content().startsWith("- "));
+        if (next.indent() > parentIndent || nestedSequence) {
+            return parseBlock(next.indent());
+        }
+        return null;
+    }
+
+    private String parseBlockScalar(boolean literal, int parentIndent) {
+        StringBuilder value = new StringBuilder();
+        int blockIndent = -1;
+        while (lineIndex < lines.size()) {
+            Line line = lines.get(lineIndex);
+            if (line.raw.trim().isEmpty()) {
+                value.append('\n');
+                lineIndex++;
+                continue;
+            }
+            if (line.indent() <= parentIndent) {
+                break;
+            }
+            if (blockIndent < 0) {
+                blockIndent = line.indent();
+            }
+            String text = line.raw.length() > blockIndent ? line.raw.substring(Math.min(blockIndent, line.indent())) : "";
+            if (value.length() > 0 && value.charAt(value.length() - 1) != '\n') {
+                value.append(literal ? '\n' : ' ');
+            }
+            value.append(text);
+            lineIndex++;
+        }
+        return value.toString().trim();
+    }
+
+    /**
+     * Add the lines a scalar continues on, the lines after it that are
+     * indented more than its key or dash, folded into one line the way YAML
+     * folds them: a line break becomes a space and each empty line a line
+     * break. Flow collections can be continued the same way.
+     *
+     * @param first        the start of the scalar
+     * @param parentIndent the indentation of the scalar's key or dash
+     *
+     * @return the whole scalar
+     */
+    private String readContinuation(String first, int parentIndent) {
+        StringBuilder text = null;
+        int emptyLines = 0;
+        for (int next = lineIndex; next < lines.size(); next++) {
+            Line line = lines.get(next);
+            String trimmed = line.raw.trim();
+            if (trimmed.isEmpty()) {
+                emptyLines++;
+                continue;
+            }
+            if (line.indent() <= parentIndent || trimmed.startsWith("#")) {
+                break;
+            }
+            if (text == null) {
+                text = new StringBuilder(stripComment(first).trim());
+            }
+            if (emptyLines == 0) {
+                text.append(' ');
+            }
+            for (; emptyLines > 0; emptyLines--) {
+                text.append('\n');
+            }
+            // Only plain scalars end at a comment
+            text.append(isQuoted(first) ? trimmed : line.content());
+            lineIndex = next + 1;
+        }
+        return (text == null) ? first : text.toString();
+    }
+
+    private static boolean isQuoted(String text) {
+        return text.startsWith("'") || text.startsWith("\"");
+    }
+
+    private Object parseScalar(String text, int lineNumber) throws SigmaYamlException {
+        String value = stripComment(text).trim();
+        if (value.startsWith("[")) {
+            return parseFlowSequence(value, lineNumber);
+        }
+        if (value.startsWith("{")) {
+            return parseFlowMapping(value, lineNumber);
+        }
+        if (value.isEmpty() || value.equals("~") || value.equals("null")) {
+            return null;
+        }
+        return unquote(value, lineNumber);
+    }
+
+    private List<Object> parseFlowSequence(String text, int lineNumber) throws SigmaYamlException {
+        if (!text.endsWith("]")) {
+            throw new SigmaYamlException("Multi-line flow sequences are not supported", lineNumber); //NON-NLS
+        }
+        List<Object> sequence = new ArrayList<>();
+        for (String item : splitFlowItems(text.substring(1, text.length() - 1))) {
+            sequence.add(parseScalar(item, lineNumber));
+        }
+        return sequence;
+    }
+
+    private Map<String, Object> parseFlowMapping(String text, int lineNumber) throws SigmaYamlException {
+        if (!text.endsWith("}")) {
+            throw new SigmaYamlException("Multi-line flow mappings are not supported", lineNumber); //NON-NLS
+        }
+        Map<String, Object> mapping = new LinkedHashMap<>();
+        for (String item : splitFlowItems(text.substring(1, text.length() - 1))) {
+            int colon = findMappingColon(item);
+            if (colon < 0) {
+                throw new SigmaYamlException("Expected a mapping key", lineNumber); //NON-NLS
+            }
+            mapping.put(unquote(item.substring(0, colon).trim(), lineNumber), parseScalar(item.substring(colon + 1), lineNumber));
+        }
+        return mapping;
+    }
+
+    /**
+     * Split the body of a flow collection at the commas outside quotes and
+     * nested collections.
+     */
+    private static List<String> splitFlowItems(String body) {
+        List<String> items = new ArrayList<>();
+        StringBuilder item = new StringBuilder();
+        char quote = 0;
+        int depth = 0;
+        for (int i = 0; i < body.length(); i++) {
+            char c = body.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+                item.append(c);
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+                item.append(c);
+            } else if (c == '[' || c == '{') {
+                depth++;
+                item.append(c);
+            } else if (c == ']' || c == '}') {
+                depth--;
+                item.append(c);
+            } else if (c == ',' && depth == 0) {
+                addFlowItem(items, item.toString());
+                item.setLength(0);
+            } else {
+                item.append(c);
+            }
+        }
+        addFlowItem(items, item.toString());
+        return items;
+    }
+
+    private static void addFlowItem(List<String> items, String item) {
+        String trimmed = item.trim();
+        if (!trimmed.isEmpty()) {
+            items.add(trimmed);
+        }
+    }
+
+    private static String unquote(String value, int lineNumber) throws SigmaYamlException {
+        if (value.length() >= 2 && value.startsWith("'") && value.endsWith("'")) {
+            return value.substring(1, value.length() - 1).replace("''", "'");
+        }
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            return unescapeDoubleQuoted(value.substring(1, value.length() - 1), lineNumber);
+        }
+        return value;
+    }
+
+    private static String unescapeDoubleQuoted(String value, int lineNumber) throws SigmaYamlException {
+        StringBuilder unescaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c != '\\') {
+                unescaped.append(c);
+                continue;
+            }
+            if (++i >= value.length()) {
+                throw new SigmaYamlException("Unterminated escape", lineNumber); //NON-NLS
+            }
+            char escaped = value.charAt(i);
+            switch (escaped) {
+                case 'n':
+                    unescaped.append('\n');
+                    break;
+                case 't':
+                    unescaped.append('\t');
+                    break;
+                case 'r':
+                    unescaped.append('\r');
+                    break;
+                case '0':
+                    unescaped.append('\0');
+                    break;
+                case 'x':
+                    unescaped.append((char) Integer.parseInt(value.substring(i + 1, Math.min(i + 3, value.length())), 16));
+                    i += 2;
+                    break;
+                case 'u':
+                    unescaped.append((char) Integer.parseInt(value.substring(i + 1, Math.min(i + 5, value.length())), 16));
+                    i += 4;
+                    break;
+                default:
+                    unescaped.append(escaped);
+                    break;
+            }
+        }
+        return unescaped.toString();
+    }
+
+    /**
+     * Find the colon that ends a mapping key, outside quotes and followed by
+     * a space or the end of the line.
+     *
+     * @return the index of the colon, or -1 if the line is not a mapping entry
+     */
+    private static int findMappingColon(String content) {
+        char quote = 0;
+        for (int i = 0; i < content.length(); i++) {
+            char c = content.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if ((c == '\'' || c == '"') && i == 0) {
+                quote = c;
+            } else if (c == '#' && i > 0 && content.charAt(i - 1) == ' ') {
+                return -1;
+            } else if (c == ':' && (i + 1 == content.length() || content.charAt(i + 1) == ' ')) {
+                return i;
+            } else if (c == '[' || c == '{') {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private static String stripComment(String text) {
+        char quote = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            } else if (c == '#' && (i == 0 || Character.isWhitespace(text.charAt(i - 1)))) {
+                return text.substring(0, i);
+            }
+        }
+        return text;
+    }
+
+    private void skipBlankLines() {
+        while (lineIndex < lines.size()) {
+            String trimmed = lines.get(lineIndex).raw.trim();
+            if (!trimmed.isEmpty() && !trimmed.startsWith("#")) {
+                return;
+            }
+            lineIndex++;
+        }
+    }
+
+    private static String spaces(int count) {
+        StringBuilder spaces = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            spaces.append(' ');
+        }
+        return spaces.toString();
+    }
+
+    /**
+     * A line of the document.
+     */
+    private static final class Line {
+
+        private final String raw;
+        private final int number;
+
+        Line(String raw, int number) {
+            this.raw = raw.replace('\t', ' ');
+            this.number = number;
+        }
+
+        int indent() {
+            int indent = 0;
+            while (indent < raw.length() && raw.charAt(indent) == ' ') {
+                indent++;
+            }
+            return indent;
+        }
+
+        String content() {
+            return stripComment(raw.trim()).trim();
+        }
+    }
+
+    /**
+     * Thrown when a document can not be read.
+     */
+    static final class SigmaYamlException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        SigmaYamlException(String message, int lineNumber) {
+            super(String.format("%s at line %d", message, lineNumber)); //NON-NLS
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2021 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.modules.chainsaw;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.sleuthkit.autopsy.modules.chainsaw.SigmaRule.SigmaRuleException;
+import org.sleuthkit.autopsy.modules.chainsaw.SigmaYaml.SigmaYamlException;
+
+/**
+ * Loads the Sigma rules shipped with the module, so a rule the built in engine
+ * can not read is caught before it silently drops out of a hunt.
+ */
+public class SigmaRuleLoadTest {
+
+    private static final String MODULE_DIR_PROPERTY = "chainsaw.module.dir"; //NON-NLS
+    private static final String DEFAULT_MODULE_DIR = "release/modules/chainsaw"; //NON-NLS
+
+    private static Path moduleDirectory() {
+        return Paths.get(System.getProperty(MODULE_DIR_PROPERTY, DEFAULT_MODULE_DIR));
+    }
+
+    /**
+     * Every bundled rule has to compile, apart from the correlation rules
+     * (timeframes and aggregations), which the engine does not support. The
+     * engine has to load exactly the rules compiled here that the mapping
+     * file does not exclude.
+     */
+    @Test
+    public void testEveryBundledRuleLoads() throws IOException, SigmaYamlException {
+        Path rulesDirectory = moduleDirectory().resolve("sigma_rules"); //NON-NLS
+        Path mappingFile = moduleDirectory().resolve("mapping_files/sigma-mapping.yml"); //NON-NLS
+        List<Path> ruleFiles;
+        try (Stream<Path> walk = Files.walk(rulesDirectory)) {
+            ruleFiles = walk.filter(path -> path.toString().endsWith(".yml")).sorted().collect(Collectors.toList()); //NON-NLS
+        }
+        assertTrue("No rules found in " + rulesDirectory, !ruleFiles.isEmpty());
+
+        List<String> failures = new ArrayList<>();
+        List<SigmaRule> rules = new ArrayList<>();
+        for (Path ruleFile : ruleFiles) {
+            List<Object> documents;
+            try {
+                documents = SigmaRule.expandCollection(SigmaYaml.parseAll(new String(Files.readAllBytes(ruleFile), StandardCharsets.UTF_8)));
+            } catch (SigmaYamlException | SigmaRuleException ex) {
+                failures.add(ruleFile + ": " + ex.getMessage());
+                continue;
+            }
+            for (Object document : documents) {
+                try {
+                    rules.add(SigmaRule.compile(document));
+                } catch (SigmaRuleException ex) {
+                    if (!isCorrelationRule(document)) {
+                        failures.add(ruleFile + ": " + ex.getMessage());
+                    }
+                }
+            }
+        }
+        assertEquals("Rules that did not load:\n" + String.join("\n", failures), 0, failures.size());
+
+        Set<String> exclusions = new HashSet<>();
+        Object mapping = SigmaYaml.parse(new String(Files.readAllBytes(mappingFile), StandardCharsets.UTF_8));
+        Object excluded = ((Map<?, ?>) mapping).get("exclusions"); //NON-NLS
+        if (excluded instanceof List) {
+            ((List<?>) excluded).forEach(title -> exclusions.add(String.valueOf(title)));
+        }
+        long expected = rules.stream().filter(rule -> !exclusions.contains(rule.getTitle())).count();
+        assertEquals(expected, ChainsawSigmaEngine.load(rulesDirectory, mappingFile).getRuleCount());
+    }
+
+    /**
+     * A rule collection gives one rule per document after the global one,
+     * each with the global document's values.
+     */
+    @Test
+    public void testGlobalCollection() throws SigmaYamlException, SigmaRuleException {
+        String text = "action: global\n" //NON-NLS
+                + "title: Collection\n" //NON-NLS
+                + "detection:\n" //NON-NLS
+                + "    condition: selection\n" //NON-NLS
+                + "---\n" //NON-NLS
+                + "logsource:\n" //NON-NLS
+                + "    category: file_event\n" //NON-NLS
+                + "detection:\n" //NON-NLS
+                + "    selection:\n" //NON-NLS
+                + "        TargetFilename: a.dll\n" //NON-NLS
+                + "---\n" //NON-NLS
+                + "logsource:\n" //NON-NLS
+                + "    category: image_load\n" //NON-NLS
+                + "detection:\n" //NON-NLS
+                + "    selection:\n" //NON-NLS
+                + "        ImageLoaded: a.dll\n"; //NON-NLS
+        List<Object> documents = SigmaRule.expandCollection(SigmaYaml.parseAll(text));
+        assertEquals(2, documents.size());
+        SigmaRule fileEvent = SigmaRule.compile(documents.get(0));
+        SigmaRule imageLoad = SigmaRule.compile(documents.get(1));
+        assertEquals("Collection", fileEvent.getTitle()); //NON-NLS
+        assertEquals("file_event", fileEvent.getLogSource().get("category")); //NON-NLS
+        assertEquals("image_load", imageLoad.getLogSource().get("category")); //NON-NLS
+        assertTrue(imageLoad.getFields().contains("ImageLoaded")); //NON-NLS
+    }
+
+    /**
+     * An empty string only matches a field that is present and empty, and
+     * null only matches a field the event does not have.
+     */
+    @Test
+    public void testEmptyAndNullValues() throws SigmaYamlException, SigmaRuleException {
+        SigmaRule rule = SigmaRule.compile(SigmaYaml.parse("title: Empty or absent\n" //NON-NLS
+                + "detection:\n" //NON-NLS
+                + "    empty:\n" //NON-NLS
+                + "        CommandLine: ''\n" //NON-NLS
+                + "    absent:\n" //NON-NLS
+                + "        ParentImage: null\n" //NON-NLS
+                + "    condition: empty and absent\n")); //NON-NLS
+        assertTrue(rule.matches(fields(null, null, "CommandLine", ""), Collections.emptyList())); //NON-NLS
+        assertFalse(rule.matches(fields(null, null, "CommandLine", "cmd.exe"), Collections.emptyList())); //NON-NLS
+        assertFalse(rule.matches(fields(null, null, null, null), Collections.emptyList()));
+        assertFalse(rule.matches(fields("ParentImage", "", "CommandLine", ""), Collections.emptyList())); //NON-NLS
+    }
+
+    /**
+     * Plain scalars continue on more indented lines.
+     */
+    @Test
+    public void testContinuedPlainScalar() throws SigmaYamlException {
+        String text = "description: first line\n" //NON-NLS
+                + "    second line\n" //NON-NLS
+                + "\n" //NON-NLS
+                + "    after an empty line\n" //NON-NLS
+                + "level: high\n"; //NON-NLS
+        Map<?, ?> document = (Map<?, ?>) SigmaYaml.parse(text);
+        assertEquals("first line second line\nafter an empty line", document.get("description")); //NON-NLS
+        assertEquals("high", document.get("level")); //NON-NLS
+    }
+
+    /**
+     * The values of an event with up to two fields, a null name leaving the
+     * field out.
+     */
+    private static Function<String, String> fields(String firstName, String firstValue, String secondName, String secondValue) {
+        Map<String, String> values = new HashMap<>();
+        if (firstName != null) {
+            values.put(firstName, firstValue);
+        }
+        if (secondName != null) {
+            values.put(secondName, secondValue);
+        }
+        return values::get;
+    }
+
+    private static boolean isCorrelationRule(Object document) {
+        Object detection = ((Map<?, ?>) document).get("detection"); //NON-NLS
+        if (!(detection instanceof Map)) {
+            return false;
+        }
+        Object condition = ((Map<?, ?>) detection).get("condition"); //NON-NLS
+        return ((Map<?, ?>) detection).containsKey("timeframe") || String.valueOf(condition).contains("|"); //NON-NLS
+    }
+}
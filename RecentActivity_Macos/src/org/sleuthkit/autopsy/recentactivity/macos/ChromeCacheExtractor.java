@@ -21,25 +21,32 @@
 package org.sleuthkit.autopsy.recentactivity.macos;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.nio.channels.FileChannel;
-import java.nio.charset.Charset;
-import java.nio.file.Path;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.logging.Level;
 import org.openide.util.NbBundle;
 import org.openide.util.NbBundle.Messages;
@@ -48,7 +55,6 @@ import org.sleuthkit.autopsy.casemodule.NoCurrentCaseException;
 import org.sleuthkit.autopsy.casemodule.services.FileManager;
 import org.sleuthkit.autopsy.coreutils.Logger;
 import org.sleuthkit.autopsy.coreutils.NetworkUtils;
-import org.sleuthkit.autopsy.datamodel.ContentUtils;
 import org.sleuthkit.autopsy.ingest.DataSourceIngestModuleProgress;
 import org.sleuthkit.autopsy.ingest.IngestJobContext;
 import org.sleuthkit.autopsy.ingest.IngestModule.IngestModuleException;
@@ -62,10 +68,11 @@ import org.sleuthkit.datamodel.BlackboardAttribute;
 import org.sleuthkit.datamodel.Content;
 import org.sleuthkit.datamodel.DerivedFile;
 import org.sleuthkit.datamodel.OsAccount;
+import org.sleuthkit.datamodel.ReadContentInputStream;
+import org.sleuthkit.datamodel.SleuthkitCase.CaseDbTransaction;
 import org.sleuthkit.datamodel.TimeUtilities;
 import org.sleuthkit.datamodel.TskCoreException;
 import org.sleuthkit.datamodel.TskData;
-import org.sleuthkit.datamodel.TskException;
 
 /**
  * Extracts and parses Chrome Cache files.
@@ -90,17 +97,48 @@ import org.sleuthkit.datamodel.TskException;
  *    These are referred to as "External Files" in the below code.
  * - A CacheAddress embeds information about which file something is stored in.  This address is used in several structures to make it easy to abstract out where data is stored.
  * - General Flow: index file -> process Cache Entry in data_X file -> process segment in data_X or f_XXX. 
+ * 
+ * Newer versions of Chrome, and Electron apps, use the Simple Cache layout instead:
+ * one file per entry named after the hash of its key, "0123456789abcdef_0", with the
+ * payload and the HTTP headers in the file, and index-dir/the-real-index next to them.
+ * Those entries are read by ChromeSimpleCacheEntry and go through the same derived
+ * file and artifact path as block-file entries.
+ * 
+ * Payloads stored with a gzip or deflate Content-Encoding are also decoded, by 
+ * ContentEncodingDecoder, into a derived file under the cached item.
  */
 final class ChromeCacheExtractor {
     
     private final static String DEFAULT_CACHE_PATH_STR = "default/cache"; //NON-NLS
+    private final static String SIMPLE_INDEX_DIR_NAME = "index-dir"; //NON-NLS
     private final static String BROTLI_MIMETYPE ="application/x-brotli"; //NON-NLS
     
     private final static long UINT32_MASK = 0xFFFFFFFFl;
+    // Seconds from 1601 (Windows epoch, used by Chrome) to 1970
+    private final static long WINDOWS_EPOCH_OFFSET_SECONDS = 11644473600L;
+    
+    // Decoding tables, so entries and addresses don't allocate them each time
+    private final static CacheFileTypeEnum[] CACHE_FILE_TYPES = CacheFileTypeEnum.values();
+    private final static EntryStateEnum[] ENTRY_STATES = EntryStateEnum.values();
+    private final static String[] DATA_FILE_NAMES = {"data_0", "data_1", "data_2", "data_3"}; //NON-NLS
+    private final static byte[] HTTP_MARKER = {'H', 'T', 'T', 'P'};
     
     private final static int INDEXFILE_HDR_SIZE = 92*4;
     private final static int DATAFILE_HDR_SIZE = 8192;
     
+    // The cache files are read in blocks of this size, and this many blocks
+    // are kept per file.
+    private final static int READ_BLOCK_SIZE = 64 * 1024;
+    private final static int MAX_CACHED_BLOCKS = 64;
+
+    // The number of cache entries added to the case database in one transaction
+    private final static int CACHE_ENTRY_BATCH_SIZE = 1000;
+    // The number of index entries read by one task, which is also the number
+    // of entries between progress bar updates
+    private final static int ENTRY_CHUNK_SIZE = 100;
+    // The number of tasks that may be read ahead of the writer, per processor
+    private final static int PENDING_CHUNKS_PER_PROCESSOR = 2;
+    
     private final static Logger logger = Logger.getLogger(ChromeCacheExtractor.class.getName());
     
     private static final String VERSION_NUMBER = "1.0.0"; //NON-NLS
@@ -113,42 +151,226 @@ final class ChromeCacheExtractor {
     private final IngestJobContext context;
     private final DataSourceIngestModuleProgress progressBar;
     private final IngestServices services = IngestServices.getInstance();
+    private final ExecutorService executor;
+    // Whether payloads stored with a gzip or deflate Content-Encoding are also
+    // decoded into derived files, so they can be searched and previewed
+    private final boolean decodeContentEncodings;
     private Case currentCase;
     private FileManager fileManager;
 
-    // A file table to cache copies of index and data_n files.
-    private final Map<String, FileWrapper> fileCopyCache = new HashMap<>();
+    // A file table to cache the wrappers of the index and data_n files.
+    // Keyed by cache folder and file name, and shared by the folders being processed.
+    private final Map<String, FileWrapper> fileWrapperCache = new ConcurrentHashMap<>();
     
     // A file table to cache the f_* files.
-    private final Map<String, AbstractFile> externalFilesTable = new HashMap<>();
+    private final Map<String, AbstractFile> externalFilesTable = new ConcurrentHashMap<>();
+    
+    // The number of loaded cache folders of each path that have not been released yet.
+    // Two index files (an allocated and an unallocated copy) can load the same folder.
+    private final Map<String, Integer> activeCacheFolders = new ConcurrentHashMap<>();
     
     /**
      * Allows methods to use data in an AbstractFile in a variety of
-     * ways. As a ByteBuffer, AbstractFile, etc.  A local copy of the file
-     * backs the ByteBuffer. 
+     * ways. As a ByteBuffer, AbstractFile, etc.  The file is read straight
+     * from the data source, without a local copy: the entries and segments
+     * of a data_X file are small and scattered, so the file is read in
+     * aligned blocks and the most recently used blocks are kept for the
+     * reads that follow. Entries are read on several threads at once, so
+     * the blocks are guarded by the block map; the reads of the file itself
+     * are not, and two threads may now and then read the same block.
      */
     final class FileWrapper {       
         private final AbstractFile abstractFile;
-        private final RandomAccessFile fileCopy;
-        private final ByteBuffer byteBuffer;
+        private final ChromeSimpleCacheEntry.EntryFile file;
+        private final Map<Long, byte[]> blocks = new LinkedHashMap<Long, byte[]>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+                return size() > MAX_CACHED_BLOCKS;
+            }
+        };
 
-        FileWrapper (AbstractFile abstractFile, RandomAccessFile fileCopy, ByteBuffer buffer ) {
+        FileWrapper (AbstractFile abstractFile) {
             this.abstractFile = abstractFile;
-            this.fileCopy = fileCopy;
-            this.byteBuffer = buffer;
+            this.file = ChromeSimpleCacheEntry.EntryFile.of(abstractFile);
         }
         
-        public RandomAccessFile getFileCopy() {
-            return fileCopy;
-        }
-        public ByteBuffer getByteBuffer() {
-            return byteBuffer;
+        /**
+         * Wraps a cache file that is not in the case, see
+         * useCacheFolderFiles().  getAbstractFile() returns null.
+         * 
+         * @param file The cache file
+         */
+        private FileWrapper (ChromeSimpleCacheEntry.EntryFile file) {
+            this.abstractFile = null;
+            this.file = file;
         }
+        
         AbstractFile getAbstractFile() {
             return abstractFile;
         } 
+        
+        long getSize() {
+            return file.getSize();
+        }
+        
+        /**
+         * Reads a part of the file.  A part that lies within one block, such as
+         * an entry or a small segment, is returned as a view of the cached block
+         * rather than copied.
+         * 
+         * @param offset Offset of the first byte
+         * @param length Number of bytes to read
+         * 
+         * @return Read-only buffer in native byte order, positioned at the
+         *         first byte.  It holds fewer than length bytes if the file
+         *         ends first.
+         * 
+         * @throws TskCoreException 
+         */
+        ByteBuffer read(long offset, int length) throws TskCoreException {
+            int available = (int) Math.max(0, Math.min(length, file.getSize() - offset));
+            long firstBlockStart = offset - (offset % READ_BLOCK_SIZE);
+            int firstBlockOffset = (int) (offset - firstBlockStart);
+            if (available > 0 && firstBlockOffset + available <= READ_BLOCK_SIZE) {
+                byte[] block = getBlock(firstBlockStart);
+                int count = Math.max(0, Math.min(available, block.length - firstBlockOffset));
+                ByteBuffer view = ByteBuffer.wrap(block, Math.min(firstBlockOffset, block.length), count).slice().asReadOnlyBuffer();
+                view.order(ByteOrder.nativeOrder());
+                return view;
+            }
+            
+            byte[] bytes = new byte[available];
+            int copied = 0;
+            while (copied < available) {
+                long position = offset + copied;
+                long blockStart = position - (position % READ_BLOCK_SIZE);
+                byte[] block = getBlock(blockStart);
+                int blockOffset = (int) (position - blockStart);
+                int count = Math.min(available - copied, block.length - blockOffset);
+                if (count <= 0) {
+                    break;
+                }
+                System.arraycopy(block, blockOffset, bytes, copied, count);
+                copied += count;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, copied).asReadOnlyBuffer();
+            buffer.order(ByteOrder.nativeOrder());
+            return buffer;
+        }
+        
+        private byte[] getBlock(long blockStart) throws TskCoreException {
+            byte[] block;
+            synchronized (blocks) {
+                block = blocks.get(blockStart);
+            }
+            if (block == null) {
+                block = new byte[(int) Math.min(READ_BLOCK_SIZE, file.getSize() - blockStart)];
+                int bytesRead = file.read(block, blockStart, block.length);
+                if (bytesRead < block.length) {
+                    block = Arrays.copyOf(block, Math.max(bytesRead, 0));
+                }
+                synchronized (blocks) {
+                    blocks.put(blockStart, block);
+                }
+            }
+            return block;
+        }
+    }
+
+    /**
+     * A cache entry that has been read from the cache files and is waiting
+     * to be added to the case database with the rest of its batch.
+     */
+    private static final class PendingCacheEntry {
+        private final String url;
+        private final long creationTime;
+        private final String httpHeaders;
+        private final AbstractFile cacheEntryFile;  // data_X or Simple Cache entry file that has the entry
+        private final AbstractFile segmentFile;     // data_X, f_XXXX or entry file that has the payload
+        private final String cachePath;
+        private final String savedFileName;         // null if the payload is in an f_XXXX file
+        private final long dataLength;
+        private final boolean isBrotliCompressed;
+        // Set by decodePayload() if the payload was decoded
+        private String decodedFileName;
+        private long decodedLength;
+
+        PendingCacheEntry(String url, long creationTime, String httpHeaders, AbstractFile cacheEntryFile, AbstractFile segmentFile,
+                String cachePath, String savedFileName, long dataLength, boolean isBrotliCompressed) {
+            this.url = url;
+            this.creationTime = creationTime;
+            this.httpHeaders = httpHeaders;
+            this.cacheEntryFile = cacheEntryFile;
+            this.segmentFile = segmentFile;
+            this.cachePath = cachePath;
+            this.savedFileName = savedFileName;
+            this.dataLength = dataLength;
+            this.isBrotliCompressed = isBrotliCompressed;
+        }
+    }
+
+    /**
+     * A user's cache folder, with its index table read and its files found,
+     * or, for a Simple Cache, with its entry files found.
+     * The derived files and artifacts are only touched by the writer thread.
+     */
+    private static final class CacheFolder {
+        private final AbstractFile indexFile;
+        private final String cacheFolderName;
+        private final ByteBuffer indexTable;                // null for a Simple Cache
+        private final List<AbstractFile> simpleEntryFiles;  // null for a block-file cache
+        private final int tableLen;     // number of entries actually in indexTable or simpleEntryFiles
+        private final List<AbstractFile> derivedFiles = new ArrayList<>();
+        private final Collection<BlackboardArtifact> artifactsAdded = new ArrayList<>();
+
+        CacheFolder(AbstractFile indexFile, String cacheFolderName, ByteBuffer indexTable, int tableLen) {
+            this.indexFile = indexFile;
+            this.cacheFolderName = cacheFolderName;
+            this.indexTable = indexTable;
+            this.simpleEntryFiles = null;
+            this.tableLen = tableLen;
+        }
+
+        CacheFolder(AbstractFile indexFile, String cacheFolderName, List<AbstractFile> simpleEntryFiles) {
+            this.indexFile = indexFile;
+            this.cacheFolderName = cacheFolderName;
+            this.indexTable = null;
+            this.simpleEntryFiles = simpleEntryFiles;
+            this.tableLen = simpleEntryFiles.size();
+        }
+    }
+
+    /**
+     * A range of entries of an index table or Simple Cache folder, read by one task.
+     */
+    private static final class EntryChunk {
+        private final CacheFolder cacheFolder;
+        private final int start;
+        private final int end;
+        private Future<List<PendingCacheEntry>> result;
+
+        EntryChunk(CacheFolder cacheFolder, int start, int end) {
+            this.cacheFolder = cacheFolder;
+            this.start = start;
+            this.end = end;
+        }
+
+        boolean isLast() {
+            return end == cacheFolder.tableLen;
+        }
     }
 
+    /**
+     * Creates an extractor that reads the cache folders and their entries on
+     * an executor. The derived files and artifacts are still added on the
+     * thread that calls processCaches().
+     * 
+     * @param executor Executor to read on, or null to read on the calling thread
+     * @param decodeContentEncodings Whether to also add decoded copies of
+     *                               gzip and deflate encoded payloads
+     */
     @NbBundle.Messages({
         "# {0} - module name",
         "# {1} - row number",
@@ -156,11 +378,14 @@ final class ChromeCacheExtractor {
         "# {3} - cache path",
         "ChromeCacheExtractor.progressMsg={0}: Extracting cache entry {1} of {2} entries from {3}"
     })
-    ChromeCacheExtractor(Content dataSource, IngestJobContext context, DataSourceIngestModuleProgress progressBar) { 
+    ChromeCacheExtractor(Content dataSource, IngestJobContext context, DataSourceIngestModuleProgress progressBar, ExecutorService executor,
+            boolean decodeContentEncodings) { 
         moduleName = NbBundle.getMessage(Chromium.class, "Chrome.moduleName");
         this.dataSource = dataSource;
         this.context = context;
         this.progressBar = progressBar;
+        this.executor = executor;
+        this.decodeContentEncodings = decodeContentEncodings;
     }
     
     
@@ -182,52 +407,91 @@ final class ChromeCacheExtractor {
     }
     
     /**
-     * Resets the internal caches and temp folders in between processing each user cache folder
+     * Creates the output folder for the files extracted from a user cache folder
      * 
      * @param cachePath - path (in data source) of the cache being processed 
-     * 
-     * @throws org.sleuthkit.autopsy.ingest.IngestModule.IngestModuleException 
      */
-    private void resetForNewCacheFolder(String cachePath) throws IngestModuleException {
-        
-        fileCopyCache.clear();
-        externalFilesTable.clear();
+    private void createOutputFolder(String cachePath) {
         
         String cacheAbsOutputFolderName = this.getAbsOutputFolderName() + cachePath;
         File outDir = new File(cacheAbsOutputFolderName);
         if (outDir.exists() == false) {
             outDir.mkdirs();
         }
-        
-        String cacheTempPath = RAImageIngestModule.getRATempPath(currentCase, moduleName, context.getJobId()) + cachePath;
-        File tempDir = new File(cacheTempPath);
-        if (tempDir.exists() == false) {
-            tempDir.mkdirs();
-        }
+    }
+    
+    /**
+     * Uses the given files as the index and data_n files of a cache folder,
+     * in place of any looked up before.  This decodes caches that are not in
+     * the case, such as the synthetic caches of the benchmarks.
+     * 
+     * @param cachePath - path of the cache folder, ending with a separator
+     * @param files     - the index and data_n files of the folder
+     * 
+     * @return the wrapper of each file, by file name
+     */
+    Map<String, FileWrapper> useCacheFolderFiles(String cachePath, List<ChromeSimpleCacheEntry.EntryFile> files) {
+        Map<String, FileWrapper> fileWrappers = new HashMap<>();
+        for (ChromeSimpleCacheEntry.EntryFile file : files) {
+            FileWrapper fileWrapper = new FileWrapper(file);
+            fileWrapperCache.put(cachePath + file.getName(), fileWrapper);
+            fileWrappers.put(file.getName(), fileWrapper);
+        }
+        return fileWrappers;
+    }
+    
+    /**
+     * Marks a user cache folder as being loaded and processed, so its files
+     * stay in the internal caches until releaseCacheFolder() is called for it.
+     * 
+     * @param cachePath - path (in data source) of the cache being loaded
+     */
+    private void useCacheFolder(String cachePath) {
+        activeCacheFolders.merge(cachePath, 1, Integer::sum);
+    }
+    
+    /**
+     * Releases the files of a user cache folder from the internal caches once
+     * the folder has been processed, unless another load of the same folder
+     * is still active.  Only the files directly in the folder are released,
+     * not those of a cache folder nested in it, such as Cache_Data.
+     * 
+     * @param cachePath - path (in data source) of the cache that was processed 
+     */
+    private void releaseCacheFolder(String cachePath) {
+        activeCacheFolders.compute(cachePath, (path, count) -> {
+            if (count != null && count > 1) {
+                return count - 1;
+            }
+            fileWrapperCache.keySet().removeIf(key -> isFileInFolder(key, cachePath));
+            externalFilesTable.keySet().removeIf(key -> isFileInFolder(key, cachePath));
+            return null;
+        });
+    }
+    
+    /**
+     * Checks if a file table key, a folder path followed by a file name, is
+     * that of a file directly in the given folder.
+     * 
+     * @param fileTableKey - the key
+     * @param cachePath    - path of the folder, ending with a separator
+     * 
+     * @return true if the file is in the folder itself
+     */
+    private static boolean isFileInFolder(String fileTableKey, String cachePath) {
+        return fileTableKey.startsWith(cachePath) && fileTableKey.indexOf('/', cachePath.length()) < 0;
     }
     
     /**
      * Cleans up after the module is done.
      * 
-     * Removes any temp copies of cache files created during extraction.
+     * Releases the blocks read from the cache files.
      * 
      */
     private void cleanup () {
-        
-        for (Entry<String, FileWrapper> entry : this.fileCopyCache.entrySet()) {
-            Path tempFilePath = Paths.get(RAImageIngestModule.getRATempPath(currentCase, moduleName, context.getJobId()), entry.getKey() ); 
-            try {
-                entry.getValue().getFileCopy().getChannel().close();
-                entry.getValue().getFileCopy().close();
-               
-                File tmpFile = tempFilePath.toFile();
-                if (!tmpFile.delete()) {
-                    tmpFile.deleteOnExit();
-                }
-            } catch (IOException ex) {
-                logger.log(Level.WARNING, String.format("Failed to delete cache file copy %s", tempFilePath.toString()), ex); //NON-NLS
-            }
-        }
+        fileWrapperCache.clear();
+        externalFilesTable.clear();
+        activeCacheFolders.clear();
     }
     
     /**
@@ -268,8 +532,9 @@ final class ChromeCacheExtractor {
         try {
             // Identify each cache folder by searching for the index files in each
             List<AbstractFile> indexFiles = findIndexFiles(); 
+            List<AbstractFile> simpleIndexFiles = findSimpleCacheIndexFiles();
             
-            if (indexFiles.size() > 0) {
+            if (indexFiles.size() > 0 || simpleIndexFiles.size() > 0) {
                 // Create an output folder to save any derived files
                 absOutputFolderName = RAImageIngestModule.getRAOutputPath(currentCase, moduleName, context.getJobId());
                 relOutputFolderName = Paths.get(RAImageIngestModule.getRelModuleOutputPath(currentCase, moduleName, context.getJobId())).normalize().toString();
@@ -280,17 +545,12 @@ final class ChromeCacheExtractor {
                 }
             }
 
-            // Process each of the cache folders
-            for (AbstractFile indexFile: indexFiles) {  
-                
-                if (context.dataSourceIngestIsCancelled()) {
-                    return;
-                }
-                
-                if (indexFile.getSize() > 0) {
-                    processCacheFolder(indexFile);
-                }
+            // Load the cache folders, several at a time, and then process their entries
+            List<CacheFolder> cacheFolders = loadCacheFolders(indexFiles, simpleIndexFiles);
+            if (!context.dataSourceIngestIsCancelled()) {
+                processCacheFolders(cacheFolders);
             }
+            cleanup();
         
         } catch (TskCoreException ex) {
                 String msg = "Failed to find cache index files"; //NON-NLS
@@ -305,24 +565,61 @@ final class ChromeCacheExtractor {
     })
     
     /**
-     * Processes a user's cache and creates corresponding artifacts and derived files. 
-     * Will ultimately process the f_XXXX and data_X files in the folder.
+     * Loads the user cache folders of the given index files, on the executor.
+     * 
+     * @param indexFiles       Index files that are located in users' cache folders
+     * @param simpleIndexFiles the-real-index files that are located in the index-dir
+     *                         folders of users' Simple Cache folders
+     * 
+     * @return The folders that could be loaded, in the order of their index files
+     */
+    private List<CacheFolder> loadCacheFolders(List<AbstractFile> indexFiles, List<AbstractFile> simpleIndexFiles) {
+        
+        List<Future<Optional<CacheFolder>>> futures = new ArrayList<>();
+        for (AbstractFile indexFile: indexFiles) {  
+            if (indexFile.getSize() > 0) {
+                futures.add(submit(() -> context.dataSourceIngestIsCancelled() ? Optional.empty() : loadCacheFolder(indexFile)));
+            }
+        }
+        for (AbstractFile simpleIndexFile: simpleIndexFiles) {  
+            futures.add(submit(() -> context.dataSourceIngestIsCancelled() ? Optional.empty() : loadSimpleCacheFolder(simpleIndexFile)));
+        }
+        
+        List<CacheFolder> cacheFolders = new ArrayList<>();
+        try {
+            for (Future<Optional<CacheFolder>> future : futures) {
+                try {
+                    future.get().ifPresent(cacheFolders::add);
+                } catch (ExecutionException ex) {
+                    logger.log(Level.WARNING, "Failed to load cache folder", ex.getCause()); //NON-NLS
+                }
+            }
+        } catch (InterruptedException ex) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            cacheFolders.clear();
+        }
+        return cacheFolders;
+    }
+    
+    /**
+     * Loads a user's cache folder: finds the needed files in the folder, wraps
+     * them in internal caches so that we can later process them and efficiently
+     * look them up, and reads the index table.
      * 
      * @param indexFile Index file that is located in a user's cache folder
+     * 
+     * @return The folder, if its files could be found and its index read
      */
-    private void processCacheFolder(AbstractFile indexFile) {
+    private Optional<CacheFolder> loadCacheFolder(AbstractFile indexFile) {
         
         String cacheFolderName = indexFile.getParentPath();
         Optional<FileWrapper> indexFileWrapper;
+        useCacheFolder(cacheFolderName);
         
-        /*
-         * The first part of this method is all about finding the needed files in the cache
-         * folder and making internal copies/caches of them so that we can later process them
-         * and effeciently look them up. 
-        */
         try {
             progressBar.progress(String.format(Bundle.ChromeCacheExtract_loading_files_msg(), cacheFolderName));
-            resetForNewCacheFolder(cacheFolderName);
+            createOutputFolder(cacheFolderName);
              
             // @@@ This is little ineffecient because we later in this call search for the AbstractFile that we currently have
             // Load the index file into the caches
@@ -330,7 +627,8 @@ final class ChromeCacheExtractor {
             if (!indexFileWrapper.isPresent()) {
                 String msg = String.format("Failed to find copy cache index file %s", indexFile.getUniquePath());
                 logger.log(Level.WARNING, msg);
-                return;
+                releaseCacheFolder(cacheFolderName);
+                return Optional.empty();
             }
 
             
@@ -339,7 +637,8 @@ final class ChromeCacheExtractor {
             for (int i = 0; i < 4; i ++)  {
                 Optional<FileWrapper> dataFile = findDataOrIndexFile(String.format("data_%1d",i), cacheFolderName );
                 if (!dataFile.isPresent()) {
-                    return;
+                    releaseCacheFolder(cacheFolderName);
+                    return Optional.empty();
                 }
             }
             
@@ -350,57 +649,199 @@ final class ChromeCacheExtractor {
         } catch (TskCoreException | IngestModuleException ex) {
             String msg = "Failed to find cache files in path " + cacheFolderName; //NON-NLS
             logger.log(Level.WARNING, msg, ex);
-            return;
+            releaseCacheFolder(cacheFolderName);
+            return Optional.empty();
         } 
 
-        /*
-         * Now the analysis begins.  We parse the index file and that drives parsing entries
-         * from data_X or f_XXXX files. 
-        */
         logger.log(Level.INFO, "{0}- Now reading Cache index file from path {1}", new Object[]{moduleName, cacheFolderName }); //NON-NLS
 
-        List<AbstractFile> derivedFiles = new ArrayList<>();
-        Collection<BlackboardArtifact> artifactsAdded = new ArrayList<>();
-        
-        ByteBuffer indexFileROBuffer = indexFileWrapper.get().getByteBuffer();
-        IndexFileHeader indexHdr = new IndexFileHeader(indexFileROBuffer);
-
-        // seek past the header
-        indexFileROBuffer.position(INDEXFILE_HDR_SIZE);
-
         try {
-            /* Cycle through index and get the CacheAddress for each CacheEntry.  Process each entry
-             * to extract data, add artifacts, etc. from the f_XXXX and data_x files */
-            for (int i = 0; i <  indexHdr.getTableLen(); i++) {
+            IndexFileHeader indexHdr = new IndexFileHeader(indexFileWrapper.get().read(0, INDEXFILE_HDR_SIZE));
 
+            // read the table past the header
+            ByteBuffer indexTable = indexFileWrapper.get().read(INDEXFILE_HDR_SIZE, (int) Math.min(4L * indexHdr.getTableLen(), Integer.MAX_VALUE));
+            int tableLen = Math.max(0, Math.min(indexHdr.getTableLen(), indexTable.limit() / 4));
+            if (tableLen < indexHdr.getTableLen()) {
+                logger.log(Level.WARNING, String.format("Ran out of data unexpectedly reading file %s (ObjID: %d)", indexFile.getName(), indexFile.getId()));
+            }
+            return Optional.of(new CacheFolder(indexFile, cacheFolderName, indexTable, tableLen));
+        } catch (TskCoreException ex) {
+            logger.log(Level.WARNING, String.format("Failed to read index file %s (ObjID: %d)", indexFile.getName(), indexFile.getId()), ex); //NON-NLS
+            releaseCacheFolder(cacheFolderName);
+            return Optional.empty();
+        }
+    }
+    
+    /**
+     * Loads a user's Simple Cache folder: finds its entry files.  The-real-index
+     * only identifies the folder; the entries are found by their file names,
+     * so entries the index no longer lists are read as well.
+     * 
+     * @param simpleIndexFile the-real-index file in the index-dir folder of the cache
+     * 
+     * @return The folder, if its files could be found
+     */
+    private Optional<CacheFolder> loadSimpleCacheFolder(AbstractFile simpleIndexFile) {
+        
+        // the-real-index is in <cache folder>/index-dir/
+        String indexDirName = simpleIndexFile.getParentPath();
+        String cacheFolderName = indexDirName.substring(0, indexDirName.length() - 1);
+        cacheFolderName = cacheFolderName.substring(0, cacheFolderName.lastIndexOf('/') + 1);
+        useCacheFolder(cacheFolderName);
+        
+        try {
+            progressBar.progress(String.format(Bundle.ChromeCacheExtract_loading_files_msg(), cacheFolderName));
+            createOutputFolder(cacheFolderName);
+            
+            // Don't let an unallocated version of an entry file hide an allocated one
+            Map<String, AbstractFile> entryFiles = new LinkedHashMap<>();
+            for (AbstractFile entryFile : fileManager.findFiles(dataSource, "%_0", cacheFolderName)) { //NON-NLS
+                if (cacheFolderName.equals(entryFile.getParentPath()) && entryFile.isFile() 
+                        && ChromeSimpleCacheEntry.isEntryFileName(entryFile.getName())) {
+                    if (entryFile.isMetaFlagSet(TskData.TSK_FS_META_FLAG_ENUM.ALLOC)
+                            || !entryFiles.containsKey(entryFile.getName())) {
+                        entryFiles.put(entryFile.getName(), entryFile);
+                    }
+                }
+            }
+            
+            logger.log(Level.INFO, "{0}- Found {1} Simple Cache entries in path {2}", new Object[]{moduleName, entryFiles.size(), cacheFolderName }); //NON-NLS
+            return Optional.of(new CacheFolder(simpleIndexFile, cacheFolderName, new ArrayList<>(entryFiles.values())));
+        } catch (TskCoreException ex) {
+            String msg = "Failed to find Simple Cache files in path " + cacheFolderName; //NON-NLS
+            logger.log(Level.WARNING, msg, ex);
+            releaseCacheFolder(cacheFolderName);
+            return Optional.empty();
+        }
+    }
+    
+    /**
+     * Processes the users' caches and creates corresponding artifacts and derived files. 
+     * Will ultimately process the f_XXXX and data_X files in the folders.
+     * 
+     * The index tables are split into chunks of entries that are read on the executor,
+     * a bounded number ahead of this thread, which is the only one that adds derived 
+     * files and artifacts to the case database.  The chunks are written in order, so 
+     * the folders are finished one after the other while later folders are being read.
+     * 
+     * @param cacheFolders Folders loaded by loadCacheFolder()
+     */
+    private void processCacheFolders(List<CacheFolder> cacheFolders) {
+        
+        Deque<EntryChunk> chunks = new ArrayDeque<>();
+        for (CacheFolder cacheFolder : cacheFolders) {
+            int start = 0;
+            do {
+                int end = Math.min(start + ENTRY_CHUNK_SIZE, cacheFolder.tableLen);
+                chunks.add(new EntryChunk(cacheFolder, start, end));
+                start = end;
+            } while (start < cacheFolder.tableLen);
+        }
+        
+        int maxPendingChunks = PENDING_CHUNKS_PER_PROCESSOR * Runtime.getRuntime().availableProcessors();
+        Deque<EntryChunk> pendingChunks = new ArrayDeque<>();
+        List<PendingCacheEntry> batch = new ArrayList<>();
+        try {
+            while (!chunks.isEmpty() || !pendingChunks.isEmpty()) {
+                while (!chunks.isEmpty() && pendingChunks.size() < maxPendingChunks) {
+                    EntryChunk nextChunk = chunks.poll();
+                    nextChunk.result = submit(() -> readCacheEntries(nextChunk));
+                    pendingChunks.add(nextChunk);
+                }
+                
+                EntryChunk chunk = pendingChunks.poll();
+                List<PendingCacheEntry> entries;
+                try {
+                    entries = chunk.result.get();
+                } catch (ExecutionException ex) {
+                    logger.log(Level.WARNING, String.format("Failed to read cache entries from %s", chunk.cacheFolder.cacheFolderName), ex.getCause()); //NON-NLS
+                    entries = Collections.emptyList();
+                }
+                
                 if (context.dataSourceIngestIsCancelled()) {
-                    cleanup();
+                    pendingChunks.forEach(pendingChunk -> pendingChunk.result.cancel(true));
                     return;
                 }
-
-                CacheAddress addr = new CacheAddress(indexFileROBuffer.getInt() & UINT32_MASK, cacheFolderName);
-                if (addr.isInitialized()) {
-                    progressBar.progress(NbBundle.getMessage(this.getClass(),
-                                            "ChromeCacheExtractor.progressMsg",
-                                            moduleName, i, indexHdr.getTableLen(), cacheFolderName)  );
-                    try {
-                        List<DerivedFile> addedFiles = processCacheEntry(addr, artifactsAdded);
-                        derivedFiles.addAll(addedFiles);
-                    }
-                    catch (TskCoreException | IngestModuleException ex) {
-                       logger.log(Level.WARNING, String.format("Failed to get cache entry at address %s for file with object ID %d (%s)", addr, indexFile.getId(), ex.getLocalizedMessage())); //NON-NLS
-                    } 
-                }  
+                
+                CacheFolder cacheFolder = chunk.cacheFolder;
+                progressBar.progress(NbBundle.getMessage(this.getClass(),
+                                        "ChromeCacheExtractor.progressMsg",
+                                        moduleName, chunk.end, cacheFolder.tableLen, cacheFolder.cacheFolderName)  );
+                batch.addAll(entries);
+                if (batch.size() >= CACHE_ENTRY_BATCH_SIZE || chunk.isLast()) {
+                    addCacheEntries(batch, cacheFolder.derivedFiles, cacheFolder.artifactsAdded);
+                }
+                if (chunk.isLast()) {
+                    finishCacheFolder(cacheFolder);
+                }
             }
-        } catch (java.nio.BufferUnderflowException ex) {
-            logger.log(Level.WARNING, String.format("Ran out of data unexpectedly reading file %s (ObjID: %d)", indexFile.getName(), indexFile.getId()));
+        } catch (InterruptedException ex) {
+            pendingChunks.forEach(pendingChunk -> pendingChunk.result.cancel(true));
+            Thread.currentThread().interrupt();
         }
+    }
+    
+    /**
+     * Reads a chunk of the entries of an index table.  Called on the executor.
+     * 
+     * @param chunk Entries to read
+     * 
+     * @return The entries to add; fewer if the ingest job was cancelled
+     */
+    private List<PendingCacheEntry> readCacheEntries(EntryChunk chunk) {
         
-        if (context.dataSourceIngestIsCancelled()) {
-            cleanup();
-            return;
+        List<PendingCacheEntry> entries = new ArrayList<>();
+        CacheFolder cacheFolder = chunk.cacheFolder;
+        
+        /* Get the CacheAddress for each CacheEntry, and read the entry from the
+         * f_XXXX and data_x files */
+        for (int i = chunk.start; i < chunk.end; i++) {
+
+            if (context.dataSourceIngestIsCancelled()) {
+                break;
+            }
+
+            if (cacheFolder.simpleEntryFiles != null) {
+                AbstractFile entryFile = cacheFolder.simpleEntryFiles.get(i);
+                try {
+                    Optional<PendingCacheEntry> pendingEntry = readSimpleCacheEntry(entryFile, cacheFolder.cacheFolderName);
+                    if (pendingEntry.isPresent()) {
+                        entries.add(pendingEntry.get());
+                    }
+                } catch (TskCoreException ex) {
+                    logger.log(Level.WARNING, String.format("Failed to get Simple Cache entry from file %s with object ID %d (%s)", entryFile.getName(), entryFile.getId(), ex.getLocalizedMessage())); //NON-NLS
+                }
+                continue;
+            }
+
+            // Most of the table is usually empty; only build addresses for the entries in use
+            long uint32 = cacheFolder.indexTable.getInt(4 * i) & UINT32_MASK;
+            if (isInitializedAddress(uint32)) {
+                CacheAddress addr = new CacheAddress(uint32, cacheFolder.cacheFolderName);
+                try {
+                    Optional<PendingCacheEntry> pendingEntry = readCacheEntry(addr);
+                    if (pendingEntry.isPresent()) {
+                        entries.add(pendingEntry.get());
+                    }
+                }
+                catch (TskCoreException | IngestModuleException | java.nio.BufferUnderflowException ex) {
+                   logger.log(Level.WARNING, String.format("Failed to get cache entry at address %s for file with object ID %d (%s)", addr, cacheFolder.indexFile.getId(), ex.getLocalizedMessage())); //NON-NLS
+                } 
+            }  
         }
+        return entries;
+    }
+    
+    /**
+     * Notifies listeners about the derived files and artifacts of a user's cache
+     * folder once all of its entries have been added, and releases its files.
+     * 
+     * @param cacheFolder Folder that was processed
+     */
+    private void finishCacheFolder(CacheFolder cacheFolder) {
         
+        List<AbstractFile> derivedFiles = cacheFolder.derivedFiles;
+        Collection<BlackboardArtifact> artifactsAdded = cacheFolder.artifactsAdded;
 
         // notify listeners of new files and schedule for analysis
         progressBar.progress(String.format(Bundle.ChromeCacheExtract_adding_extracted_files_msg(), derivedFiles.size()));
@@ -418,25 +859,69 @@ final class ChromeCacheExtractor {
            logger.log(Level.WARNING, String.format("Failed to post cacheIndex artifacts "), ex); //NON-NLS
         }
        
-        cleanup();
+        derivedFiles.clear();
+        artifactsAdded.clear();
+        releaseCacheFolder(cacheFolder.cacheFolderName);
     }
     
     /**
-     * Processes the cache entry that is stored at the given address.   A CacheEntry is 
+     * Checks an encoded cache address, without building a CacheAddress for it.
+     * 
+     * @param uint32 Encoded address
+     * @return true if the address is in use
+     */
+    private static boolean isInitializedAddress(long uint32) {
+        return ((uint32 & CacheAddress.ADDR_INITIALIZED_MASK) != 0);
+    }
+    
+    /**
+     * Finds the first occurrence of a byte pattern.
+     * 
+     * @return index of the pattern in data, -1 if not found
+     */
+    private static int indexOf(byte[] data, byte[] pattern) {
+        for (int i = 0; i + pattern.length <= data.length; i++) {
+            int j = 0;
+            while (j < pattern.length && data[i + j] == pattern[j]) {
+                j++;
+            }
+            if (j == pattern.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Runs a task on the executor, or right away on this thread if there is none.
+     * 
+     * @param task Task to run
+     * 
+     * @return The result of the task
+     */
+    private <T> Future<T> submit(Callable<T> task) {
+        if (executor != null) {
+            return executor.submit(task);
+        }
+        FutureTask<T> futureTask = new FutureTask<>(task);
+        futureTask.run();
+        return futureTask;
+    }
+    
+    /**
+     * Reads the cache entry that is stored at the given address.   A CacheEntry is 
      * located in a data_X file and stores information about where the various segments
      * for a given cached entry are located. 
      * 
-     * Extracts the files if needed and adds as derived files, creates artifacts
+     * Extracts the data of the entry to the output folder if needed. The derived file
+     * and artifacts are added later, by addCacheEntries().
      * 
      * @param cacheAddress Address where CacheEntry is located (from index file)
-     * @param artifactsAdded any  artifact that was added
      * 
-     * @return Optional derived file, is a derived file is added for the given entry
+     * @return Optional entry to add, if the entry has a payload
      */
-    private List<DerivedFile> processCacheEntry(CacheAddress cacheAddress, Collection<BlackboardArtifact> artifactsAdded ) throws TskCoreException, IngestModuleException {
+    private Optional<PendingCacheEntry> readCacheEntry(CacheAddress cacheAddress) throws TskCoreException, IngestModuleException {
          
-        List<DerivedFile> derivedFiles = new ArrayList<>();
-        
         // get the path to the corresponding data_X file for the cache entry
         String cacheEntryFileName = cacheAddress.getFilename(); 
         String cachePath = cacheAddress.getCachePath();
@@ -454,7 +939,7 @@ final class ChromeCacheExtractor {
         // Only process the first payload data segment in each entry
         //  first data segement has the HTTP headers, 2nd is the payload
         if (dataSegments.size() < 2) {
-            return derivedFiles;
+            return Optional.empty();
         }
         CacheDataSegment dataSegment = dataSegments.get(1);
 
@@ -463,7 +948,7 @@ final class ChromeCacheExtractor {
         Optional<AbstractFile> segmentFileAbstractFile = findAbstractFile(segmentFileName, cachePath);
         if (!segmentFileAbstractFile.isPresent()) {
             logger.log(Level.WARNING, "Error finding segment file: " + cachePath + "/" + segmentFileName); //NON-NLS
-            return derivedFiles;
+            return Optional.empty();
         }        
         
         boolean isBrotliCompressed = false;
@@ -471,87 +956,227 @@ final class ChromeCacheExtractor {
             isBrotliCompressed = true;
         }
 
-
-        // Make artifacts around the cached item and extract data from data_X file
+        /* If the cached data is in a f_XXXX file, we only need to make artifacts.
+         * If the data is in a data_X file, we need to extract it out and add it as a derived file */
+        String savedFileName = null;
+        if (!dataSegment.isInExternalFile()) {
+            savedFileName = dataSegment.save();
+        }
+        
+        PendingCacheEntry pendingEntry = new PendingCacheEntry(cacheEntry.getKey() != null ? cacheEntry.getKey() : "", 
+                cacheEntry.getCreationTime(), cacheEntry.getHTTPHeaders(), cacheEntryFileOptional.get().getAbstractFile(), 
+                segmentFileAbstractFile.get(), dataSegment.getCacheAddress().getCachePath(), savedFileName, 
+                dataSegment.getDataLength(), isBrotliCompressed);
+        if (dataSegment.getType() != CacheDataTypeEnum.HTTP_HEADER) {
+            decodePayload(pendingEntry, cacheEntry.getHTTPHeader("content-encoding"));
+        }
+        return Optional.of(pendingEntry);
+    }
+    
+    /**
+     * Reads a Simple Cache entry, and copies its payload to the output folder.
+     * The derived file and artifacts are added later, by addCacheEntries().
+     * 
+     * @param entryFile "_0" file of the entry
+     * @param cachePath Path of the user's cache folder
+     * 
+     * @return Optional entry to add, if the entry has a payload
+     */
+    private Optional<PendingCacheEntry> readSimpleCacheEntry(AbstractFile entryFile, String cachePath) throws TskCoreException {
+        
+        ChromeSimpleCacheEntry simpleEntry = ChromeSimpleCacheEntry.read(entryFile);
+        if (simpleEntry.getPayloadLength() == 0) {
+            return Optional.empty();
+        }
+        
+        // The payload is in the middle of the entry file, so it is saved in its own file and added as a derived file
+        String savedFileName = entryFile.getName() + "__data"; //NON-NLS
+        simpleEntry.savePayload(new File(getAbsOutputFolderName() + cachePath + savedFileName));
+        
+        PendingCacheEntry pendingEntry = new PendingCacheEntry(simpleEntry.getKey(), simpleEntry.getRequestTime(), simpleEntry.getHTTPHeaders(),
+                entryFile, entryFile, cachePath, savedFileName, simpleEntry.getPayloadLength(), simpleEntry.isBrotliCompressed());
+        decodePayload(pendingEntry, simpleEntry.getHTTPHeader("content-encoding"));
+        return Optional.of(pendingEntry);
+    }
+    
+    /**
+     * Decodes the payload of an entry stored with a gzip or deflate Content-Encoding
+     * into a file next to the other files extracted from the cache.  Called on the 
+     * executor with the rest of the reading of the entry; the decoded file is added 
+     * by the writer, as a derived file of the cached item.  Payloads that can not be 
+     * decoded, or that expand past the limits of ContentEncodingDecoder, are only 
+     * added as they are.
+     * 
+     * @param pendingEntry    Entry whose payload was found
+     * @param contentEncoding Value of the Content-Encoding header, may be null
+     */
+    private void decodePayload(PendingCacheEntry pendingEntry, String contentEncoding) {
+        if (!decodeContentEncodings || !ContentEncodingDecoder.canDecode(contentEncoding)) {
+            return;
+        }
+        
+        // The payload is either saved in the output folder, or is an f_XXXX file
+        String sourceFileName = pendingEntry.savedFileName != null ? pendingEntry.savedFileName : pendingEntry.segmentFile.getName();
+        String decodedFileName = sourceFileName + "__decoded"; //NON-NLS
+        File decodedFile = new File(getAbsOutputFolderName() + pendingEntry.cachePath + decodedFileName);
+        try (InputStream payload = pendingEntry.savedFileName != null 
+                ? new FileInputStream(getAbsOutputFolderName() + pendingEntry.cachePath + pendingEntry.savedFileName)
+                : new ReadContentInputStream(pendingEntry.segmentFile)) {
+            pendingEntry.decodedLength = ContentEncodingDecoder.decode(payload, pendingEntry.dataLength, contentEncoding, 
+                    decodedFile, context::dataSourceIngestIsCancelled);
+            pendingEntry.decodedFileName = decodedFileName;
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, String.format("Failed to decode %s payload of cache entry %s (%s)", contentEncoding.trim(), pendingEntry.url, ex.getLocalizedMessage())); //NON-NLS
+        }
+    }
+    
+    /**
+     * Adds the derived files and artifacts for a batch of cache entries to the
+     * case database in one transaction, and empties the batch.  If the transaction
+     * fails, the entries are added one at a time so that one bad entry does not
+     * lose the rest of the batch.
+     * 
+     * @param batch          Entries read by readCacheEntry()
+     * @param derivedFiles   List of derived files that were added
+     * @param artifactsAdded List of artifacts that were added
+     */
+    private void addCacheEntries(List<PendingCacheEntry> batch, List<AbstractFile> derivedFiles, Collection<BlackboardArtifact> artifactsAdded) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        
         try {
-            AbstractFile cachedItemFile; // 
-            /* If the cached data is in a f_XXXX file, we only need to make artifacts. */
-            if (dataSegment.isInExternalFile() )  {
-                cachedItemFile = segmentFileAbstractFile.get();
-            } 
-            /* If the data is in a data_X file, we need to extract it out and then make the similar artifacts */
-            else {
-
-                // Data segments in "data_x" files are saved in individual files and added as derived files
-                String filename = dataSegment.save();
-                String relPathname = getRelOutputFolderName() + dataSegment.getCacheAddress().getCachePath() + filename; 
-            
-                // @@@ We should batch these up and do them in one big insert / transaction
-                DerivedFile derivedFile = fileManager.addDerivedFile(filename, relPathname,
-                                                    dataSegment.getDataLength(), 
-                                                    cacheEntry.getCreationTime(), cacheEntry.getCreationTime(), cacheEntry.getCreationTime(), cacheEntry.getCreationTime(), // TBD 
-                                                    true, 
-                                                    segmentFileAbstractFile.get(), 
-                                                    "",
-                                                    moduleName, 
-                                                    VERSION_NUMBER, 
-                                                    "", 
-                                                    TskData.EncodingType.NONE);
-
-                derivedFiles.add(derivedFile);
-                cachedItemFile = derivedFile;
+            addCacheEntriesInTransaction(batch, derivedFiles, artifactsAdded);
+        } catch (TskCoreException ex) {
+            logger.log(Level.WARNING, String.format("Failed to add a batch of %d cache entries, adding them one at a time", batch.size()), ex); //NON-NLS
+            for (PendingCacheEntry pendingEntry : batch) {
+                try {
+                    addCacheEntriesInTransaction(Collections.singletonList(pendingEntry), derivedFiles, artifactsAdded);
+                } catch (TskCoreException ex2) {
+                    logger.log(Level.SEVERE, "Error while trying to add an artifact", ex2); //NON-NLS
+                }
             }
+        }
+        batch.clear();
+    }
+    
+    /**
+     * Adds the derived files and artifacts for cache entries to the case database 
+     * in one transaction. Nothing is added to the lists if the transaction fails.
+     * 
+     * @param entries        Entries read by readCacheEntry()
+     * @param derivedFiles   List of derived files that were added
+     * @param artifactsAdded List of artifacts that were added
+     * 
+     * @throws TskCoreException 
+     */
+    private void addCacheEntriesInTransaction(List<PendingCacheEntry> entries, List<AbstractFile> derivedFiles, Collection<BlackboardArtifact> artifactsAdded) throws TskCoreException {
+        List<DerivedFile> addedFiles = new ArrayList<>();
+        List<BlackboardArtifact> addedArtifacts = new ArrayList<>();
+        
+        CaseDbTransaction transaction = currentCase.getSleuthkitCase().beginTransaction();
+        try {
+            for (PendingCacheEntry pendingEntry : entries) {
+                AbstractFile cachedItemFile;
+                if (pendingEntry.savedFileName == null) {
+                    cachedItemFile = pendingEntry.segmentFile;
+                } else {
+                    // Data segments in "data_x" files are saved in individual files and added as derived files
+                    long creationTime = pendingEntry.creationTime;
+                    String relPathname = getRelOutputFolderName() + pendingEntry.cachePath + pendingEntry.savedFileName; 
+                    DerivedFile derivedFile = currentCase.getSleuthkitCase().addDerivedFile(pendingEntry.savedFileName, relPathname,
+                                                        pendingEntry.dataLength, 
+                                                        creationTime, creationTime, creationTime, creationTime, // TBD 
+                                                        true, 
+                                                        pendingEntry.segmentFile, 
+                                                        "",
+                                                        moduleName, 
+                                                        VERSION_NUMBER, 
+                                                        "", 
+                                                        TskData.EncodingType.NONE,
+                                                        transaction);
+                    addedFiles.add(derivedFile);
+                    cachedItemFile = derivedFile;
+                }
                 
-            addArtifacts(cacheEntry, cacheEntryFileOptional.get().getAbstractFile(), cachedItemFile, artifactsAdded);
-
-            // Tika doesn't detect these types.  So, make sure they have the correct MIME type */
-            if (isBrotliCompressed) {
-                cachedItemFile.setMIMEType(BROTLI_MIMETYPE);
-                cachedItemFile.save();
+                addArtifacts(pendingEntry, cachedItemFile, addedArtifacts, transaction);
+                
+                // Tika doesn't detect these types.  So, make sure they have the correct MIME type */
+                if (pendingEntry.isBrotliCompressed) {
+                    cachedItemFile.setMIMEType(BROTLI_MIMETYPE);
+                    cachedItemFile.save(transaction);
+                }
+                
+                // Decoded payloads are added under the cached item they were decoded from
+                if (pendingEntry.decodedFileName != null) {
+                    long creationTime = pendingEntry.creationTime;
+                    String decodedRelPathname = getRelOutputFolderName() + pendingEntry.cachePath + pendingEntry.decodedFileName;
+                    addedFiles.add(currentCase.getSleuthkitCase().addDerivedFile(pendingEntry.decodedFileName, decodedRelPathname,
+                                                        pendingEntry.decodedLength, 
+                                                        creationTime, creationTime, creationTime, creationTime,
+                                                        true, 
+                                                        cachedItemFile, 
+                                                        "",
+                                                        moduleName, 
+                                                        VERSION_NUMBER, 
+                                                        "", 
+                                                        TskData.EncodingType.NONE,
+                                                        transaction));
+                }
             }
-        
-        } catch (TskException ex) {
-            logger.log(Level.SEVERE, "Error while trying to add an artifact", ex); //NON-NLS
+            transaction.commit();
+        } catch (TskCoreException ex) {
+            try {
+                transaction.rollback();
+            } catch (TskCoreException ex2) {
+                logger.log(Level.SEVERE, "Failed to roll back cache entry transaction", ex2); //NON-NLS
+            }
+            throw ex;
         }
         
-        return derivedFiles;
-     }
+        derivedFiles.addAll(addedFiles);
+        artifactsAdded.addAll(addedArtifacts);
+    }
     
     /**
      * Add artifacts for a given cached item
      * 
-     * @param cacheEntry Entry item came from
-     * @param cacheEntryFile File that stored the cache entry
+     * @param pendingEntry Entry item came from
      * @param cachedItemFile File that stores the cached data (Either a derived file or f_XXXX file)
      * @param artifactsAdded List of artifacts that were added by this call
+     * @param transaction Transaction the artifacts are added in
      * @throws TskCoreException 
      */
-    private void addArtifacts(CacheEntry cacheEntry, AbstractFile cacheEntryFile, AbstractFile cachedItemFile, Collection<BlackboardArtifact> artifactsAdded) throws TskCoreException {
+    private void addArtifacts(PendingCacheEntry pendingEntry, AbstractFile cachedItemFile, Collection<BlackboardArtifact> artifactsAdded, CaseDbTransaction transaction) throws TskCoreException {
   
         // Create a TSK_WEB_CACHE entry with the parent as data_X file that had the cache entry
         Collection<BlackboardAttribute> webAttr = new ArrayList<>();
-        String url = cacheEntry.getKey() != null ? cacheEntry.getKey() : "";
+        AbstractFile cacheEntryFile = pendingEntry.cacheEntryFile;
+        String url = pendingEntry.url;
         webAttr.add(new BlackboardAttribute(BlackboardAttribute.ATTRIBUTE_TYPE.TSK_URL,
                 moduleName, url));
         webAttr.add(new BlackboardAttribute(BlackboardAttribute.ATTRIBUTE_TYPE.TSK_DOMAIN,
                 moduleName, NetworkUtils.extractDomain(url)));
         webAttr.add(new BlackboardAttribute(BlackboardAttribute.ATTRIBUTE_TYPE.TSK_DATETIME_CREATED,
-                moduleName, cacheEntry.getCreationTime()));
+                moduleName, pendingEntry.creationTime));
         webAttr.add(new BlackboardAttribute(BlackboardAttribute.ATTRIBUTE_TYPE.TSK_HEADERS,
-                moduleName, cacheEntry.getHTTPHeaders()));  
+                moduleName, pendingEntry.httpHeaders));  
         webAttr.add(new BlackboardAttribute(BlackboardAttribute.ATTRIBUTE_TYPE.TSK_PATH,
                 moduleName, cachedItemFile.getUniquePath()));
         webAttr.add(new BlackboardAttribute(BlackboardAttribute.ATTRIBUTE_TYPE.TSK_PATH_ID,
                 moduleName, cachedItemFile.getId()));
 
-        BlackboardArtifact webCacheArtifact = cacheEntryFile.newDataArtifact(new BlackboardArtifact.Type(ARTIFACT_TYPE.TSK_WEB_CACHE), webAttr);
+        Blackboard blackboard = currentCase.getSleuthkitCase().getBlackboard();
+        BlackboardArtifact webCacheArtifact = blackboard.newDataArtifact(new BlackboardArtifact.Type(ARTIFACT_TYPE.TSK_WEB_CACHE), 
+                cacheEntryFile.getId(), cacheEntryFile.getDataSourceObjectId(), webAttr, null, transaction);
         artifactsAdded.add(webCacheArtifact);
 
         // Create a TSK_ASSOCIATED_OBJECT on the f_XXX or derived file file back to the CACHE entry
-        BlackboardArtifact associatedObjectArtifact = cachedItemFile.newDataArtifact(
+        BlackboardArtifact associatedObjectArtifact = blackboard.newDataArtifact(
                 new BlackboardArtifact.Type(ARTIFACT_TYPE.TSK_ASSOCIATED_OBJECT), 
+                cachedItemFile.getId(), cachedItemFile.getDataSourceObjectId(),
                 Arrays.asList(new BlackboardAttribute(BlackboardAttribute.ATTRIBUTE_TYPE.TSK_ASSOCIATED_ARTIFACT, 
-                        moduleName, webCacheArtifact.getArtifactID())));
+                        moduleName, webCacheArtifact.getArtifactID())), null, transaction);
         
         artifactsAdded.add(associatedObjectArtifact);
     }
@@ -599,8 +1224,8 @@ final class ChromeCacheExtractor {
             return Optional.empty();
         }
         
-        if (fileCopyCache.containsKey(fileTableKey)) {
-            return Optional.of(fileCopyCache.get(fileTableKey).getAbstractFile());
+        if (fileWrapperCache.containsKey(fileTableKey)) {
+            return Optional.of(fileWrapperCache.get(fileTableKey).getAbstractFile());
         }
 
         List<AbstractFile> cacheFiles = currentCase.getSleuthkitCase().getFileManager().findFilesExactNameExactPath(dataSource, 
@@ -658,25 +1283,43 @@ final class ChromeCacheExtractor {
         return fileManager.findFiles(dataSource, "index", DEFAULT_CACHE_PATH_STR); //NON-NLS 
     }
     
+    /**
+     * Finds the "the-real-index" file in the index-dir folder of each Simple Cache.
+     * Electron apps keep their caches outside of Chrome's profile folders, so
+     * the caches are not looked for under DEFAULT_CACHE_PATH_STR.
+     * 
+     * @return list of the-real-index files in Simple Cache folders
+     * @throws TskCoreException 
+     */
+    private List<AbstractFile> findSimpleCacheIndexFiles() throws TskCoreException {
+        List<AbstractFile> simpleIndexFiles = new ArrayList<>();
+        for (AbstractFile file : fileManager.findFiles(dataSource, "the-real-index", SIMPLE_INDEX_DIR_NAME)) { //NON-NLS 
+            if (file.getParentPath().endsWith("/" + SIMPLE_INDEX_DIR_NAME + "/")) {
+                simpleIndexFiles.add(file);
+            }
+        }
+        return simpleIndexFiles;
+    }
+    
     
 
     /**
      * Finds the specified data or index cache file under the specified path.
      * The FileWrapper is easier to parse than a raw AbstractFile. 
-     * Will save the file to an internal cache. For the f_XXXX files, use
+     * Will save the wrapper to an internal cache. For the f_XXXX files, use
      * findAbstractFile().
      * 
      * @param cacheFileName Name file file
      * @param cacheFolderName Name of user's cache folder
-     * @return Cache file copy
+     * @return Cache file wrapper
      * @throws TskCoreException 
      */ 
     private Optional<FileWrapper> findDataOrIndexFile(String cacheFileName, String cacheFolderName) throws TskCoreException, IngestModuleException  {
         
         // Check if the file is already in the cache
         String fileTableKey = cacheFolderName + cacheFileName;
-        if (fileCopyCache.containsKey(fileTableKey)) {
-            return Optional.of(fileCopyCache.get(fileTableKey));
+        if (fileWrapperCache.containsKey(fileTableKey)) {
+            return Optional.of(fileWrapperCache.get(fileTableKey));
         }
         
         // Use Autopsy to get the AbstractFile
@@ -685,46 +1328,16 @@ final class ChromeCacheExtractor {
             return Optional.empty(); 
         }
                 
-        // Wrap the file so that we can get the ByteBuffer later.
-        // @@@ BC: I think this should nearly all go into FileWrapper and be done lazily and perhaps based on size. 
-        //     Many of the files are small enough to keep in memory for the ByteBuffer
-        
-        // write the file to disk so that we can have a memory-mapped ByteBuffer
-        AbstractFile cacheFile = abstractFileOptional.get();
-        RandomAccessFile randomAccessFile = null;
-        String tempFilePathname = RAImageIngestModule.getRATempPath(currentCase, moduleName, context.getJobId()) + cacheFolderName + cacheFile.getName(); //NON-NLS
-        try {
-            File newFile = new File(tempFilePathname);
-            ContentUtils.writeToFile(cacheFile, newFile, context::dataSourceIngestIsCancelled);
-            
-            randomAccessFile = new RandomAccessFile(tempFilePathname, "r");
-            FileChannel roChannel = randomAccessFile.getChannel();
-            ByteBuffer cacheFileROBuf = roChannel.map(FileChannel.MapMode.READ_ONLY, 0,
-                                                        (int) roChannel.size());
-
-            cacheFileROBuf.order(ByteOrder.nativeOrder());
-            FileWrapper cacheFileWrapper = new FileWrapper(cacheFile, randomAccessFile, cacheFileROBuf );
-            
-            if (!cacheFileName.startsWith("f_")) {
-                fileCopyCache.put(cacheFolderName + cacheFileName, cacheFileWrapper);
+        // Wrap the file so that we can read it as ByteBuffers later.
+        FileWrapper cacheFileWrapper = new FileWrapper(abstractFileOptional.get());
+        if (!cacheFileName.startsWith("f_")) {
+            FileWrapper existingWrapper = fileWrapperCache.putIfAbsent(cacheFolderName + cacheFileName, cacheFileWrapper);
+            if (existingWrapper != null) {
+                cacheFileWrapper = existingWrapper;
             }
-            
-            return Optional.of(cacheFileWrapper);
         }
-        catch (IOException ex) {
-           
-            try {
-                if (randomAccessFile != null) {
-                    randomAccessFile.close();
-                }
-            }
-            catch (IOException ex2) {
-                logger.log(Level.SEVERE, "Error while trying to close temp file after exception.", ex2); //NON-NLS
-            }
-            String msg = String.format("Error reading/copying Chrome cache file '%s' (id=%d).", //NON-NLS
-                                            cacheFile.getName(), cacheFile.getId()); 
-            throw new IngestModuleException(msg, ex);
-        } 
+        
+        return Optional.of(cacheFileWrapper);
     }
     
     /**
@@ -850,7 +1463,7 @@ final class ChromeCacheExtractor {
         private final CacheFileTypeEnum fileType;
         private final int numBlocks;
         private final int startBlock;
-        private final String fileName;
+        private String fileName;    // built when first asked for
         private final int fileNumber;
         
         private final String cachePath;
@@ -869,23 +1482,20 @@ final class ChromeCacheExtractor {
             
             // analyze the 
             int fileTypeEnc = (int)(uint32CacheAddr &  FILE_TYPE_MASK) >> FILE_TYPE_OFFSET;
-            fileType = CacheFileTypeEnum.values()[fileTypeEnc];
+            fileType = CACHE_FILE_TYPES[fileTypeEnc];
             
             if (isInitialized()) {
                 if (isInExternalFile()) {
                     fileNumber = (int)(uint32CacheAddr & EXTERNAL_FILE_NAME_MASK);
-                    fileName =  String.format("f_%06x", getFileNumber() );
                     numBlocks = 0;
                     startBlock = 0;
                 } else {
                     fileNumber = (int)((uint32CacheAddr & FILE_SELECTOR_MASK) >> FILE_SELECTOR_OFFSET);
-                    fileName = String.format("data_%d", getFileNumber() );
                     numBlocks = (int)(uint32CacheAddr &  NUM_BLOCKS_MASK >> NUM_BLOCKS_OFFSET);
                     startBlock = (int)(uint32CacheAddr &  START_BLOCK_MASK);
                 }
             }
             else {
-                fileName = null;
                 fileNumber = 0;
                 numBlocks = 0;
                 startBlock = 0;
@@ -893,7 +1503,7 @@ final class ChromeCacheExtractor {
         }
 
         boolean isInitialized() {
-            return ((uint32CacheAddr & ADDR_INITIALIZED_MASK) != 0);
+            return isInitializedAddress(uint32CacheAddr);
         }
         
         CacheFileTypeEnum getFileType() {
@@ -905,6 +1515,15 @@ final class ChromeCacheExtractor {
          * @return 
          */
         String getFilename() {
+            if (fileName == null && isInitialized()) {
+                if (isInExternalFile()) {
+                    fileName = String.format("f_%06x", getFileNumber() );
+                } else if (fileNumber < DATA_FILE_NAMES.length) {
+                    fileName = DATA_FILE_NAMES[fileNumber];
+                } else {
+                    fileName = String.format("data_%d", getFileNumber() );
+                }
+            }
             return fileName;
         }
         
@@ -1044,8 +1663,7 @@ final class ChromeCacheExtractor {
                 if (sb.length() > 0) {
                     sb.append(" \n");
                 }
-                sb.append(String.format("%s : %s",
-                        entry.getKey(), entry.getValue()));
+                sb.append(entry.getKey()).append(" : ").append(entry.getValue());
             });
                                     
             return sb.toString();
@@ -1077,18 +1695,18 @@ final class ChromeCacheExtractor {
                 cacheFileCopy = findDataOrIndexFile(cacheAddress.getFilename(), cacheAddress.getCachePath()).get();
 
                 this.data = new byte [length];
-                ByteBuffer buf = cacheFileCopy.getByteBuffer();
                 int dataOffset = DATAFILE_HDR_SIZE + cacheAddress.getStartBlock() * cacheAddress.getBlockSize();
-                if (dataOffset > buf.capacity()) {
+                if (dataOffset > cacheFileCopy.getSize()) {
                     return;
                 }
-                buf.position(dataOffset);
-                buf.get(data, 0, length);
+                ByteBuffer buf = cacheFileCopy.read(dataOffset, length);
+                buf.get(data, 0, Math.min(length, buf.remaining()));
                 
                 // if this might be a HTPP header, lets try to parse it as such
+                // The bytes are searched directly; strings are only made for the header lines
                 if ((isHTTPHeaderHint)) {
-                    String strData = new String(data);
-                    if (strData.contains("HTTP")) {
+                    int startOff = indexOf(data, HTTP_MARKER);
+                    if (startOff >= 0) {
                         
                         // Http headers if present, are usually in frst data segment in an entry
                         // General Parsing algo:
@@ -1101,8 +1719,6 @@ final class ChromeCacheExtractor {
                         
                         type = CacheDataTypeEnum.HTTP_HEADER;
 
-                        int startOff = strData.indexOf("HTTP");
-                        Charset charset = Charset.forName("UTF-8");
                         boolean done = false;
                         int i = startOff;
                         int hdrNum = 1;
@@ -1115,12 +1731,12 @@ final class ChromeCacheExtractor {
                             }
                         
                             // http headers are terminated by 0x00 0x00 
-                            if (i == data.length || data[i+1] == 0) {
+                            if (i + 1 >= data.length || data[i+1] == 0) {
                                 done = true;
                             }
                         
                             int len = (i - start);
-                            String headerLine = new String(data, start, len, charset);
+                            String headerLine = new String(data, start, len, StandardCharsets.UTF_8);
          
                             // first line is the http response
                             if (hdrNum == 1) { 
@@ -1283,7 +1899,8 @@ final class ChromeCacheExtractor {
     final class CacheEntry {
     
         // each entry is 256 bytes.  The last section of the entry, after all the other fields is a null terminated key
-        private static final int MAX_KEY_LEN = 256-24*4; 
+        private static final int ENTRY_SIZE = 256;
+        private static final int MAX_KEY_LEN = ENTRY_SIZE-24*4; 
         
         private final CacheAddress selfAddress; 
         private final FileWrapper cacheFileCopy;
@@ -1313,16 +1930,13 @@ final class ChromeCacheExtractor {
             this.selfAddress = cacheAdress;
             this.cacheFileCopy = cacheFileCopy;
             
-            ByteBuffer fileROBuf = cacheFileCopy.getByteBuffer();
-            
             int entryOffset = DATAFILE_HDR_SIZE + cacheAdress.getStartBlock() * cacheAdress.getBlockSize();
             
-            // reposition the buffer to the the correct offset
-            if (entryOffset < fileROBuf.capacity()) {
-                fileROBuf.position(entryOffset);
-            } else {
+            // read the entry at the correct offset
+            if (entryOffset >= cacheFileCopy.getSize()) {
                 throw new IngestModuleException("Position seeked in Buffer to big"); // NON-NLS
             }
+            ByteBuffer fileROBuf = cacheFileCopy.read(entryOffset, ENTRY_SIZE);
             
             hash = fileROBuf.getInt() & UINT32_MASK;
             
@@ -1336,12 +1950,12 @@ final class ChromeCacheExtractor {
             refetchCount = fileROBuf.getInt();
             
             int stateVal = fileROBuf.getInt();
-            if ((stateVal >= 0) && (stateVal < EntryStateEnum.values().length)) {
-                state = EntryStateEnum.values()[stateVal];
+            if ((stateVal >= 0) && (stateVal < ENTRY_STATES.length)) {
+                state = ENTRY_STATES[stateVal];
             } else {
                 throw new TskCoreException("Invalid EntryStateEnum value"); // NON-NLS
             }
-            creationTime = (fileROBuf.getLong() / 1000000) - Long.valueOf("11644473600");
+            creationTime = (fileROBuf.getLong() / 1000000) - WINDOWS_EPOCH_OFFSET_SECONDS;
             
             keyLen = fileROBuf.getInt();
             
@@ -1380,18 +1994,18 @@ final class ChromeCacheExtractor {
                 }
             }
             else {  // key stored within entry 
-                StringBuilder strBuilder = new StringBuilder(MAX_KEY_LEN);
-                int keyLen = 0;
-                while (fileROBuf.remaining() > 0  && keyLen < MAX_KEY_LEN)  {
-                    char keyChar = (char)fileROBuf.get();
-                    if (keyChar == '\0') { 
-                        break;
-                    }
-                    strBuilder.append(keyChar);
-                    keyLen++;
+                // find the null terminator, and make the string straight from the entry's bytes
+                int keyStart = fileROBuf.position();
+                int keyEnd = keyStart;
+                while (keyEnd < fileROBuf.limit() && keyEnd - keyStart < MAX_KEY_LEN && fileROBuf.get(keyEnd) != 0)  {
+                    keyEnd++;
                 }
 
-                key = strBuilder.toString();
+                byte[] keyBytes = new byte[keyEnd - keyStart];
+                for (int i = 0; i < keyBytes.length; i++) {
+                    keyBytes[i] = fileROBuf.get(keyStart + i);
+                }
+                key = new String(keyBytes, StandardCharsets.ISO_8859_1);
             }
         }
 
@@ -0,0 +1,452 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2021 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.recentactivity.macos;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+import org.sleuthkit.datamodel.AbstractFile;
+import org.sleuthkit.datamodel.TskCoreException;
+
+/**
+ * An entry of a Chromium cache in the Simple Cache layout, which Chrome and
+ * Electron apps use in place of the block-file layout (index and data_0 to
+ * data_3) on newer versions.
+ *
+ * Each entry has a file named after the hash of its key, "0123456789abcdef_0",
+ * laid out as follows (SimpleFileHeader and SimpleFileEOF in Chromium's
+ * disk_cache/simple/simple_entry_format.h):
+ *
+ * <pre>
+ *   header       magic, version, key length, key hash      24 bytes
+ *   key          the URL, not null terminated
+ *   stream 1     the payload
+ *   EOF 1        magic, flags, crc32, size of stream 1     24 bytes
+ *   stream 0     the HTTP response info
+ *   key SHA-256  only if flagged in EOF 0                  32 bytes
+ *   EOF 0        magic, flags, crc32, size of stream 0     24 bytes
+ * </pre>
+ *
+ * Only the header, the key, the two EOF records and stream 0 are read; the
+ * payload is copied to a local file by savePayload() in blocks, so entries
+ * are never read into memory whole. The files of the folder index-dir, which
+ * only list the entries, are not needed to read an entry.
+ */
+final class ChromeSimpleCacheEntry {
+
+    private static final long INITIAL_MAGIC = 0xfcfb6d1ba7725c30L;
+    private static final long FINAL_MAGIC = 0xf4fa6f45970d41d8L;
+    private static final int MIN_VERSION = 5;
+    private static final int HEADER_SIZE = 24;
+    private static final int EOF_SIZE = 24;
+    private static final int KEY_SHA256_SIZE = 32;
+    private static final int FLAG_HAS_KEY_SHA256 = 2;
+
+    // Stream 0 holds the pickled HttpResponseInfo; a few KB in practice.
+    private static final int MAX_STREAM_0_SIZE = 1024 * 1024;
+    private static final int MAX_KEY_SIZE = 64 * 1024;
+    private static final int COPY_BLOCK_SIZE = 64 * 1024;
+
+    // Microseconds from 1601 (Windows epoch, used by base::Time) to 1970
+    private static final long WINDOWS_EPOCH_OFFSET_SECONDS = 11644473600L;
+
+    private static final Pattern ENTRY_FILE_NAME = Pattern.compile("[0-9a-f]{16}_0"); //NON-NLS
+
+    private final EntryFile entryFile;
+    private final String key;
+    private final long requestTime;
+    private final String httpResponse;
+    private final Map<String, String> httpHeaders;
+    private final long payloadOffset;
+    private final long payloadLength;
+
+    private ChromeSimpleCacheEntry(EntryFile entryFile, String key, long requestTime, String httpResponse,
+            Map<String, String> httpHeaders, long payloadOffset, long payloadLength) {
+        this.entryFile = entryFile;
+        this.key = key;
+        this.requestTime = requestTime;
+        this.httpResponse = httpResponse;
+        this.httpHeaders = httpHeaders;
+        this.payloadOffset = payloadOffset;
+        this.payloadLength = payloadLength;
+    }
+
+    /**
+     * Checks whether a file is named like the stream 0 and 1 file of a
+     * Simple Cache entry.
+     *
+     * @param fileName The name of the file.
+     *
+     * @return True if the file may be an entry.
+     */
+    static boolean isEntryFileName(String fileName) {
+        return ENTRY_FILE_NAME.matcher(fileName).matches();
+    }
+
+    /**
+     * Reads the header, key, EOF records and response info of an entry.
+     *
+     * @param entryFile The "_0" file of the entry.
+     *
+     * @return The entry.
+     *
+     * @throws TskCoreException If the file can not be read or is not a Simple
+     *                          Cache entry.
+     */
+    static ChromeSimpleCacheEntry read(AbstractFile entryFile) throws TskCoreException {
+        return read(EntryFile.of(entryFile));
+    }
+
+    /**
+     * Reads the header, key, EOF records and response info of an entry.
+     *
+     * @param entryFile The "_0" file of the entry.
+     *
+     * @return The entry.
+     *
+     * @throws TskCoreException If the file can not be read or is not a Simple
+     *                          Cache entry.
+     */
+    static ChromeSimpleCacheEntry read(EntryFile entryFile) throws TskCoreException {
+        long fileSize = entryFile.getSize();
+        if (fileSize < HEADER_SIZE + 2 * EOF_SIZE) {
+            throw new TskCoreException(String.format("Simple cache entry %s is too small (%d bytes)", entryFile.getName(), fileSize)); //NON-NLS
+        }
+
+        ByteBuffer header = read(entryFile, 0, HEADER_SIZE);
+        if (header.limit() < HEADER_SIZE) {
+            throw new TskCoreException(String.format("Simple cache entry %s has a short header", entryFile.getName())); //NON-NLS
+        }
+        if (header.getLong(0) != INITIAL_MAGIC) {
+            throw new TskCoreException(String.format("Simple cache entry %s has no header magic", entryFile.getName())); //NON-NLS
+        }
+        int version = header.getInt(8);
+        if (version < MIN_VERSION) {
+            throw new TskCoreException(String.format("Simple cache entry %s has unsupported version %d", entryFile.getName(), version)); //NON-NLS
+        }
+        long keyLength = header.getInt(12) & 0xFFFFFFFFL;
+        if (keyLength > MAX_KEY_SIZE || HEADER_SIZE + keyLength + 2 * EOF_SIZE > fileSize) {
+            throw new TskCoreException(String.format("Simple cache entry %s has a bad key length %d", entryFile.getName(), keyLength)); //NON-NLS
+        }
+
+        // Stream 0 and its EOF are at the end of the file
+        long eof0Offset = fileSize - EOF_SIZE;
+        ByteBuffer eof0 = readEof(entryFile, eof0Offset);
+        long stream0End = eof0Offset - ((eof0.getInt(8) & FLAG_HAS_KEY_SHA256) != 0 ? KEY_SHA256_SIZE : 0);
+        long stream0Length = eof0.getInt(16) & 0xFFFFFFFFL;
+        long stream0Offset = stream0End - stream0Length;
+
+        // Stream 1, the payload, is between the key and stream 0
+        long eof1Offset = stream0Offset - EOF_SIZE;
+        long payloadOffset = HEADER_SIZE + keyLength;
+        if (eof1Offset < payloadOffset) {
+            throw new TskCoreException(String.format("Simple cache entry %s has a bad stream 0 size %d", entryFile.getName(), stream0Length)); //NON-NLS
+        }
+        ByteBuffer eof1 = readEof(entryFile, eof1Offset);
+        long payloadLength = eof1.getInt(16) & 0xFFFFFFFFL;
+        if (payloadOffset + payloadLength != eof1Offset) {
+            throw new TskCoreException(String.format("Simple cache entry %s has a bad stream 1 size %d", entryFile.getName(), payloadLength)); //NON-NLS
+        }
+
+        ByteBuffer keyBuffer = read(entryFile, HEADER_SIZE, (int) keyLength);
+        if (keyBuffer.limit() < keyLength) {
+            throw new TskCoreException(String.format("Simple cache entry %s has a short key", entryFile.getName())); //NON-NLS
+        }
+        String key = new String(keyBuffer.array(), 0, keyBuffer.limit(), StandardCharsets.UTF_8);
+
+        long requestTime = 0;
+        String httpResponse = null;
+        Map<String, String> httpHeaders = Collections.emptyMap();
+        if (stream0Length > 0 && stream0Length <= MAX_STREAM_0_SIZE) {
+            ByteBuffer stream0 = read(entryFile, stream0Offset, (int) stream0Length);
+            // Pickle: payload size, flags, request time, response time, ..., headers
+            if (stream0.limit() >= 16) {
+                requestTime = toEpochSeconds(stream0.getLong(8));
+            }
+            byte[] headerBlob = findHeaderBlob(stream0);
+            if (headerBlob != null) {
+                httpHeaders = new LinkedHashMap<>();
+                httpResponse = parseHeaders(headerBlob, httpHeaders);
+            }
+        }
+
+        return new ChromeSimpleCacheEntry(entryFile, key, requestTime, httpResponse, httpHeaders, payloadOffset, payloadLength);
+    }
+
+    /**
+     * Gets the key of the entry, which is the URL, possibly prefixed with the
+     * network isolation key, as it is for block-file entries.
+     *
+     * @return The key.
+     */
+    String getKey() {
+        return key;
+    }
+
+    /**
+     * Gets the time the request was made, the nearest a Simple Cache entry
+     * has to the creation time of a block-file entry.
+     *
+     * @return Seconds since the epoch, or 0 if not known.
+     */
+    long getRequestTime() {
+        return requestTime;
+    }
+
+    String getHTTPResponse() {
+        return httpResponse;
+    }
+
+    String getHTTPHeader(String name) {
+        return httpHeaders.get(name);
+    }
+
+    /**
+     * Returns all HTTP headers as a single '\n' separated string, formatted
+     * the way the block-file entries format them.
+     *
+     * @return The headers, empty if there are none.
+     */
+    String getHTTPHeaders() {
+        StringBuilder sb = new StringBuilder();
+        httpHeaders.forEach((name, value) -> {
+            if (sb.length() > 0) {
+                sb.append(" \n");
+            }
+            sb.append(String.format("%s : %s", name, value));
+        });
+        return sb.toString();
+    }
+
+    /**
+     * Returns if the payload is compressed with Brotli, that is, if the entry
+     * has the HTTP header "content-encoding: br".
+     *
+     * @return true if the payload is compressed with Brotli.
+     */
+    boolean isBrotliCompressed() {
+        String encodingHeader = getHTTPHeader("content-encoding"); //NON-NLS
+        return encodingHeader != null && encodingHeader.trim().equalsIgnoreCase("br"); //NON-NLS
+    }
+
+    long getPayloadLength() {
+        return payloadLength;
+    }
+
+    /**
+     * Copies the payload to a local file, a block at a time.
+     *
+     * @param outputFile The file to write.
+     *
+     * @throws TskCoreException If the entry can not be read or the file
+     *                          written.
+     */
+    void savePayload(File outputFile) throws TskCoreException {
+        byte[] block = new byte[(int) Math.min(COPY_BLOCK_SIZE, Math.max(payloadLength, 1))];
+        try (FileOutputStream stream = new FileOutputStream(outputFile)) {
+            long copied = 0;
+            while (copied < payloadLength) {
+                int length = (int) Math.min(block.length, payloadLength - copied);
+                int bytesRead = entryFile.read(block, payloadOffset + copied, length);
+                if (bytesRead <= 0) {
+                    break;
+                }
+                stream.write(block, 0, bytesRead);
+                copied += bytesRead;
+            }
+        } catch (IOException ex) {
+            throw new TskCoreException(String.format("Failed to write output file %s", outputFile), ex); //NON-NLS
+        }
+    }
+
+    private static ByteBuffer readEof(EntryFile entryFile, long offset) throws TskCoreException {
+        ByteBuffer eof = read(entryFile, offset, EOF_SIZE);
+        if (eof.limit() < EOF_SIZE || eof.getLong(0) != FINAL_MAGIC) {
+            throw new TskCoreException(String.format("Simple cache entry %s has no EOF magic at offset %d", entryFile.getName(), offset)); //NON-NLS
+        }
+        return eof;
+    }
+
+    /**
+     * Reads a part of a file. EntryFile.read() always fills the buffer
+     * from its start, so short reads are continued into a second buffer.
+     */
+    private static ByteBuffer read(EntryFile file, long offset, int length) throws TskCoreException {
+        byte[] bytes = new byte[length];
+        int copied = 0;
+        byte[] remainder = null;
+        while (copied < length) {
+            int bytesRead;
+            if (copied == 0) {
+                bytesRead = file.read(bytes, offset, length);
+            } else {
+                if (remainder == null) {
+                    remainder = new byte[length - copied];
+                }
+                bytesRead = file.read(remainder, offset + copied, length - copied);
+                if (bytesRead > 0) {
+                    System.arraycopy(remainder, 0, bytes, copied, bytesRead);
+                }
+            }
+            if (bytesRead <= 0) {
+                break;
+            }
+            copied += bytesRead;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, copied).slice();
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    private static long toEpochSeconds(long windowsMicroseconds) {
+        long seconds = windowsMicroseconds / 1000000 - WINDOWS_EPOCH_OFFSET_SECONDS;
+        return seconds > 0 ? seconds : 0;
+    }
+
+    /**
+     * Finds the raw headers in the pickled response info. The fields before
+     * them depend on the Chrome version and flags, so the headers are found
+     * by their status line, "HTTP/...", and their length is taken from the
+     * pickled string length in front of them when that is consistent.
+     *
+     * @return The headers, null if there are none.
+     */
+    private static byte[] findHeaderBlob(ByteBuffer stream0) {
+        byte[] data = new byte[stream0.limit()];
+        stream0.duplicate().get(data);
+        int start = indexOf(data, "HTTP/".getBytes(StandardCharsets.US_ASCII)); //NON-NLS
+        if (start < 0) {
+            return null;
+        }
+        int end = data.length;
+        if (start >= 4) {
+            int length = stream0.getInt(start - 4);
+            if (length > 0 && length <= data.length - start) {
+                end = start + length;
+            }
+        }
+        byte[] blob = new byte[end - start];
+        System.arraycopy(data, start, blob, 0, blob.length);
+        return blob;
+    }
+
+    /**
+     * Parses raw headers: null terminated lines, the status line first, ended
+     * by an empty line.
+     *
+     * @return The status line.
+     */
+    private static String parseHeaders(byte[] blob, Map<String, String> headers) {
+        String httpResponse = null;
+        int start = 0;
+        while (start < blob.length) {
+            int end = start;
+            while (end < blob.length && blob[end] != 0) {
+                end++;
+            }
+            if (end == start) {
+                break;
+            }
+            String headerLine = new String(blob, start, end - start, StandardCharsets.UTF_8);
+            if (httpResponse == null) {
+                httpResponse = headerLine;
+            } else {
+                int nPos = headerLine.indexOf(':');
+                if (nPos > 0) {
+                    headers.put(headerLine.substring(0, nPos).toLowerCase(), headerLine.substring(nPos + 1));
+                }
+            }
+            start = end + 1;
+        }
+        return httpResponse;
+    }
+
+    private static int indexOf(byte[] data, byte[] pattern) {
+        for (int i = 0; i + pattern.length <= data.length; i++) {
+            int j = 0;
+            while (j < pattern.length && data[i + j] == pattern[j]) {
+                j++;
+            }
+            if (j == pattern.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The "_0" file of an entry, or another cache file. In ingest this is an
+     * AbstractFile; reading through this interface lets cache files be read
+     * from other sources, such as test data.
+     */
+    interface EntryFile {
+
+        /**
+         * Reads an AbstractFile as an EntryFile.
+         *
+         * @param file The file.
+         *
+         * @return The file as an EntryFile.
+         */
+        static EntryFile of(AbstractFile file) {
+            return new EntryFile() {
+                @Override
+                public String getName() {
+                    return file.getName();
+                }
+
+                @Override
+                public long getSize() {
+                    return file.getSize();
+                }
+
+                @Override
+                public int read(byte[] buffer, long offset, long length) throws TskCoreException {
+                    return file.read(buffer, offset, length);
+                }
+            };
+        }
+
+        String getName();
+
+        long getSize();
+
+        /**
+         * Reads bytes of the file into the start of a buffer, as
+         * AbstractFile.read() does.
+         *
+         * @param buffer The buffer.
+         * @param offset The offset in the file.
+         * @param length The number of bytes to read.
+         *
+         * @return The number of bytes read, which may be fewer than asked
+         *         for.
+         *
+         * @throws TskCoreException If the file can not be read.
+         */
+        int read(byte[] buffer, long offset, long length) throws TskCoreException;
+    }
+}
@@ -38,15 +38,15 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.List;
+import java.util.LinkedHashSet;
 import java.util.Map;
-import java.util.HashMap;
+import java.util.Set;
 import java.util.ArrayList;
 import java.util.Arrays;
 import org.apache.commons.io.FilenameUtils;
 import org.openide.util.NbBundle.Messages;
 import org.sleuthkit.autopsy.casemodule.Case;
 import org.sleuthkit.autopsy.casemodule.NoCurrentCaseException;
-import org.sleuthkit.autopsy.casemodule.services.FileManager;
 import org.sleuthkit.autopsy.coreutils.Logger;
 import org.sleuthkit.autopsy.coreutils.NetworkUtils;
 import org.sleuthkit.autopsy.ingest.DataSourceIngestModuleProgress;
@@ -70,7 +70,7 @@ class Chromium extends Extract {
 
     private static final String HISTORY_QUERY = "SELECT urls.url, urls.title, urls.visit_count, urls.typed_count, " //NON-NLS
             + "last_visit_time, urls.hidden, visits.visit_time, (SELECT urls.url FROM urls WHERE urls.id=visits.url) AS from_visit, visits.transition FROM urls, visits WHERE urls.id = visits.url"; //NON-NLS
-    private static final String COOKIE_QUERY = "SELECT name, value, host_key, expires_utc,last_access_utc, creation_utc FROM cookies"; //NON-NLS
+    private static final String COOKIE_TABLE_NAME = "cookies"; //NON-NLS
     private static final String DOWNLOAD_QUERY = "SELECT full_path, url, start_time, received_bytes FROM downloads"; //NON-NLS
     private static final String DOWNLOAD_QUERY_V30 = "SELECT current_path AS full_path, url, start_time, received_bytes FROM downloads, downloads_url_chains WHERE downloads.id=downloads_url_chains.id"; //NON-NLS
     private static final String LOGIN_QUERY = "SELECT origin_url, username_value, date_created, signon_realm from logins"; //NON-NLS
@@ -99,12 +99,15 @@ class Chromium extends Extract {
     private static final String GOOGLE_PROFILE = "Google Chrome ";
     private static final String FAVICON_ARTIFACT_NAME = "TSK_FAVICON"; //NON-NLS
 
-    private Boolean databaseEncrypted = false;
-    private Boolean fieldEncrypted = false;
+    // Set while parsing a Web Data file; profiles are parsed on several
+    // threads at once, so each thread has its own flags.
+    private final ThreadLocal<Boolean> databaseEncrypted = ThreadLocal.withInitial(() -> false);
+    private final ThreadLocal<Boolean> fieldEncrypted = ThreadLocal.withInitial(() -> false);
 
     private final Logger logger = Logger.getLogger(this.getClass().getName());
     private Content dataSource;
     private final IngestJobContext context;
+    private final boolean decodeCacheContentEncodings;
 
     private static final Map<String, String> BROWSERS_MAP = ImmutableMap.<String, String>builder()
             .put("Microsoft Edge", "Microsoft Edge/Default")
@@ -131,11 +134,14 @@ class Chromium extends Extract {
         "Progress_Message_Chrome_AutoFill=Chrome Auto Fill Browser {0}",
         "# {0} - browserName",
         "Progress_Message_Chrome_Logins=Chrome Logins Browser {0}",
-        "Progress_Message_Chrome_Cache=Chrome Cache",})
+        "Progress_Message_Chrome_Cache=Chrome Cache",
+        "# {0} - browserName",
+        "Chrome_Error_Finding_Profiles=Error finding the profiles of {0}.",})
 
-    Chromium(IngestJobContext context) {
+    Chromium(IngestJobContext context, boolean decodeCacheContentEncodings) {
         super(NbBundle.getMessage(Chromium.class, "Chrome.moduleName"), context);
         this.context = context;
+        this.decodeCacheContentEncodings = decodeCacheContentEncodings;
     }
 
     @Override
@@ -144,54 +150,111 @@ class Chromium extends Extract {
         dataFound = false;
         long ingestJobId = context.getJobId();
 
+        processProfiles(findProfiles(), profile -> processProfile(profile, progressBar, ingestJobId));
+        if (context.dataSourceIngestIsCancelled()) {
+            return;
+        }
+
+        progressBar.progress(Bundle.Progress_Message_Chrome_Cache());
+        ChromeCacheExtractor chromeCacheExtractor = new ChromeCacheExtractor(dataSource, context, progressBar, getProfileExecutor(),
+                decodeCacheContentEncodings);
+        chromeCacheExtractor.processCaches();
+    }
+
+    /**
+     * Finds the profile folders of the browsers, the folders holding any of
+     * the files the extractor parses. The files of each folder are parsed
+     * separately, so the folders of the many user accounts of a shared
+     * machine can be parsed at the same time.
+     *
+     * @return The profiles, in BROWSERS_MAP order.
+     */
+    private List<ChromiumProfile> findProfiles() {
+        List<ChromiumProfile> profiles = new ArrayList<>();
         for (Map.Entry<String, String> browser : BROWSERS_MAP.entrySet()) {
-            String browserName = browser.getKey();
-            progressBar.progress(NbBundle.getMessage(this.getClass(), "Progress_Message_Chrome_History", browserName));
-            this.getHistory(browser.getKey(), browser.getValue(), ingestJobId);
-            if (context.dataSourceIngestIsCancelled()) {
-                return;
+            Set<String> folders = new LinkedHashSet<>();
+            for (String fileName : getProfileFileNames(browser.getKey())) {
+                try {
+                    for (AbstractFile file : findFiles(dataSource, fileName, browser.getValue())) {
+                        folders.add(file.getParentPath());
+                    }
+                } catch (TskCoreException ex) {
+                    logger.log(Level.SEVERE, String.format("Error finding the %s files of %s", fileName, browser.getKey()), ex); //NON-NLS
+                    this.addErrorMessage(Bundle.Chrome_Error_Finding_Profiles(browser.getKey()));
+                }
             }
-
-            progressBar.progress(NbBundle.getMessage(this.getClass(), "Progress_Message_Chrome_Bookmarks", browserName));
-            this.getBookmark(browser.getKey(), browser.getValue(), ingestJobId);
-            if (context.dataSourceIngestIsCancelled()) {
-                return;
+            for (String folder : folders) {
+                profiles.add(new ChromiumProfile(browser.getKey(), browser.getValue(), folder));
             }
+        }
+        return profiles;
+    }
 
-            progressBar.progress(NbBundle.getMessage(this.getClass(), "Progress_Message_Chrome_Cookies", browserName));
-            this.getCookie(browser.getKey(), browser.getValue(), ingestJobId);
-            if (context.dataSourceIngestIsCancelled()) {
-                return;
-            }
+    /**
+     * Gets the names of the files the get methods look for, as they look for
+     * them.
+     *
+     * @param browser The browser name.
+     *
+     * @return The file names, which can contain wildcards.
+     */
+    private static List<String> getProfileFileNames(String browser) {
+        if (browser.equals(UC_BROWSER_NAME)) {
+            return Arrays.asList(HISTORY_FILE_NAME + "%", BOOKMARK_FILE_NAME + "%", "%" + COOKIE_FILE_NAME + "%",
+                    LOGIN_DATA_FILE_NAME + "%", WEB_DATA_FILE_NAME + "%", FAVICON_DATA_FILE_NAME);
+        }
+        return Arrays.asList(HISTORY_FILE_NAME, BOOKMARK_FILE_NAME, COOKIE_FILE_NAME,
+                LOGIN_DATA_FILE_NAME, WEB_DATA_FILE_NAME, FAVICON_DATA_FILE_NAME);
+    }
 
-            progressBar.progress(NbBundle.getMessage(this.getClass(), "Progress_Message_Chrome_Logins", browserName));
-            this.getLogins(browser.getKey(), browser.getValue(), ingestJobId);
-            if (context.dataSourceIngestIsCancelled()) {
-                return;
-            }
+    /**
+     * Parses the files of one profile folder, posting the artifacts of each
+     * kind of file as it is done.
+     *
+     * @param profile     The profile.
+     * @param progressBar The progress of the ingest module.
+     * @param ingestJobId The ingest job id.
+     */
+    private void processProfile(ChromiumProfile profile, DataSourceIngestModuleProgress progressBar, long ingestJobId) {
+        String browserName = profile.browser;
+        progressBar.progress(NbBundle.getMessage(this.getClass(), "Progress_Message_Chrome_History", browserName));
+        this.getHistory(profile.browser, profile.browserLocation, profile.folder, ingestJobId);
+        if (context.dataSourceIngestIsCancelled()) {
+            return;
+        }
 
-            progressBar.progress(NbBundle.getMessage(this.getClass(), "Progress_Message_Chrome_AutoFill", browserName));
-            this.getAutofill(browser.getKey(), browser.getValue(), ingestJobId);
-            if (context.dataSourceIngestIsCancelled()) {
-                return;
-            }
+        progressBar.progress(NbBundle.getMessage(this.getClass(), "Progress_Message_Chrome_Bookmarks", browserName));
+        this.getBookmark(profile.browser, profile.browserLocation, profile.folder, ingestJobId);
+        if (context.dataSourceIngestIsCancelled()) {
+            return;
+        }
 
-            progressBar.progress(NbBundle.getMessage(this.getClass(), "Progress_Message_Chrome_Downloads", browserName));
-            this.getDownload(browser.getKey(), browser.getValue(), ingestJobId);
-            if (context.dataSourceIngestIsCancelled()) {
-                return;
-            }
+        progressBar.progress(NbBundle.getMessage(this.getClass(), "Progress_Message_Chrome_Cookies", browserName));
+        this.getCookie(profile.browser, profile.browserLocation, profile.folder, ingestJobId);
+        if (context.dataSourceIngestIsCancelled()) {
+            return;
+        }
 
-            progressBar.progress(NbBundle.getMessage(this.getClass(), "Progress_Message_Chrome_Favicons", browserName));
-            this.getFavicons(browser.getKey(), browser.getValue(), ingestJobId);
-            if (context.dataSourceIngestIsCancelled()) {
-                return;
-            }
+        progressBar.progress(NbBundle.getMessage(this.getClass(), "Progress_Message_Chrome_Logins", browserName));
+        this.getLogins(profile.browser, profile.browserLocation, profile.folder, ingestJobId);
+        if (context.dataSourceIngestIsCancelled()) {
+            return;
         }
 
-        progressBar.progress(Bundle.Progress_Message_Chrome_Cache());
-        ChromeCacheExtractor chromeCacheExtractor = new ChromeCacheExtractor(dataSource, context, progressBar);
-        chromeCacheExtractor.processCaches();
+        progressBar.progress(NbBundle.getMessage(this.getClass(), "Progress_Message_Chrome_AutoFill", browserName));
+        this.getAutofill(profile.browser, profile.browserLocation, profile.folder, ingestJobId);
+        if (context.dataSourceIngestIsCancelled()) {
+            return;
+        }
+
+        progressBar.progress(NbBundle.getMessage(this.getClass(), "Progress_Message_Chrome_Downloads", browserName));
+        this.getDownload(profile.browser, profile.browserLocation, profile.folder, ingestJobId);
+        if (context.dataSourceIngestIsCancelled()) {
+            return;
+        }
+
+        progressBar.progress(NbBundle.getMessage(this.getClass(), "Progress_Message_Chrome_Favicons", browserName));
+        this.getFavicons(profile.browser, profile.browserLocation, profile.folder, ingestJobId);
     }
 
     /**
@@ -199,10 +262,10 @@ class Chromium extends Extract {
      *
      * @param browser
      * @param browserLocation
+     * @param profileFolder   The parent path of the files of the profile.
      * @param ingestJobId     The ingest job id.
      */
-    private void getHistory(String browser, String browserLocation, long ingestJobId) {
-        FileManager fileManager = currentCase.getServices().getFileManager();
+    private void getHistory(String browser, String browserLocation, String profileFolder, long ingestJobId) {
         List<AbstractFile> historyFiles;
         String browserName = browser;
         String historyFileName = HISTORY_FILE_NAME;
@@ -210,7 +273,7 @@ class Chromium extends Extract {
             historyFileName = HISTORY_FILE_NAME + "%";
         }
         try {
-            historyFiles = fileManager.findFiles(dataSource, historyFileName, browserLocation); //NON-NLS
+            historyFiles = findFilesInFolder(dataSource, historyFileName, browserLocation, profileFolder); //NON-NLS
         } catch (TskCoreException ex) {
             String msg = NbBundle.getMessage(this.getClass(), "Chrome.getHistory.errMsg.errGettingFiles");
             logger.log(Level.SEVERE, msg, ex);
@@ -241,15 +304,15 @@ class Chromium extends Extract {
                 String parentPath = FilenameUtils.normalizeNoEndSeparator(allocatedHistoryFiles.get(j).getParentPath());
                 browserName = GOOGLE_PROFILE + " " + FilenameUtils.getBaseName(parentPath);
             }
-            String temps = RAImageIngestModule.getRATempPath(currentCase, browserName, ingestJobId) + File.separator + allocatedHistoryFiles.get(j).getName() + j + ".db"; //NON-NLS
             final AbstractFile historyFile = allocatedHistoryFiles.get(j++);
             if ((historyFile.getSize() == 0) || (historyFile.getName().toLowerCase().contains("-slack"))
                     || (historyFile.getName().toLowerCase().contains("cache")) || (historyFile.getName().toLowerCase().contains("media"))
                     || (historyFile.getName().toLowerCase().contains("index"))) {
                 continue;
             }
+            String temps = getTempCopyPath(historyFile).toString();
             try {
-                ContentUtils.writeToFile(historyFile, new File(temps), context::dataSourceIngestIsCancelled);
+                writeToTempCache(historyFile);
             } catch (ReadContentInputStreamException ex) {
                 logger.log(Level.WARNING, String.format("Error reading Chrome web history artifacts file '%s' (id=%d).",
                         historyFile.getName(), historyFile.getId()), ex); //NON-NLS
@@ -263,41 +326,43 @@ class Chromium extends Extract {
                         this.getDisplayName(), historyFile.getName()));
                 continue;
             }
-            File dbFile = new File(temps);
             if (context.dataSourceIngestIsCancelled()) {
-                dbFile.delete();
                 break;
             }
-            List<HashMap<String, Object>> tempList;
-            tempList = this.querySQLiteDb(temps, HISTORY_QUERY);
-            logger.log(Level.INFO, "{0}- Now getting history from {1} with {2} artifacts identified.", new Object[]{getDisplayName(), temps, tempList.size()}); //NON-NLS
-            for (HashMap<String, Object> result : tempList) {
-                Collection<BlackboardAttribute> bbattributes = new ArrayList<>();
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_URL,
-                        RecentActivityExtracterModuleFactory.getModuleName(),
-                        ((result.get("url").toString() != null) ? result.get("url").toString() : ""))); //NON-NLS
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DATETIME_ACCESSED,
-                        RecentActivityExtracterModuleFactory.getModuleName(),
-                        (Long.valueOf(result.get("last_visit_time").toString()) / 1000000) - Long.valueOf("11644473600"))); //NON-NLS
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_REFERRER,
-                        RecentActivityExtracterModuleFactory.getModuleName(),
-                        ((result.get("from_visit").toString() != null) ? result.get("from_visit").toString() : ""))); //NON-NLS
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_TITLE,
-                        RecentActivityExtracterModuleFactory.getModuleName(),
-                        ((result.get("title").toString() != null) ? result.get("title").toString() : ""))); //NON-NLS
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_PROG_NAME,
-                        RecentActivityExtracterModuleFactory.getModuleName(), browserName));
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DOMAIN,
-                        RecentActivityExtracterModuleFactory.getModuleName(),
-                        (NetworkUtils.extractDomain((result.get("url").toString() != null) ? result.get("url").toString() : "")))); //NON-NLS
-
-                try {
-                    bbartifacts.add(createArtifactWithAttributes(BlackboardArtifact.Type.TSK_WEB_HISTORY, historyFile, bbattributes));
-                } catch (TskCoreException ex) {
-                    logger.log(Level.SEVERE, String.format("Failed to create history artifact for file (%d)", historyFile.getId()), ex);
-                }
-            }
-            dbFile.delete();
+            final String historyBrowserName = browserName;
+            int rowCount = this.querySQLiteDb(temps, HISTORY_QUERY, columns -> {
+                int urlColumn = columns.getColumnIndex("url"); //NON-NLS
+                int lastVisitTimeColumn = columns.getColumnIndex("last_visit_time"); //NON-NLS
+                int fromVisitColumn = columns.getColumnIndex("from_visit"); //NON-NLS
+                int titleColumn = columns.getColumnIndex("title"); //NON-NLS
+                return result -> {
+                    Collection<BlackboardAttribute> bbattributes = new ArrayList<>();
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_URL,
+                            RecentActivityExtracterModuleFactory.getModuleName(),
+                            result.getString(urlColumn))); //NON-NLS
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DATETIME_ACCESSED,
+                            RecentActivityExtracterModuleFactory.getModuleName(),
+                            (result.getLong(lastVisitTimeColumn) / 1000000) - Long.valueOf("11644473600"))); //NON-NLS
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_REFERRER,
+                            RecentActivityExtracterModuleFactory.getModuleName(),
+                            result.getString(fromVisitColumn))); //NON-NLS
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_TITLE,
+                            RecentActivityExtracterModuleFactory.getModuleName(),
+                            result.getString(titleColumn))); //NON-NLS
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_PROG_NAME,
+                            RecentActivityExtracterModuleFactory.getModuleName(), historyBrowserName));
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DOMAIN,
+                            RecentActivityExtracterModuleFactory.getModuleName(),
+                            (NetworkUtils.extractDomain(result.getString(urlColumn))))); //NON-NLS
+
+                    try {
+                        bbartifacts.add(createArtifactWithAttributes(BlackboardArtifact.Type.TSK_WEB_HISTORY, historyFile, bbattributes));
+                    } catch (TskCoreException ex) {
+                        logger.log(Level.SEVERE, String.format("Failed to create history artifact for file (%d)", historyFile.getId()), ex);
+                    }
+                };
+            });
+            logger.log(Level.INFO, "{0}- Now getting history from {1} with {2} artifacts identified.", new Object[]{getDisplayName(), temps, rowCount}); //NON-NLS
         }
 
         if (!bbartifacts.isEmpty() && !context.dataSourceIngestIsCancelled()) {
@@ -310,10 +375,10 @@ class Chromium extends Extract {
      *
      * @param browser
      * @param browserLocation
+     * @param profileFolder   The parent path of the files of the profile.
      * @param ingestJobId     The ingest job id.
      */
-    private void getBookmark(String browser, String browserLocation, long ingestJobId) {
-        FileManager fileManager = currentCase.getServices().getFileManager();
+    private void getBookmark(String browser, String browserLocation, String profileFolder, long ingestJobId) {
         List<AbstractFile> bookmarkFiles;
         String browserName = browser;
         String bookmarkFileName = BOOKMARK_FILE_NAME;
@@ -321,7 +386,7 @@ class Chromium extends Extract {
             bookmarkFileName = BOOKMARK_FILE_NAME + "%";
         }
         try {
-            bookmarkFiles = fileManager.findFiles(dataSource, bookmarkFileName, browserLocation); //NON-NLS
+            bookmarkFiles = findFilesInFolder(dataSource, bookmarkFileName, browserLocation, profileFolder); //NON-NLS
         } catch (TskCoreException ex) {
             String msg = NbBundle.getMessage(this.getClass(), "Chrome.getBookmark.errMsg.errGettingFiles");
             logger.log(Level.SEVERE, msg, ex);
@@ -350,7 +415,7 @@ class Chromium extends Extract {
                 browserName = GOOGLE_PROFILE + " " + FilenameUtils.getBaseName(parentPath);
             }
 
-            String temps = RAImageIngestModule.getRATempPath(currentCase, browserName, ingestJobId) + File.separator + bookmarkFile.getName() + j + ".db"; //NON-NLS
+            String temps = RAImageIngestModule.getRATempPath(currentCase, browserName, ingestJobId) + File.separator + bookmarkFile.getName() + bookmarkFile.getId() + ".db"; //NON-NLS
             try {
                 ContentUtils.writeToFile(bookmarkFile, new File(temps), context::dataSourceIngestIsCancelled);
             } catch (ReadContentInputStreamException ex) {
@@ -461,11 +526,11 @@ class Chromium extends Extract {
      *
      * @param browser
      * @param browserLocation
+     * @param profileFolder   The parent path of the files of the profile.
      * @param ingestJobId     The ingest job id.
      */
-    private void getCookie(String browser, String browserLocation, long ingestJobId) {
+    private void getCookie(String browser, String browserLocation, String profileFolder, long ingestJobId) {
 
-        FileManager fileManager = currentCase.getServices().getFileManager();
         List<AbstractFile> cookiesFiles;
         String browserName = browser;
         String cookieFileName = COOKIE_FILE_NAME;
@@ -475,7 +540,7 @@ class Chromium extends Extract {
             cookieFileName = "%" + COOKIE_FILE_NAME + "%";
         }
         try {
-            cookiesFiles = fileManager.findFiles(dataSource, cookieFileName, browserLocation); //NON-NLS
+            cookiesFiles = findFilesInFolder(dataSource, cookieFileName, browserLocation, profileFolder); //NON-NLS
         } catch (TskCoreException ex) {
             String msg = NbBundle.getMessage(this.getClass(), "Chrome.getCookie.errMsg.errGettingFiles");
             logger.log(Level.SEVERE, msg, ex);
@@ -501,60 +566,49 @@ class Chromium extends Extract {
             if ((cookiesFile.getSize() == 0) || (cookiesFile.getName().toLowerCase().contains("-slack"))) {
                 continue;
             }
-            String temps = RAImageIngestModule.getRATempPath(currentCase, browserName, ingestJobId) + File.separator + cookiesFile.getName() + j + ".db"; //NON-NLS
+            if (context.dataSourceIngestIsCancelled()) {
+                break;
+            }
+
+            final String cookieBrowserName = browserName;
+            int rowCount;
             try {
-                ContentUtils.writeToFile(cookiesFile, new File(temps), context::dataSourceIngestIsCancelled);
-            } catch (ReadContentInputStreamException ex) {
+                rowCount = readSQLiteTable(cookiesFile, COOKIE_TABLE_NAME, result -> {
+                    Collection<BlackboardAttribute> bbattributes = new ArrayList<>();
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_URL,
+                            RecentActivityExtracterModuleFactory.getModuleName(),
+                            result.getString("host_key"))); //NON-NLS
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DATETIME_ACCESSED,
+                            RecentActivityExtracterModuleFactory.getModuleName(),
+                            (result.getLong("last_access_utc") / 1000000) - Long.valueOf("11644473600"))); //NON-NLS
+
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_NAME,
+                            RecentActivityExtracterModuleFactory.getModuleName(),
+                            result.getString("name"))); //NON-NLS
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_VALUE,
+                            RecentActivityExtracterModuleFactory.getModuleName(),
+                            result.getString("value"))); //NON-NLS
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_PROG_NAME,
+                            RecentActivityExtracterModuleFactory.getModuleName(), cookieBrowserName));
+                    String domain = result.getString("host_key"); //NON-NLS
+                    domain = domain.replaceFirst("^\\.+(?!$)", "");
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DOMAIN,
+                            RecentActivityExtracterModuleFactory.getModuleName(), domain));
+
+                    try {
+                        bbartifacts.add(createArtifactWithAttributes(BlackboardArtifact.Type.TSK_WEB_COOKIE, cookiesFile, bbattributes));
+                    } catch (TskCoreException ex) {
+                        logger.log(Level.SEVERE, String.format("Failed to create cookie artifact for file (%d)", cookiesFile.getId()), ex);
+                    }
+                });
+            } catch (IOException ex) {
                 logger.log(Level.WARNING, String.format("Error reading Chrome cookie artifacts file '%s' (id=%d).",
                         cookiesFile.getName(), cookiesFile.getId()), ex); //NON-NLS
                 this.addErrorMessage(NbBundle.getMessage(this.getClass(), "Chrome.getCookie.errMsg.errAnalyzeFile",
                         this.getDisplayName(), cookiesFile.getName()));
                 continue;
-            } catch (IOException ex) {
-                logger.log(Level.SEVERE, String.format("Error writing temp sqlite db file '%s' for Chrome cookie artifacts file '%s' (id=%d).",
-                        temps, cookiesFile.getName(), cookiesFile.getId()), ex); //NON-NLS
-                this.addErrorMessage(NbBundle.getMessage(this.getClass(), "Chrome.getCookie.errMsg.errAnalyzeFile",
-                        this.getDisplayName(), cookiesFile.getName()));
-                continue;
             }
-            File dbFile = new File(temps);
-            if (context.dataSourceIngestIsCancelled()) {
-                dbFile.delete();
-                break;
-            }
-
-            List<HashMap<String, Object>> tempList = this.querySQLiteDb(temps, COOKIE_QUERY);
-            logger.log(Level.INFO, "{0}- Now getting cookies from {1} with {2} artifacts identified.", new Object[]{getDisplayName(), temps, tempList.size()}); //NON-NLS
-            for (HashMap<String, Object> result : tempList) {
-                Collection<BlackboardAttribute> bbattributes = new ArrayList<>();
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_URL,
-                        RecentActivityExtracterModuleFactory.getModuleName(),
-                        ((result.get("host_key").toString() != null) ? result.get("host_key").toString() : ""))); //NON-NLS
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DATETIME_ACCESSED,
-                        RecentActivityExtracterModuleFactory.getModuleName(),
-                        (Long.valueOf(result.get("last_access_utc").toString()) / 1000000) - Long.valueOf("11644473600"))); //NON-NLS
-
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_NAME,
-                        RecentActivityExtracterModuleFactory.getModuleName(),
-                        ((result.get("name").toString() != null) ? result.get("name").toString() : ""))); //NON-NLS
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_VALUE,
-                        RecentActivityExtracterModuleFactory.getModuleName(),
-                        ((result.get("value").toString() != null) ? result.get("value").toString() : ""))); //NON-NLS
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_PROG_NAME,
-                        RecentActivityExtracterModuleFactory.getModuleName(), browserName));
-                String domain = result.get("host_key").toString(); //NON-NLS
-                domain = domain.replaceFirst("^\\.+(?!$)", "");
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DOMAIN,
-                        RecentActivityExtracterModuleFactory.getModuleName(), domain));
-
-                try {
-                    bbartifacts.add(createArtifactWithAttributes(BlackboardArtifact.Type.TSK_WEB_COOKIE, cookiesFile, bbattributes));
-                } catch (TskCoreException ex) {
-                    logger.log(Level.SEVERE, String.format("Failed to create cookie artifact for file (%d)", cookiesFile.getId()), ex);
-                }
-            }
-
-            dbFile.delete();
+            logger.log(Level.INFO, "{0}- Now getting cookies from {1} with {2} artifacts identified.", new Object[]{getDisplayName(), cookiesFile.getName(), rowCount}); //NON-NLS
         }
 
         if (!bbartifacts.isEmpty() && !context.dataSourceIngestIsCancelled()) {
@@ -567,10 +621,10 @@ class Chromium extends Extract {
      *
      * @param browser
      * @param browserLocation
+     * @param profileFolder   The parent path of the files of the profile.
      * @param ingestJobId     The ingest job id.
      */
-    private void getDownload(String browser, String browserLocation, long ingestJobId) {
-        FileManager fileManager = currentCase.getServices().getFileManager();
+    private void getDownload(String browser, String browserLocation, String profileFolder, long ingestJobId) {
         List<AbstractFile> downloadFiles;
         String browserName = browser;
         String historyFileName = HISTORY_FILE_NAME;
@@ -578,7 +632,7 @@ class Chromium extends Extract {
             historyFileName = HISTORY_FILE_NAME + "%";
         }
         try {
-            downloadFiles = fileManager.findFiles(dataSource, historyFileName, browserLocation); //NON-NLS
+            downloadFiles = findFilesInFolder(dataSource, historyFileName, browserLocation, profileFolder); //NON-NLS
         } catch (TskCoreException ex) {
             String msg = NbBundle.getMessage(this.getClass(), "Chrome.getDownload.errMsg.errGettingFiles");
             logger.log(Level.SEVERE, msg, ex);
@@ -605,9 +659,9 @@ class Chromium extends Extract {
                 continue;
             }
 
-            String temps = RAImageIngestModule.getRATempPath(currentCase, browserName, ingestJobId) + File.separator + downloadFile.getName() + j + ".db"; //NON-NLS
+            String temps = getTempCopyPath(downloadFile).toString();
             try {
-                ContentUtils.writeToFile(downloadFile, new File(temps), context::dataSourceIngestIsCancelled);
+                writeToTempCache(downloadFile);
             } catch (ReadContentInputStreamException ex) {
                 logger.log(Level.WARNING, String.format("Error reading Chrome download artifacts file '%s' (id=%d).",
                         downloadFile.getName(), downloadFile.getId()), ex); //NON-NLS
@@ -621,63 +675,58 @@ class Chromium extends Extract {
                         this.getDisplayName(), downloadFile.getName()));
                 continue;
             }
-            File dbFile = new File(temps);
             if (context.dataSourceIngestIsCancelled()) {
-                dbFile.delete();
                 break;
             }
 
-            List<HashMap<String, Object>> tempList;
-
-            if (isChromePreVersion30(temps)) {
-                tempList = this.querySQLiteDb(temps, DOWNLOAD_QUERY);
-            } else {
-                tempList = this.querySQLiteDb(temps, DOWNLOAD_QUERY_V30);
-            }
-
-            logger.log(Level.INFO, "{0}- Now getting downloads from {1} with {2} artifacts identified.", new Object[]{getDisplayName(), temps, tempList.size()}); //NON-NLS
-            for (HashMap<String, Object> result : tempList) {
-                Collection<BlackboardAttribute> bbattributes = new ArrayList<>();
-                String fullPath = result.get("full_path").toString(); //NON-NLS
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_PATH,
-                        RecentActivityExtracterModuleFactory.getModuleName(), fullPath));
-                long pathID = Util.findID(dataSource, fullPath);
-                if (pathID != -1) {
-                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_PATH_ID,
-                            NbBundle.getMessage(this.getClass(),
-                                    "Chrome.parentModuleName"), pathID));
-                }
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_URL,
-                        RecentActivityExtracterModuleFactory.getModuleName(),
-                        ((result.get("url").toString() != null) ? result.get("url").toString() : ""))); //NON-NLS
-                //bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_URL_DECODED.getTypeID(), "Recent Activity", ((result.get("url").toString() != null) ? EscapeUtil.decodeURL(result.get("url").toString()) : "")));
-                Long time = (Long.valueOf(result.get("start_time").toString()) / 1000000) - Long.valueOf("11644473600"); //NON-NLS
-
-                //TODO Revisit usage of deprecated constructor as per TSK-583
-                //bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_LAST_ACCESSED.getTypeID(), "Recent Activity", "Last Visited", time));
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DATETIME_ACCESSED,
-                        RecentActivityExtracterModuleFactory.getModuleName(), time));
-                String domain = NetworkUtils.extractDomain((result.get("url").toString() != null) ? result.get("url").toString() : ""); //NON-NLS
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DOMAIN,
-                        RecentActivityExtracterModuleFactory.getModuleName(), domain));
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_PROG_NAME,
-                        RecentActivityExtracterModuleFactory.getModuleName(), browserName));
-
-                // find the downloaded file and create a TSK_ASSOCIATED_OBJECT for it, associating it with the TSK_WEB_DOWNLOAD artifact.
-                try {
-                    BlackboardArtifact webDownloadArtifact = createArtifactWithAttributes(BlackboardArtifact.Type.TSK_WEB_DOWNLOAD, downloadFile, bbattributes);
-                    bbartifacts.add(webDownloadArtifact);
-                    String normalizedFullPath = FilenameUtils.normalize(fullPath, true);
-                    for (AbstractFile downloadedFile : currentCase.getSleuthkitCase().getFileManager().findFilesExactNameExactPath(dataSource, FilenameUtils.getName(normalizedFullPath), FilenameUtils.getPath(normalizedFullPath))) {
-                        bbartifacts.add(createAssociatedArtifact(downloadedFile, webDownloadArtifact));
-                        break;
+            String downloadQuery = isChromePreVersion30(temps) ? DOWNLOAD_QUERY : DOWNLOAD_QUERY_V30;
+            final String downloadBrowserName = browserName;
+            int rowCount = this.querySQLiteDb(temps, downloadQuery, columns -> {
+                int fullPathColumn = columns.getColumnIndex("full_path"); //NON-NLS
+                int urlColumn = columns.getColumnIndex("url"); //NON-NLS
+                int startTimeColumn = columns.getColumnIndex("start_time"); //NON-NLS
+                return result -> {
+                    Collection<BlackboardAttribute> bbattributes = new ArrayList<>();
+                    String fullPath = result.getString(fullPathColumn); //NON-NLS
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_PATH,
+                            RecentActivityExtracterModuleFactory.getModuleName(), fullPath));
+                    long pathID = findFileId(dataSource, fullPath);
+                    if (pathID != -1) {
+                        bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_PATH_ID,
+                                NbBundle.getMessage(this.getClass(),
+                                        "Chrome.parentModuleName"), pathID));
                     }
-                } catch (TskCoreException ex) {
-                    logger.log(Level.SEVERE, String.format("Error creating associated object artifact for file  '%s'", fullPath), ex); //NON-NLS
-                }
-            }
-
-            dbFile.delete();
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_URL,
+                            RecentActivityExtracterModuleFactory.getModuleName(),
+                            result.getString(urlColumn))); //NON-NLS
+                    //bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_URL_DECODED.getTypeID(), "Recent Activity", ((result.get("url").toString() != null) ? EscapeUtil.decodeURL(result.get("url").toString()) : "")));
+                    Long time = (result.getLong(startTimeColumn) / 1000000) - Long.valueOf("11644473600"); //NON-NLS
+
+                    //TODO Revisit usage of deprecated constructor as per TSK-583
+                    //bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_LAST_ACCESSED.getTypeID(), "Recent Activity", "Last Visited", time));
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DATETIME_ACCESSED,
+                            RecentActivityExtracterModuleFactory.getModuleName(), time));
+                    String domain = NetworkUtils.extractDomain(result.getString(urlColumn)); //NON-NLS
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DOMAIN,
+                            RecentActivityExtracterModuleFactory.getModuleName(), domain));
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_PROG_NAME,
+                            RecentActivityExtracterModuleFactory.getModuleName(), downloadBrowserName));
+
+                    // find the downloaded file and create a TSK_ASSOCIATED_OBJECT for it, associating it with the TSK_WEB_DOWNLOAD artifact.
+                    try {
+                        BlackboardArtifact webDownloadArtifact = createArtifactWithAttributes(BlackboardArtifact.Type.TSK_WEB_DOWNLOAD, downloadFile, bbattributes);
+                        bbartifacts.add(webDownloadArtifact);
+                        String normalizedFullPath = FilenameUtils.normalize(fullPath, true);
+                        for (AbstractFile downloadedFile : findFilesExactNameExactPath(dataSource, FilenameUtils.getName(normalizedFullPath), FilenameUtils.getPath(normalizedFullPath))) {
+                            bbartifacts.add(createAssociatedArtifact(downloadedFile, webDownloadArtifact));
+                            break;
+                        }
+                    } catch (TskCoreException ex) {
+                        logger.log(Level.SEVERE, String.format("Error creating associated object artifact for file  '%s'", fullPath), ex); //NON-NLS
+                    }
+                };
+            });
+            logger.log(Level.INFO, "{0}- Now getting downloads from {1} with {2} artifacts identified.", new Object[]{getDisplayName(), temps, rowCount}); //NON-NLS
         }
 
         if (!bbartifacts.isEmpty() && !context.dataSourceIngestIsCancelled()) {
@@ -690,14 +739,14 @@ class Chromium extends Extract {
      *
      * @param browser
      * @param browserLocation
+     * @param profileFolder   The parent path of the files of the profile.
      * @param ingestJobId     The ingest job id.
      */
-    private void getFavicons(String browser, String browserLocation, long ingestJobId) {
-        FileManager fileManager = currentCase.getServices().getFileManager();
+    private void getFavicons(String browser, String browserLocation, String profileFolder, long ingestJobId) {
         List<AbstractFile> faviconFiles;
         String browserName = browser;
         try {
-            faviconFiles = fileManager.findFiles(dataSource, FAVICON_DATA_FILE_NAME, browserLocation); //NON-NLS
+            faviconFiles = findFilesInFolder(dataSource, FAVICON_DATA_FILE_NAME, browserLocation, profileFolder); //NON-NLS
         } catch (TskCoreException ex) {
             String msg = NbBundle.getMessage(this.getClass(), "Chrome.getFavicon.errMsg.errGettingFiles");
             logger.log(Level.SEVERE, msg, ex);
@@ -724,9 +773,9 @@ class Chromium extends Extract {
                 continue;
             }
 
-            String temps = RAImageIngestModule.getRATempPath(currentCase, browserName, ingestJobId) + File.separator + faviconFile.getName() + j + ".db"; //NON-NLS
+            String temps = getTempCopyPath(faviconFile).toString();
             try {
-                ContentUtils.writeToFile(faviconFile, new File(temps), context::dataSourceIngestIsCancelled);
+                writeToTempCache(faviconFile);
             } catch (ReadContentInputStreamException ex) {
                 logger.log(Level.WARNING, String.format("Error reading Chrome favicons artifacts file '%s' (id=%d).",
                         faviconFile.getName(), faviconFile.getId()), ex); //NON-NLS
@@ -740,9 +789,7 @@ class Chromium extends Extract {
                         this.getDisplayName(), faviconFile.getName()));
                 continue;
             }
-            File dbFile = new File(temps);
             if (context.dataSourceIngestIsCancelled()) {
-                dbFile.delete();
                 break;
             }
 
@@ -757,37 +804,37 @@ class Chromium extends Extract {
                 
             }
             
-            List<HashMap<String, Object>> tempList;
-
-            tempList = this.querySQLiteDb(temps, FAVICON_QUERY);
-
-            logger.log(Level.INFO, "{0}- Now getting favicons from {1} with {2} artifacts identified.", new Object[]{getDisplayName(), temps, tempList.size()}); //NON-NLS
-            for (HashMap<String, Object> result : tempList) {
-                Collection<BlackboardAttribute> bbattributes = new ArrayList<>();
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_URL,
-                        RecentActivityExtracterModuleFactory.getModuleName(),
-                        ((result.get("url").toString() != null) ? result.get("url").toString() : ""))); //NON-NLS
-                Long updatedTime = (Long.valueOf(result.get("last_updated").toString()) / 1000000) - Long.valueOf("11644473600"); //NON-NLS
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DATETIME_MODIFIED,
-                        RecentActivityExtracterModuleFactory.getModuleName(), updatedTime));
-                Long requestedTime = (Long.valueOf(result.get("last_requested").toString()) / 1000000) - Long.valueOf("11644473600"); //NON-NLS
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DATETIME_ACCESSED,
-                        RecentActivityExtracterModuleFactory.getModuleName(), requestedTime));
-                String domain = NetworkUtils.extractDomain((result.get("url").toString() != null) ? result.get("url").toString() : ""); //NON-NLS
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DOMAIN,
-                        RecentActivityExtracterModuleFactory.getModuleName(), domain));
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_PROG_NAME,
-                        RecentActivityExtracterModuleFactory.getModuleName(), browserName));
-
-                try {
-                    bbartifacts.add(createArtifactWithAttributes(faviconArtifactType, faviconFile, bbattributes));
-                } catch (TskCoreException ex) {
-                    logger.log(Level.SEVERE, String.format("Failed to create cookie artifact for file (%d)", faviconFile.getId()), ex);
-                }
-
-            }
+            final String faviconBrowserName = browserName;
+            int rowCount = this.querySQLiteDb(temps, FAVICON_QUERY, columns -> {
+                int urlColumn = columns.getColumnIndex("url"); //NON-NLS
+                int lastUpdatedColumn = columns.getColumnIndex("last_updated"); //NON-NLS
+                int lastRequestedColumn = columns.getColumnIndex("last_requested"); //NON-NLS
+                return result -> {
+                    Collection<BlackboardAttribute> bbattributes = new ArrayList<>();
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_URL,
+                            RecentActivityExtracterModuleFactory.getModuleName(),
+                            result.getString(urlColumn))); //NON-NLS
+                    Long updatedTime = (result.getLong(lastUpdatedColumn) / 1000000) - Long.valueOf("11644473600"); //NON-NLS
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DATETIME_MODIFIED,
+                            RecentActivityExtracterModuleFactory.getModuleName(), updatedTime));
+                    Long requestedTime = (result.getLong(lastRequestedColumn) / 1000000) - Long.valueOf("11644473600"); //NON-NLS
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DATETIME_ACCESSED,
+                            RecentActivityExtracterModuleFactory.getModuleName(), requestedTime));
+                    String domain = NetworkUtils.extractDomain(result.getString(urlColumn)); //NON-NLS
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DOMAIN,
+                            RecentActivityExtracterModuleFactory.getModuleName(), domain));
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_PROG_NAME,
+                            RecentActivityExtracterModuleFactory.getModuleName(), faviconBrowserName));
+
+                    try {
+                        bbartifacts.add(createArtifactWithAttributes(faviconArtifactType, faviconFile, bbattributes));
+                    } catch (TskCoreException ex) {
+                        logger.log(Level.SEVERE, String.format("Failed to create cookie artifact for file (%d)", faviconFile.getId()), ex);
+                    }
 
-            dbFile.delete();
+                };
+            });
+            logger.log(Level.INFO, "{0}- Now getting favicons from {1} with {2} artifacts identified.", new Object[]{getDisplayName(), temps, rowCount}); //NON-NLS
         }
 
         if (!bbartifacts.isEmpty() && !context.dataSourceIngestIsCancelled()) {
@@ -800,11 +847,11 @@ class Chromium extends Extract {
      *
      * @param browser
      * @param browserLocation
+     * @param profileFolder   The parent path of the files of the profile.
      * @param ingestJobId     The ingest job id.
      */
-    private void getLogins(String browser, String browserLocation, long ingestJobId) {
+    private void getLogins(String browser, String browserLocation, String profileFolder, long ingestJobId) {
 
-        FileManager fileManager = currentCase.getServices().getFileManager();
         List<AbstractFile> loginDataFiles;
         String browserName = browser;
         String loginDataFileName = LOGIN_DATA_FILE_NAME;
@@ -813,7 +860,7 @@ class Chromium extends Extract {
         }
 
         try {
-            loginDataFiles = fileManager.findFiles(dataSource, loginDataFileName, browserLocation); //NON-NLS
+            loginDataFiles = findFilesInFolder(dataSource, loginDataFileName, browserLocation, profileFolder); //NON-NLS
         } catch (TskCoreException ex) {
             String msg = NbBundle.getMessage(this.getClass(), "Chrome.getLogin.errMsg.errGettingFiles");
             logger.log(Level.SEVERE, msg, ex);
@@ -838,9 +885,9 @@ class Chromium extends Extract {
             if ((loginDataFile.getSize() == 0) || (loginDataFile.getName().toLowerCase().contains("-slack"))) {
                 continue;
             }
-            String temps = RAImageIngestModule.getRATempPath(currentCase, browserName, ingestJobId) + File.separator + loginDataFile.getName() + j + ".db"; //NON-NLS
+            String temps = getTempCopyPath(loginDataFile).toString();
             try {
-                ContentUtils.writeToFile(loginDataFile, new File(temps), context::dataSourceIngestIsCancelled);
+                writeToTempCache(loginDataFile);
             } catch (ReadContentInputStreamException ex) {
                 logger.log(Level.WARNING, String.format("Error reading Chrome login artifacts file '%s' (id=%d).",
                         loginDataFile.getName(), loginDataFile.getId()), ex); //NON-NLS
@@ -854,51 +901,54 @@ class Chromium extends Extract {
                         this.getDisplayName(), loginDataFile.getName()));
                 continue;
             }
-            File dbFile = new File(temps);
             if (context.dataSourceIngestIsCancelled()) {
-                dbFile.delete();
                 break;
             }
-            List<HashMap<String, Object>> tempList = this.querySQLiteDb(temps, LOGIN_QUERY);
-            logger.log(Level.INFO, "{0}- Now getting login information from {1} with {2} artifacts identified.", new Object[]{getDisplayName(), temps, tempList.size()}); //NON-NLS
-            for (HashMap<String, Object> result : tempList) {
-                Collection<BlackboardAttribute> bbattributes = new ArrayList<>();
-
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_URL,
-                        RecentActivityExtracterModuleFactory.getModuleName(),
-                        ((result.get("origin_url").toString() != null) ? result.get("origin_url").toString() : ""))); //NON-NLS
-
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DATETIME_CREATED,
-                        RecentActivityExtracterModuleFactory.getModuleName(),
-                        (Long.valueOf(result.get("date_created").toString()) / 1000000) - Long.valueOf("11644473600"))); //NON-NLS
-
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_URL_DECODED,
-                        RecentActivityExtracterModuleFactory.getModuleName(),
-                        (NetworkUtils.extractDomain((result.get("origin_url").toString() != null) ? result.get("origin_url").toString() : "")))); //NON-NLS
-
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_USER_NAME,
-                        RecentActivityExtracterModuleFactory.getModuleName(),
-                        ((result.get("username_value").toString() != null) ? result.get("username_value").toString().replaceAll("'", "''") : ""))); //NON-NLS
-
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_REALM,
-                        RecentActivityExtracterModuleFactory.getModuleName(),
-                        ((result.get("signon_realm") != null && result.get("signon_realm").toString() != null) ? result.get("signon_realm").toString() : ""))); //NON-NLS
-
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DOMAIN,
-                        RecentActivityExtracterModuleFactory.getModuleName(),
-                        result.containsKey("signon_realm") ? NetworkUtils.extractDomain(result.get("signon_realm").toString()) : "")); //NON-NLS
-
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_PROG_NAME,
-                        RecentActivityExtracterModuleFactory.getModuleName(), browserName));
-
-                try {
-                    bbartifacts.add(createArtifactWithAttributes(BlackboardArtifact.Type.TSK_SERVICE_ACCOUNT, loginDataFile, bbattributes));
-                } catch (TskCoreException ex) {
-                    logger.log(Level.SEVERE, String.format("Failed to create service account artifact for file (%d)", loginDataFile.getId()), ex);
-                }
-            }
-
-            dbFile.delete();
+            final String loginBrowserName = browserName;
+            int rowCount = this.querySQLiteDb(temps, LOGIN_QUERY, columns -> {
+                int originUrlColumn = columns.getColumnIndex("origin_url"); //NON-NLS
+                int dateCreatedColumn = columns.getColumnIndex("date_created"); //NON-NLS
+                int usernameValueColumn = columns.getColumnIndex("username_value"); //NON-NLS
+                int signonRealmColumn = columns.getColumnIndex("signon_realm"); //NON-NLS
+                return result -> {
+                    Collection<BlackboardAttribute> bbattributes = new ArrayList<>();
+
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_URL,
+                            RecentActivityExtracterModuleFactory.getModuleName(),
+                            result.getString(originUrlColumn))); //NON-NLS
+
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DATETIME_CREATED,
+                            RecentActivityExtracterModuleFactory.getModuleName(),
+                            (result.getLong(dateCreatedColumn) / 1000000) - Long.valueOf("11644473600"))); //NON-NLS
+
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_URL_DECODED,
+                            RecentActivityExtracterModuleFactory.getModuleName(),
+                            (NetworkUtils.extractDomain(result.getString(originUrlColumn))))); //NON-NLS
+
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_USER_NAME,
+                            RecentActivityExtracterModuleFactory.getModuleName(),
+                            result.getString(usernameValueColumn).replaceAll("'", "''"))); //NON-NLS
+
+                    boolean hasRealm = signonRealmColumn >= 0;
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_REALM,
+                            RecentActivityExtracterModuleFactory.getModuleName(),
+                            hasRealm ? result.getString(signonRealmColumn) : "")); //NON-NLS
+
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DOMAIN,
+                            RecentActivityExtracterModuleFactory.getModuleName(),
+                            hasRealm ? NetworkUtils.extractDomain(result.getString(signonRealmColumn)) : "")); //NON-NLS
+
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_PROG_NAME,
+                            RecentActivityExtracterModuleFactory.getModuleName(), loginBrowserName));
+
+                    try {
+                        bbartifacts.add(createArtifactWithAttributes(BlackboardArtifact.Type.TSK_SERVICE_ACCOUNT, loginDataFile, bbattributes));
+                    } catch (TskCoreException ex) {
+                        logger.log(Level.SEVERE, String.format("Failed to create service account artifact for file (%d)", loginDataFile.getId()), ex);
+                    }
+                };
+            });
+            logger.log(Level.INFO, "{0}- Now getting login information from {1} with {2} artifacts identified.", new Object[]{getDisplayName(), temps, rowCount}); //NON-NLS
         }
 
         if (!bbartifacts.isEmpty() && !context.dataSourceIngestIsCancelled()) {
@@ -912,11 +962,11 @@ class Chromium extends Extract {
      *
      * @param browser
      * @param browserLocation
+     * @param profileFolder   The parent path of the files of the profile.
      * @param ingestJobId     The ingest job id.
      */
-    private void getAutofill(String browser, String browserLocation, long ingestJobId) {
+    private void getAutofill(String browser, String browserLocation, String profileFolder, long ingestJobId) {
 
-        FileManager fileManager = currentCase.getServices().getFileManager();
         List<AbstractFile> webDataFiles;
         String browserName = browser;
         String webDataFileName = WEB_DATA_FILE_NAME;
@@ -925,7 +975,7 @@ class Chromium extends Extract {
         }
 
         try {
-            webDataFiles = fileManager.findFiles(dataSource, webDataFileName, browserLocation); //NON-NLS
+            webDataFiles = findFilesInFolder(dataSource, webDataFileName, browserLocation, profileFolder); //NON-NLS
         } catch (TskCoreException ex) {
             String msg = NbBundle.getMessage(this.getClass(), "Chrome.getAutofills.errMsg.errGettingFiles");
             logger.log(Level.SEVERE, msg, ex);
@@ -942,7 +992,7 @@ class Chromium extends Extract {
         Collection<BlackboardArtifact> bbartifacts = new ArrayList<>();
         int j = 0;
         while (j < webDataFiles.size()) {
-            databaseEncrypted = false;
+            databaseEncrypted.set(false);
             if (browser.equals(GOOGLE_PROFILE_NAME)) {
                 String parentPath = FilenameUtils.normalizeNoEndSeparator(webDataFiles.get(j).getParentPath());
                 browserName = GOOGLE_PROFILE_NAME + FilenameUtils.getBaseName(parentPath);
@@ -951,9 +1001,9 @@ class Chromium extends Extract {
             if ((webDataFile.getSize() == 0) || (webDataFile.getName().toLowerCase().contains("-slack"))) {
                 continue;
             }
-            String tempFilePath = RAImageIngestModule.getRATempPath(currentCase, browserName, ingestJobId) + File.separator + webDataFile.getName() + j + ".db"; //NON-NLS
+            String tempFilePath = getTempCopyPath(webDataFile).toString();
             try {
-                ContentUtils.writeToFile(webDataFile, new File(tempFilePath), context::dataSourceIngestIsCancelled);
+                writeToTempCache(webDataFile);
             } catch (ReadContentInputStreamException ex) {
                 logger.log(Level.WARNING, String.format("Error reading Chrome Autofill artifacts file '%s' (id=%d).",
                         webDataFile.getName(), webDataFile.getId()), ex); //NON-NLS
@@ -967,9 +1017,7 @@ class Chromium extends Extract {
                         this.getDisplayName(), webDataFile.getName()));
                 continue;
             }
-            File dbFile = new File(tempFilePath);
             if (context.dataSourceIngestIsCancelled()) {
-                dbFile.delete();
                 break;
             }
 
@@ -981,7 +1029,7 @@ class Chromium extends Extract {
             try {
                 // get form address atifacts
                 getFormAddressArtifacts(webDataFile, tempFilePath, isSchemaV8X);
-                if (databaseEncrypted) {
+                if (databaseEncrypted.get()) {
                     String comment = String.format("%s Autofill Database Encryption Detected", browserName);
                     Collection<BlackboardAttribute> bbattributes = Arrays.asList(
                             new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_COMMENT,
@@ -996,8 +1044,6 @@ class Chromium extends Extract {
                 logger.log(Level.SEVERE, String.format("Error adding artifacts to the case database "
                         + "for chrome file %s [objId=%d]", webDataFile.getName(), webDataFile.getId()), ex);
             }
-
-            dbFile.delete();
         }
 
         if (!bbartifacts.isEmpty() && !context.dataSourceIngestIsCancelled()) {
@@ -1023,50 +1069,56 @@ class Chromium extends Extract {
         String autoFillquery = (isSchemaV8X) ? AUTOFILL_QUERY_V8X
                 : AUTOFILL_QUERY;
 
-        List<HashMap<String, Object>> autofills = this.querySQLiteDb(dbFilePath, autoFillquery);
-        logger.log(Level.INFO, "{0}- Now getting Autofill information from {1} with {2} artifacts identified.", new Object[]{getDisplayName(), dbFilePath, autofills.size()}); //NON-NLS
-        for (HashMap<String, Object> result : autofills) {
-            Collection<BlackboardAttribute> bbattributes = new ArrayList<>();
-
-            // extract all common attributes
-            bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_NAME,
-                    NbBundle.getMessage(this.getClass(), "Chrome.parentModuleName"),
-                    ((result.get("name").toString() != null) ? result.get("name").toString() : ""))); //NON-NLS
+        int rowCount = this.querySQLiteDb(dbFilePath, autoFillquery, columns -> {
+            int nameColumn = columns.getColumnIndex("name"); //NON-NLS
+            int valueColumn = columns.getColumnIndex("value"); //NON-NLS
+            int countColumn = columns.getColumnIndex("count"); //NON-NLS
+            int dateCreatedColumn = columns.getColumnIndex("date_created"); //NON-NLS
+            int dateLastUsedColumn = columns.getColumnIndex("date_last_used"); //NON-NLS
+            return result -> {
+                Collection<BlackboardAttribute> bbattributes = new ArrayList<>();
 
-            fieldEncrypted = false;
-            bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_VALUE,
-                    RecentActivityExtracterModuleFactory.getModuleName(),
-                    processFields(result.get("value")))); //NON-NLS
+                // extract all common attributes
+                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_NAME,
+                        NbBundle.getMessage(this.getClass(), "Chrome.parentModuleName"),
+                        result.getString(nameColumn))); //NON-NLS
 
-            bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_COUNT,
-                    RecentActivityExtracterModuleFactory.getModuleName(),
-                    (Integer.valueOf(result.get("count").toString())))); //NON-NLS
+                fieldEncrypted.set(false);
+                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_VALUE,
+                        RecentActivityExtracterModuleFactory.getModuleName(),
+                        processFields(result.getObject(valueColumn)))); //NON-NLS
 
-            bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DATETIME_CREATED,
-                    RecentActivityExtracterModuleFactory.getModuleName(),
-                    Long.valueOf(result.get("date_created").toString()))); //NON-NLS
+                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_COUNT,
+                        RecentActivityExtracterModuleFactory.getModuleName(),
+                        result.getInt(countColumn))); //NON-NLS
 
-            // get schema version specific attributes
-            if (isSchemaV8X) {
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DATETIME_ACCESSED,
+                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DATETIME_CREATED,
                         RecentActivityExtracterModuleFactory.getModuleName(),
-                        Long.valueOf(result.get("date_last_used").toString()))); //NON-NLS
-            }
+                        result.getLong(dateCreatedColumn))); //NON-NLS
 
-            bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_PROG_NAME,
-                    RecentActivityExtracterModuleFactory.getModuleName(), browser));
-            if (fieldEncrypted) {
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_COMMENT,
-                        RecentActivityExtracterModuleFactory.getModuleName(), ENCRYPTED_FIELD_MESSAGE));
-            }
+                // get schema version specific attributes
+                if (isSchemaV8X) {
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DATETIME_ACCESSED,
+                            RecentActivityExtracterModuleFactory.getModuleName(),
+                            result.getLong(dateLastUsedColumn))); //NON-NLS
+                }
 
-            // Add an artifact
-            try {
-                bbartifacts.add(createArtifactWithAttributes(BlackboardArtifact.Type.TSK_WEB_FORM_AUTOFILL, webDataFile, bbattributes));
-            } catch (TskCoreException ex) {
-                logger.log(Level.SEVERE, String.format("Failed to create web form autopfill artifact for file (%d)", webDataFile.getId()), ex);
-            }
-        }
+                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_PROG_NAME,
+                        RecentActivityExtracterModuleFactory.getModuleName(), browser));
+                if (fieldEncrypted.get()) {
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_COMMENT,
+                            RecentActivityExtracterModuleFactory.getModuleName(), ENCRYPTED_FIELD_MESSAGE));
+                }
+
+                // Add an artifact
+                try {
+                    bbartifacts.add(createArtifactWithAttributes(BlackboardArtifact.Type.TSK_WEB_FORM_AUTOFILL, webDataFile, bbattributes));
+                } catch (TskCoreException ex) {
+                    logger.log(Level.SEVERE, String.format("Failed to create web form autopfill artifact for file (%d)", webDataFile.getId()), ex);
+                }
+            };
+        });
+        logger.log(Level.INFO, "{0}- Now getting Autofill information from {1} with {2} artifacts identified.", new Object[]{getDisplayName(), dbFilePath, rowCount}); //NON-NLS
 
         // return all extracted artifacts
         return bbartifacts;
@@ -1097,70 +1149,91 @@ class Chromium extends Extract {
         );
 
         // Get Web form addresses
-        List<HashMap<String, Object>> addresses = this.querySQLiteDb(dbFilePath, webformAddressQuery);
-        logger.log(Level.INFO, "{0}- Now getting Web form addresses from {1} with {2} artifacts identified.", new Object[]{getDisplayName(), dbFilePath, addresses.size()}); //NON-NLS
-        for (HashMap<String, Object> result : addresses) {
-
-            fieldEncrypted = false;
-
-            String first_name = processFields(result.get("first_name"));
-            String middle_name = processFields(result.get("middle_name"));
-            String last_name = processFields(result.get("last_name"));
-
-            // get email and phone
-            String email_Addr = processFields(result.get("email"));
-            String phone_number = processFields(result.get("number"));
-
-            // Get the address fields
-            String city = processFields(result.get("city"));
-            String state = processFields(result.get("state"));
-            String zipcode = processFields(result.get("zipcode"));
-            String country_code = processFields(result.get("country_code"));
-
-            // schema version specific fields
-            String full_name = "";
-            String street_address = "";
-            long date_modified = 0;
-            int use_count = 0;
-            long use_date = 0;
-
-            if (isSchemaV8X) {
-
-                full_name = processFields(result.get("full_name"));
-                street_address = processFields(result.get("street_address"));
-                date_modified = result.get("date_modified").toString() != null ? Long.valueOf(result.get("date_modified").toString()) : 0;
-                use_count = result.get("use_count").toString() != null ? Integer.valueOf(result.get("use_count").toString()) : 0;
-                use_date = result.get("use_date").toString() != null ? Long.valueOf(result.get("use_date").toString()) : 0;
-            } else {
-                String address_line_1 = processFields(result.get("address_line_1"));
-                String address_line_2 = processFields(result.get("address_line_2"));
-                street_address = String.join(" ", address_line_1, address_line_2);
-            }
+        int rowCount = this.querySQLiteDb(dbFilePath, webformAddressQuery, columns -> {
+            int firstNameColumn = columns.getColumnIndex("first_name"); //NON-NLS
+            int middleNameColumn = columns.getColumnIndex("middle_name"); //NON-NLS
+            int lastNameColumn = columns.getColumnIndex("last_name"); //NON-NLS
+            int emailColumn = columns.getColumnIndex("email"); //NON-NLS
+            int numberColumn = columns.getColumnIndex("number"); //NON-NLS
+            int cityColumn = columns.getColumnIndex("city"); //NON-NLS
+            int stateColumn = columns.getColumnIndex("state"); //NON-NLS
+            int zipcodeColumn = columns.getColumnIndex("zipcode"); //NON-NLS
+            int countryCodeColumn = columns.getColumnIndex("country_code"); //NON-NLS
+            int fullNameColumn = columns.getColumnIndex("full_name"); //NON-NLS
+            int streetAddressColumn = columns.getColumnIndex("street_address"); //NON-NLS
+            int dateModifiedColumn = columns.getColumnIndex("date_modified"); //NON-NLS
+            int useCountColumn = columns.getColumnIndex("use_count"); //NON-NLS
+            int useDateColumn = columns.getColumnIndex("use_date"); //NON-NLS
+            int addressLine1Column = columns.getColumnIndex("address_line_1"); //NON-NLS
+            int addressLine2Column = columns.getColumnIndex("address_line_2"); //NON-NLS
+            return result -> {
+
+                fieldEncrypted.set(false);
+
+                String first_name = processFields(result.getObject(firstNameColumn));
+                String middle_name = processFields(result.getObject(middleNameColumn));
+                String last_name = processFields(result.getObject(lastNameColumn));
+
+                // get email and phone
+                String email_Addr = processFields(result.getObject(emailColumn));
+                String phone_number = processFields(result.getObject(numberColumn));
+
+                // Get the address fields
+                String city = processFields(result.getObject(cityColumn));
+                String state = processFields(result.getObject(stateColumn));
+                String zipcode = processFields(result.getObject(zipcodeColumn));
+                String country_code = processFields(result.getObject(countryCodeColumn));
+
+                // schema version specific fields
+                String full_name = "";
+                String street_address = "";
+                long date_modified = 0;
+                int use_count = 0;
+                long use_date = 0;
+
+                if (isSchemaV8X) {
+
+                    full_name = processFields(result.getObject(fullNameColumn));
+                    street_address = processFields(result.getObject(streetAddressColumn));
+                    date_modified = result.getLong(dateModifiedColumn);
+                    use_count = result.getInt(useCountColumn);
+                    use_date = result.getLong(useDateColumn);
+                } else {
+                    String address_line_1 = processFields(result.getObject(addressLine1Column));
+                    String address_line_2 = processFields(result.getObject(addressLine2Column));
+                    street_address = String.join(" ", address_line_1, address_line_2);
+                }
 
-            // Create atrributes from extracted fields
-            if (full_name == null || full_name.isEmpty()) {
-                full_name = String.join(" ", first_name, middle_name, last_name);
-            }
+                // Create atrributes from extracted fields
+                if (full_name == null || full_name.isEmpty()) {
+                    full_name = String.join(" ", first_name, middle_name, last_name);
+                }
 
-            String locationAddress = String.join(", ", street_address, city, state, zipcode, country_code);
+                String locationAddress = String.join(", ", street_address, city, state, zipcode, country_code);
 
-            List<BlackboardAttribute> otherAttributes = new ArrayList<>();
-            if (date_modified > 0) {
-                otherAttributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DATETIME_MODIFIED,
-                        RecentActivityExtracterModuleFactory.getModuleName(),
-                        date_modified)); //NON-NLS
-                if (fieldEncrypted) {
-                    otherAttributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_COMMENT,
-                            RecentActivityExtracterModuleFactory.getModuleName(), ENCRYPTED_FIELD_MESSAGE)); //NON-NLS
+                List<BlackboardAttribute> otherAttributes = new ArrayList<>();
+                if (date_modified > 0) {
+                    otherAttributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DATETIME_MODIFIED,
+                            RecentActivityExtracterModuleFactory.getModuleName(),
+                            date_modified)); //NON-NLS
+                    if (fieldEncrypted.get()) {
+                        otherAttributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_COMMENT,
+                                RecentActivityExtracterModuleFactory.getModuleName(), ENCRYPTED_FIELD_MESSAGE)); //NON-NLS
 
+                    }
                 }
-            }
 
-            helper.addWebFormAddress(
-                    full_name, email_Addr, phone_number,
-                    locationAddress, 0, use_date,
-                    use_count, otherAttributes);
-        }
+                try {
+                    helper.addWebFormAddress(
+                            full_name, email_Addr, phone_number,
+                            locationAddress, 0, use_date,
+                            use_count, otherAttributes);
+                } catch (TskCoreException | Blackboard.BlackboardException ex) {
+                    logger.log(Level.SEVERE, String.format("Failed to create web form address artifact for file (%d)", webDataFile.getId()), ex);
+                }
+            };
+        });
+        logger.log(Level.INFO, "{0}- Now getting Web form addresses from {1} with {2} artifacts identified.", new Object[]{getDisplayName(), dbFilePath, rowCount}); //NON-NLS
     }
 
     /**
@@ -1175,8 +1248,8 @@ class Chromium extends Extract {
     private String processFields(Object dataValue) {
 
         if (dataValue instanceof byte[]) {
-            fieldEncrypted = true;
-            databaseEncrypted = true;
+            fieldEncrypted.set(true);
+            databaseEncrypted.set(true);
         }
 
         return dataValue.toString() != null ? dataValue.toString() : "";
@@ -1185,14 +1258,17 @@ class Chromium extends Extract {
 
     private boolean isChromePreVersion30(String temps) {
         String query = "PRAGMA table_info(downloads)"; //NON-NLS
-        List<HashMap<String, Object>> columns = this.querySQLiteDb(temps, query);
-        for (HashMap<String, Object> col : columns) {
-            if (col.get("name").equals("url")) { //NON-NLS
-                return true;
-            }
-        }
+        boolean[] hasUrlColumn = {false};
+        this.querySQLiteDb(temps, query, columns -> {
+            int nameColumn = columns.getColumnIndex("name"); //NON-NLS
+            return col -> {
+                if (col.getString(nameColumn).equals("url")) { //NON-NLS
+                    hasUrlColumn[0] = true;
+                }
+            };
+        });
 
-        return false;
+        return hasUrlColumn[0];
     }
     
         @Messages({
@@ -1213,4 +1289,20 @@ class Chromium extends Extract {
         }
         return faviconArtifactType;
     }
+
+    /**
+     * A profile folder of a Chromium based browser.
+     */
+    private static final class ChromiumProfile {
+
+        private final String browser;
+        private final String browserLocation;
+        private final String folder;
+
+        private ChromiumProfile(String browser, String browserLocation, String folder) {
+            this.browser = browser;
+            this.browserLocation = browserLocation;
+            this.folder = folder;
+        }
+    }
 }
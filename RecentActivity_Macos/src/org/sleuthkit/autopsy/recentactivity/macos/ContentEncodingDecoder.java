@@ -0,0 +1,162 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2021 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.recentactivity.macos;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.util.Locale;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import org.sleuthkit.autopsy.coreutils.Logger;
+
+/**
+ * Decodes HTTP bodies stored with a Content-Encoding, so the decoded body can
+ * be added as a derived file and keyword searched or previewed. The body is
+ * streamed through the decompressor a block at a time.
+ *
+ * Bodies come from the evidence and may be crafted to expand without limit,
+ * so the decoded size is capped, and decoding stops once the body expands by
+ * more than MAX_RATIO; in both cases the output is deleted. A body that ends
+ * early, which is common for bodies that were still being downloaded when
+ * they were cached, keeps what was decoded.
+ *
+ * Only gzip and deflate are decoded: the JRE has no brotli decoder.
+ */
+final class ContentEncodingDecoder {
+
+    private static final Logger logger = Logger.getLogger(ContentEncodingDecoder.class.getName());
+
+    static final long MAX_DECODED_SIZE = 256L * 1024 * 1024;
+    static final int MAX_RATIO = 200;
+    // Bodies that decode to less than this are never considered bombs
+    private static final long MIN_RATIO_CHECKED_SIZE = 1024 * 1024;
+    private static final int BLOCK_SIZE = 64 * 1024;
+
+    private ContentEncodingDecoder() {
+    }
+
+    /**
+     * Checks whether bodies with a Content-Encoding can be decoded.
+     *
+     * @param contentEncoding The value of the Content-Encoding header, may be
+     *                        null.
+     *
+     * @return True for gzip and deflate.
+     */
+    static boolean canDecode(String contentEncoding) {
+        String encoding = normalize(contentEncoding);
+        return encoding.equals("gzip") || encoding.equals("x-gzip") || encoding.equals("deflate"); //NON-NLS
+    }
+
+    /**
+     * Decodes a body into a file.
+     *
+     * @param body            The encoded body; closed when done.
+     * @param encodedLength   The length of the encoded body, for the ratio
+     *                        check.
+     * @param contentEncoding The value of the Content-Encoding header, see
+     *                        canDecode().
+     * @param outputFile      The file to write the decoded body to.
+     * @param cancelCheck     Returns true to stop decoding.
+     *
+     * @return The length of the decoded body.
+     *
+     * @throws IOException If the body can not be decoded, exceeds the caps,
+     *                     or decoding was cancelled. The output file is
+     *                     deleted.
+     */
+    static long decode(InputStream body, long encodedLength, String contentEncoding, File outputFile, Supplier<Boolean> cancelCheck) throws IOException {
+        String encoding = normalize(contentEncoding);
+        long maxLength = Math.min(MAX_DECODED_SIZE, Math.max(MIN_RATIO_CHECKED_SIZE, encodedLength * MAX_RATIO));
+        long decodedLength = 0;
+        boolean complete = false;
+        try (InputStream decoded = open(new BufferedInputStream(body, BLOCK_SIZE), encoding);
+                OutputStream output = new FileOutputStream(outputFile)) {
+            byte[] block = new byte[BLOCK_SIZE];
+            int count;
+            try {
+                while ((count = decoded.read(block)) != -1) {
+                    decodedLength += count;
+                    if (decodedLength > maxLength) {
+                        throw new IOException(String.format("Decoded body exceeds %d bytes (%d bytes encoded)", maxLength, encodedLength)); //NON-NLS
+                    }
+                    if (cancelCheck.get()) {
+                        throw new IOException("Decoding cancelled"); //NON-NLS
+                    }
+                    output.write(block, 0, count);
+                }
+            } catch (EOFException ex) {
+                logger.log(Level.FINE, "Body of {0} ends early, keeping the first {1} decoded bytes", new Object[]{outputFile.getName(), decodedLength}); //NON-NLS
+            }
+            complete = true;
+        } finally {
+            if (!complete && outputFile.exists() && !outputFile.delete()) {
+                logger.log(Level.WARNING, "Unable to delete partially decoded file {0}", outputFile); //NON-NLS
+            }
+        }
+        return decodedLength;
+    }
+
+    /**
+     * Opens the decompressor for an encoding. "deflate" is meant to be zlib
+     * wrapped, but some servers send raw deflate data, so the zlib header is
+     * checked for.
+     */
+    private static InputStream open(InputStream body, String encoding) throws IOException {
+        if (!encoding.equals("deflate")) { //NON-NLS
+            return new GZIPInputStream(body, BLOCK_SIZE);
+        }
+        PushbackInputStream pushback = new PushbackInputStream(body, 2);
+        int first = pushback.read();
+        int second = pushback.read();
+        if (second != -1) {
+            pushback.unread(second);
+        }
+        if (first != -1) {
+            pushback.unread(first);
+        }
+        boolean zlibWrapped = first != -1 && second != -1
+                && (first & 0x0F) == 8 && ((first << 8) | second) % 31 == 0;
+        Inflater inflater = new Inflater(!zlibWrapped);
+        return new InflaterInputStream(pushback, inflater, BLOCK_SIZE) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    // Only the default inflater of the stream is ended on close
+                    inflater.end();
+                }
+            }
+        };
+    }
+
+    private static String normalize(String contentEncoding) {
+        return contentEncoding == null ? "" : contentEncoding.trim().toLowerCase(Locale.ROOT);
+    }
+}
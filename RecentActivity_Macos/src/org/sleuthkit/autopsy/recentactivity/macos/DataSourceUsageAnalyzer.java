@@ -19,12 +19,12 @@
 package org.sleuthkit.autopsy.recentactivity.macos;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.logging.Level;
 import org.apache.commons.io.FilenameUtils;
 import org.openide.util.NbBundle.Messages;
-import org.sleuthkit.autopsy.casemodule.services.FileManager;
 import org.sleuthkit.autopsy.coreutils.Logger;
 import org.sleuthkit.autopsy.ingest.DataSourceIngestModuleProgress;
 import org.sleuthkit.autopsy.ingest.IngestJobContext;
@@ -63,6 +63,15 @@ class DataSourceUsageAnalyzer extends Extract {
         this.context = context;
     }
 
+    /**
+     * The usage is derived from the OS info artifacts of ExtractOs and
+     * ParsePlists.
+     */
+    @Override
+    Collection<Class<? extends Extract>> getDependencies() {
+        return Arrays.asList(ExtractOs.class, ParsePlists.class);
+    }
+
     @Messages({
         "# {0} - OS name",
         "DataSourceUsageAnalyzer.customVolume.label=OS Drive ({0})",
@@ -161,7 +170,7 @@ class DataSourceUsageAnalyzer extends Extract {
      */
     private void checkIfOsSpecificVolume(ExtractOs.OS_TYPE osType) throws TskCoreException {
         for (String filePath : osType.getFilePaths()) {
-            for (AbstractFile file : currentCase.getSleuthkitCase().getFileManager().findFilesExactNameExactPath(dataSource,
+            for (AbstractFile file : findFilesExactNameExactPath(dataSource,
                     FilenameUtils.getName(filePath), FilenameUtils.getPath(filePath))) {
                 createDataSourceUsageArtifact(osType.getDsUsageLabel());
                 return;
@@ -221,9 +230,8 @@ class DataSourceUsageAnalyzer extends Extract {
      * @throws TskCoreException
      */
     private boolean hasAndroidMediaCardRootNames() throws TskCoreException {
-        FileManager fileManager = currentCase.getServices().getFileManager();
         for (String fileName : ANDROID_MEDIACARD_ROOT_FILENAMES) {
-            for (AbstractFile file : fileManager.findFiles(dataSource, fileName, "/")) { // NON-NLS
+            for (AbstractFile file : findFiles(dataSource, fileName, "/")) { // NON-NLS
                 if (file.getParentPath().equals("/") && file.getName().equalsIgnoreCase(fileName)) { // NON-NLS
                     createDataSourceUsageArtifact(Bundle.DataSourceUsage_AndroidMedia());
                     return true;
@@ -246,9 +254,8 @@ class DataSourceUsageAnalyzer extends Extract {
         "DataSourceUsage_DJU_Drone_DAT=DJI Internal SD Card"
     })
     private void createDJIDroneDATArtitifacts() throws TskCoreException {
-        FileManager fileManager = currentCase.getServices().getFileManager();
         // The underscores are SQL wild cards.
-        List<AbstractFile> files = fileManager.findFiles(dataSource, "FLY___.DAT");
+        List<AbstractFile> files = findFiles(dataSource, "FLY___.DAT");
         if (files != null && !files.isEmpty()) {
             createDataSourceUsageArtifact(Bundle.DataSourceUsage_DJU_Drone_DAT());
         }
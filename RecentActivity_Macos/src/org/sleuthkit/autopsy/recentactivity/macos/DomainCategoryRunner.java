@@ -186,6 +186,17 @@ class DomainCategoryRunner extends Extract {
         this.context = context;
     }
 
+    /**
+     * The domains are categorized from the web artifacts of the web browser
+     * extractors, search queries included.
+     */
+    @Override
+    Collection<Class<? extends Extract>> getDependencies() {
+        List<Class<? extends Extract>> dependencies = new ArrayList<>(WEB_BROWSER_EXTRACTORS);
+        dependencies.add(SearchEngineURLQueryAnalyzer.class);
+        return dependencies;
+    }
+
     /**
      * Attempts to determine the host from the url string. If none can be
      * determined, returns null.
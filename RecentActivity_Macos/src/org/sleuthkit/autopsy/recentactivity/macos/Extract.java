@@ -30,10 +30,16 @@ import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import org.sleuthkit.autopsy.casemodule.Case;
 import org.sleuthkit.autopsy.coreutils.Logger;
@@ -54,13 +60,23 @@ import org.sleuthkit.datamodel.TskCoreException;
 
 abstract class Extract {
 
+    /**
+     * The extractors that create the web artifacts the web analyzers read.
+     */
+    static final List<Class<? extends Extract>> WEB_BROWSER_EXTRACTORS = Collections.unmodifiableList(
+            Arrays.asList(Chromium.class, Firefox.class, ExtractSafari.class));
+
     protected final Case currentCase;
     protected final SleuthkitCase tskCase;
     private static final Logger logger = Logger.getLogger(Extract.class.getName());
-    private final ArrayList<String> errorMessages = new ArrayList<>();
+    private final List<String> errorMessages = Collections.synchronizedList(new ArrayList<>());
     private final String displayName;
     protected boolean dataFound = false;
     private final IngestJobContext context;
+    private volatile FileNameIndex fileIndex;
+    private volatile TempFileCache tempFileCache;
+    private volatile ExecutorService profileExecutor;
+    private final Map<Long, TempFileCache.Handle> tempCopies = new HashMap<>();
 
     /**
      * Constructs the super class part of an extractor used by the Recent
@@ -96,6 +112,19 @@ abstract class Extract {
      */
     abstract void process(Content dataSource, DataSourceIngestModuleProgress progressBar);
 
+    /**
+     * Gets the extractors that have to finish before this extractor can start,
+     * usually because it reads the artifacts they create. Extractors with no
+     * dependencies between them are run at the same time by the Recent
+     * Activity ingest module. Dependencies on extractors that are not part of
+     * the ingest job are ignored.
+     *
+     * @return The classes of the extractors this extractor depends on.
+     */
+    Collection<Class<? extends Extract>> getDependencies() {
+        return Collections.emptyList();
+    }
+
     /**
      * Shuts down this extractor. Called by the Recent Activity ingest module in
      * its shutDown() method.
@@ -103,6 +132,331 @@ abstract class Extract {
     void shutDown() {
     }
 
+    /**
+     * Sets the file name index the extractor looks files up in. Called by the
+     * Recent Activity ingest module before the extractor is run, and with null
+     * when the ingest job is done with the index.
+     *
+     * @param fileIndex The index of the data source, or null to look files up
+     *                  in the case database.
+     */
+    void setFileIndex(FileNameIndex fileIndex) {
+        this.fileIndex = fileIndex;
+    }
+
+    /**
+     * Finds files by name and part of their parent path, through the file
+     * name index of the data source if there is one and through the case
+     * database otherwise.
+     *
+     * @param dataSource      The data source.
+     * @param fileName        The file name, which can contain the % and _
+     *                        wildcards.
+     * @param parentSubString A string the parent path has to contain.
+     *
+     * @return The files.
+     *
+     * @throws TskCoreException If the files can not be found.
+     */
+    protected List<AbstractFile> findFiles(Content dataSource, String fileName, String parentSubString) throws TskCoreException {
+        FileNameIndex index = getFileIndex(dataSource);
+        if (index != null) {
+            return index.findFiles(fileName, parentSubString);
+        }
+        return currentCase.getServices().getFileManager().findFiles(dataSource, fileName, parentSubString);
+    }
+
+    /**
+     * Finds files by name anywhere in the data source, through the file name
+     * index of the data source if there is one and through the case database
+     * otherwise.
+     *
+     * @param dataSource The data source.
+     * @param fileName   The file name, which can contain the % and _
+     *                   wildcards.
+     *
+     * @return The files.
+     *
+     * @throws TskCoreException If the files can not be found.
+     */
+    protected List<AbstractFile> findFiles(Content dataSource, String fileName) throws TskCoreException {
+        FileNameIndex index = getFileIndex(dataSource);
+        if (index != null) {
+            return index.findFiles(fileName, "");
+        }
+        return currentCase.getServices().getFileManager().findFiles(dataSource, fileName);
+    }
+
+    /**
+     * Finds files by exact name and parent path, through the file name index
+     * of the data source if there is one and through the case database
+     * otherwise.
+     *
+     * @param dataSource The data source.
+     * @param fileName   The file name.
+     * @param parentPath The parent path.
+     *
+     * @return The files.
+     *
+     * @throws TskCoreException If the files can not be found.
+     */
+    protected List<AbstractFile> findFilesExactNameExactPath(Content dataSource, String fileName, String parentPath) throws TskCoreException {
+        FileNameIndex index = getFileIndex(dataSource);
+        if (index != null) {
+            return index.findFilesExactNameExactPath(fileName, parentPath);
+        }
+        return tskCase.getFileManager().findFilesExactNameExactPath(dataSource, fileName, parentPath);
+    }
+
+    /**
+     * Gets the id of the file at a path, as Util.findID does, without loading
+     * the file when the data source has a file name index.
+     *
+     * @param dataSource The data source.
+     * @param path       The path of the file, which can be a Windows path.
+     *
+     * @return The object id of the file, or -1 if there is no such file.
+     */
+    protected long findFileId(Content dataSource, String path) {
+        FileNameIndex index = getFileIndex(dataSource);
+        if (index == null) {
+            return Util.findID(dataSource, path);
+        }
+        String parentPath = path.replace('\\', '/'); // fix Chrome paths
+        if (parentPath.length() > 2 && parentPath.charAt(1) == ':') {
+            parentPath = parentPath.substring(2); // remove drive letter (e.g., 'C:')
+        }
+        int nameStart = parentPath.lastIndexOf('/') + 1;
+        List<Long> ids = index.findIdsExactNameExactPath(parentPath.substring(nameStart), parentPath.substring(0, nameStart));
+        return ids.isEmpty() ? -1 : ids.get(0);
+    }
+
+    /**
+     * Finds the files the same way as findFiles(Content, String, String),
+     * keeping only those in one folder. The browser extractors use it to
+     * parse the files of one profile folder at a time.
+     *
+     * @param dataSource      The data source.
+     * @param fileName        The file name, which can contain the % and _
+     *                        wildcards.
+     * @param parentSubString A string the parent path has to contain.
+     * @param folderPath      The exact parent path of the files.
+     *
+     * @return The files.
+     *
+     * @throws TskCoreException If the files can not be found.
+     */
+    protected List<AbstractFile> findFilesInFolder(Content dataSource, String fileName, String parentSubString, String folderPath) throws TskCoreException {
+        List<AbstractFile> files = new ArrayList<>();
+        for (AbstractFile file : findFiles(dataSource, fileName, parentSubString)) {
+            if (folderPath.equals(file.getParentPath())) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Sets the executor the browser extractors parse their profiles on.
+     * Called by the Recent Activity ingest module when it starts up.
+     *
+     * @param profileExecutor The executor shared by the extractors of the
+     *                        ingest job, or null to parse the profiles one
+     *                        at a time.
+     */
+    void setProfileExecutor(ExecutorService profileExecutor) {
+        this.profileExecutor = profileExecutor;
+    }
+
+    /**
+     * Gets the executor the browser extractors parse their profiles on, for
+     * extractors that split other work the same way.
+     *
+     * @return The executor shared by the extractors of the ingest job, or
+     *         null if the work is to be done on the calling thread.
+     */
+    protected ExecutorService getProfileExecutor() {
+        return profileExecutor;
+    }
+
+    /**
+     * Parses the profiles of a browser, several at a time on the profile
+     * executor of the ingest job, and returns when all of them have been
+     * parsed. Each profile is expected to post its own artifacts, so they
+     * reach the blackboard as soon as the profile is done rather than when
+     * the whole browser is. Profiles not started yet when the ingest job is
+     * cancelled are skipped.
+     *
+     * @param profiles  The profiles, as found by the extractor.
+     * @param processor Parses one profile; called on an executor thread.
+     */
+    protected <T> void processProfiles(Collection<T> profiles, Consumer<T> processor) {
+        ExecutorService executor = profileExecutor;
+        if (executor == null || profiles.size() < 2) {
+            for (T profile : profiles) {
+                if (context.dataSourceIngestIsCancelled()) {
+                    break;
+                }
+                processor.accept(profile);
+            }
+            return;
+        }
+
+        List<Future<?>> futures = new ArrayList<>(profiles.size());
+        for (T profile : profiles) {
+            futures.add(executor.submit(() -> {
+                if (!context.dataSourceIngestIsCancelled()) {
+                    processor.accept(profile);
+                }
+            }));
+        }
+        try {
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException ex) {
+                    logger.log(Level.SEVERE, "Exception occurred while parsing a profile in " + getDisplayName(), ex.getCause()); //NON-NLS
+                }
+            }
+        } catch (InterruptedException ex) {
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Sets the cache the extractor writes the files it parses to. Called by
+     * the Recent Activity ingest module when it starts up.
+     *
+     * @param tempFileCache The cache shared by the extractors of the ingest
+     *                      job.
+     */
+    void setTempFileCache(TempFileCache tempFileCache) {
+        this.tempFileCache = tempFileCache;
+    }
+
+    /**
+     * Gets the path the temp copy of a file is written to by
+     * writeToTempCache(AbstractFile).
+     *
+     * @param file The file.
+     *
+     * @return The path of the copy.
+     */
+    protected Path getTempCopyPath(AbstractFile file) {
+        return getTempFileCache().getPath(file);
+    }
+
+    /**
+     * Writes a file, with its SQLite write-ahead log and shared memory files
+     * if it has them, to the temp copies shared by the extractors. A file that
+     * has already been written, by this extractor or another one, is not
+     * written again. The copy is kept until this extractor, and every other
+     * extractor using it, has finished.
+     *
+     * @param file The file.
+     *
+     * @return The path of the copy.
+     *
+     * @throws IOException If the file can not be written.
+     */
+    protected Path writeToTempCache(AbstractFile file) throws IOException {
+        synchronized (tempCopies) {
+            TempFileCache.Handle handle = tempCopies.get(file.getId());
+            if (handle != null) {
+                return handle.getPath();
+            }
+        }
+        TempFileCache.Handle handle = getTempFileCache().acquire(file, findSqliteSiblings(file), context::dataSourceIngestIsCancelled);
+        synchronized (tempCopies) {
+            TempFileCache.Handle existingHandle = tempCopies.putIfAbsent(file.getId(), handle);
+            if (existingHandle != null) {
+                handle.close();
+                return existingHandle.getPath();
+            }
+        }
+        return handle.getPath();
+    }
+
+    /**
+     * Releases the temp copies written by writeToTempCache(AbstractFile).
+     * Called by the Recent Activity ingest module when the extractor has
+     * finished.
+     */
+    void releaseTempCopies() {
+        List<TempFileCache.Handle> handles;
+        synchronized (tempCopies) {
+            handles = new ArrayList<>(tempCopies.values());
+            tempCopies.clear();
+        }
+        for (TempFileCache.Handle handle : handles) {
+            handle.close();
+        }
+    }
+
+    private TempFileCache getTempFileCache() {
+        TempFileCache cache = tempFileCache;
+        if (cache == null) {
+            synchronized (tempCopies) {
+                if (tempFileCache == null) {
+                    tempFileCache = new TempFileCache(Paths.get(RAImageIngestModule.getRATempPath(currentCase, getDisplayName(), context.getJobId())));
+                }
+                cache = tempFileCache;
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Reads every row of a table of a SQLite database straight from the
+     * database file, with no temp copy, laying the database's write-ahead log
+     * over it if it has one. Only whole tables can be read this way; queries
+     * with joins or expressions still go through
+     * querySQLiteDb(String, String, SQLiteRowVisitorFactory). The rows stop being
+     * read if the ingest job is cancelled.
+     *
+     * @param dbFile    The database file.
+     * @param tableName The table name.
+     * @param visitor   The visitor the rows are passed to.
+     *
+     * @return The number of rows visited.
+     *
+     * @throws IOException If the file is not a SQLite database, or the table
+     *                     can not be read.
+     */
+    protected int readSQLiteTable(AbstractFile dbFile, String tableName, SQLiteFileReader.RowVisitor visitor) throws IOException {
+        SQLiteFileReader reader = SQLiteFileReader.open(dbFile, findSqliteSibling(dbFile, "-wal")); //NON-NLS
+        return reader.scanTable(tableName, context::dataSourceIngestIsCancelled, visitor);
+    }
+
+    private List<AbstractFile> findSqliteSiblings(AbstractFile file) {
+        List<AbstractFile> siblings = new ArrayList<>();
+        for (String suffix : TempFileCache.SQLITE_SIBLING_SUFFIXES) {
+            AbstractFile sibling = findSqliteSibling(file, suffix);
+            if (sibling != null) {
+                siblings.add(sibling);
+            }
+        }
+        return siblings;
+    }
+
+    private AbstractFile findSqliteSibling(AbstractFile file, String suffix) {
+        try {
+            List<AbstractFile> files = findFilesExactNameExactPath(file.getDataSource(), file.getName() + suffix, file.getParentPath());
+            return files.isEmpty() ? null : files.get(0);
+        } catch (TskCoreException ex) {
+            logger.log(Level.WARNING, String.format("Error finding the SQLite files next to %s (id=%d)", file.getName(), file.getId()), ex); //NON-NLS
+            return null;
+        }
+    }
+
+    private FileNameIndex getFileIndex(Content dataSource) {
+        FileNameIndex index = fileIndex;
+        return (index != null && index.getDataSourceId() == dataSource.getId()) ? index : null;
+    }
+
     /**
      * Gets any error messages generated by the extractor during processing.
      *
@@ -200,7 +554,12 @@ abstract class Extract {
      * @return A list of maps that represents the query results. Each map entry
      *         consists of a column name as a key and an Object as a column
      *         value, with empty strings substituted for nulls.
+     *
+     * @deprecated Every row of the result is held in memory as a map; use
+     * querySQLiteDb(String, String, SQLiteRowVisitorFactory) to handle the rows one
+     * at a time instead.
      */
+    @Deprecated
     protected List<HashMap<String, Object>> querySQLiteDb(String path, String query) {
         ResultSet resultSet;
         List<HashMap<String, Object>> list;
@@ -221,6 +580,187 @@ abstract class Extract {
         return list;
     }
 
+    /**
+     * Connects to a SQLite database file (e.g., an application database),
+     * executes a query and passes each row of the result to a visitor as the
+     * cursor reaches it, so no more than one row is in memory at a time. The
+     * visitor is created once the columns of the result are known, so it can
+     * look up the indexes of the columns it reads before the first row. The
+     * rows stop being visited if the ingest job is cancelled.
+     *
+     * @param path           The path to the SQLite database file
+     * @param query          The SQL query to be executed.
+     * @param visitorFactory Creates the visitor the rows are passed to.
+     *
+     * @return The number of rows visited, or -1 if the query could not be
+     *         executed or a row could not be read.
+     */
+    protected int querySQLiteDb(String path, String query, SQLiteRowVisitorFactory visitorFactory) {
+        String connectionString = "jdbc:sqlite:" + path; //NON-NLS
+        SQLiteDBConnect dbConnection = null;
+        int rowCount = 0;
+        try {
+            dbConnection = new SQLiteDBConnect("org.sqlite.JDBC", connectionString); //NON-NLS
+            try (ResultSet resultSet = dbConnection.executeQry(query)) {
+                SQLiteRow row = new SQLiteRow(resultSet);
+                SQLiteRowVisitor visitor = visitorFactory.create(row);
+                while (resultSet.next() && !context.dataSourceIngestIsCancelled()) {
+                    visitor.visit(row);
+                    rowCount++;
+                }
+            }
+        } catch (SQLException ex) {
+            logger.log(Level.WARNING, "Error while trying to read into a sqlite db." + connectionString, ex); //NON-NLS
+            return -1;
+        } finally {
+            if (dbConnection != null) {
+                dbConnection.closeConnection();
+            }
+        }
+        return rowCount;
+    }
+
+    /**
+     * Creates the visitor of the rows of a SQLite query result.
+     */
+    @FunctionalInterface
+    interface SQLiteRowVisitorFactory {
+
+        /**
+         * Creates the visitor, before the first row of the result is read.
+         *
+         * @param columns The row of the result, not yet on a row. Only
+         *                getColumnIndex() may be called on it here.
+         *
+         * @return The visitor.
+         *
+         * @throws SQLException If the columns can not be read.
+         */
+        SQLiteRowVisitor create(SQLiteRow columns) throws SQLException;
+    }
+
+    /**
+     * Handles the rows of a SQLite query result one at a time.
+     */
+    @FunctionalInterface
+    interface SQLiteRowVisitor {
+
+        /**
+         * Handles a row of the result.
+         *
+         * @param row The current row. It is only valid until this method
+         *            returns.
+         *
+         * @throws SQLException If a column value can not be read.
+         */
+        void visit(SQLiteRow row) throws SQLException;
+    }
+
+    /**
+     * The current row of a SQLite query result. Column values are read
+     * straight from the result set cursor by column index; callers look up
+     * the index of each column they read once per query, with
+     * getColumnIndex(), before the first row. As with the maps of
+     * querySQLiteDb(String, String), nulls are read as empty strings and
+     * numbers as zero.
+     */
+    static final class SQLiteRow {
+
+        private final ResultSet resultSet;
+        private final Map<String, Integer> columnIndexes;
+
+        private SQLiteRow(ResultSet resultSet) throws SQLException {
+            this.resultSet = resultSet;
+            ResultSetMetaData md = resultSet.getMetaData();
+            columnIndexes = new HashMap<>(md.getColumnCount() * 2);
+            for (int i = 1; i <= md.getColumnCount(); i++) {
+                columnIndexes.putIfAbsent(md.getColumnName(i), i);
+            }
+        }
+
+        /**
+         * Gets the index of a column.
+         *
+         * @param columnName The column name.
+         *
+         * @return The index of the column, starting at 1, or -1 if the result
+         *         has no such column, which the accessors reject with an
+         *         SQLException.
+         */
+        int getColumnIndex(String columnName) {
+            Integer columnIndex = columnIndexes.get(columnName);
+            return (columnIndex == null) ? -1 : columnIndex;
+        }
+
+        /**
+         * Gets a column value as a string.
+         *
+         * @param columnIndex The index of the column, starting at 1.
+         *
+         * @return The value, or the empty string if the value is null.
+         *
+         * @throws SQLException If the value can not be read.
+         */
+        String getString(int columnIndex) throws SQLException {
+            String value = resultSet.getString(columnIndex);
+            return (value == null) ? "" : value;
+        }
+
+        /**
+         * Gets a column value as a long.
+         *
+         * @param columnIndex The index of the column, starting at 1.
+         *
+         * @return The value, or zero if the value is null.
+         *
+         * @throws SQLException If the value can not be read as a number.
+         */
+        long getLong(int columnIndex) throws SQLException {
+            return resultSet.getLong(columnIndex);
+        }
+
+        /**
+         * Gets a column value as an int.
+         *
+         * @param columnIndex The index of the column, starting at 1.
+         *
+         * @return The value, or zero if the value is null.
+         *
+         * @throws SQLException If the value can not be read as a number.
+         */
+        int getInt(int columnIndex) throws SQLException {
+            return resultSet.getInt(columnIndex);
+        }
+
+        /**
+         * Gets a column value as the object the driver reads it as, e.g. a
+         * byte array for a blob.
+         *
+         * @param columnIndex The index of the column, starting at 1.
+         *
+         * @return The value, or the empty string if the value is null.
+         *
+         * @throws SQLException If the value can not be read.
+         */
+        Object getObject(int columnIndex) throws SQLException {
+            Object value = resultSet.getObject(columnIndex);
+            return (value == null) ? "" : value;
+        }
+
+        /**
+         * Checks whether a column value is null.
+         *
+         * @param columnIndex The index of the column, starting at 1.
+         *
+         * @return True if the value is null.
+         *
+         * @throws SQLException If the value can not be read.
+         */
+        boolean isNull(int columnIndex) throws SQLException {
+            return resultSet.getObject(columnIndex) == null;
+        }
+    }
+
     /**
      * Converts a JDBC result set to a list of maps. Each map entry consists of
      * a column name as a key and an Object as a column value, with empty
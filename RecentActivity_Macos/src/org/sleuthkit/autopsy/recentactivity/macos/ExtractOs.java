@@ -124,7 +124,7 @@ class ExtractOs extends Extract {
      */
     private AbstractFile getFirstFileFound(List<String> pathsToSearchFor) throws TskCoreException {
         for (String filePath : pathsToSearchFor) {
-            List<AbstractFile> files = currentCase.getSleuthkitCase().getFileManager().findFilesExactNameExactPath(dataSource, FilenameUtils.getName(filePath), FilenameUtils.getPath(filePath));
+            List<AbstractFile> files = findFilesExactNameExactPath(dataSource, FilenameUtils.getName(filePath), FilenameUtils.getPath(filePath));
             if (!files.isEmpty()) {
                 return files.get(0);
             }
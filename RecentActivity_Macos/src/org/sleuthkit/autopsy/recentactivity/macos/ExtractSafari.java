@@ -32,14 +32,14 @@ import java.nio.file.Paths;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.logging.Level;
 import javax.xml.parsers.ParserConfigurationException;
 import org.apache.commons.io.FilenameUtils;
 import org.openide.util.NbBundle.Messages;
-import org.sleuthkit.autopsy.casemodule.services.FileManager;
 import org.sleuthkit.autopsy.coreutils.Logger;
 import org.sleuthkit.autopsy.coreutils.NetworkUtils;
 import org.sleuthkit.autopsy.datamodel.ContentUtils;
@@ -110,9 +110,51 @@ final class ExtractSafari extends Extract {
     void process(Content dataSource, DataSourceIngestModuleProgress progressBar) {
         setFoundData(false);
 
+        processProfiles(findProfileFolders(dataSource), profileFolder -> processProfile(dataSource, profileFolder, progressBar));
+    }
+
+    /**
+     * Finds the Safari and cookie folders of the user accounts, the folders
+     * holding any of the files the extractor parses. The files of each folder
+     * are parsed separately, so the folders of the many user accounts of a
+     * shared machine can be parsed at the same time.
+     *
+     * @param dataSource
+     *
+     * @return The parent paths of the profiles.
+     */
+    private List<String> findProfileFolders(Content dataSource) {
+        Set<String> folders = new LinkedHashSet<>();
+        addParentFolders(dataSource, HISTORY_FILE_NAME, SAFARI_FOLDER, folders);
+        addParentFolders(dataSource, BOOKMARK_FILE_NAME, SAFARI_FOLDER, folders);
+        addParentFolders(dataSource, DOWNLOAD_FILE_NAME, SAFARI_FOLDER, folders);
+        addParentFolders(dataSource, COOKIE_FILE_NAME, COOKIE_FOLDER, folders);
+        return new ArrayList<>(folders);
+    }
+
+    private void addParentFolders(Content dataSource, String fileName, String folderName, Set<String> folders) {
+        try {
+            for (AbstractFile file : findFiles(dataSource, fileName, folderName)) {
+                folders.add(file.getParentPath());
+            }
+        } catch (TskCoreException ex) {
+            this.addErrorMessage(Bundle.ExtractSafari_Error_Getting_History());
+            LOG.log(Level.SEVERE, String.format("Exception thrown while finding the Safari %s files.", fileName), ex); //NON-NLS
+        }
+    }
+
+    /**
+     * Parses the files of one profile folder, posting the artifacts of each
+     * file as it is done.
+     *
+     * @param dataSource
+     * @param profileFolder The parent path of the files of the profile.
+     * @param progressBar   The progress of the ingest module.
+     */
+    private void processProfile(Content dataSource, String profileFolder, DataSourceIngestModuleProgress progressBar) {
         progressBar.progress(Bundle.Progress_Message_Safari_Cookies());
         try {
-            processHistoryDB(dataSource);
+            processHistoryDB(dataSource, profileFolder);
 
         } catch (IOException | TskCoreException ex) {
             this.addErrorMessage(Bundle.ExtractSafari_Error_Getting_History());
@@ -125,7 +167,7 @@ final class ExtractSafari extends Extract {
 
         progressBar.progress(Bundle.Progress_Message_Safari_Bookmarks());
         try {
-            processBookmarkPList(dataSource);
+            processBookmarkPList(dataSource, profileFolder);
         } catch (IOException | TskCoreException | SAXException | PropertyListFormatException | ParseException | ParserConfigurationException ex) {
             this.addErrorMessage(Bundle.ExtractSafari_Error_Parsing_Bookmark());
             LOG.log(Level.SEVERE, "Exception thrown while parsing Safari Bookmarks file.", ex); //NON-NLS
@@ -137,7 +179,7 @@ final class ExtractSafari extends Extract {
 
         progressBar.progress(Bundle.Progress_Message_Safari_Downloads());
         try {
-            processDownloadsPList(dataSource);
+            processDownloadsPList(dataSource, profileFolder);
         } catch (IOException | TskCoreException | SAXException | PropertyListFormatException | ParseException | ParserConfigurationException ex) {
             this.addErrorMessage(Bundle.ExtractSafari_Error_Parsing_Bookmark());
             LOG.log(Level.SEVERE, "Exception thrown while parsing Safari Download.plist file.", ex); //NON-NLS
@@ -149,7 +191,7 @@ final class ExtractSafari extends Extract {
 
         progressBar.progress(Bundle.Progress_Message_Safari_Cookies());
         try {
-            processBinaryCookieFile(dataSource);
+            processBinaryCookieFile(dataSource, profileFolder);
         } catch (TskCoreException ex) {
             this.addErrorMessage(Bundle.ExtractSafari_Error_Parsing_Cookies());
             LOG.log(Level.SEVERE, "Exception thrown while processing Safari cookies file.", ex); //NON-NLS
@@ -160,13 +202,14 @@ final class ExtractSafari extends Extract {
      * Finds the all of the history.db files in the case looping through them to
      * find all of the history artifacts.
      *
+     * @param dataSource
+     * @param profileFolder The parent path of the files of the profile.
+     *
      * @throws TskCoreException
      * @throws IOException
      */
-    private void processHistoryDB(Content dataSource) throws TskCoreException, IOException {
-        FileManager fileManager = getCurrentCase().getServices().getFileManager();
-
-        List<AbstractFile> historyFiles = fileManager.findFiles(dataSource, HISTORY_FILE_NAME, SAFARI_FOLDER);
+    private void processHistoryDB(Content dataSource, String profileFolder) throws TskCoreException, IOException {
+        List<AbstractFile> historyFiles = findFilesInFolder(dataSource, HISTORY_FILE_NAME, SAFARI_FOLDER, profileFolder);
 
         if (historyFiles == null || historyFiles.isEmpty()) {
             return;
@@ -187,6 +230,7 @@ final class ExtractSafari extends Extract {
      * Finds all Bookmark.plist files and looks for bookmark entries.
      *
      * @param dataSource
+     * @param profileFolder The parent path of the files of the profile.
      *
      * throws TskCoreException
      *
@@ -196,10 +240,8 @@ final class ExtractSafari extends Extract {
      * @throws ParseException
      * @throws ParserConfigurationException
      */
-    private void processBookmarkPList(Content dataSource) throws TskCoreException, IOException, SAXException, PropertyListFormatException, ParseException, ParserConfigurationException {
-        FileManager fileManager = getCurrentCase().getServices().getFileManager();
-
-        List<AbstractFile> files = fileManager.findFiles(dataSource, BOOKMARK_FILE_NAME, SAFARI_FOLDER);
+    private void processBookmarkPList(Content dataSource, String profileFolder) throws TskCoreException, IOException, SAXException, PropertyListFormatException, ParseException, ParserConfigurationException {
+        List<AbstractFile> files = findFilesInFolder(dataSource, BOOKMARK_FILE_NAME, SAFARI_FOLDER, profileFolder);
 
         if (files == null || files.isEmpty()) {
             return;
@@ -220,6 +262,7 @@ final class ExtractSafari extends Extract {
      * Process the safari download.plist file.
      *
      * @param dataSource
+     * @param profileFolder The parent path of the files of the profile.
      *
      * throws TskCoreException
      *
@@ -229,10 +272,8 @@ final class ExtractSafari extends Extract {
      * @throws ParseException
      * @throws ParserConfigurationException
      */
-    private void processDownloadsPList(Content dataSource) throws TskCoreException, IOException, SAXException, PropertyListFormatException, ParseException, ParserConfigurationException {
-        FileManager fileManager = getCurrentCase().getServices().getFileManager();
-
-        List<AbstractFile> files = fileManager.findFiles(dataSource, DOWNLOAD_FILE_NAME, SAFARI_FOLDER);
+    private void processDownloadsPList(Content dataSource, String profileFolder) throws TskCoreException, IOException, SAXException, PropertyListFormatException, ParseException, ParserConfigurationException {
+        List<AbstractFile> files = findFilesInFolder(dataSource, DOWNLOAD_FILE_NAME, SAFARI_FOLDER, profileFolder);
 
         if (files == null || files.isEmpty()) {
             return;
@@ -253,15 +294,14 @@ final class ExtractSafari extends Extract {
      * Process the Safari Cookie file.
      *
      * @param dataSource
+     * @param profileFolder The parent path of the files of the profile.
      *
      * throws TskCoreException
      *
      * @throws IOException
      */
-    private void processBinaryCookieFile(Content dataSource) throws TskCoreException {
-        FileManager fileManager = getCurrentCase().getServices().getFileManager();
-
-        List<AbstractFile> files = fileManager.findFiles(dataSource, COOKIE_FILE_NAME, COOKIE_FOLDER);
+    private void processBinaryCookieFile(Content dataSource, String profileFolder) throws TskCoreException {
+        List<AbstractFile> files = findFilesInFolder(dataSource, COOKIE_FILE_NAME, COOKIE_FOLDER, profileFolder);
 
         if (files == null || files.isEmpty()) {
             return;
@@ -395,28 +435,31 @@ final class ExtractSafari extends Extract {
      * @throws TskCoreException
      */
     private Collection<BlackboardArtifact> getHistoryArtifacts(AbstractFile origFile, Path tempFilePath) throws TskCoreException {
-        List<HashMap<String, Object>> historyList = this.querySQLiteDb(tempFilePath.toString(), HISTORY_QUERY);
-
-        if (historyList == null || historyList.isEmpty()) {
-            return null;
-        }
-
         Collection<BlackboardArtifact> bbartifacts = new ArrayList<>();
-        for (HashMap<String, Object> row : historyList) {
-            if (context.dataSourceIngestIsCancelled()) {
-                return bbartifacts;
-            }
-
-            String url = row.get(HEAD_URL).toString();
-            String title = row.get(HEAD_TITLE).toString();
-            Long time = (Double.valueOf(row.get(HEAD_TIME).toString())).longValue();
+        int rowCount = this.querySQLiteDb(tempFilePath.toString(), HISTORY_QUERY, columns -> {
+            int urlColumn = columns.getColumnIndex(HEAD_URL);
+            int titleColumn = columns.getColumnIndex(HEAD_TITLE);
+            int timeColumn = columns.getColumnIndex(HEAD_TIME);
+            return row -> {
+                String url = row.getString(urlColumn);
+                String title = row.getString(titleColumn);
+                Long time = row.getLong(timeColumn);
+
+                try {
+                    bbartifacts.add(
+                            createArtifactWithAttributes(
+                                    BlackboardArtifact.Type.TSK_WEB_HISTORY,
+                                    origFile,
+                                    createHistoryAttributes(url, time, null, title,
+                                            this.getDisplayName(), NetworkUtils.extractDomain(url), null)));
+                } catch (TskCoreException ex) {
+                    LOG.log(Level.SEVERE, String.format("Failed to create TSK_WEB_HISTORY artifact for file (%d)", origFile.getId()), ex); //NON-NLS
+                }
+            };
+        });
 
-            bbartifacts.add(
-                    createArtifactWithAttributes(
-                            BlackboardArtifact.Type.TSK_WEB_HISTORY,
-                            origFile,
-                            createHistoryAttributes(url, time, null, title,
-                                    this.getDisplayName(), NetworkUtils.extractDomain(url), null)));
+        if (rowCount <= 0) {
+            return null;
         }
 
         return bbartifacts;
@@ -653,7 +696,7 @@ final class ExtractSafari extends Extract {
         nsstring = (NSString) entry.get(PLIST_KEY_DOWNLOAD_PATH);
         if (nsstring != null) {
             path = nsstring.toString();
-            pathID = Util.findID(dataSource, path);
+            pathID = findFileId(dataSource, path);
         }
 
         NSDate date = (NSDate) entry.get(PLIST_KEY_DOWNLOAD_DATE);
@@ -665,7 +708,7 @@ final class ExtractSafari extends Extract {
         bbartifacts.add(webDownloadArtifact);
 
         // find the downloaded file and create a TSK_ASSOCIATED_OBJECT for it, associating it with the TSK_WEB_DOWNLOAD artifact.
-        for (AbstractFile downloadedFile : currentCase.getSleuthkitCase().getFileManager().findFilesExactNameExactPath(dataSource,
+        for (AbstractFile downloadedFile : findFilesExactNameExactPath(dataSource,
                 FilenameUtils.getName(path), FilenameUtils.getPath(path))) {
             bbartifacts.add(createAssociatedArtifact(downloadedFile, webDownloadArtifact));
             break;
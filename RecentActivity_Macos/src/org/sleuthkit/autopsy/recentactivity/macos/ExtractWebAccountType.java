@@ -50,6 +50,15 @@ class ExtractWebAccountType extends Extract {
         this.context = context;
     }
 
+    /**
+     * The account roles are found in the web history and service accounts of
+     * the web browser extractors.
+     */
+    @Override
+    Collection<Class<? extends Extract>> getDependencies() {
+        return WEB_BROWSER_EXTRACTORS;
+    }
+
     private static final List<BlackboardArtifact.Type> QUERY_ARTIFACTS = Arrays.asList(
             new BlackboardArtifact.Type(BlackboardArtifact.ARTIFACT_TYPE.TSK_WEB_HISTORY),
             new BlackboardArtifact.Type(BlackboardArtifact.ARTIFACT_TYPE.TSK_SERVICE_ACCOUNT)
@@ -0,0 +1,354 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2021 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.recentactivity.macos;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import org.sleuthkit.datamodel.AbstractFile;
+import org.sleuthkit.datamodel.Content;
+import org.sleuthkit.datamodel.SleuthkitCase;
+import org.sleuthkit.datamodel.TskCoreException;
+
+/**
+ * An in memory index of the names and parent paths of the files of a data
+ * source, read in one pass over tsk_files. The Recent Activity extractors look
+ * up the files they parse many times over; each FileManager.findFiles call is
+ * a LIKE query against the whole tsk_files table, which on an image with
+ * millions of files adds minutes before any parsing starts. The index answers
+ * the same lookups from memory and only loads the files that match.
+ *
+ * The name and parent path patterns of findFiles are matched case
+ * insensitively, as the LIKE queries of the case database are. The exact
+ * lookups compare names and parent paths case sensitively, as the = queries
+ * of FileManager.findFilesExactNameExactPath do. Only the object ids and
+ * references to the names and parent paths are kept per file, the strings
+ * being shared between the files that have them.
+ */
+final class FileNameIndex {
+
+    private static final String JOURNAL_NAME_PART = "journal"; //NON-NLS
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int FILE_FETCH_BATCH_SIZE = 500;
+
+    private final SleuthkitCase caseDb;
+    private final long dataSourceId;
+    private final Map<String, Rows> rowsByName = new HashMap<>();
+    private final Map<String, Rows> rowsByParentPath = new HashMap<>();
+    private long[] objIds = new long[INITIAL_CAPACITY];
+    private Rows[] parentPathRows = new Rows[INITIAL_CAPACITY];
+    private String[] names = new String[INITIAL_CAPACITY];
+    private String[] parentPaths = new String[INITIAL_CAPACITY];
+    private Map<String, String> sharedValues = new HashMap<>();
+    private int fileCount;
+
+    private FileNameIndex(SleuthkitCase caseDb, long dataSourceId) {
+        this.caseDb = caseDb;
+        this.dataSourceId = dataSourceId;
+    }
+
+    /**
+     * Builds the index of a data source.
+     *
+     * @param caseDb     The case database.
+     * @param dataSource The data source.
+     *
+     * @return The index.
+     *
+     * @throws TskCoreException If the files of the data source can not be
+     *                          read.
+     */
+    static FileNameIndex build(SleuthkitCase caseDb, Content dataSource) throws TskCoreException {
+        FileNameIndex index = new FileNameIndex(caseDb, dataSource.getId());
+        SQLException[] readError = new SQLException[1];
+        caseDb.getCaseDbAccessManager().select("obj_id, name, parent_path FROM tsk_files WHERE data_source_obj_id = " + dataSource.getId(), //NON-NLS
+                resultSet -> {
+                    try {
+                        while (resultSet.next()) {
+                            index.add(resultSet.getLong(1), resultSet.getString(2), resultSet.getString(3));
+                        }
+                    } catch (SQLException ex) {
+                        readError[0] = ex;
+                    }
+                });
+        if (readError[0] != null) {
+            throw new TskCoreException(String.format("Error reading the files of data source (id=%d)", dataSource.getId()), readError[0]); //NON-NLS
+        }
+        index.sharedValues = null;
+        return index;
+    }
+
+    /**
+     * Gets the id of the data source the index is of.
+     *
+     * @return The object id of the data source.
+     */
+    long getDataSourceId() {
+        return dataSourceId;
+    }
+
+    /**
+     * Gets the number of files in the index.
+     *
+     * @return The number of files.
+     */
+    int size() {
+        return fileCount;
+    }
+
+    /**
+     * Finds the files the same way as FileManager.findFiles(Content, String,
+     * String): the name is a LIKE pattern, the parent path has to contain the
+     * given string and journal files are left out.
+     *
+     * @param fileName        The file name, which can contain the % and _
+     *                        wildcards.
+     * @param parentSubString A string the parent path has to contain, which
+     *                        can also contain the % and _ wildcards (the
+     *                        Chrome profiles are found with "Profile %").
+     *
+     * @return The files, in object id order.
+     *
+     * @throws TskCoreException If a file can not be loaded.
+     */
+    List<AbstractFile> findFiles(String fileName, String parentSubString) throws TskCoreException {
+        String parentPart = parentSubString.toLowerCase(Locale.ROOT);
+        Pattern parentPattern = (parentPart.indexOf('%') < 0 && parentPart.indexOf('_') < 0)
+                ? null : likeToPattern("%" + parentPart + "%");
+        List<Long> ids = new ArrayList<>();
+        for (Rows rows : findNameRows(fileName)) {
+            if (rows.key.contains(JOURNAL_NAME_PART)) {
+                continue;
+            }
+            for (int i = 0; i < rows.size; i++) {
+                int row = rows.rows[i];
+                String parentPath = parentPathRows[row].key;
+                if ((parentPattern == null) ? parentPath.contains(parentPart) : parentPattern.matcher(parentPath).matches()) {
+                    ids.add(objIds[row]);
+                }
+            }
+        }
+        return loadFiles(ids);
+    }
+
+    /**
+     * Finds the files the same way as
+     * FileManager.findFilesExactNameExactPath(Content, String, String): the
+     * name and the parent path have to match exactly, case included.
+     *
+     * @param fileName   The exact file name.
+     * @param parentPath The exact parent path.
+     *
+     * @return The files, in object id order.
+     *
+     * @throws TskCoreException If a file can not be loaded.
+     */
+    List<AbstractFile> findFilesExactNameExactPath(String fileName, String parentPath) throws TskCoreException {
+        return loadFiles(findIdsExactNameExactPath(fileName, parentPath));
+    }
+
+    /**
+     * Finds the ids of the files with the given name and parent path, without
+     * loading the files.
+     *
+     * @param fileName   The exact file name.
+     * @param parentPath The exact parent path.
+     *
+     * @return The object ids of the files, in ascending order.
+     */
+    List<Long> findIdsExactNameExactPath(String fileName, String parentPath) {
+        Rows rows = rowsByName.get(fileName.toLowerCase(Locale.ROOT));
+        if (rows == null) {
+            return Collections.emptyList();
+        }
+        String path = normalizeParentPath(parentPath);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < rows.size; i++) {
+            int row = rows.rows[i];
+            if (names[row].equals(fileName) && parentPaths[row].equals(path)) {
+                ids.add(objIds[row]);
+            }
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+    /**
+     * Finds the files in a folder.
+     *
+     * @param parentPath The exact parent path of the files, case included.
+     *
+     * @return The files, in object id order.
+     *
+     * @throws TskCoreException If a file can not be loaded.
+     */
+    List<AbstractFile> findFilesByParentPath(String parentPath) throws TskCoreException {
+        String path = normalizeParentPath(parentPath);
+        Rows rows = rowsByParentPath.get(toKey(path));
+        if (rows == null) {
+            return Collections.emptyList();
+        }
+        List<Long> ids = new ArrayList<>(rows.size);
+        for (int i = 0; i < rows.size; i++) {
+            int row = rows.rows[i];
+            if (parentPaths[row].equals(path)) {
+                ids.add(objIds[row]);
+            }
+        }
+        return loadFiles(ids);
+    }
+
+    private void add(long objId, String name, String parentPath) {
+        if (fileCount == objIds.length) {
+            objIds = Arrays.copyOf(objIds, fileCount * 2);
+            parentPathRows = Arrays.copyOf(parentPathRows, fileCount * 2);
+            names = Arrays.copyOf(names, fileCount * 2);
+            parentPaths = Arrays.copyOf(parentPaths, fileCount * 2);
+        }
+        int row = fileCount++;
+        objIds[row] = objId;
+        names[row] = share(name);
+        parentPaths[row] = share(parentPath);
+        rowsByName.computeIfAbsent(toKey(name), Rows::new).add(row);
+        Rows parentRows = rowsByParentPath.computeIfAbsent(toKey(parentPath), Rows::new);
+        parentRows.add(row);
+        parentPathRows[row] = parentRows;
+    }
+
+    /**
+     * Gets the copy of a name or parent path that the files having it share,
+     * while the index is being built.
+     */
+    private String share(String value) {
+        if (value == null) {
+            return "";
+        }
+        String shared = sharedValues.putIfAbsent(value, value);
+        return (shared == null) ? value : shared;
+    }
+
+    private List<Rows> findNameRows(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        if (name.indexOf('%') < 0 && name.indexOf('_') < 0) {
+            Rows rows = rowsByName.get(name);
+            return (rows == null) ? Collections.emptyList() : Collections.singletonList(rows);
+        }
+        Pattern pattern = likeToPattern(name);
+        List<Rows> matches = new ArrayList<>();
+        for (Rows rows : rowsByName.values()) {
+            if (pattern.matcher(rows.key).matches()) {
+                matches.add(rows);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Loads files by object id, FILE_FETCH_BATCH_SIZE ids per query.
+     *
+     * @param ids The object ids.
+     *
+     * @return The files, in object id order.
+     *
+     * @throws TskCoreException If the files can not be loaded.
+     */
+    private List<AbstractFile> loadFiles(List<Long> ids) throws TskCoreException {
+        List<AbstractFile> files = new ArrayList<>(ids.size());
+        for (int start = 0; start < ids.size(); start += FILE_FETCH_BATCH_SIZE) {
+            String idList = ids.subList(start, Math.min(start + FILE_FETCH_BATCH_SIZE, ids.size())).stream()
+                    .map(String::valueOf)
+                    .collect(Collectors.joining(","));
+            files.addAll(caseDb.findAllFilesWhere("obj_id IN (" + idList + ")")); //NON-NLS
+        }
+        files.sort(Comparator.comparingLong(AbstractFile::getId));
+        return files;
+    }
+
+    private static String toKey(String value) {
+        return (value == null) ? "" : value.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Puts a parent path in the form the case database stores it in, starting
+     * and ending with a slash, as FileManager.findFilesExactNameExactPath
+     * does. The case is left as it is.
+     */
+    private static String normalizeParentPath(String parentPath) {
+        String path = parentPath;
+        if (!path.startsWith("/")) {
+            path = "/" + path;
+        }
+        if (!path.endsWith("/")) {
+            path = path + "/";
+        }
+        return path;
+    }
+
+    /**
+     * Turns a SQL LIKE pattern into a regular expression.
+     */
+    private static Pattern likeToPattern(String likePattern) {
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for (char c : likePattern.toCharArray()) {
+            if (c == '%' || c == '_') {
+                if (literal.length() > 0) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append((c == '%') ? ".*" : ".");
+            } else {
+                literal.append(c);
+            }
+        }
+        if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    /**
+     * The rows of the files that share a name or a parent path.
+     */
+    private static final class Rows {
+
+        private final String key;
+        private int[] rows = new int[1];
+        private int size;
+
+        private Rows(String key) {
+            this.key = key;
+        }
+
+        private void add(int row) {
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+            }
+            rows[size++] = row;
+        }
+    }
+}
@@ -37,8 +37,8 @@ import java.net.URLDecoder;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.logging.Level;
@@ -47,7 +47,6 @@ import org.openide.util.NbBundle;
 import org.openide.util.NbBundle.Messages;
 import org.sleuthkit.autopsy.casemodule.Case;
 import org.sleuthkit.autopsy.casemodule.NoCurrentCaseException;
-import org.sleuthkit.autopsy.casemodule.services.FileManager;
 import org.sleuthkit.autopsy.coreutils.Logger;
 import org.sleuthkit.autopsy.coreutils.NetworkUtils;
 import org.sleuthkit.autopsy.datamodel.ContentUtils;
@@ -95,6 +94,8 @@ class Firefox extends Extract {
             + " AND moz_anno_attributes.name='downloads/destinationFileURI'"; //NON-NLS
     private static final String FORMHISTORY_QUERY = "SELECT fieldname, value FROM moz_formhistory";
     private static final String FORMHISTORY_QUERY_V64 = "SELECT fieldname, value, timesUsed, firstUsed, lastUsed FROM moz_formhistory";
+    private static final List<String> PROFILE_FILE_NAMES = Arrays.asList("places.sqlite", "cookies.sqlite", //NON-NLS
+            "downloads.sqlite", "formhistory.sqlite", "autofill-profiles.json"); //NON-NLS
     private Content dataSource;
     private final IngestJobContext context;
 
@@ -109,55 +110,91 @@ class Firefox extends Extract {
         dataFound = false;
         long ingestJobId = context.getJobId();
 
+        processProfiles(findProfileFolders(), profileFolder -> processProfile(profileFolder, progressBar, ingestJobId));
+    }
+
+    /**
+     * Finds the Firefox profile folders, the folders holding any of the files
+     * the extractor parses. The files of each folder are parsed separately, so
+     * the profiles of the many user accounts of a shared machine can be parsed
+     * at the same time.
+     *
+     * @return The parent paths of the profiles.
+     */
+    private List<String> findProfileFolders() {
+        Set<String> folders = new LinkedHashSet<>();
+        for (String fileName : PROFILE_FILE_NAMES) {
+            try {
+                for (AbstractFile file : findFiles(dataSource, fileName, "Firefox")) { //NON-NLS
+                    folders.add(file.getParentPath());
+                }
+            } catch (TskCoreException ex) {
+                String msg = NbBundle.getMessage(this.getClass(), "Firefox.getHistory.errMsg.errFetchingFiles");
+                logger.log(Level.WARNING, String.format("Error finding the Firefox %s files", fileName), ex); //NON-NLS
+                this.addErrorMessage(this.getDisplayName() + ": " + msg);
+            }
+        }
+        return new ArrayList<>(folders);
+    }
+
+    /**
+     * Parses the files of one profile folder, posting the artifacts of each
+     * kind of file as it is done.
+     *
+     * @param profileFolder The parent path of the files of the profile.
+     * @param progressBar   The progress of the ingest module.
+     * @param ingestJobId   The ingest job id.
+     */
+    private void processProfile(String profileFolder, DataSourceIngestModuleProgress progressBar, long ingestJobId) {
         progressBar.progress(Bundle.Progress_Message_Firefox_History());
-        this.getHistory(context.getJobId());
+        this.getHistory(profileFolder, ingestJobId);
 
         if (context.dataSourceIngestIsCancelled()) {
             return;
         }
 
         progressBar.progress(Bundle.Progress_Message_Firefox_Bookmarks());
-        this.getBookmark(ingestJobId);
+        this.getBookmark(profileFolder, ingestJobId);
 
         if (context.dataSourceIngestIsCancelled()) {
             return;
         }
 
         progressBar.progress(Bundle.Progress_Message_Firefox_Downloads());
-        this.getDownload(ingestJobId);
+        this.getDownload(profileFolder, ingestJobId);
 
         if (context.dataSourceIngestIsCancelled()) {
             return;
         }
 
         progressBar.progress(Bundle.Progress_Message_Firefox_Cookies());
-        this.getCookie(ingestJobId);
+        this.getCookie(profileFolder, ingestJobId);
 
         if (context.dataSourceIngestIsCancelled()) {
             return;
         }
 
         progressBar.progress(Bundle.Progress_Message_Firefox_FormHistory());
-        this.getFormsHistory(ingestJobId);
+        this.getFormsHistory(profileFolder, ingestJobId);
 
         if (context.dataSourceIngestIsCancelled()) {
             return;
         }
 
         progressBar.progress(Bundle.Progress_Message_Firefox_AutoFill());
-        this.getAutofillProfiles(ingestJobId);
+        this.getAutofillProfiles(profileFolder, ingestJobId);
     }
 
     /**
      * Get Firefox history.
      *
-     * @param ingestJobId The ingest job id.
+     * @param profileFolder The parent path of the files of the profile.
+     * @param ingestJobId   The ingest job id.
      */
-    private void getHistory(long ingestJobId) {
-        FileManager fileManager = currentCase.getServices().getFileManager();
+    private void getHistory(String profileFolder, long ingestJobId) {
         List<AbstractFile> historyFiles;
         try {
-            historyFiles = fileManager.findFiles(dataSource, "places.sqlite", "Firefox"); //NON-NLS
+            historyFiles = findFilesInFolder(dataSource, "places.sqlite", "Firefox", profileFolder); //NON-NLS
         } catch (TskCoreException ex) {
             String msg = NbBundle.getMessage(this.getClass(), "Firefox.getHistory.errMsg.errFetchingFiles");
             logger.log(Level.WARNING, msg);
@@ -185,9 +222,9 @@ class Firefox extends Extract {
             }
 
             String fileName = historyFile.getName();
-            String temps = RAImageIngestModule.getRATempPath(currentCase, "firefox", ingestJobId) + File.separator + fileName + j + ".db"; //NON-NLS
+            String temps = getTempCopyPath(historyFile).toString();
             try {
-                ContentUtils.writeToFile(historyFile, new File(temps), context::dataSourceIngestIsCancelled);
+                writeToTempCache(historyFile);
             } catch (ReadContentInputStreamException ex) {
                 logger.log(Level.WARNING, String.format("Error reading Firefox web history artifacts file '%s' (id=%d).",
                         fileName, historyFile.getId()), ex); //NON-NLS
@@ -203,53 +240,50 @@ class Firefox extends Extract {
                                 fileName));
                 continue;
             }
-            File dbFile = new File(temps);
             if (context.dataSourceIngestIsCancelled()) {
-                dbFile.delete();
                 break;
             }
-            List<HashMap<String, Object>> tempList = this.querySQLiteDb(temps, HISTORY_QUERY);
-            logger.log(Level.INFO, "{0} - Now getting history from {1} with {2} artifacts identified.", new Object[]{getDisplayName(), temps, tempList.size()}); //NON-NLS
-            for (HashMap<String, Object> result : tempList) {
-
-                if (context.dataSourceIngestIsCancelled()) {
-                    return;
-                }
-
-                String url = result.get("url").toString();
-
-                Collection<BlackboardAttribute> bbattributes = new ArrayList<>();
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_URL,
-                        RecentActivityExtracterModuleFactory.getModuleName(),
-                        ((url != null) ? url : ""))); //NON-NLS
-                //bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_URL_DECODED.getTypeID(), "RecentActivity", ((result.get("url").toString() != null) ? EscapeUtil.decodeURL(result.get("url").toString()) : "")));
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DATETIME_ACCESSED,
-                        RecentActivityExtracterModuleFactory.getModuleName(),
-                        (Long.valueOf(result.get("visit_date").toString())))); //NON-NLS
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_REFERRER,
-                        RecentActivityExtracterModuleFactory.getModuleName(),
-                        ((result.get("ref").toString() != null) ? result.get("ref").toString() : ""))); //NON-NLS
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_TITLE,
-                        RecentActivityExtracterModuleFactory.getModuleName(),
-                        ((result.get("title").toString() != null) ? result.get("title").toString() : ""))); //NON-NLS
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_PROG_NAME,
-                        RecentActivityExtracterModuleFactory.getModuleName(),
-                        NbBundle.getMessage(this.getClass(), "Firefox.moduleName")));
-                String domain = extractDomain(url);
-                if (domain != null && domain.isEmpty() == false) {
-                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DOMAIN,
-                            RecentActivityExtracterModuleFactory.getModuleName(), domain)); //NON-NLS
+            int rowCount = this.querySQLiteDb(temps, HISTORY_QUERY, columns -> {
+                int urlColumn = columns.getColumnIndex("url"); //NON-NLS
+                int visitDateColumn = columns.getColumnIndex("visit_date"); //NON-NLS
+                int refColumn = columns.getColumnIndex("ref"); //NON-NLS
+                int titleColumn = columns.getColumnIndex("title"); //NON-NLS
+                return result -> {
+                    String url = result.getString(urlColumn);
+
+                    Collection<BlackboardAttribute> bbattributes = new ArrayList<>();
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_URL,
+                            RecentActivityExtracterModuleFactory.getModuleName(),
+                            url)); //NON-NLS
+                    //bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_URL_DECODED.getTypeID(), "RecentActivity", ((result.get("url").toString() != null) ? EscapeUtil.decodeURL(result.get("url").toString()) : "")));
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DATETIME_ACCESSED,
+                            RecentActivityExtracterModuleFactory.getModuleName(),
+                            result.getLong(visitDateColumn))); //NON-NLS
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_REFERRER,
+                            RecentActivityExtracterModuleFactory.getModuleName(),
+                            result.getString(refColumn))); //NON-NLS
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_TITLE,
+                            RecentActivityExtracterModuleFactory.getModuleName(),
+                            result.getString(titleColumn))); //NON-NLS
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_PROG_NAME,
+                            RecentActivityExtracterModuleFactory.getModuleName(),
+                            NbBundle.getMessage(this.getClass(), "Firefox.moduleName")));
+                    String domain = extractDomain(url);
+                    if (domain != null && domain.isEmpty() == false) {
+                        bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DOMAIN,
+                                RecentActivityExtracterModuleFactory.getModuleName(), domain)); //NON-NLS
 
-                }
+                    }
 
-                try {
-                    bbartifacts.add(createArtifactWithAttributes(BlackboardArtifact.Type.TSK_WEB_HISTORY, historyFile, bbattributes));
-                } catch (TskCoreException ex) {
-                    logger.log(Level.SEVERE, String.format("Failed to create TSK_WEB_HISTORY artifact for file %d", historyFile.getId()), ex);
-                }
-            }
+                    try {
+                        bbartifacts.add(createArtifactWithAttributes(BlackboardArtifact.Type.TSK_WEB_HISTORY, historyFile, bbattributes));
+                    } catch (TskCoreException ex) {
+                        logger.log(Level.SEVERE, String.format("Failed to create TSK_WEB_HISTORY artifact for file %d", historyFile.getId()), ex);
+                    }
+                };
+            });
+            logger.log(Level.INFO, "{0} - Now getting history from {1} with {2} artifacts identified.", new Object[]{getDisplayName(), temps, rowCount}); //NON-NLS
             ++j;
-            dbFile.delete();
         }
 
         if (!context.dataSourceIngestIsCancelled()) {
@@ -260,14 +294,14 @@ class Firefox extends Extract {
     /**
      * Queries for bookmark files and adds artifacts
      *
-     * @param ingestJobId The ingest job id.
+     * @param profileFolder The parent path of the files of the profile.
+     * @param ingestJobId   The ingest job id.
      */
-    private void getBookmark(long ingestJobId) {
+    private void getBookmark(String profileFolder, long ingestJobId) {
 
-        FileManager fileManager = currentCase.getServices().getFileManager();
         List<AbstractFile> bookmarkFiles;
         try {
-            bookmarkFiles = fileManager.findFiles(dataSource, "places.sqlite", "Firefox"); //NON-NLS
+            bookmarkFiles = findFilesInFolder(dataSource, "places.sqlite", "Firefox", profileFolder); //NON-NLS
         } catch (TskCoreException ex) {
             String msg = NbBundle.getMessage(this.getClass(), "Firefox.getBookmark.errMsg.errFetchFiles");
             logger.log(Level.WARNING, msg);
@@ -288,9 +322,9 @@ class Firefox extends Extract {
                 continue;
             }
             String fileName = bookmarkFile.getName();
-            String temps = RAImageIngestModule.getRATempPath(currentCase, "firefox", ingestJobId) + File.separator + fileName + j + ".db"; //NON-NLS
+            String temps = getTempCopyPath(bookmarkFile).toString();
             try {
-                ContentUtils.writeToFile(bookmarkFile, new File(temps), context::dataSourceIngestIsCancelled);
+                writeToTempCache(bookmarkFile);
             } catch (ReadContentInputStreamException ex) {
                 logger.log(Level.WARNING, String.format("Error reading Firefox bookmark artifacts file '%s' (id=%d).",
                         fileName, bookmarkFile.getId()), ex); //NON-NLS
@@ -305,50 +339,47 @@ class Firefox extends Extract {
                         this.getDisplayName(), fileName));
                 continue;
             }
-            File dbFile = new File(temps);
             if (context.dataSourceIngestIsCancelled()) {
-                dbFile.delete();
                 break;
             }
-            List<HashMap<String, Object>> tempList = this.querySQLiteDb(temps, BOOKMARK_QUERY);
-            logger.log(Level.INFO, "{0} - Now getting bookmarks from {1} with {2} artifacts identified.", new Object[]{getDisplayName(), temps, tempList.size()}); //NON-NLS
-            for (HashMap<String, Object> result : tempList) {
-
-                if (context.dataSourceIngestIsCancelled()) {
-                    break;
-                }
-
-                String url = result.get("url").toString();
-
-                Collection<BlackboardAttribute> bbattributes = new ArrayList<>();
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_URL,
-                        RecentActivityExtracterModuleFactory.getModuleName(),
-                        ((url != null) ? url : ""))); //NON-NLS
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_TITLE,
-                        RecentActivityExtracterModuleFactory.getModuleName(),
-                        ((result.get("title").toString() != null) ? result.get("title").toString() : ""))); //NON-NLS
-                if (Long.valueOf(result.get("dateAdded").toString()) > 0) { //NON-NLS
-                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DATETIME_CREATED,
+            int rowCount = this.querySQLiteDb(temps, BOOKMARK_QUERY, columns -> {
+                int urlColumn = columns.getColumnIndex("url"); //NON-NLS
+                int titleColumn = columns.getColumnIndex("title"); //NON-NLS
+                int dateAddedColumn = columns.getColumnIndex("dateAdded"); //NON-NLS
+                return result -> {
+                    String url = result.getString(urlColumn);
+
+                    Collection<BlackboardAttribute> bbattributes = new ArrayList<>();
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_URL,
                             RecentActivityExtracterModuleFactory.getModuleName(),
-                            (Long.valueOf(result.get("dateAdded").toString())))); //NON-NLS
-                }
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_PROG_NAME,
-                        RecentActivityExtracterModuleFactory.getModuleName(),
-                        NbBundle.getMessage(this.getClass(), "Firefox.moduleName")));
-                String domain = extractDomain(url);
-                if (domain != null && domain.isEmpty() == false) {
-                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DOMAIN,
-                            RecentActivityExtracterModuleFactory.getModuleName(), domain)); //NON-NLS
-                }
+                            url)); //NON-NLS
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_TITLE,
+                            RecentActivityExtracterModuleFactory.getModuleName(),
+                            result.getString(titleColumn))); //NON-NLS
+                    long dateAdded = result.getLong(dateAddedColumn); //NON-NLS
+                    if (dateAdded > 0) {
+                        bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DATETIME_CREATED,
+                                RecentActivityExtracterModuleFactory.getModuleName(),
+                                dateAdded)); //NON-NLS
+                    }
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_PROG_NAME,
+                            RecentActivityExtracterModuleFactory.getModuleName(),
+                            NbBundle.getMessage(this.getClass(), "Firefox.moduleName")));
+                    String domain = extractDomain(url);
+                    if (domain != null && domain.isEmpty() == false) {
+                        bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DOMAIN,
+                                RecentActivityExtracterModuleFactory.getModuleName(), domain)); //NON-NLS
+                    }
 
-                try {
-                    bbartifacts.add(createArtifactWithAttributes(BlackboardArtifact.Type.TSK_WEB_BOOKMARK, bookmarkFile, bbattributes));
-                } catch (TskCoreException ex) {
-                    logger.log(Level.SEVERE, String.format("Failed to create TSK_WEB_BOOKMARK artifact for file %d", bookmarkFile.getId()), ex);
-                }
-            }
+                    try {
+                        bbartifacts.add(createArtifactWithAttributes(BlackboardArtifact.Type.TSK_WEB_BOOKMARK, bookmarkFile, bbattributes));
+                    } catch (TskCoreException ex) {
+                        logger.log(Level.SEVERE, String.format("Failed to create TSK_WEB_BOOKMARK artifact for file %d", bookmarkFile.getId()), ex);
+                    }
+                };
+            });
+            logger.log(Level.INFO, "{0} - Now getting bookmarks from {1} with {2} artifacts identified.", new Object[]{getDisplayName(), temps, rowCount}); //NON-NLS
             ++j;
-            dbFile.delete();
         }
 
         if (!context.dataSourceIngestIsCancelled()) {
@@ -359,13 +390,13 @@ class Firefox extends Extract {
     /**
      * Queries for cookies file and adds artifacts
      *
-     * @param ingestJobId The ingest job id.
+     * @param profileFolder The parent path of the files of the profile.
+     * @param ingestJobId   The ingest job id.
      */
-    private void getCookie(long ingestJobId) {
-        FileManager fileManager = currentCase.getServices().getFileManager();
+    private void getCookie(String profileFolder, long ingestJobId) {
         List<AbstractFile> cookiesFiles;
         try {
-            cookiesFiles = fileManager.findFiles(dataSource, "cookies.sqlite", "Firefox"); //NON-NLS
+            cookiesFiles = findFilesInFolder(dataSource, "cookies.sqlite", "Firefox", profileFolder); //NON-NLS
         } catch (TskCoreException ex) {
             String msg = NbBundle.getMessage(this.getClass(), "Firefox.getCookie.errMsg.errFetchFile");
             logger.log(Level.WARNING, msg);
@@ -390,9 +421,9 @@ class Firefox extends Extract {
                 continue;
             }
             String fileName = cookiesFile.getName();
-            String temps = RAImageIngestModule.getRATempPath(currentCase, "firefox", ingestJobId) + File.separator + fileName + j + ".db"; //NON-NLS
+            String temps = getTempCopyPath(cookiesFile).toString();
             try {
-                ContentUtils.writeToFile(cookiesFile, new File(temps), context::dataSourceIngestIsCancelled);
+                writeToTempCache(cookiesFile);
             } catch (ReadContentInputStreamException ex) {
                 logger.log(Level.WARNING, String.format("Error reading Firefox cookie artifacts file '%s' (id=%d).",
                         fileName, cookiesFile.getId()), ex); //NON-NLS
@@ -408,9 +439,7 @@ class Firefox extends Extract {
                                 fileName));
                 continue;
             }
-            File dbFile = new File(temps);
             if (context.dataSourceIngestIsCancelled()) {
-                dbFile.delete();
                 break;
             }
             boolean checkColumn = Util.checkColumn("creationTime", "moz_cookies", temps); //NON-NLS
@@ -421,56 +450,55 @@ class Firefox extends Extract {
                 query = COOKIE_QUERY_V3;
             }
 
-            List<HashMap<String, Object>> tempList = this.querySQLiteDb(temps, query);
-            logger.log(Level.INFO, "{0} - Now getting cookies from {1} with {2} artifacts identified.", new Object[]{getDisplayName(), temps, tempList.size()}); //NON-NLS
-            for (HashMap<String, Object> result : tempList) {
-
-                if (context.dataSourceIngestIsCancelled()) {
-                    break;
-                }
+            int rowCount = this.querySQLiteDb(temps, query, columns -> {
+                int hostColumn = columns.getColumnIndex("host"); //NON-NLS
+                int lastAccessedColumn = columns.getColumnIndex("lastAccessed"); //NON-NLS
+                int nameColumn = columns.getColumnIndex("name"); //NON-NLS
+                int valueColumn = columns.getColumnIndex("value"); //NON-NLS
+                int creationTimeColumn = columns.getColumnIndex("creationTime"); //NON-NLS
+                return result -> {
+                    String host = result.getString(hostColumn);
+
+                    Collection<BlackboardAttribute> bbattributes = new ArrayList<>();
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_URL,
+                            RecentActivityExtracterModuleFactory.getModuleName(),
+                            host)); //NON-NLS
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DATETIME_ACCESSED,
+                            RecentActivityExtracterModuleFactory.getModuleName(),
+                            result.getLong(lastAccessedColumn))); //NON-NLS
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_NAME,
+                            RecentActivityExtracterModuleFactory.getModuleName(),
+                            result.getString(nameColumn))); //NON-NLS
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_VALUE,
+                            RecentActivityExtracterModuleFactory.getModuleName(),
+                            result.getString(valueColumn))); //NON-NLS
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_PROG_NAME,
+                            RecentActivityExtracterModuleFactory.getModuleName(),
+                            NbBundle.getMessage(this.getClass(), "Firefox.moduleName")));
 
-                String host = result.get("host").toString();
-
-                Collection<BlackboardAttribute> bbattributes = new ArrayList<>();
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_URL,
-                        RecentActivityExtracterModuleFactory.getModuleName(),
-                        ((host != null) ? host : ""))); //NON-NLS
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DATETIME_ACCESSED,
-                        RecentActivityExtracterModuleFactory.getModuleName(),
-                        (Long.valueOf(result.get("lastAccessed").toString())))); //NON-NLS
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_NAME,
-                        RecentActivityExtracterModuleFactory.getModuleName(),
-                        ((result.get("name").toString() != null) ? result.get("name").toString() : ""))); //NON-NLS
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_VALUE,
-                        RecentActivityExtracterModuleFactory.getModuleName(),
-                        ((result.get("value").toString() != null) ? result.get("value").toString() : ""))); //NON-NLS
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_PROG_NAME,
-                        RecentActivityExtracterModuleFactory.getModuleName(),
-                        NbBundle.getMessage(this.getClass(), "Firefox.moduleName")));
-
-                if (checkColumn == true) {
-                    String value = result.get("creationTime").toString();
-                    if(value != null && !value.isEmpty()) {
-                        bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DATETIME_CREATED,
-                                RecentActivityExtracterModuleFactory.getModuleName(),
-                                (Long.valueOf(result.get("creationTime").toString())))); //NON-NLS
+                    if (checkColumn == true) {
+                        if (!result.isNull(creationTimeColumn)) {
+                            bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DATETIME_CREATED,
+                                    RecentActivityExtracterModuleFactory.getModuleName(),
+                                    result.getLong(creationTimeColumn))); //NON-NLS
+                        }
+                    }
+                    String domain = extractDomain(host);
+                    if (domain != null && domain.isEmpty() == false) {
+                        domain = domain.replaceFirst("^\\.+(?!$)", "");
+                        bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DOMAIN,
+                                RecentActivityExtracterModuleFactory.getModuleName(), domain));
                     }
-                }
-                String domain = extractDomain(host);
-                if (domain != null && domain.isEmpty() == false) {
-                    domain = domain.replaceFirst("^\\.+(?!$)", "");
-                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DOMAIN,
-                            RecentActivityExtracterModuleFactory.getModuleName(), domain));
-                }
 
-                try {
-                    bbartifacts.add(createArtifactWithAttributes(BlackboardArtifact.Type.TSK_WEB_COOKIE, cookiesFile, bbattributes));
-                } catch (TskCoreException ex) {
-                    logger.log(Level.SEVERE, String.format("Failed to create TSK_WEB_COOKIE artifact for file %d", cookiesFile.getId()), ex);
-                }
-            }
+                    try {
+                        bbartifacts.add(createArtifactWithAttributes(BlackboardArtifact.Type.TSK_WEB_COOKIE, cookiesFile, bbattributes));
+                    } catch (TskCoreException ex) {
+                        logger.log(Level.SEVERE, String.format("Failed to create TSK_WEB_COOKIE artifact for file %d", cookiesFile.getId()), ex);
+                    }
+                };
+            });
+            logger.log(Level.INFO, "{0} - Now getting cookies from {1} with {2} artifacts identified.", new Object[]{getDisplayName(), temps, rowCount}); //NON-NLS
             ++j;
-            dbFile.delete();
         }
 
         if (!context.dataSourceIngestIsCancelled()) {
@@ -481,11 +509,12 @@ class Firefox extends Extract {
     /**
      * Queries for downloads files and adds artifacts
      *
-     * @param ingestJobId The ingest job id.
+     * @param profileFolder The parent path of the files of the profile.
+     * @param ingestJobId   The ingest job id.
      */
-    private void getDownload(long ingestJobId) {
-        getDownloadPreVersion24(ingestJobId);
-        getDownloadVersion24(ingestJobId);
+    private void getDownload(String profileFolder, long ingestJobId) {
+        getDownloadPreVersion24(profileFolder, ingestJobId);
+        getDownloadVersion24(profileFolder, ingestJobId);
     }
 
     /**
@@ -493,14 +522,14 @@ class Firefox extends Extract {
      *
      * Downloads were stored in a separate downloads database.
      *
-     * @param ingestJobId The ingest job id.
+     * @param profileFolder The parent path of the files of the profile.
+     * @param ingestJobId   The ingest job id.
      */
-    private void getDownloadPreVersion24(long ingestJobId) {
+    private void getDownloadPreVersion24(String profileFolder, long ingestJobId) {
 
-        FileManager fileManager = currentCase.getServices().getFileManager();
         List<AbstractFile> downloadsFiles;
         try {
-            downloadsFiles = fileManager.findFiles(dataSource, "downloads.sqlite", "Firefox"); //NON-NLS
+            downloadsFiles = findFilesInFolder(dataSource, "downloads.sqlite", "Firefox", profileFolder); //NON-NLS
         } catch (TskCoreException ex) {
             String msg = NbBundle.getMessage(this.getClass(), "Firefox.getDlPre24.errMsg.errFetchFiles");
             logger.log(Level.WARNING, msg);
@@ -521,10 +550,10 @@ class Firefox extends Extract {
                 continue;
             }
             String fileName = downloadsFile.getName();
-            String temps = RAImageIngestModule.getRATempPath(currentCase, "firefox", ingestJobId) + File.separator + fileName + j + ".db"; //NON-NLS
-            int errors = 0;
+            String temps = getTempCopyPath(downloadsFile).toString();
+            int[] errors = {0};
             try {
-                ContentUtils.writeToFile(downloadsFile, new File(temps), context::dataSourceIngestIsCancelled);
+                writeToTempCache(downloadsFile);
             } catch (ReadContentInputStreamException ex) {
                 logger.log(Level.WARNING, String.format("Error reading Firefox download artifacts file '%s' (id=%d).",
                         fileName, downloadsFile.getId()), ex); //NON-NLS
@@ -539,84 +568,80 @@ class Firefox extends Extract {
                         this.getDisplayName(), fileName));
                 continue;
             }
-            File dbFile = new File(temps);
             if (context.dataSourceIngestIsCancelled()) {
-                dbFile.delete();
                 break;
             }
 
-            List<HashMap<String, Object>> tempList = this.querySQLiteDb(temps, DOWNLOAD_QUERY);
-            logger.log(Level.INFO, "{0}- Now getting downloads from {1} with {2} artifacts identified.", new Object[]{getDisplayName(), temps, tempList.size()}); //NON-NLS
-            for (HashMap<String, Object> result : tempList) {
-
-                if (context.dataSourceIngestIsCancelled()) {
-                    break;
-                }
-
-                String source = result.get("source").toString();
-
-                Collection<BlackboardAttribute> bbattributes = new ArrayList<>();
+            int rowCount = this.querySQLiteDb(temps, DOWNLOAD_QUERY, columns -> {
+                int sourceColumn = columns.getColumnIndex("source"); //NON-NLS
+                int startTimeColumn = columns.getColumnIndex("startTime"); //NON-NLS
+                int targetColumn = columns.getColumnIndex("target"); //NON-NLS
+                return result -> {
+                    String source = result.getString(sourceColumn);
 
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_URL,
-                        RecentActivityExtracterModuleFactory.getModuleName(),
-                        source)); //NON-NLS
-                //bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_URL_DECODED.getTypeID(), "RecentActivity", ((result.get("source").toString() != null) ? EscapeUtil.decodeURL(result.get("source").toString()) : "")));
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DATETIME_ACCESSED,
-                        RecentActivityExtracterModuleFactory.getModuleName(),
-                        (Long.valueOf(result.get("startTime").toString())))); //NON-NLS
+                    Collection<BlackboardAttribute> bbattributes = new ArrayList<>();
 
-                String target = result.get("target").toString(); //NON-NLS
-                String downloadedFilePath = "";
-                if (target != null) {
-                    try {
-                        downloadedFilePath = URLDecoder.decode(target.replaceAll("file:///", ""), "UTF-8"); //NON-NLS
-                        bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_PATH,
-                                RecentActivityExtracterModuleFactory.getModuleName(),
-                                downloadedFilePath));
-                        long pathID = Util.findID(dataSource, downloadedFilePath);
-                        if (pathID != -1) {
-                            bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_PATH_ID,
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_URL,
+                            RecentActivityExtracterModuleFactory.getModuleName(),
+                            source)); //NON-NLS
+                    //bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_URL_DECODED.getTypeID(), "RecentActivity", ((result.get("source").toString() != null) ? EscapeUtil.decodeURL(result.get("source").toString()) : "")));
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DATETIME_ACCESSED,
+                            RecentActivityExtracterModuleFactory.getModuleName(),
+                            result.getLong(startTimeColumn))); //NON-NLS
+
+                    String target = result.getString(targetColumn); //NON-NLS
+                    String downloadedFilePath = "";
+                    if (target != null) {
+                        try {
+                            downloadedFilePath = URLDecoder.decode(target.replaceAll("file:///", ""), "UTF-8"); //NON-NLS
+                            bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_PATH,
                                     RecentActivityExtracterModuleFactory.getModuleName(),
-                                    pathID));
+                                    downloadedFilePath));
+                            long pathID = findFileId(dataSource, downloadedFilePath);
+                            if (pathID != -1) {
+                                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_PATH_ID,
+                                        RecentActivityExtracterModuleFactory.getModuleName(),
+                                        pathID));
+                            }
+                        } catch (UnsupportedEncodingException ex) {
+                            logger.log(Level.SEVERE, "Error decoding Firefox download URL in " + temps, ex); //NON-NLS
+                            errors[0]++;
                         }
-                    } catch (UnsupportedEncodingException ex) {
-                        logger.log(Level.SEVERE, "Error decoding Firefox download URL in " + temps, ex); //NON-NLS
-                        errors++;
                     }
-                }
 
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_PROG_NAME,
-                        RecentActivityExtracterModuleFactory.getModuleName(),
-                        NbBundle.getMessage(this.getClass(), "Firefox.moduleName")));
-                String domain = extractDomain(source);
-                if (domain != null && domain.isEmpty() == false) {
-                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DOMAIN,
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_PROG_NAME,
                             RecentActivityExtracterModuleFactory.getModuleName(),
-                            domain)); //NON-NLS
-                }
-                try {
-                    BlackboardArtifact webDownloadArtifact = createArtifactWithAttributes(BlackboardArtifact.Type.TSK_WEB_DOWNLOAD, downloadsFile, bbattributes);
-                    bbartifacts.add(webDownloadArtifact);
-
-                    // find the downloaded file and create a TSK_ASSOCIATED_OBJECT for it, associating it with the TSK_WEB_DOWNLOAD artifact.
-                    for (AbstractFile downloadedFile : currentCase.getSleuthkitCase().getFileManager().findFilesExactNameExactPath(dataSource,
-                            FilenameUtils.getName(downloadedFilePath), FilenameUtils.getPath(downloadedFilePath))) {
-                        bbartifacts.add(createAssociatedArtifact(downloadedFile, webDownloadArtifact));
-                        break;
+                            NbBundle.getMessage(this.getClass(), "Firefox.moduleName")));
+                    String domain = extractDomain(source);
+                    if (domain != null && domain.isEmpty() == false) {
+                        bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DOMAIN,
+                                RecentActivityExtracterModuleFactory.getModuleName(),
+                                domain)); //NON-NLS
+                    }
+                    try {
+                        BlackboardArtifact webDownloadArtifact = createArtifactWithAttributes(BlackboardArtifact.Type.TSK_WEB_DOWNLOAD, downloadsFile, bbattributes);
+                        bbartifacts.add(webDownloadArtifact);
+
+                        // find the downloaded file and create a TSK_ASSOCIATED_OBJECT for it, associating it with the TSK_WEB_DOWNLOAD artifact.
+                        for (AbstractFile downloadedFile : findFilesExactNameExactPath(dataSource,
+                                FilenameUtils.getName(downloadedFilePath), FilenameUtils.getPath(downloadedFilePath))) {
+                            bbartifacts.add(createAssociatedArtifact(downloadedFile, webDownloadArtifact));
+                            break;
+                        }
+                    } catch (TskCoreException ex) {
+                        logger.log(Level.SEVERE, String.format("Error creating TSK_WEB_DOWNLOAD or TSK_ASSOCIATED_ARTIFACT artifact for file '%d'",
+                                downloadsFile.getId()), ex); //NON-NLS
                     }
-                } catch (TskCoreException ex) {
-                    logger.log(Level.SEVERE, String.format("Error creating TSK_WEB_DOWNLOAD or TSK_ASSOCIATED_ARTIFACT artifact for file '%d'",
-                            downloadsFile.getId()), ex); //NON-NLS
-                }
 
-            }
-            if (errors > 0) {
+                };
+            });
+            logger.log(Level.INFO, "{0}- Now getting downloads from {1} with {2} artifacts identified.", new Object[]{getDisplayName(), temps, rowCount}); //NON-NLS
+            if (errors[0] > 0) {
                 this.addErrorMessage(
                         NbBundle.getMessage(this.getClass(), "Firefox.getDlPre24.errMsg.errParsingArtifacts",
-                                this.getDisplayName(), errors));
+                                this.getDisplayName(), errors[0]));
             }
             j++;
-            dbFile.delete();
         }
 
         if (!context.dataSourceIngestIsCancelled()) {
@@ -629,13 +654,13 @@ class Firefox extends Extract {
      *
      * Downloads are stored in the places database.
      *
-     * @param ingestJobId The ingest job id.
+     * @param profileFolder The parent path of the files of the profile.
+     * @param ingestJobId   The ingest job id.
      */
-    private void getDownloadVersion24(long ingestJobId) {
-        FileManager fileManager = currentCase.getServices().getFileManager();
+    private void getDownloadVersion24(String profileFolder, long ingestJobId) {
         List<AbstractFile> downloadsFiles;
         try {
-            downloadsFiles = fileManager.findFiles(dataSource, "places.sqlite", "Firefox"); //NON-NLS
+            downloadsFiles = findFilesInFolder(dataSource, "places.sqlite", "Firefox", profileFolder); //NON-NLS
         } catch (TskCoreException ex) {
             String msg = NbBundle.getMessage(this.getClass(), "Firefox.getDlV24.errMsg.errFetchFiles");
             logger.log(Level.WARNING, msg);
@@ -656,10 +681,10 @@ class Firefox extends Extract {
                 continue;
             }
             String fileName = downloadsFile.getName();
-            String temps = RAImageIngestModule.getRATempPath(currentCase, "firefox", ingestJobId) + File.separator + fileName + "-downloads" + j + ".db"; //NON-NLS
-            int errors = 0;
+            String temps = getTempCopyPath(downloadsFile).toString();
+            int[] errors = {0};
             try {
-                ContentUtils.writeToFile(downloadsFile, new File(temps), context::dataSourceIngestIsCancelled);
+                writeToTempCache(downloadsFile);
             } catch (ReadContentInputStreamException ex) {
                 logger.log(Level.WARNING, String.format("Error reading Firefox download artifacts file '%s' (id=%d).",
                         fileName, downloadsFile.getId()), ex); //NON-NLS
@@ -675,83 +700,78 @@ class Firefox extends Extract {
                                 fileName));
                 continue;
             }
-            File dbFile = new File(temps);
             if (context.dataSourceIngestIsCancelled()) {
-                dbFile.delete();
                 break;
             }
 
-            List<HashMap<String, Object>> tempList = this.querySQLiteDb(temps, DOWNLOAD_QUERY_V24);
-
-            logger.log(Level.INFO, "{0} - Now getting downloads from {1} with {2} artifacts identified.", new Object[]{getDisplayName(), temps, tempList.size()}); //NON-NLS
-            for (HashMap<String, Object> result : tempList) {
+            int rowCount = this.querySQLiteDb(temps, DOWNLOAD_QUERY_V24, columns -> {
+                int urlColumn = columns.getColumnIndex("url"); //NON-NLS
+                int targetColumn = columns.getColumnIndex("target"); //NON-NLS
+                int lastModifiedColumn = columns.getColumnIndex("lastModified"); //NON-NLS
+                return result -> {
+                    String url = result.getString(urlColumn);
 
-                if (context.dataSourceIngestIsCancelled()) {
-                    break;
-                }
-
-                String url = result.get("url").toString();
-
-                Collection<BlackboardAttribute> bbattributes = new ArrayList<>();
+                    Collection<BlackboardAttribute> bbattributes = new ArrayList<>();
 
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_URL,
-                        RecentActivityExtracterModuleFactory.getModuleName(),
-                        url)); //NON-NLS
-                //bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_URL_DECODED.getTypeID(), "RecentActivity", ((result.get("source").toString() != null) ? EscapeUtil.decodeURL(result.get("source").toString()) : "")));
-                //TODO Revisit usage of deprecated constructor as per TSK-583
-                //bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_LAST_ACCESSED.getTypeID(), "RecentActivity", "Last Visited", (Long.valueOf(result.get("startTime").toString()))));
-
-                String target = result.get("target").toString(); //NON-NLS
-                String downloadedFilePath = "";
-                if (target != null) {
-                    try {
-                        downloadedFilePath = URLDecoder.decode(target.replaceAll("file:///", ""), "UTF-8"); //NON-NLS
-                        bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_PATH,
-                                RecentActivityExtracterModuleFactory.getModuleName(),
-                                downloadedFilePath));
-                        long pathID = Util.findID(dataSource, downloadedFilePath);
-                        if (pathID != -1) {
-                            bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_PATH_ID,
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_URL,
+                            RecentActivityExtracterModuleFactory.getModuleName(),
+                            url)); //NON-NLS
+                    //bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_URL_DECODED.getTypeID(), "RecentActivity", ((result.get("source").toString() != null) ? EscapeUtil.decodeURL(result.get("source").toString()) : "")));
+                    //TODO Revisit usage of deprecated constructor as per TSK-583
+                    //bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_LAST_ACCESSED.getTypeID(), "RecentActivity", "Last Visited", (Long.valueOf(result.get("startTime").toString()))));
+
+                    String target = result.getString(targetColumn); //NON-NLS
+                    String downloadedFilePath = "";
+                    if (target != null) {
+                        try {
+                            downloadedFilePath = URLDecoder.decode(target.replaceAll("file:///", ""), "UTF-8"); //NON-NLS
+                            bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_PATH,
                                     RecentActivityExtracterModuleFactory.getModuleName(),
-                                    pathID));
+                                    downloadedFilePath));
+                            long pathID = findFileId(dataSource, downloadedFilePath);
+                            if (pathID != -1) {
+                                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_PATH_ID,
+                                        RecentActivityExtracterModuleFactory.getModuleName(),
+                                        pathID));
+                            }
+                        } catch (UnsupportedEncodingException ex) {
+                            logger.log(Level.SEVERE, "Error decoding Firefox download URL in " + temps, ex); //NON-NLS
+                            errors[0]++;
                         }
-                    } catch (UnsupportedEncodingException ex) {
-                        logger.log(Level.SEVERE, "Error decoding Firefox download URL in " + temps, ex); //NON-NLS
-                        errors++;
                     }
-                }
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DATETIME_ACCESSED,
-                        RecentActivityExtracterModuleFactory.getModuleName(),
-                        Long.valueOf(result.get("lastModified").toString()))); //NON-NLS
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_PROG_NAME,
-                        RecentActivityExtracterModuleFactory.getModuleName(),
-                        NbBundle.getMessage(this.getClass(), "Firefox.moduleName")));
-                String domain = extractDomain(url);
-                if (domain != null && domain.isEmpty() == false) {
-                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DOMAIN,
-                            RecentActivityExtracterModuleFactory.getModuleName(), domain)); //NON-NLS
-                }
-                try {
-                    BlackboardArtifact webDownloadArtifact = createArtifactWithAttributes(BlackboardArtifact.Type.TSK_WEB_DOWNLOAD, downloadsFile, bbattributes);
-                    bbartifacts.add(webDownloadArtifact);
-
-                    // find the downloaded file and create a TSK_ASSOCIATED_OBJECT for it, associating it with the TSK_WEB_DOWNLOAD artifact.
-                    for (AbstractFile downloadedFile : currentCase.getSleuthkitCase().getFileManager().findFilesExactNameExactPath(dataSource,
-                            FilenameUtils.getName(downloadedFilePath), FilenameUtils.getPath(downloadedFilePath))) {
-                        bbartifacts.add(createAssociatedArtifact(downloadedFile, webDownloadArtifact));
-                        break;
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DATETIME_ACCESSED,
+                            RecentActivityExtracterModuleFactory.getModuleName(),
+                            result.getLong(lastModifiedColumn))); //NON-NLS
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_PROG_NAME,
+                            RecentActivityExtracterModuleFactory.getModuleName(),
+                            NbBundle.getMessage(this.getClass(), "Firefox.moduleName")));
+                    String domain = extractDomain(url);
+                    if (domain != null && domain.isEmpty() == false) {
+                        bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DOMAIN,
+                                RecentActivityExtracterModuleFactory.getModuleName(), domain)); //NON-NLS
                     }
-                } catch (TskCoreException ex) {
-                    logger.log(Level.SEVERE, String.format("Error creating associated object artifact for file  '%s'",
-                            downloadedFilePath), ex); //NON-NLS
-                }
-            }
-            if (errors > 0) {
+                    try {
+                        BlackboardArtifact webDownloadArtifact = createArtifactWithAttributes(BlackboardArtifact.Type.TSK_WEB_DOWNLOAD, downloadsFile, bbattributes);
+                        bbartifacts.add(webDownloadArtifact);
+
+                        // find the downloaded file and create a TSK_ASSOCIATED_OBJECT for it, associating it with the TSK_WEB_DOWNLOAD artifact.
+                        for (AbstractFile downloadedFile : findFilesExactNameExactPath(dataSource,
+                                FilenameUtils.getName(downloadedFilePath), FilenameUtils.getPath(downloadedFilePath))) {
+                            bbartifacts.add(createAssociatedArtifact(downloadedFile, webDownloadArtifact));
+                            break;
+                        }
+                    } catch (TskCoreException ex) {
+                        logger.log(Level.SEVERE, String.format("Error creating associated object artifact for file  '%s'",
+                                downloadedFilePath), ex); //NON-NLS
+                    }
+                };
+            });
+            logger.log(Level.INFO, "{0} - Now getting downloads from {1} with {2} artifacts identified.", new Object[]{getDisplayName(), temps, rowCount}); //NON-NLS
+            if (errors[0] > 0) {
                 this.addErrorMessage(NbBundle.getMessage(this.getClass(), "Firefox.getDlV24.errMsg.errParsingArtifacts",
-                        this.getDisplayName(), errors));
+                        this.getDisplayName(), errors[0]));
             }
             j++;
-            dbFile.delete();
         }
 
         if (!context.dataSourceIngestIsCancelled()) {
@@ -763,10 +783,10 @@ class Firefox extends Extract {
      * Gets data from formshistory.sqlite database. Parses and creates
      * artifacts.
      *
-     * @param ingestJobId The ingest job id.
+     * @param profileFolder The parent path of the files of the profile.
+     * @param ingestJobId   The ingest job id.
      */
-    private void getFormsHistory(long ingestJobId) {
-        FileManager fileManager = currentCase.getServices().getFileManager();
+    private void getFormsHistory(String profileFolder, long ingestJobId) {
         List<AbstractFile> formHistoryFiles;
 
         // Some fields are just noisy and can me excluded
@@ -776,7 +796,7 @@ class Firefox extends Extract {
         ));
 
         try {
-            formHistoryFiles = fileManager.findFiles(dataSource, "formhistory.sqlite", "Firefox"); //NON-NLS
+            formHistoryFiles = findFilesInFolder(dataSource, "formhistory.sqlite", "Firefox", profileFolder); //NON-NLS
         } catch (TskCoreException ex) {
             String msg = NbBundle.getMessage(this.getClass(), "Firefox.getFormsAutofill.errMsg.errFetchingFiles");
             logger.log(Level.WARNING, msg);
@@ -799,9 +819,9 @@ class Firefox extends Extract {
             }
 
             String fileName = formHistoryFile.getName();
-            String tempFilePath = RAImageIngestModule.getRATempPath(currentCase, "firefox", ingestJobId) + File.separator + fileName + j + ".db"; //NON-NLS
+            String tempFilePath = getTempCopyPath(formHistoryFile).toString();
             try {
-                ContentUtils.writeToFile(formHistoryFile, new File(tempFilePath), context::dataSourceIngestIsCancelled);
+                writeToTempCache(formHistoryFile);
             } catch (ReadContentInputStreamException ex) {
                 logger.log(Level.WARNING, String.format("Error reading Firefox web history artifacts file '%s' (id=%d).",
                         fileName, formHistoryFile.getId()), ex); //NON-NLS
@@ -817,9 +837,7 @@ class Firefox extends Extract {
                                 fileName));
                 continue;
             }
-            File dbFile = new File(tempFilePath);
             if (context.dataSourceIngestIsCancelled()) {
-                dbFile.delete();
                 break;
             }
 
@@ -827,54 +845,54 @@ class Firefox extends Extract {
             boolean isFirefoxV64 = Util.checkColumn("timesUsed", "moz_formhistory", tempFilePath);
             String formHistoryQuery = (isFirefoxV64) ? FORMHISTORY_QUERY_V64 : FORMHISTORY_QUERY;
 
-            List<HashMap<String, Object>> tempList = this.querySQLiteDb(tempFilePath, formHistoryQuery);
-            logger.log(Level.INFO, "{0} - Now getting history from {1} with {2} artifacts identified.", new Object[]{getDisplayName(), tempFilePath, tempList.size()}); //NON-NLS
-            for (HashMap<String, Object> result : tempList) {
-
-                if (context.dataSourceIngestIsCancelled()) {
-                    break;
-                }
-
-                Collection<BlackboardAttribute> bbattributes = new ArrayList<>();
-
-                String fieldName = ((result.get("fieldname").toString() != null) ? result.get("fieldname").toString() : "");
-                // filter out unuseful values
-                if (excludedFieldNames.contains(fieldName.toLowerCase())) {
-                    continue;
-                }
-
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_NAME,
-                        RecentActivityExtracterModuleFactory.getModuleName(),
-                        fieldName)); //NON-NLS
-
-                bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_VALUE,
-                        RecentActivityExtracterModuleFactory.getModuleName(),
-                        ((result.get("value").toString() != null) ? result.get("value").toString() : ""))); //NON-NLS
+            int rowCount = this.querySQLiteDb(tempFilePath, formHistoryQuery, columns -> {
+                int fieldnameColumn = columns.getColumnIndex("fieldname"); //NON-NLS
+                int valueColumn = columns.getColumnIndex("value"); //NON-NLS
+                int firstUsedColumn = columns.getColumnIndex("firstUsed"); //NON-NLS
+                int lastUsedColumn = columns.getColumnIndex("lastUsed"); //NON-NLS
+                int timesUsedColumn = columns.getColumnIndex("timesUsed"); //NON-NLS
+                return result -> {
+                    Collection<BlackboardAttribute> bbattributes = new ArrayList<>();
+
+                    String fieldName = result.getString(fieldnameColumn);
+                    // filter out unuseful values
+                    if (excludedFieldNames.contains(fieldName.toLowerCase())) {
+                        return;
+                    }
 
-                // Newer versions of firefox have additional columns
-                if (isFirefoxV64) {
-                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DATETIME_CREATED,
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_NAME,
                             RecentActivityExtracterModuleFactory.getModuleName(),
-                            (Long.valueOf(result.get("firstUsed").toString()) / 1000000))); //NON-NLS
+                            fieldName)); //NON-NLS
 
-                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DATETIME_ACCESSED,
+                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_VALUE,
                             RecentActivityExtracterModuleFactory.getModuleName(),
-                            (Long.valueOf(result.get("lastUsed").toString()) / 1000000))); //NON-NLS
+                            result.getString(valueColumn))); //NON-NLS
 
-                    bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_COUNT,
-                            RecentActivityExtracterModuleFactory.getModuleName(),
-                            (Integer.valueOf(result.get("timesUsed").toString())))); //NON-NLS
+                    // Newer versions of firefox have additional columns
+                    if (isFirefoxV64) {
+                        bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DATETIME_CREATED,
+                                RecentActivityExtracterModuleFactory.getModuleName(),
+                                (result.getLong(firstUsedColumn) / 1000000))); //NON-NLS
 
-                }
-                try {
-                    // Add artifact
-                    bbartifacts.add(createArtifactWithAttributes(BlackboardArtifact.Type.TSK_WEB_FORM_AUTOFILL, formHistoryFile, bbattributes));
-                } catch (TskCoreException ex) {
-                    logger.log(Level.SEVERE, String.format("Failed to create TSK_WEB_FORM_AUTOFILL artifact for file %d", formHistoryFile.getId()), ex);
-                }
-            }
+                        bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_DATETIME_ACCESSED,
+                                RecentActivityExtracterModuleFactory.getModuleName(),
+                                (result.getLong(lastUsedColumn) / 1000000))); //NON-NLS
+
+                        bbattributes.add(new BlackboardAttribute(ATTRIBUTE_TYPE.TSK_COUNT,
+                                RecentActivityExtracterModuleFactory.getModuleName(),
+                                result.getInt(timesUsedColumn))); //NON-NLS
+
+                    }
+                    try {
+                        // Add artifact
+                        bbartifacts.add(createArtifactWithAttributes(BlackboardArtifact.Type.TSK_WEB_FORM_AUTOFILL, formHistoryFile, bbattributes));
+                    } catch (TskCoreException ex) {
+                        logger.log(Level.SEVERE, String.format("Failed to create TSK_WEB_FORM_AUTOFILL artifact for file %d", formHistoryFile.getId()), ex);
+                    }
+                };
+            });
+            logger.log(Level.INFO, "{0} - Now getting history from {1} with {2} artifacts identified.", new Object[]{getDisplayName(), tempFilePath, rowCount}); //NON-NLS
             ++j;
-            dbFile.delete();
         }
 
         if (!context.dataSourceIngestIsCancelled()) {
@@ -886,13 +904,13 @@ class Firefox extends Extract {
      * Gets data from autofill-profiles.json file. Parses file and makes
      * artifacts.
      *
-     * @param ingestJobId The ingest job id.
+     * @param profileFolder The parent path of the files of the profile.
+     * @param ingestJobId   The ingest job id.
      */
-    private void getAutofillProfiles(long ingestJobId) {
-        FileManager fileManager = currentCase.getServices().getFileManager();
+    private void getAutofillProfiles(String profileFolder, long ingestJobId) {
         List<AbstractFile> autofillProfilesFiles;
         try {
-            autofillProfilesFiles = fileManager.findFiles(dataSource, "autofill-profiles.json", "Firefox"); //NON-NLS
+            autofillProfilesFiles = findFilesInFolder(dataSource, "autofill-profiles.json", "Firefox", profileFolder); //NON-NLS
         } catch (TskCoreException ex) {
             String msg = NbBundle.getMessage(this.getClass(), "Firefox.getAutofillProfiles.errMsg.errGettingFiles");
             logger.log(Level.SEVERE, msg, ex);
@@ -912,7 +930,7 @@ class Firefox extends Extract {
             if (profileFile.getSize() == 0) {
                 continue;
             }
-            String temps = RAImageIngestModule.getRATempPath(currentCase, "Firefox", ingestJobId) + File.separator + profileFile.getName() + j + ".json"; //NON-NLS
+            String temps = RAImageIngestModule.getRATempPath(currentCase, "Firefox", ingestJobId) + File.separator + profileFile.getName() + profileFile.getId() + ".json"; //NON-NLS
             try {
                 ContentUtils.writeToFile(profileFile, new File(temps), context::dataSourceIngestIsCancelled);
             } catch (ReadContentInputStreamException ex) {
@@ -39,6 +39,7 @@ import java.io.IOException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.ArrayList;
@@ -124,6 +125,15 @@ class ParsePlists extends Extract {
         moduleName = NbBundle.getMessage(Chromium.class, "ParsePlists.moduleName");
     }
 
+    /**
+     * The OS version is added to the OS info artifact ExtractOs creates for
+     * SystemVersion.plist, so ExtractOs has to run first.
+     */
+    @Override
+    Collection<Class<? extends Extract>> getDependencies() {
+        return Collections.singletonList(ExtractOs.class);
+    }
+
     @Override
     public void process(Content dataSource, DataSourceIngestModuleProgress progressBar) {
         this.dataSource = dataSource;
@@ -960,11 +970,10 @@ class ParsePlists extends Extract {
     }
     
     private List<AbstractFile> writeFileToTemp(String fileName, String fileLocation, String tempDirPath) throws TskCoreException, IOException{
-        FileManager fileManager = currentCase.getServices().getFileManager();
         List<AbstractFile> absFiles = new ArrayList<>();
 
         try {
-            absFiles = fileManager.findFiles(dataSource, fileName + '%', fileLocation); //NON-NLS            
+            absFiles = findFiles(dataSource, fileName + '%', fileLocation); //NON-NLS            
         } catch (TskCoreException ex) {
             logger.log(Level.WARNING, String.format("Error getting files for %s in path %s", fileName, fileLocation), ex); //NON-NLS
             throw new TskCoreException(String.format("Error getting files for %s in path %s", fileName, fileLocation));
@@ -22,9 +22,7 @@ package org.sleuthkit.autopsy.recentactivity.macos;
 
 import com.google.common.collect.ImmutableMap;
 import org.openide.util.NbBundle;
-import org.sleuthkit.autopsy.datamodel.ContentUtils;
 import java.util.logging.Level;
-import java.io.File;
 import java.io.IOException;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -237,7 +235,7 @@ class ParseSQLite extends Extract {
 // Add attachment
 // Add associated object
                 
-                String sqliteFileName = tempDirPath + File.separator + absFile.getId() + "_" + absFile.getName();
+                String sqliteFileName = getTempCopyPath(absFile).toString();
                 CommunicationArtifactsHelper accountHelper;
 
                 String sqlStatement = "";
@@ -332,7 +330,7 @@ class ParseSQLite extends Extract {
                 String sqlStatement = "SELECT (SELECT identifier from app where app.app_id=record.app_id) as app, " +
                                       "     uuid, cast(data as text), presented, delivered_date FROM record"; //NON-NLS
 
-                String sqliteFileName = tempDirPath + File.separator + absFile.getId() + "_" + absFile.getName();
+                String sqliteFileName = getTempCopyPath(absFile).toString();
                 
                 try (SQLiteDBConnect tempdbconnect = new SQLiteDBConnect("org.sqlite.JDBC", "jdbc:sqlite:" + sqliteFileName); //NON-NLS
                         ResultSet resultSet = tempdbconnect.executeQry(sqlStatement)) {
@@ -431,7 +429,7 @@ class ParseSQLite extends Extract {
                                       "   OR zwwanin NOT NULL OR zwwanout NOT NULL " +
                                       " ORDER BY process_name"; //NON-NLS
 
-                String sqliteFileName = tempDirPath + File.separator + absFile.getId() + "_" + absFile.getName();
+                String sqliteFileName = getTempCopyPath(absFile).toString();
                 
                 try (SQLiteDBConnect tempdbconnect = new SQLiteDBConnect("org.sqlite.JDBC", "jdbc:sqlite:" + sqliteFileName); //NON-NLS
                         ResultSet resultSet = tempdbconnect.executeQry(sqlStatement)) {
@@ -556,7 +554,7 @@ class ParseSQLite extends Extract {
                                       "  FROM LSQuarantineEvent " +
                                       " ORDER BY ts"; //NON-NLS
 
-                String sqliteFileName = tempDirPath + File.separator + absFile.getId() + "_" + absFile.getName();
+                String sqliteFileName = getTempCopyPath(absFile).toString();
                 
                 try (SQLiteDBConnect tempdbconnect = new SQLiteDBConnect("org.sqlite.JDBC", "jdbc:sqlite:" + sqliteFileName); //NON-NLS
                         ResultSet resultSet = tempdbconnect.executeQry(sqlStatement)) {
@@ -637,7 +635,7 @@ class ParseSQLite extends Extract {
                                       "                FROM ZACCOUNT as a " +
                                       "                WHERE a.Z_ENT = (SELECT Z_ENT FROM Z_PRIMARYKEY WHERE Z_NAME LIKE 'Account')"; //NON-NLS
 
-                String sqliteFileName = tempDirPath + File.separator + absFile.getId() + "_" + absFile.getName();
+                String sqliteFileName = getTempCopyPath(absFile).toString();
                 
                 try (SQLiteDBConnect tempdbconnect = new SQLiteDBConnect("org.sqlite.JDBC", "jdbc:sqlite:" + sqliteFileName); //NON-NLS
                         ResultSet resultSet = tempdbconnect.executeQry(sqlStatement)) {
@@ -713,7 +711,7 @@ class ParseSQLite extends Extract {
                                       "                FROM ZACCOUNT as a " +
                                       "                WHERE a.Z_ENT = (SELECT Z_ENT FROM Z_PRIMARYKEY WHERE Z_NAME LIKE 'Account')"; //NON-NLS
 
-                String sqliteFileName = tempDirPath + File.separator + absFile.getId() + "_" + absFile.getName();
+                String sqliteFileName = getTempCopyPath(absFile).toString();
                 
                 try (SQLiteDBConnect tempdbconnect = new SQLiteDBConnect("org.sqlite.JDBC", "jdbc:sqlite:" + sqliteFileName); //NON-NLS
                         ResultSet resultSet = tempdbconnect.executeQry(sqlStatement)) {
@@ -788,7 +786,7 @@ class ParseSQLite extends Extract {
                                       "       generations.generation_path as generation_path" +
                                       "  FROM files inner join generations ON generations.generation_storage_id = files.file_storage_id"; //NON-NLS
 
-                String sqliteFileName = tempDirPath + File.separator + absFile.getId() + "_" + absFile.getName();
+                String sqliteFileName = getTempCopyPath(absFile).toString();
                 
                 try (SQLiteDBConnect tempdbconnect = new SQLiteDBConnect("org.sqlite.JDBC", "jdbc:sqlite:" + sqliteFileName); //NON-NLS
                         ResultSet resultSet = tempdbconnect.executeQry(sqlStatement)) {
@@ -896,11 +894,10 @@ class ParseSQLite extends Extract {
     }
     
     private List<AbstractFile> writeFileToTemp(String fileName, String fileLocation, String tempDirPath) throws TskCoreException, IOException{
-        FileManager fileManager = currentCase.getServices().getFileManager();
         List<AbstractFile> absFiles = new ArrayList<>();
 
         try {
-            absFiles = fileManager.findFiles(dataSource, fileName + '%', fileLocation); //NON-NLS            
+            absFiles = findFiles(dataSource, fileName + '%', fileLocation); //NON-NLS            
         } catch (TskCoreException ex) {
             logger.log(Level.WARNING, String.format("Error getting files for %s in path %s", fileName, fileLocation), ex); //NON-NLS
             throw new TskCoreException(String.format("Error getting files for %s in path %s", fileName, fileLocation));
@@ -909,12 +906,8 @@ class ParseSQLite extends Extract {
         for (AbstractFile absFile : absFiles) {
             String fName = absFile.getName();
             if (absFile.getName().equals(fileName)) {
-    //            String tempFileName = tempDirPath + File.separator + absFile.getId() + "_" + absFile.getName();
-                String tempFileName = tempDirPath + File.separator + absFile.getId() + "_" + absFile.getName();
-
                 try {
-                    ContentUtils.writeToFile(absFile, new File(tempFileName));
-                    checkWalShmFiles(fileName, fileLocation, tempDirPath, absFile.getId());
+                    writeToTempCache(absFile);
                 } catch (IOException ex) {
                     logger.log(Level.WARNING, String.format("Cannot write file to temp directory, file name is %s and file path is %s", fileName, fileLocation), ex); //NON-NLS
                     throw new IOException(String.format("Error getting files for %s in path %s", fileName, fileLocation));
@@ -942,33 +935,5 @@ class ParseSQLite extends Extract {
         return false;
     }
 
-    private void checkWalShmFiles(String fileName, String fileLocation, String tempDirPath, Long fileId) throws TskCoreException, IOException{
-        FileManager fileManager = currentCase.getServices().getFileManager();
-        List<AbstractFile> absFiles = new ArrayList<>();
-
-        try {
-            absFiles = fileManager.findFiles(dataSource, fileName + '%', fileLocation); //NON-NLS            
-        } catch (TskCoreException ex) {
-            logger.log(Level.WARNING, String.format("Error getting files for %s in path %s", fileName, fileLocation), ex); //NON-NLS
-            throw new TskCoreException(String.format("Error getting files for %s in path %s", fileName, fileLocation));
-        }
-        
-        for (AbstractFile absFile : absFiles) {
-            
-            if ((absFile.getName().contains("-wal") || absFile.getName().contains("-shm")) && absFile.getParentPath().contains(fileLocation)) {
-    //            String tempFileName = tempDirPath + File.separator + absFile.getId() + "_" + absFile.getName();
-                String tempFileName = tempDirPath + File.separator + fileId + "_" + absFile.getName();
-
-                try {
-                    ContentUtils.writeToFile(absFile, new File(tempFileName));
-                } catch (IOException ex) {
-                    logger.log(Level.WARNING, String.format("Cannot write file to temp directory, file name is %s and file path is %s", fileName, fileLocation), ex); //NON-NLS
-                    throw new IOException(String.format("Error getting files for %s in path %s", fileName, fileLocation));
-                }
-            }
-        }
-        
-    }
-
     
 }
@@ -26,7 +26,17 @@ import java.io.File;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.logging.Level;
 import org.openide.util.NbBundle;
 import org.sleuthkit.autopsy.casemodule.Case;
@@ -41,6 +51,7 @@ import org.sleuthkit.datamodel.Content;
 import org.sleuthkit.autopsy.ingest.IngestModule.ProcessResult;
 import org.sleuthkit.autopsy.ingest.IngestJobContext;
 import org.sleuthkit.datamodel.SleuthkitCase;
+import org.sleuthkit.datamodel.TskCoreException;
 
 /**
  * Recent activity image ingest module
@@ -51,11 +62,17 @@ public final class RAImageIngestModule implements DataSourceIngestModule {
     private static final Logger logger = Logger.getLogger(RAImageIngestModule.class.getName());
     private final List<Extract> extractors = new ArrayList<>();
     private final List<Extract> browserExtractors = new ArrayList<>();
+    private final Map<Extract, List<Extract>> extractorDependencies = new HashMap<>();
     private final IngestServices services = IngestServices.getInstance();
     private IngestJobContext context;
+    private FileNameIndex fileIndex;
+    private TempFileCache tempFileCache;
+    private ExecutorService profileExecutor;
+    private final RecentActivityIngestJobSettings settings;
     protected SleuthkitCase tskCase;
 
-    RAImageIngestModule() {
+    RAImageIngestModule(RecentActivityIngestJobSettings settings) {
+        this.settings = settings;
     }
 
     @Override
@@ -64,7 +81,7 @@ public final class RAImageIngestModule implements DataSourceIngestModule {
 
         tskCase = Case.getCurrentCase().getSleuthkitCase();
 
-        Extract chrome = new Chromium(context);
+        Extract chrome = new Chromium(context, settings.isDecodeCacheContentEncodings());
         Extract firefox = new Firefox(context);
         Extract SEUQA = new SearchEngineURLQueryAnalyzer(context);
         Extract osExtract = new ExtractOs(context);
@@ -91,6 +108,22 @@ public final class RAImageIngestModule implements DataSourceIngestModule {
 //        browserExtractors.add(safari);
 
         for (Extract extractor : extractors) {
+            List<Extract> dependencies = new ArrayList<>();
+            for (Extract other : extractors) {
+                if (extractor.getDependencies().contains(other.getClass())) {
+                    dependencies.add(other);
+                }
+            }
+            extractorDependencies.put(extractor, dependencies);
+        }
+
+        tempFileCache = new TempFileCache(Paths.get(getRATempPath(Case.getCurrentCase(), "copies", context.getJobId()))); //NON-NLS
+        // Shared by the browser extractors, so the profiles of all of the
+        // browsers together never use more than one thread per processor.
+        profileExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        for (Extract extractor : extractors) {
+            extractor.setTempFileCache(tempFileCache);
+            extractor.setProfileExecutor(profileExecutor);
             extractor.startUp();
         }
     }
@@ -104,24 +137,17 @@ public final class RAImageIngestModule implements DataSourceIngestModule {
 
         progressBar.switchToDeterminate(extractors.size());
 
-        ArrayList<String> errors = new ArrayList<>();
-
-        for (int i = 0; i < extractors.size(); i++) {
-            Extract extracter = extractors.get(i);
-            if (context.dataSourceIngestIsCancelled()) {
-                logger.log(Level.INFO, "Recent Activity Macos has been canceled, quitting before {0}", extracter.getDisplayName()); //NON-NLS
-                break;
-            }
+        progressBar.progress(NbBundle.getMessage(this.getClass(), "RAImageIngestModule.process.indexingFiles"), 0);
+        buildFileIndex(dataSource);
 
-            progressBar.progress(extracter.getDisplayName(), i);
+        Set<Extract> failedExtractors = runExtractors(dataSource, progressBar);
 
-            try {
-                extracter.process(dataSource, progressBar);
-            } catch (Exception ex) {
-                logger.log(Level.SEVERE, "Exception occurred in " + extracter.getDisplayName(), ex); //NON-NLS
+        // collect the errors in extractor order, whatever order they ran in
+        ArrayList<String> errors = new ArrayList<>();
+        for (Extract extracter : extractors) {
+            if (failedExtractors.contains(extracter)) {
                 errors.add(NbBundle.getMessage(this.getClass(), "RAImageIngestModule.process.errModErrs", RecentActivityExtracterModuleFactory.getModuleName()));
             }
-            progressBar.progress(i + 1);
             errors.addAll(extracter.getErrorMessages());
         }
 
@@ -176,6 +202,111 @@ public final class RAImageIngestModule implements DataSourceIngestModule {
         return ProcessResult.OK;
     }
 
+    /**
+     * Indexes the names and parent paths of the files of the data source in
+     * one pass and gives the index to the extractors, so that they look the
+     * files they parse up in memory rather than with a query each. If the
+     * files can not be indexed the extractors query the case database as
+     * before.
+     *
+     * @param dataSource The data source to be analyzed.
+     */
+    private void buildFileIndex(Content dataSource) {
+        long startTime = System.currentTimeMillis();
+        try {
+            fileIndex = FileNameIndex.build(tskCase, dataSource);
+            logger.log(Level.INFO, "Indexed {0} files of {1} in {2} ms", //NON-NLS
+                    new Object[]{fileIndex.size(), dataSource.getName(), System.currentTimeMillis() - startTime});
+        } catch (TskCoreException ex) {
+            logger.log(Level.WARNING, "Error indexing the files of " + dataSource.getName() + ", the extractors will query the case database", ex); //NON-NLS
+            fileIndex = null;
+        }
+        for (Extract extracter : extractors) {
+            extracter.setFileIndex(fileIndex);
+        }
+    }
+
+    /**
+     * Runs the extractors on a bounded thread pool. An extractor is started as
+     * soon as all of the extractors it depends on have finished, so
+     * extractors with no dependencies between them run at the same time. Once
+     * the ingest job is cancelled no more extractors are started, and the
+     * ones already running are waited for.
+     *
+     * @param dataSource  The data source to be analyzed.
+     * @param progressBar The progress of the module, advanced as each
+     *                    extractor finishes.
+     *
+     * @return The extractors that failed with an exception.
+     */
+    private Set<Extract> runExtractors(Content dataSource, DataSourceIngestModuleProgress progressBar) {
+        Set<Extract> failedExtractors = new HashSet<>();
+        Set<Extract> pendingExtractors = new LinkedHashSet<>(extractors);
+        Set<Extract> finishedExtractors = new HashSet<>();
+        ExecutorService extractorExecutor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(extractors.size(), Runtime.getRuntime().availableProcessors())));
+        CompletionService<Extract> completionService = new ExecutorCompletionService<>(extractorExecutor);
+        int runningCount = 0;
+        try {
+            while (true) {
+                if (context.dataSourceIngestIsCancelled()) {
+                    if (!pendingExtractors.isEmpty()) {
+                        logger.log(Level.INFO, "Recent Activity Macos has been canceled, quitting before {0}", pendingExtractors.iterator().next().getDisplayName()); //NON-NLS
+                        pendingExtractors.clear();
+                    }
+                } else {
+                    List<Extract> readyExtractors = new ArrayList<>();
+                    for (Extract extracter : pendingExtractors) {
+                        if (finishedExtractors.containsAll(extractorDependencies.get(extracter))) {
+                            readyExtractors.add(extracter);
+                        }
+                    }
+                    for (Extract extracter : readyExtractors) {
+                        pendingExtractors.remove(extracter);
+                        progressBar.progress(extracter.getDisplayName(), finishedExtractors.size());
+                        completionService.submit(() -> {
+                            try {
+                                extracter.process(dataSource, progressBar);
+                            } catch (Exception ex) {
+                                logger.log(Level.SEVERE, "Exception occurred in " + extracter.getDisplayName(), ex); //NON-NLS
+                                synchronized (failedExtractors) {
+                                    failedExtractors.add(extracter);
+                                }
+                            } finally {
+                                extracter.releaseTempCopies();
+                            }
+                            return extracter;
+                        });
+                        runningCount++;
+                    }
+                }
+
+                if (runningCount == 0) {
+                    if (!pendingExtractors.isEmpty()) {
+                        logger.log(Level.SEVERE, "Recent Activity Macos extractors have circular dependencies, not running {0} extractors", pendingExtractors.size()); //NON-NLS
+                    }
+                    break;
+                }
+
+                Extract finishedExtractor = completionService.take().get();
+                runningCount--;
+                finishedExtractors.add(finishedExtractor);
+                progressBar.progress(finishedExtractors.size());
+            }
+        } catch (InterruptedException ex) {
+            logger.log(Level.INFO, "Recent Activity Macos was interrupted while running extractors"); //NON-NLS
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+            logger.log(Level.SEVERE, "Unexpected exception running a Recent Activity Macos extractor", ex.getCause()); //NON-NLS
+        } finally {
+            extractorExecutor.shutdownNow();
+        }
+
+        synchronized (failedExtractors) {
+            return new HashSet<>(failedExtractors);
+        }
+    }
+
     @Override
     public void shutDown() {
         for (int i = 0; i < extractors.size(); i++) {
@@ -185,6 +316,16 @@ public final class RAImageIngestModule implements DataSourceIngestModule {
             } catch (Exception ex) {
                 logger.log(Level.SEVERE, "Exception occurred when completing " + extracter.getDisplayName(), ex); //NON-NLS
             }
+            extracter.setFileIndex(null);
+            extracter.setProfileExecutor(null);
+        }
+        fileIndex = null;
+        if (profileExecutor != null) {
+            profileExecutor.shutdownNow();
+            profileExecutor = null;
+        }
+        if (tempFileCache != null) {
+            tempFileCache.clear();
         }
     }
 
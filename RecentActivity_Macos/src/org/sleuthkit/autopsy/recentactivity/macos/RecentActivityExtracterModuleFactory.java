@@ -25,6 +25,7 @@ import org.sleuthkit.autopsy.ingest.DataSourceIngestModule;
 import org.sleuthkit.autopsy.ingest.IngestModuleFactory;
 import org.sleuthkit.autopsy.ingest.IngestModuleFactoryAdapter;
 import org.sleuthkit.autopsy.ingest.IngestModuleIngestJobSettings;
+import org.sleuthkit.autopsy.ingest.IngestModuleIngestJobSettingsPanel;
 
 /**
  * A factory that creates data source ingest modules that extract recent
@@ -57,8 +58,38 @@ public class RecentActivityExtracterModuleFactory extends IngestModuleFactoryAda
         return true;
     }
 
+    @Override
+    public IngestModuleIngestJobSettings getDefaultIngestJobSettings() {
+        return new RecentActivityIngestJobSettings();
+    }
+
+    @Override
+    public boolean hasIngestJobSettingsPanel() {
+        return true;
+    }
+
+    @Override
+    public IngestModuleIngestJobSettingsPanel getIngestJobSettingsPanel(IngestModuleIngestJobSettings settings) {
+        return new RecentActivityIngestJobSettingsPanel(toRecentActivitySettings(settings));
+    }
+
     @Override
     public DataSourceIngestModule createDataSourceIngestModule(IngestModuleIngestJobSettings ingestJobOptions) {
-        return new RAImageIngestModule();
+        return new RAImageIngestModule(toRecentActivitySettings(ingestJobOptions));
+    }
+
+    /**
+     * Uses the given settings if they are Recent Activity settings, otherwise
+     * falls back to the defaults.
+     *
+     * @param settings The ingest job settings handed to the factory.
+     *
+     * @return The Recent Activity settings to use.
+     */
+    private static RecentActivityIngestJobSettings toRecentActivitySettings(IngestModuleIngestJobSettings settings) {
+        if (settings instanceof RecentActivityIngestJobSettings) {
+            return (RecentActivityIngestJobSettings) settings;
+        }
+        return new RecentActivityIngestJobSettings();
     }
 }
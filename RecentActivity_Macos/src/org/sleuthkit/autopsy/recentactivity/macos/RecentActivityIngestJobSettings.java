@@ -0,0 +1,63 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2021 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.recentactivity.macos;
+
+import org.sleuthkit.autopsy.ingest.IngestModuleIngestJobSettings;
+
+/**
+ * Ingest job settings for the Recent Activity module.
+ */
+public final class RecentActivityIngestJobSettings implements IngestModuleIngestJobSettings {
+
+    private static final long serialVersionUID = 1L;
+
+    private boolean decodeCacheContentEncodings;
+
+    /**
+     * Creates the default settings, with cache payloads added as they are
+     * stored.
+     */
+    RecentActivityIngestJobSettings() {
+    }
+
+    @Override
+    public long getVersionNumber() {
+        return serialVersionUID;
+    }
+
+    /**
+     * Gets whether Chrome cache payloads stored with a gzip or deflate
+     * Content-Encoding are also added decoded, as derived files.
+     *
+     * @return True if encoded payloads are decoded.
+     */
+    boolean isDecodeCacheContentEncodings() {
+        return decodeCacheContentEncodings;
+    }
+
+    /**
+     * Sets whether Chrome cache payloads stored with a gzip or deflate
+     * Content-Encoding are also added decoded.
+     *
+     * @param decodeCacheContentEncodings True to decode encoded payloads.
+     */
+    void setDecodeCacheContentEncodings(boolean decodeCacheContentEncodings) {
+        this.decodeCacheContentEncodings = decodeCacheContentEncodings;
+    }
+}
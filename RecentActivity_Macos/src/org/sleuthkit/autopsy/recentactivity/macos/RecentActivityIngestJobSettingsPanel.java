@@ -0,0 +1,67 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2021 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.recentactivity.macos;
+
+import java.awt.GridBagConstraints;
+import java.awt.GridBagLayout;
+import java.awt.Insets;
+import javax.swing.JCheckBox;
+import javax.swing.JLabel;
+import org.openide.util.NbBundle;
+import org.sleuthkit.autopsy.ingest.IngestModuleIngestJobSettings;
+import org.sleuthkit.autopsy.ingest.IngestModuleIngestJobSettingsPanel;
+
+/**
+ * Ingest job settings panel for the Recent Activity module.
+ */
+final class RecentActivityIngestJobSettingsPanel extends IngestModuleIngestJobSettingsPanel {
+
+    private static final long serialVersionUID = 1L;
+
+    private final JCheckBox decodeCacheContentEncodingsCheckBox;
+
+    /**
+     * Creates a panel initialized with the given settings.
+     *
+     * @param settings The settings to show.
+     */
+    @NbBundle.Messages({
+        "RecentActivityIngestJobSettingsPanel.decodeCacheContentEncodingsCheckBox.text=Also add decoded copies of gzip and deflate encoded Chrome cache entries"})
+    RecentActivityIngestJobSettingsPanel(RecentActivityIngestJobSettings settings) {
+        decodeCacheContentEncodingsCheckBox = new JCheckBox(Bundle.RecentActivityIngestJobSettingsPanel_decodeCacheContentEncodingsCheckBox_text(),
+                settings.isDecodeCacheContentEncodings());
+
+        setLayout(new GridBagLayout());
+        GridBagConstraints constraints = new GridBagConstraints();
+        constraints.anchor = GridBagConstraints.WEST;
+        constraints.insets = new Insets(5, 5, 0, 5);
+        constraints.weightx = 1.0;
+        add(decodeCacheContentEncodingsCheckBox, constraints);
+        constraints.gridy = 1;
+        constraints.weighty = 1.0;
+        add(new JLabel(), constraints);
+    }
+
+    @Override
+    public IngestModuleIngestJobSettings getSettings() {
+        RecentActivityIngestJobSettings settings = new RecentActivityIngestJobSettings();
+        settings.setDecodeCacheContentEncodings(decodeCacheContentEncodingsCheckBox.isSelected());
+        return settings;
+    }
+}
@@ -0,0 +1,841 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2021 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.recentactivity.macos;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+import org.sleuthkit.datamodel.AbstractFile;
+import org.sleuthkit.datamodel.TskCoreException;
+
+/**
+ * A read only reader of SQLite database files that reads the pages of the
+ * database straight from the AbstractFile, without writing the file to the
+ * temp folder or going through JDBC. The reader walks the table b-trees
+ * itself, so it can only scan whole tables and look up rows by rowid; queries
+ * with joins or expressions still need a temp copy and
+ * Extract.querySQLiteDb(String, String, SQLiteRowVisitorFactory).
+ *
+ * The committed frames of the write-ahead log, if one is given, are laid over
+ * the pages of the database, so the reader sees what SQLite would see. The
+ * most recently used pages are kept in memory.
+ *
+ * A reader is not thread safe.
+ */
+final class SQLiteFileReader {
+
+    private static final byte[] HEADER_MAGIC = "SQLite format 3\0".getBytes(StandardCharsets.US_ASCII); //NON-NLS
+    private static final int HEADER_SIZE = 100;
+    private static final int WAL_HEADER_SIZE = 32;
+    private static final int WAL_FRAME_HEADER_SIZE = 24;
+    private static final int WAL_MAGIC = 0x377f0682;
+    private static final int DEFAULT_CACHE_PAGES = 256;
+    private static final int MAX_TREE_DEPTH = 64;
+    private static final int SCHEMA_ROOT_PAGE = 1;
+
+    private static final int TABLE_INTERIOR_PAGE = 0x05;
+    private static final int TABLE_LEAF_PAGE = 0x0d;
+
+    private final AbstractFile dbFile;
+    private final AbstractFile walFile;
+    private final int pageSize;
+    private final int usableSize;
+    private final Charset textEncoding;
+    private final Map<Integer, Long> walFrameOffsets;
+    private final long pageCount;
+    private final Map<Integer, byte[]> pageCache;
+    private Map<String, Table> tables;
+
+    private SQLiteFileReader(AbstractFile dbFile, AbstractFile walFile, int pageSize, int usableSize, Charset textEncoding,
+            Map<Integer, Long> walFrameOffsets, long pageCount, int cachePages) {
+        this.dbFile = dbFile;
+        this.walFile = walFile;
+        this.pageSize = pageSize;
+        this.usableSize = usableSize;
+        this.textEncoding = textEncoding;
+        this.walFrameOffsets = walFrameOffsets;
+        this.pageCount = pageCount;
+        this.pageCache = new LinkedHashMap<Integer, byte[]>(cachePages * 2, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, byte[]> eldest) {
+                return size() > cachePages;
+            }
+        };
+    }
+
+    /**
+     * Opens a database file.
+     *
+     * @param dbFile  The database file.
+     * @param walFile The write-ahead log of the database, or null if it has
+     *                none. A log that does not belong to the database, or is
+     *                corrupt from its first frame, is ignored.
+     *
+     * @return The reader.
+     *
+     * @throws IOException If the file is not a SQLite database or can not be
+     *                     read.
+     */
+    static SQLiteFileReader open(AbstractFile dbFile, AbstractFile walFile) throws IOException {
+        byte[] header = new byte[HEADER_SIZE];
+        if (read(dbFile, header, 0) < HEADER_SIZE || !Arrays.equals(Arrays.copyOf(header, HEADER_MAGIC.length), HEADER_MAGIC)) {
+            throw new IOException(String.format("%s (id=%d) is not a SQLite database", dbFile.getName(), dbFile.getId())); //NON-NLS
+        }
+        int pageSize = readUnsignedShort(header, 16);
+        if (pageSize == 1) {
+            pageSize = 65536;
+        }
+        if (pageSize < 512 || (pageSize & (pageSize - 1)) != 0) {
+            throw new IOException(String.format("%s (id=%d) has an invalid page size of %d", dbFile.getName(), dbFile.getId(), pageSize)); //NON-NLS
+        }
+        int usableSize = pageSize - (header[20] & 0xff);
+        Charset textEncoding;
+        switch (readInt(header, 56)) {
+            case 2:
+                textEncoding = StandardCharsets.UTF_16LE;
+                break;
+            case 3:
+                textEncoding = StandardCharsets.UTF_16BE;
+                break;
+            default:
+                textEncoding = StandardCharsets.UTF_8;
+                break;
+        }
+        long pageCount = dbFile.getSize() / pageSize;
+
+        Map<Integer, Long> walFrameOffsets = Collections.emptyMap();
+        if (walFile != null && walFile.getSize() > WAL_HEADER_SIZE) {
+            WalIndex walIndex = readWal(walFile, pageSize);
+            walFrameOffsets = walIndex.frameOffsets;
+            if (walIndex.pageCount > 0) {
+                pageCount = walIndex.pageCount;
+            }
+        }
+        return new SQLiteFileReader(dbFile, walFrameOffsets.isEmpty() ? null : walFile, pageSize, usableSize, textEncoding,
+                walFrameOffsets, pageCount, DEFAULT_CACHE_PAGES);
+    }
+
+    /**
+     * Gets the names of the tables in the database.
+     *
+     * @return The table names, in schema order.
+     *
+     * @throws IOException If the schema can not be read.
+     */
+    List<String> getTableNames() throws IOException {
+        List<String> names = new ArrayList<>();
+        for (Table table : getTables().values()) {
+            names.add(table.name);
+        }
+        return names;
+    }
+
+    /**
+     * Gets the names of the columns of a table.
+     *
+     * @param tableName The table name, compared case insensitively.
+     *
+     * @return The column names, in declaration order.
+     *
+     * @throws IOException If the schema can not be read or the database has
+     *                     no such table.
+     */
+    List<String> getColumnNames(String tableName) throws IOException {
+        return Collections.unmodifiableList(getTable(tableName).columnNames);
+    }
+
+    /**
+     * Reads every row of a table, in rowid order, passing each to a visitor
+     * as it is read.
+     *
+     * @param tableName   The table name, compared case insensitively.
+     * @param cancelCheck Checked before each row; the scan stops if it
+     *                    returns true.
+     * @param visitor     The visitor the rows are passed to.
+     *
+     * @return The number of rows visited.
+     *
+     * @throws IOException If the table can not be read.
+     */
+    int scanTable(String tableName, Supplier<Boolean> cancelCheck, RowVisitor visitor) throws IOException {
+        Table table = getTable(tableName);
+        int[] rowCount = {0};
+        scanTree(table.rootPage, 0, cancelCheck, (rowId, record) -> {
+            visitor.visit(new Row(table, rowId, decodeRecord(record)));
+            rowCount[0]++;
+        });
+        return rowCount[0];
+    }
+
+    /**
+     * Looks up a row of a table by its rowid.
+     *
+     * @param tableName The table name, compared case insensitively.
+     * @param rowId     The rowid, or the value of the INTEGER PRIMARY KEY
+     *                  column of the table.
+     *
+     * @return The row, or null if the table has no row with the rowid.
+     *
+     * @throws IOException If the table can not be read.
+     */
+    Row findRow(String tableName, long rowId) throws IOException {
+        Table table = getTable(tableName);
+        int pageNumber = table.rootPage;
+        for (int depth = 0; depth < MAX_TREE_DEPTH; depth++) {
+            byte[] page = getPage(pageNumber);
+            int header = (pageNumber == 1) ? HEADER_SIZE : 0;
+            int pageType = page[header] & 0xff;
+            int cellCount = readUnsignedShort(page, header + 3);
+            if (pageType == TABLE_LEAF_PAGE) {
+                for (int i = 0; i < cellCount; i++) {
+                    int cell = readUnsignedShort(page, header + 8 + 2 * i);
+                    long[] payloadSize = readVarint(page, cell);
+                    long[] cellRowId = readVarint(page, cell + (int) payloadSize[1]);
+                    if (cellRowId[0] == rowId) {
+                        byte[] record = readPayload(page, cell + (int) payloadSize[1] + (int) cellRowId[1], payloadSize[0]);
+                        return new Row(table, rowId, decodeRecord(record));
+                    }
+                }
+                return null;
+            }
+            if (pageType != TABLE_INTERIOR_PAGE) {
+                throw new IOException(String.format("Unexpected page type %d on page %d of %s", pageType, pageNumber, dbFile.getName())); //NON-NLS
+            }
+            // Each cell's left child holds the rowids up to and including
+            // the cell's key; the right most child holds the rest.
+            int low = 0;
+            int high = cellCount;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                int cell = readUnsignedShort(page, header + 12 + 2 * middle);
+                if (readVarint(page, cell + 4)[0] < rowId) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            pageNumber = (low < cellCount)
+                    ? readInt(page, readUnsignedShort(page, header + 12 + 2 * low))
+                    : readInt(page, header + 8);
+        }
+        throw new IOException(String.format("The b-tree of %s in %s is too deep", tableName, dbFile.getName())); //NON-NLS
+    }
+
+    private void scanTree(int pageNumber, int depth, Supplier<Boolean> cancelCheck, CellVisitor visitor) throws IOException {
+        if (depth >= MAX_TREE_DEPTH) {
+            throw new IOException(String.format("The b-tree at page %d of %s is too deep", pageNumber, dbFile.getName())); //NON-NLS
+        }
+        byte[] page = getPage(pageNumber);
+        int header = (pageNumber == 1) ? HEADER_SIZE : 0;
+        int pageType = page[header] & 0xff;
+        int cellCount = readUnsignedShort(page, header + 3);
+        if (pageType == TABLE_LEAF_PAGE) {
+            for (int i = 0; i < cellCount && !cancelCheck.get(); i++) {
+                int cell = readUnsignedShort(page, header + 8 + 2 * i);
+                long[] payloadSize = readVarint(page, cell);
+                long[] rowId = readVarint(page, cell + (int) payloadSize[1]);
+                visitor.visit(rowId[0], readPayload(page, cell + (int) payloadSize[1] + (int) rowId[1], payloadSize[0]));
+            }
+        } else if (pageType == TABLE_INTERIOR_PAGE) {
+            for (int i = 0; i < cellCount && !cancelCheck.get(); i++) {
+                int cell = readUnsignedShort(page, header + 12 + 2 * i);
+                scanTree(readInt(page, cell), depth + 1, cancelCheck, visitor);
+            }
+            if (!cancelCheck.get()) {
+                scanTree(readInt(page, header + 8), depth + 1, cancelCheck, visitor);
+            }
+        } else {
+            throw new IOException(String.format("Unexpected page type %d on page %d of %s", pageType, pageNumber, dbFile.getName())); //NON-NLS
+        }
+    }
+
+    /**
+     * Reads the payload of a table leaf cell, following its overflow pages if
+     * it does not fit on the page.
+     */
+    private byte[] readPayload(byte[] page, int offset, long payloadSize) throws IOException {
+        if (payloadSize < 0 || payloadSize > pageCount * usableSize) {
+            throw new IOException(String.format("Invalid payload size %d in %s", payloadSize, dbFile.getName())); //NON-NLS
+        }
+        int size = (int) payloadSize;
+        int maxLocal = usableSize - 35;
+        if (size <= maxLocal) {
+            return Arrays.copyOfRange(page, offset, offset + size);
+        }
+        int minLocal = ((usableSize - 12) * 32 / 255) - 23;
+        int local = minLocal + (size - minLocal) % (usableSize - 4);
+        if (local > maxLocal) {
+            local = minLocal;
+        }
+        byte[] payload = new byte[size];
+        System.arraycopy(page, offset, payload, 0, local);
+        int overflowPage = readInt(page, offset + local);
+        int position = local;
+        while (position < size) {
+            if (overflowPage <= 0 || overflowPage > pageCount) {
+                throw new IOException(String.format("Invalid overflow page %d in %s", overflowPage, dbFile.getName())); //NON-NLS
+            }
+            byte[] overflow = getPage(overflowPage);
+            int length = Math.min(usableSize - 4, size - position);
+            System.arraycopy(overflow, 4, payload, position, length);
+            position += length;
+            overflowPage = readInt(overflow, 0);
+        }
+        return payload;
+    }
+
+    /**
+     * Decodes the columns of a record.
+     */
+    private Object[] decodeRecord(byte[] record) throws IOException {
+        try {
+            long[] headerSize = readVarint(record, 0);
+            List<Long> serialTypes = new ArrayList<>();
+            int position = (int) headerSize[1];
+            while (position < headerSize[0]) {
+                long[] serialType = readVarint(record, position);
+                serialTypes.add(serialType[0]);
+                position += (int) serialType[1];
+            }
+            Object[] values = new Object[serialTypes.size()];
+            position = (int) headerSize[0];
+            for (int i = 0; i < values.length; i++) {
+                long serialType = serialTypes.get(i);
+                if (serialType == 0) {
+                    values[i] = null;
+                } else if (serialType <= 6) {
+                    int length = (serialType == 5) ? 6 : (serialType == 6) ? 8 : (int) serialType;
+                    values[i] = readSignedInteger(record, position, length);
+                    position += length;
+                } else if (serialType == 7) {
+                    values[i] = Double.longBitsToDouble(readSignedInteger(record, position, 8));
+                    position += 8;
+                } else if (serialType == 8 || serialType == 9) {
+                    values[i] = serialType - 8;
+                } else if (serialType >= 12) {
+                    int length = (int) ((serialType - 12) / 2);
+                    if ((serialType & 1) == 0) {
+                        values[i] = Arrays.copyOfRange(record, position, position + length);
+                    } else {
+                        values[i] = new String(record, position, length, textEncoding);
+                    }
+                    position += length;
+                } else {
+                    throw new IOException(String.format("Invalid serial type %d in %s", serialType, dbFile.getName())); //NON-NLS
+                }
+            }
+            return values;
+        } catch (IndexOutOfBoundsException ex) {
+            throw new IOException(String.format("Corrupt record in %s", dbFile.getName()), ex); //NON-NLS
+        }
+    }
+
+    private Table getTable(String tableName) throws IOException {
+        Table table = getTables().get(tableName.toLowerCase(Locale.ROOT));
+        if (table == null) {
+            throw new IOException(String.format("%s has no table %s", dbFile.getName(), tableName)); //NON-NLS
+        }
+        if (table.rootPage <= 0) {
+            throw new IOException(String.format("Table %s of %s is a virtual or WITHOUT ROWID table, which can not be read", tableName, dbFile.getName())); //NON-NLS
+        }
+        return table;
+    }
+
+    /**
+     * Reads the tables from sqlite_master, whose columns are type, name,
+     * tbl_name, rootpage and sql.
+     */
+    private Map<String, Table> getTables() throws IOException {
+        if (tables == null) {
+            Map<String, Table> schema = new LinkedHashMap<>();
+            scanTree(SCHEMA_ROOT_PAGE, 0, () -> false, (rowId, record) -> {
+                Object[] values = decodeRecord(record);
+                if (values.length >= 5 && "table".equals(values[0]) && values[1] instanceof String && values[4] instanceof String) { //NON-NLS
+                    String name = (String) values[1];
+                    int rootPage = (values[3] instanceof Long) ? ((Long) values[3]).intValue() : 0;
+                    schema.put(name.toLowerCase(Locale.ROOT), Table.parse(name, rootPage, (String) values[4]));
+                }
+            });
+            tables = schema;
+        }
+        return tables;
+    }
+
+    private byte[] getPage(int pageNumber) throws IOException {
+        byte[] page = pageCache.get(pageNumber);
+        if (page != null) {
+            return page;
+        }
+        if (pageNumber <= 0 || pageNumber > pageCount) {
+            throw new IOException(String.format("Page %d is out of range in %s", pageNumber, dbFile.getName())); //NON-NLS
+        }
+        page = new byte[pageSize];
+        Long walOffset = walFrameOffsets.get(pageNumber);
+        int bytesRead = (walOffset != null)
+                ? read(walFile, page, walOffset)
+                : read(dbFile, page, (long) (pageNumber - 1) * pageSize);
+        if (bytesRead < pageSize) {
+            throw new IOException(String.format("Page %d of %s is truncated", pageNumber, dbFile.getName())); //NON-NLS
+        }
+        pageCache.put(pageNumber, page);
+        return page;
+    }
+
+    /**
+     * Finds the latest committed frame of each page in a write-ahead log. The
+     * frames are read until the first one whose salts or checksums do not
+     * match, as SQLite does when it recovers the log; frames after the last
+     * commit frame are ignored.
+     */
+    private static WalIndex readWal(AbstractFile walFile, int pageSize) throws IOException {
+        WalIndex walIndex = new WalIndex();
+        byte[] header = new byte[WAL_HEADER_SIZE];
+        if (read(walFile, header, 0) < WAL_HEADER_SIZE) {
+            return walIndex;
+        }
+        int magic = readInt(header, 0);
+        if ((magic & 0xfffffffe) != WAL_MAGIC || readInt(header, 8) != pageSize) {
+            return walIndex;
+        }
+        boolean bigEndianChecksums = (magic & 1) == 1;
+        int[] checksum = walChecksum(header, 0, 24, new int[]{0, 0}, bigEndianChecksums);
+        if (checksum[0] != readInt(header, 24) || checksum[1] != readInt(header, 28)) {
+            return walIndex;
+        }
+        int salt1 = readInt(header, 16);
+        int salt2 = readInt(header, 20);
+
+        Map<Integer, Long> pending = new HashMap<>();
+        byte[] frame = new byte[WAL_FRAME_HEADER_SIZE + pageSize];
+        long offset = WAL_HEADER_SIZE;
+        while (offset + frame.length <= walFile.getSize()) {
+            if (read(walFile, frame, offset) < frame.length
+                    || readInt(frame, 8) != salt1 || readInt(frame, 12) != salt2) {
+                break;
+            }
+            checksum = walChecksum(frame, 0, 8, checksum, bigEndianChecksums);
+            checksum = walChecksum(frame, WAL_FRAME_HEADER_SIZE, pageSize, checksum, bigEndianChecksums);
+            if (checksum[0] != readInt(frame, 16) || checksum[1] != readInt(frame, 20)) {
+                break;
+            }
+            pending.put(readInt(frame, 0), offset + WAL_FRAME_HEADER_SIZE);
+            int commitPageCount = readInt(frame, 4);
+            if (commitPageCount != 0) {
+                walIndex.frameOffsets.putAll(pending);
+                walIndex.pageCount = commitPageCount & 0xffffffffL;
+                pending.clear();
+            }
+            offset += frame.length;
+        }
+        return walIndex;
+    }
+
+    private static int[] walChecksum(byte[] data, int offset, int length, int[] previous, boolean bigEndian) {
+        int s0 = previous[0];
+        int s1 = previous[1];
+        for (int i = offset; i < offset + length; i += 8) {
+            int x0 = bigEndian ? readInt(data, i) : Integer.reverseBytes(readInt(data, i));
+            int x1 = bigEndian ? readInt(data, i + 4) : Integer.reverseBytes(readInt(data, i + 4));
+            s0 += x0 + s1;
+            s1 += x1 + s0;
+        }
+        return new int[]{s0, s1};
+    }
+
+    /**
+     * Reads from a file until the buffer is full or the end of the file is
+     * reached. AbstractFile.read() always fills the buffer from its start, so
+     * the rest of a short read goes through a second buffer.
+     */
+    private static int read(AbstractFile file, byte[] buffer, long offset) throws IOException {
+        int total = 0;
+        try {
+            byte[] remainder = null;
+            while (total < buffer.length) {
+                byte[] target = (total == 0) ? buffer : remainder;
+                int bytesRead = file.read(target, offset + total, buffer.length - total);
+                if (bytesRead <= 0) {
+                    break;
+                }
+                if (total > 0) {
+                    System.arraycopy(remainder, 0, buffer, total, bytesRead);
+                }
+                total += bytesRead;
+                if (remainder == null && total < buffer.length) {
+                    remainder = new byte[buffer.length - total];
+                }
+            }
+        } catch (TskCoreException ex) {
+            throw new IOException(String.format("Error reading %s (id=%d) at offset %d", file.getName(), file.getId(), offset + total), ex); //NON-NLS
+        }
+        return total;
+    }
+
+    private static int readUnsignedShort(byte[] data, int offset) {
+        return ((data[offset] & 0xff) << 8) | (data[offset + 1] & 0xff);
+    }
+
+    private static int readInt(byte[] data, int offset) {
+        return ((data[offset] & 0xff) << 24) | ((data[offset + 1] & 0xff) << 16)
+                | ((data[offset + 2] & 0xff) << 8) | (data[offset + 3] & 0xff);
+    }
+
+    private static long readSignedInteger(byte[] data, int offset, int length) {
+        long value = data[offset];
+        for (int i = 1; i < length; i++) {
+            value = (value << 8) | (data[offset + i] & 0xff);
+        }
+        return value;
+    }
+
+    /**
+     * Reads a SQLite varint.
+     *
+     * @return The value and the number of bytes it takes.
+     */
+    private static long[] readVarint(byte[] data, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            int b = data[offset + i] & 0xff;
+            value = (value << 7) | (b & 0x7f);
+            if ((b & 0x80) == 0) {
+                return new long[]{value, i + 1};
+            }
+        }
+        value = (value << 8) | (data[offset + 8] & 0xff);
+        return new long[]{value, 9};
+    }
+
+    /**
+     * Handles the rows of a table one at a time.
+     */
+    @FunctionalInterface
+    interface RowVisitor {
+
+        /**
+         * Handles a row.
+         *
+         * @param row The row.
+         *
+         * @throws IOException If the row can not be handled.
+         */
+        void visit(Row row) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface CellVisitor {
+
+        void visit(long rowId, byte[] record) throws IOException;
+    }
+
+    /**
+     * The committed frames of a write-ahead log.
+     */
+    private static final class WalIndex {
+
+        private final Map<Integer, Long> frameOffsets = new HashMap<>();
+        private long pageCount;
+    }
+
+    /**
+     * A table of the schema: its name, root page and columns.
+     */
+    private static final class Table {
+
+        private final String name;
+        private final int rootPage;
+        private final List<String> columnNames;
+        private final Map<String, Integer> columnIndexes = new HashMap<>();
+        private final int rowIdColumn;
+
+        private Table(String name, int rootPage, List<String> columnNames, int rowIdColumn) {
+            this.name = name;
+            this.rootPage = rootPage;
+            this.columnNames = columnNames;
+            this.rowIdColumn = rowIdColumn;
+            for (int i = 0; i < columnNames.size(); i++) {
+                columnIndexes.putIfAbsent(columnNames.get(i).toLowerCase(Locale.ROOT), i);
+            }
+        }
+
+        /**
+         * Reads the column names of a table, and which of them is an alias of
+         * the rowid, from its CREATE TABLE statement. The rowid of a WITHOUT
+         * ROWID table is not stored, so its root page is treated as unknown.
+         */
+        private static Table parse(String name, int rootPage, String sql) {
+            int open = sql.indexOf('(');
+            int close = sql.lastIndexOf(')');
+            if (open < 0 || close < open) {
+                return new Table(name, 0, Collections.emptyList(), -1);
+            }
+            if (sql.substring(close + 1).toUpperCase(Locale.ROOT).replaceAll("\\s+", " ").contains("WITHOUT ROWID")) { //NON-NLS
+                rootPage = 0;
+            }
+            List<String> columnNames = new ArrayList<>();
+            List<String> columnTypes = new ArrayList<>();
+            int rowIdColumn = -1;
+            for (String definition : splitDefinitions(sql.substring(open + 1, close))) {
+                String upper = definition.toUpperCase(Locale.ROOT).replaceAll("\\s+", " ");
+                if (upper.startsWith("CONSTRAINT ") || upper.startsWith("UNIQUE") || upper.startsWith("CHECK") //NON-NLS
+                        || upper.startsWith("FOREIGN ")) { //NON-NLS
+                    continue;
+                }
+                if (upper.startsWith("PRIMARY KEY")) { //NON-NLS
+                    // A single column table primary key on an INTEGER column
+                    // is also an alias of the rowid.
+                    int keyOpen = definition.indexOf('(');
+                    int keyClose = definition.lastIndexOf(')');
+                    List<String> keyColumns = (keyOpen >= 0 && keyClose > keyOpen)
+                            ? splitDefinitions(definition.substring(keyOpen + 1, keyClose))
+                            : Collections.emptyList();
+                    if (rowIdColumn < 0 && keyColumns.size() == 1) {
+                        String keyColumn = splitColumnName(keyColumns.get(0))[0];
+                        for (int i = 0; i < columnNames.size(); i++) {
+                            if (columnNames.get(i).equalsIgnoreCase(keyColumn) && "INTEGER".equals(columnTypes.get(i))) { //NON-NLS
+                                rowIdColumn = i;
+                            }
+                        }
+                    }
+                    continue;
+                }
+                String[] nameAndRest = splitColumnName(definition);
+                String rest = nameAndRest[1].toUpperCase(Locale.ROOT).replaceAll("\\s+", " ").trim();
+                String type = rest.isEmpty() ? "" : rest.split(" ")[0];
+                if (rowIdColumn < 0 && "INTEGER".equals(type) && rest.contains("PRIMARY KEY") && !rest.contains("PRIMARY KEY DESC")) { //NON-NLS
+                    rowIdColumn = columnNames.size();
+                }
+                columnNames.add(nameAndRest[0]);
+                columnTypes.add(type);
+            }
+            return new Table(name, rootPage, columnNames, rowIdColumn);
+        }
+
+        /**
+         * Splits the body of a CREATE TABLE statement at the commas that are
+         * not inside parentheses or quotes.
+         */
+        private static List<String> splitDefinitions(String body) {
+            List<String> definitions = new ArrayList<>();
+            int depth = 0;
+            char quote = 0;
+            int start = 0;
+            for (int i = 0; i < body.length(); i++) {
+                char c = body.charAt(i);
+                if (quote != 0) {
+                    if (c == quote) {
+                        quote = 0;
+                    }
+                } else if (c == '"' || c == '\'' || c == '`') {
+                    quote = c;
+                } else if (c == '[') {
+                    quote = ']';
+                } else if (c == '(') {
+                    depth++;
+                } else if (c == ')') {
+                    depth--;
+                } else if (c == ',' && depth == 0) {
+                    definitions.add(body.substring(start, i).trim());
+                    start = i + 1;
+                }
+            }
+            definitions.add(body.substring(start).trim());
+            return definitions;
+        }
+
+        private static String[] splitColumnName(String definition) {
+            char first = definition.isEmpty() ? 0 : definition.charAt(0);
+            char closing = (first == '[') ? ']' : (first == '"' || first == '`' || first == '\'') ? first : 0;
+            int end;
+            if (closing != 0) {
+                end = definition.indexOf(closing, 1);
+                end = (end < 0) ? definition.length() : end + 1;
+            } else {
+                end = 0;
+                while (end < definition.length() && !Character.isWhitespace(definition.charAt(end))) {
+                    end++;
+                }
+            }
+            return new String[]{unquote(definition.substring(0, end)), definition.substring(end)};
+        }
+
+        private static String unquote(String identifier) {
+            if (identifier.length() >= 2) {
+                char first = identifier.charAt(0);
+                char last = identifier.charAt(identifier.length() - 1);
+                if ((first == '[' && last == ']') || ((first == '"' || first == '`' || first == '\'') && first == last)) {
+                    return identifier.substring(1, identifier.length() - 1);
+                }
+            }
+            return identifier;
+        }
+    }
+
+    /**
+     * A row of a table. As with Extract.SQLiteRow, nulls are read as empty
+     * strings and numbers as zero. Columns added to the table after the row
+     * was written are null.
+     */
+    static final class Row {
+
+        private final Table table;
+        private final long rowId;
+        private final Object[] values;
+
+        private Row(Table table, long rowId, Object[] values) {
+            this.table = table;
+            this.rowId = rowId;
+            this.values = values;
+        }
+
+        /**
+         * Gets the rowid of the row.
+         *
+         * @return The rowid.
+         */
+        long getRowId() {
+            return rowId;
+        }
+
+        /**
+         * Gets the index of a column.
+         *
+         * @param columnName The column name, compared case insensitively.
+         *
+         * @return The index of the column, starting at 0, or -1 if the table
+         *         has no such column.
+         */
+        int getColumnIndex(String columnName) {
+            Integer columnIndex = table.columnIndexes.get(columnName.toLowerCase(Locale.ROOT));
+            return (columnIndex == null) ? -1 : columnIndex;
+        }
+
+        /**
+         * Gets a column value as it is stored: a Long, Double, String or byte
+         * array.
+         *
+         * @param columnName The column name.
+         *
+         * @return The value, or the empty string if the value is null.
+         *
+         * @throws IOException If the table has no such column.
+         */
+        Object getObject(String columnName) throws IOException {
+            Object value = getValue(columnName);
+            return (value == null) ? "" : value;
+        }
+
+        /**
+         * Gets a column value as a string.
+         *
+         * @param columnName The column name.
+         *
+         * @return The value, or the empty string if the value is null.
+         *
+         * @throws IOException If the table has no such column.
+         */
+        String getString(String columnName) throws IOException {
+            Object value = getValue(columnName);
+            if (value == null) {
+                return "";
+            }
+            if (value instanceof byte[]) {
+                return new String((byte[]) value, StandardCharsets.UTF_8);
+            }
+            return value.toString();
+        }
+
+        /**
+         * Gets a column value as a long. Text is parsed as a number, the way
+         * SQLite converts it.
+         *
+         * @param columnName The column name.
+         *
+         * @return The value, or zero if the value is null or is not a number.
+         *
+         * @throws IOException If the table has no such column.
+         */
+        long getLong(String columnName) throws IOException {
+            Object value = getValue(columnName);
+            if (value instanceof Number) {
+                return ((Number) value).longValue();
+            }
+            if (value instanceof String) {
+                try {
+                    return Long.parseLong(((String) value).trim());
+                } catch (NumberFormatException ex) {
+                    try {
+                        return (long) Double.parseDouble(((String) value).trim());
+                    } catch (NumberFormatException ex2) {
+                        return 0;
+                    }
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * Gets a column value as an int.
+         *
+         * @param columnName The column name.
+         *
+         * @return The value, or zero if the value is null or is not a number.
+         *
+         * @throws IOException If the table has no such column.
+         */
+        int getInt(String columnName) throws IOException {
+            return (int) getLong(columnName);
+        }
+
+        /**
+         * Checks whether a column value is null.
+         *
+         * @param columnName The column name.
+         *
+         * @return True if the value is null.
+         *
+         * @throws IOException If the table has no such column.
+         */
+        boolean isNull(String columnName) throws IOException {
+            return getValue(columnName) == null;
+        }
+
+        private Object getValue(String columnName) throws IOException {
+            int columnIndex = getColumnIndex(columnName);
+            if (columnIndex < 0) {
+                throw new IOException(String.format("Table %s has no column %s", table.name, columnName)); //NON-NLS
+            }
+            if (columnIndex == table.rowIdColumn) {
+                return rowId;
+            }
+            return (columnIndex < values.length) ? values[columnIndex] : null;
+        }
+    }
+}
@@ -82,6 +82,15 @@ class SearchEngineURLQueryAnalyzer extends Extract {
         this.context = context;
     }
 
+    /**
+     * The search queries are found in the web history and bookmarks of the
+     * web browser extractors.
+     */
+    @Override
+    Collection<Class<? extends Extract>> getDependencies() {
+        return WEB_BROWSER_EXTRACTORS;
+    }
+
     /**
      * Stores the regular expression and non-reg exp pair of keys. Key in the
      * case of "?q=foo" would be "?q=".
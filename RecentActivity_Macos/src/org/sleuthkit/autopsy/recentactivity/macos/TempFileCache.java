@@ -0,0 +1,213 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2021 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.recentactivity.macos;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import org.sleuthkit.autopsy.coreutils.Logger;
+import org.sleuthkit.autopsy.datamodel.ContentUtils;
+import org.sleuthkit.datamodel.AbstractFile;
+
+/**
+ * The temporary copies of the files the Recent Activity extractors parse,
+ * shared between the extractors of an ingest job. Several extractors, and
+ * several methods of one extractor, read the same database (places.sqlite for
+ * Firefox history, bookmarks and downloads; History for Chrome history and
+ * downloads); each file is written to the temp folder once, together with its
+ * SQLite write-ahead log and shared memory files, rather than once per read.
+ *
+ * The copies are reference counted. Each user acquires a handle on a copy and
+ * closes it when done, and the copy is deleted when the last handle is
+ * closed.
+ */
+final class TempFileCache {
+
+    /**
+     * The suffixes of the files SQLite keeps next to a database, which have to
+     * be copied along with it for the copy to be read as it was.
+     */
+    static final List<String> SQLITE_SIBLING_SUFFIXES = Collections.unmodifiableList(Arrays.asList("-wal", "-shm")); //NON-NLS
+
+    private static final Logger logger = Logger.getLogger(TempFileCache.class.getName());
+
+    private final Path directory;
+    private final Map<Long, Entry> entries = new HashMap<>();
+
+    /**
+     * Creates a cache writing its copies to a directory.
+     *
+     * @param directory The directory, which has to exist.
+     */
+    TempFileCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Gets the path the copy of a file is, or will be, written to. The copy is
+     * named after the object id and name of the file, and its SQLite siblings
+     * after the copy, so SQLite finds them.
+     *
+     * @param file The file.
+     *
+     * @return The path of the copy.
+     */
+    Path getPath(AbstractFile file) {
+        return directory.resolve(file.getId() + "_" + file.getName()); //NON-NLS
+    }
+
+    /**
+     * Acquires a handle on the copy of a file, writing the file and its
+     * siblings to the temp folder if no other user has done so already. Only
+     * one user writes a given file; the others wait for it.
+     *
+     * @param file        The file.
+     * @param siblings    The SQLite siblings of the file, see
+     *                    SQLITE_SIBLING_SUFFIXES.
+     * @param cancelCheck Checked while writing; if it returns true the copy is
+     *                    left incomplete and is written again by the next
+     *                    user.
+     *
+     * @return The handle, to be closed when the copy is no longer needed.
+     *
+     * @throws IOException If the file can not be written.
+     */
+    Handle acquire(AbstractFile file, Collection<AbstractFile> siblings, Supplier<Boolean> cancelCheck) throws IOException {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.computeIfAbsent(file.getId(), id -> new Entry(id, getPath(file)));
+            entry.referenceCount++;
+        }
+        try {
+            entry.write(file, siblings, cancelCheck);
+        } catch (IOException ex) {
+            release(entry);
+            throw ex;
+        }
+        return new Handle(entry);
+    }
+
+    /**
+     * Deletes all of the copies, whether or not their handles have been
+     * closed. Called when the ingest job is done.
+     */
+    synchronized void clear() {
+        for (Entry entry : entries.values()) {
+            entry.delete();
+        }
+        entries.clear();
+    }
+
+    private synchronized void release(Entry entry) {
+        entry.referenceCount--;
+        if (entry.referenceCount == 0 && entries.get(entry.objId) == entry) {
+            entries.remove(entry.objId);
+            entry.delete();
+        }
+    }
+
+    /**
+     * A copy of a file and its siblings.
+     */
+    private static final class Entry {
+
+        private final long objId;
+        private final Path path;
+        private final List<Path> siblingPaths = new ArrayList<>();
+        private int referenceCount;
+        private boolean written;
+
+        private Entry(long objId, Path path) {
+            this.objId = objId;
+            this.path = path;
+        }
+
+        private synchronized void write(AbstractFile file, Collection<AbstractFile> siblings, Supplier<Boolean> cancelCheck) throws IOException {
+            if (written) {
+                return;
+            }
+            ContentUtils.writeToFile(file, path.toFile(), cancelCheck);
+            for (AbstractFile sibling : siblings) {
+                String suffix = sibling.getName().substring(file.getName().length());
+                Path siblingPath = Paths.get(path.toString() + suffix);
+                ContentUtils.writeToFile(sibling, siblingPath.toFile(), cancelCheck);
+                siblingPaths.add(siblingPath);
+            }
+            written = !cancelCheck.get();
+        }
+
+        private synchronized void delete() {
+            for (Path siblingPath : siblingPaths) {
+                deleteFile(siblingPath.toFile());
+            }
+            deleteFile(path.toFile());
+            written = false;
+        }
+
+        private static void deleteFile(File file) {
+            if (file.exists() && !file.delete()) {
+                logger.log(Level.WARNING, "Unable to delete temp file {0}", file); //NON-NLS
+            }
+        }
+    }
+
+    /**
+     * A user's hold on a copy. The copy stays on disk until every handle on
+     * it is closed.
+     */
+    final class Handle implements AutoCloseable {
+
+        private final Entry entry;
+        private boolean closed;
+
+        private Handle(Entry entry) {
+            this.entry = entry;
+        }
+
+        /**
+         * Gets the path of the copy.
+         *
+         * @return The path.
+         */
+        Path getPath() {
+            return entry.path;
+        }
+
+        @Override
+        public void close() {
+            synchronized (TempFileCache.this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+            }
+            release(entry);
+        }
+    }
+}
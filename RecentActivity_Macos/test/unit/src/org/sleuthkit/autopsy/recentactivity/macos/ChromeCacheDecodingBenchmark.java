@@ -0,0 +1,254 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2021 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.recentactivity.macos;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.sleuthkit.autopsy.recentactivity.macos.ChromeCacheExtractor.CacheAddress;
+import org.sleuthkit.autopsy.recentactivity.macos.ChromeCacheExtractor.CacheDataSegment;
+import org.sleuthkit.autopsy.recentactivity.macos.ChromeCacheExtractor.CacheEntry;
+import org.sleuthkit.autopsy.recentactivity.macos.ChromeCacheExtractor.FileWrapper;
+
+/**
+ * Measures the decoding of a synthetic block-file Chrome cache: the scan of
+ * the index table, and for each entry in use, the entry, its key, and its
+ * HTTP header and payload segments, as ChromeCacheExtractor.readCacheEntry()
+ * reads them. Saving payloads and adding files to the case are left out.
+ *
+ * Each round decodes the whole cache with new file wrappers, as a new ingest
+ * job would, on the calling thread, and reports the entries decoded per
+ * second and the bytes allocated per entry, from
+ * com.sun.management.ThreadMXBean. By default the data files are small enough
+ * for FileWrapper to keep all of their blocks, so every block is read once a
+ * round; with more than about 1000 entries, data_3 outgrows the blocks kept
+ * and the time and allocations go to reading blocks again.
+ *
+ * It is not a unit test; run it with the unit test class path:
+ *
+ * <pre>
+ *   java -cp &lt;unit test class path&gt; org.sleuthkit.autopsy.recentactivity.macos.ChromeCacheDecodingBenchmark [entries] [rounds]
+ * </pre>
+ */
+public final class ChromeCacheDecodingBenchmark {
+
+    private static final String CACHE_FOLDER = "/Users/user/Library/Caches/Google/Chrome/Default/Cache/"; //NON-NLS
+    private static final int INDEX_SLOTS = 65536;
+    private static final int DEFAULT_ENTRY_COUNT = 900;
+    private static final int DEFAULT_ROUNDS = 200;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int DATA_FILE_HEADER_SIZE = 8192;
+    private static final int ENTRY_SIZE = 256;
+    private static final int HEADER_BLOCK_SIZE = 1024;
+    private static final int PAYLOAD_BLOCK_SIZE = 4096;
+    private static final int PAYLOAD_SIZE = 3000;
+    private static final long WINDOWS_EPOCH_OFFSET_SECONDS = 11644473600L;
+
+    // Address fields, as in Chromium's disk_cache/blockfile/addr.h
+    private static final long ADDR_INITIALIZED = 0x80000000L;
+    private static final int FILE_TYPE_BLOCK_256 = 2;
+    private static final int FILE_TYPE_BLOCK_1K = 3;
+    private static final int FILE_TYPE_BLOCK_4K = 4;
+
+    private ChromeCacheDecodingBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int entryCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ENTRY_COUNT;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ROUNDS;
+        SyntheticCache cache = new SyntheticCache(entryCount);
+        ChromeCacheExtractor extractor = new ChromeCacheExtractor(null, null, null, null, false);
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long totalNanos = 0;
+        long totalBytes = 0;
+        long totalEntries = 0;
+        long checksum = 0;
+        for (int round = 0; round < WARMUP_ROUNDS + rounds; round++) {
+            Map<String, FileWrapper> fileWrappers = extractor.useCacheFolderFiles(CACHE_FOLDER, Arrays.asList(
+                    new BytesFile("data_1", cache.entries), //NON-NLS
+                    new BytesFile("data_2", cache.headers), //NON-NLS
+                    new BytesFile("data_3", cache.payloads))); //NON-NLS
+            long bytesBefore = threads.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            int[] decoded = new int[1];
+            checksum += decodeAll(extractor, fileWrappers, cache.indexTable, decoded);
+            long nanos = System.nanoTime() - start;
+            long bytes = threads.getThreadAllocatedBytes(threadId) - bytesBefore;
+            if (round >= WARMUP_ROUNDS) {
+                totalNanos += nanos;
+                totalBytes += bytes;
+                totalEntries += decoded[0];
+            }
+        }
+
+        System.out.println(String.format("%d entries in %d index slots, %d rounds (checksum %d)", //NON-NLS
+                entryCount, INDEX_SLOTS, rounds, checksum));
+        System.out.println(String.format("entries/sec:     %.0f", totalEntries / (totalNanos / 1e9))); //NON-NLS
+        System.out.println(String.format("bytes/entry:     %.0f", (double) totalBytes / totalEntries)); //NON-NLS
+    }
+
+    /**
+     * Decodes every entry in use in the index table.
+     *
+     * @return A value computed from the decoded entries, so the work can not
+     *         be optimized away.
+     */
+    private static long decodeAll(ChromeCacheExtractor extractor, Map<String, FileWrapper> fileWrappers, ByteBuffer indexTable, int[] decoded) throws Exception {
+        long checksum = 0;
+        for (int i = 0; i < INDEX_SLOTS; i++) {
+            long address = indexTable.getInt(4 * i) & 0xFFFFFFFFL;
+            if ((address & ADDR_INITIALIZED) == 0) {
+                continue;
+            }
+            CacheAddress cacheAddress = extractor.new CacheAddress(address, CACHE_FOLDER);
+            CacheEntry entry = extractor.new CacheEntry(cacheAddress, fileWrappers.get(cacheAddress.getFilename()));
+            List<CacheDataSegment> segments = entry.getDataSegments();
+            checksum += entry.getKey().length() + entry.getCreationTime() + entry.getHTTPHeaders().length() + segments.get(1).getDataLength();
+            String encoding = entry.getHTTPHeader("content-encoding"); //NON-NLS
+            if (entry.isBrotliCompressed() || encoding != null) {
+                checksum++;
+            }
+            decoded[0]++;
+        }
+        return checksum;
+    }
+
+    private static long encodeAddress(int fileType, int fileNumber, int startBlock) {
+        return ADDR_INITIALIZED | ((long) fileType << 28) | ((long) fileNumber << 16) | startBlock;
+    }
+
+    /**
+     * A block-file cache with its entries in data_1, their HTTP headers in
+     * data_2 and their payloads in data_3, spread at random over the index
+     * table.
+     */
+    private static final class SyntheticCache {
+
+        private final ByteBuffer indexTable;
+        private final byte[] entries;
+        private final byte[] headers;
+        private final byte[] payloads;
+
+        SyntheticCache(int entryCount) {
+            if (entryCount > INDEX_SLOTS || entryCount > 0xFFFF) {
+                throw new IllegalArgumentException("Too many entries: " + entryCount); //NON-NLS
+            }
+            Random random = new Random(42);
+            indexTable = littleEndian(4 * INDEX_SLOTS);
+            ByteBuffer entryBuffer = littleEndian(DATA_FILE_HEADER_SIZE + entryCount * ENTRY_SIZE);
+            ByteBuffer headerBuffer = littleEndian(DATA_FILE_HEADER_SIZE + entryCount * HEADER_BLOCK_SIZE);
+            payloads = new byte[DATA_FILE_HEADER_SIZE + entryCount * PAYLOAD_BLOCK_SIZE];
+            random.nextBytes(payloads);
+
+            for (int i = 0; i < entryCount; i++) {
+                int slot;
+                do {
+                    slot = random.nextInt(INDEX_SLOTS);
+                } while (indexTable.getInt(4 * slot) != 0);
+                indexTable.putInt(4 * slot, (int) encodeAddress(FILE_TYPE_BLOCK_256, 1, i));
+
+                String url = "https://www" + (i % 50) + ".example.com/assets/" + i + "/script.js?v=" + random.nextInt(1000000); //NON-NLS
+                byte[] key = url.getBytes(StandardCharsets.US_ASCII);
+                byte[] httpHeaders = ("HTTP/1.1 200 OK\0" //NON-NLS
+                        + "content-type: application/javascript\0" //NON-NLS
+                        + "content-encoding: " + (i % 3 == 0 ? "br" : "gzip") + "\0" //NON-NLS
+                        + "cache-control: public, max-age=31536000\0" //NON-NLS
+                        + "date: Tue, 19 Oct 2021 08:20:39 GMT\0" //NON-NLS
+                        + "etag: \"" + Integer.toHexString(random.nextInt()) + "\"\0" //NON-NLS
+                        + "last-modified: Mon, 18 Oct 2021 10:00:00 GMT\0" //NON-NLS
+                        + "vary: Accept-Encoding\0\0").getBytes(StandardCharsets.US_ASCII); //NON-NLS
+                int headerLength = 64 + httpHeaders.length;
+
+                int entryOffset = DATA_FILE_HEADER_SIZE + i * ENTRY_SIZE;
+                entryBuffer.position(entryOffset);
+                entryBuffer.putInt(random.nextInt());                          // hash
+                entryBuffer.putInt(0);                                         // next
+                entryBuffer.putInt(0);                                         // rankings node
+                entryBuffer.putInt(1);                                         // reuse count
+                entryBuffer.putInt(0);                                         // refetch count
+                entryBuffer.putInt(0);                                         // state
+                entryBuffer.putLong((1634631639L + i + WINDOWS_EPOCH_OFFSET_SECONDS) * 1000000L);
+                entryBuffer.putInt(key.length);
+                entryBuffer.putInt(0);                                         // long key address
+                entryBuffer.putInt(headerLength);
+                entryBuffer.putInt(PAYLOAD_SIZE);
+                entryBuffer.putInt(0);
+                entryBuffer.putInt(0);
+                entryBuffer.putInt((int) encodeAddress(FILE_TYPE_BLOCK_1K, 2, i));
+                entryBuffer.putInt((int) encodeAddress(FILE_TYPE_BLOCK_4K, 3, i));
+                entryBuffer.putInt(0);
+                entryBuffer.putInt(0);
+                entryBuffer.putInt(0);                                         // flags
+                entryBuffer.position(entryBuffer.position() + 4 * 4 + 4);      // pad, self hash
+                entryBuffer.put(key, 0, Math.min(key.length, ENTRY_SIZE - 96 - 1));
+
+                // The pickled response info: flags and times, then the headers
+                headerBuffer.position(DATA_FILE_HEADER_SIZE + i * HEADER_BLOCK_SIZE);
+                headerBuffer.putInt(headerLength - 4);
+                headerBuffer.position(headerBuffer.position() + 56);
+                headerBuffer.putInt(httpHeaders.length);
+                headerBuffer.put(httpHeaders);
+            }
+            entries = entryBuffer.array();
+            headers = headerBuffer.array();
+        }
+
+        private static ByteBuffer littleEndian(int size) {
+            return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    /**
+     * A cache file in memory.
+     */
+    private static final class BytesFile implements ChromeSimpleCacheEntry.EntryFile {
+
+        private final String name;
+        private final byte[] data;
+
+        BytesFile(String name, byte[] data) {
+            this.name = name;
+            this.data = data;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public long getSize() {
+            return data.length;
+        }
+
+        @Override
+        public int read(byte[] buffer, long offset, long length) {
+            int count = (int) Math.max(0, Math.min(length, data.length - offset));
+            System.arraycopy(data, (int) offset, buffer, 0, count);
+            return count;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2021 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.recentactivity.macos;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.sleuthkit.datamodel.TskCoreException;
+
+/**
+ * Reads generated Simple Cache "_0" files, laid out as in Chromium's
+ * disk_cache/simple/simple_entry_format.h.
+ */
+public class ChromeSimpleCacheEntryTest {
+
+    private static final long INITIAL_MAGIC = 0xfcfb6d1ba7725c30L;
+    private static final long FINAL_MAGIC = 0xf4fa6f45970d41d8L;
+    private static final int VERSION = 5;
+    private static final int FLAG_HAS_KEY_SHA256 = 2;
+    private static final long WINDOWS_EPOCH_OFFSET_SECONDS = 11644473600L;
+
+    private static final String KEY = "1/0/_dk_https://example.com https://example.com https://example.com/script.js"; //NON-NLS
+    private static final long REQUEST_TIME = 1634567890L;
+    private static final String RAW_HEADERS = "HTTP/1.1 200 OK\0content-type: text/javascript\0content-encoding: br\0\0"; //NON-NLS
+
+    @Test
+    public void testEntryWithoutKeySha256() throws Exception {
+        byte[] payload = "console.log('cached');".getBytes(StandardCharsets.UTF_8); //NON-NLS
+        ChromeSimpleCacheEntry entry = ChromeSimpleCacheEntry.read(new BytesEntryFile(buildEntry(payload, false)));
+        assertEntry(entry, payload);
+    }
+
+    @Test
+    public void testEntryWithKeySha256() throws Exception {
+        byte[] payload = "console.log('cached');".getBytes(StandardCharsets.UTF_8); //NON-NLS
+        ChromeSimpleCacheEntry entry = ChromeSimpleCacheEntry.read(new BytesEntryFile(buildEntry(payload, true)));
+        assertEntry(entry, payload);
+    }
+
+    @Test
+    public void testEmptyPayload() throws Exception {
+        ChromeSimpleCacheEntry entry = ChromeSimpleCacheEntry.read(new BytesEntryFile(buildEntry(new byte[0], true)));
+        assertEntry(entry, new byte[0]);
+    }
+
+    @Test
+    public void testShortReadsAreContinued() throws Exception {
+        byte[] payload = new byte[200 * 1024];
+        Arrays.fill(payload, (byte) 'x');
+        ChromeSimpleCacheEntry entry = ChromeSimpleCacheEntry.read(new BytesEntryFile(buildEntry(payload, false), 7));
+        assertEntry(entry, payload);
+    }
+
+    @Test(expected = TskCoreException.class)
+    public void testBadHeaderMagic() throws Exception {
+        byte[] data = buildEntry(new byte[16], false);
+        data[0] ^= 0xff;
+        ChromeSimpleCacheEntry.read(new BytesEntryFile(data));
+    }
+
+    @Test(expected = TskCoreException.class)
+    public void testBadEofMagic() throws Exception {
+        byte[] data = buildEntry(new byte[16], false);
+        data[data.length - 24] ^= 0xff;
+        ChromeSimpleCacheEntry.read(new BytesEntryFile(data));
+    }
+
+    @Test(expected = TskCoreException.class)
+    public void testTruncatedFile() throws Exception {
+        byte[] data = buildEntry(new byte[16], false);
+        ChromeSimpleCacheEntry.read(new BytesEntryFile(Arrays.copyOf(data, 40)));
+    }
+
+    @Test(expected = TskCoreException.class)
+    public void testReadEndsEarly() throws Exception {
+        byte[] data = buildEntry(new byte[16], false);
+        ChromeSimpleCacheEntry.read(new BytesEntryFile(data, Integer.MAX_VALUE, 10));
+    }
+
+    @Test
+    public void testEntryFileName() {
+        assertTrue(ChromeSimpleCacheEntry.isEntryFileName("0123456789abcdef_0")); //NON-NLS
+        assertFalse(ChromeSimpleCacheEntry.isEntryFileName("0123456789abcdef_1")); //NON-NLS
+        assertFalse(ChromeSimpleCacheEntry.isEntryFileName("the-real-index")); //NON-NLS
+    }
+
+    private static void assertEntry(ChromeSimpleCacheEntry entry, byte[] payload) throws IOException, TskCoreException {
+        assertEquals(KEY, entry.getKey());
+        assertEquals(REQUEST_TIME, entry.getRequestTime());
+        assertEquals("HTTP/1.1 200 OK", entry.getHTTPResponse()); //NON-NLS
+        assertEquals(" text/javascript", entry.getHTTPHeader("content-type")); //NON-NLS
+        assertNull(entry.getHTTPHeader("etag")); //NON-NLS
+        assertTrue(entry.isBrotliCompressed());
+        assertEquals(payload.length, entry.getPayloadLength());
+
+        File payloadFile = File.createTempFile("simple_cache", ".bin"); //NON-NLS
+        try {
+            entry.savePayload(payloadFile);
+            assertArrayEquals(payload, Files.readAllBytes(payloadFile.toPath()));
+        } finally {
+            payloadFile.delete();
+        }
+    }
+
+    /**
+     * Builds the "_0" file of an entry with KEY, the given payload as stream
+     * 1, and a pickled response info holding REQUEST_TIME and RAW_HEADERS as
+     * stream 0.
+     */
+    private static byte[] buildEntry(byte[] payload, boolean withKeySha256) throws IOException {
+        byte[] key = KEY.getBytes(StandardCharsets.UTF_8);
+        byte[] headers = RAW_HEADERS.getBytes(StandardCharsets.UTF_8);
+
+        ByteBuffer stream0 = littleEndian(4 + 4 + 8 + 8 + 4 + headers.length);
+        stream0.putInt(stream0.capacity() - 4);
+        stream0.putInt(0);
+        stream0.putLong((REQUEST_TIME + WINDOWS_EPOCH_OFFSET_SECONDS) * 1000000L);
+        stream0.putLong((REQUEST_TIME + WINDOWS_EPOCH_OFFSET_SECONDS + 1) * 1000000L);
+        stream0.putInt(headers.length);
+        stream0.put(headers);
+
+        ByteBuffer header = littleEndian(24);
+        header.putLong(INITIAL_MAGIC);
+        header.putInt(VERSION);
+        header.putInt(key.length);
+        header.putInt(0x12345678);
+        header.putInt(0);
+
+        ByteArrayOutputStream entry = new ByteArrayOutputStream();
+        entry.write(header.array());
+        entry.write(key);
+        entry.write(payload);
+        entry.write(eof(0, payload.length));
+        entry.write(stream0.array());
+        if (withKeySha256) {
+            entry.write(new byte[32]);
+        }
+        entry.write(eof(withKeySha256 ? FLAG_HAS_KEY_SHA256 : 0, stream0.capacity()));
+        return entry.toByteArray();
+    }
+
+    private static byte[] eof(int flags, int streamSize) {
+        ByteBuffer eof = littleEndian(24);
+        eof.putLong(FINAL_MAGIC);
+        eof.putInt(flags);
+        eof.putInt(0);
+        eof.putInt(streamSize);
+        eof.putInt(0);
+        return eof.array();
+    }
+
+    private static ByteBuffer littleEndian(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * An entry file in memory. Reads return at most maxRead bytes, and
+     * nothing past readableSize, to simulate short reads and files that end
+     * before their reported size.
+     */
+    private static final class BytesEntryFile implements ChromeSimpleCacheEntry.EntryFile {
+
+        private final byte[] data;
+        private final int maxRead;
+        private final int readableSize;
+
+        BytesEntryFile(byte[] data) {
+            this(data, Integer.MAX_VALUE);
+        }
+
+        BytesEntryFile(byte[] data, int maxRead) {
+            this(data, maxRead, data.length);
+        }
+
+        BytesEntryFile(byte[] data, int maxRead, int readableSize) {
+            this.data = data;
+            this.maxRead = maxRead;
+            this.readableSize = readableSize;
+        }
+
+        @Override
+        public String getName() {
+            return "0123456789abcdef_0"; //NON-NLS
+        }
+
+        @Override
+        public long getSize() {
+            return data.length;
+        }
+
+        @Override
+        public int read(byte[] buffer, long offset, long length) {
+            if (offset >= readableSize) {
+                return -1;
+            }
+            int count = (int) Math.min(Math.min(length, maxRead), readableSize - offset);
+            System.arraycopy(data, (int) offset, buffer, 0, count);
+            return count;
+        }
+    }
+}
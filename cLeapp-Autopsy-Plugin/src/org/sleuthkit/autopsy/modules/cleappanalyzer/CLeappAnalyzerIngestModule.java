@@ -40,7 +40,6 @@ import org.openide.util.NbBundle;
 import org.sleuthkit.autopsy.casemodule.Case;
 import static org.sleuthkit.autopsy.casemodule.Case.getCurrentCase;
 import org.sleuthkit.autopsy.casemodule.NoCurrentCaseException;
-import org.sleuthkit.autopsy.casemodule.services.FileManager;
 import org.sleuthkit.autopsy.coreutils.ExecUtil;
 import org.sleuthkit.autopsy.coreutils.Logger;
 import org.sleuthkit.autopsy.coreutils.PlatformUtil;
@@ -124,6 +123,8 @@ public class CLeappAnalyzerIngestModule implements DataSourceIngestModule {
         "CLeappAnalyzerIngestModule.has.run=cLeapp",
         "CLeappAnalyzerIngestModule.cLeapp.cancelled=cLeapp run was canceled",
         "CLeappAnalyzerIngestModule.completed=cLeapp Processing Completed",
+        "# {0} - data source name",
+        "CLeappAnalyzerIngestModule.no.relevant.files=No files that cLeapp processes were found in {0}, cLeapp was not run.",
         "CLeappAnalyzerIngestModule.report.name=cLeapp Html Report"})
     @Override
     public ProcessResult process(Content dataSource, DataSourceIngestModuleProgress statusHelper) {
@@ -154,23 +155,41 @@ public class CLeappAnalyzerIngestModule implements DataSourceIngestModule {
         statusHelper.progress(Bundle.CLeappAnalyzerIngestModule_starting_cLeapp(), 0);
 
         List<AbstractFile> cLeappFilesToProcess = new ArrayList<>();
+        LeappPathMatcher pathMatcher = LeappPathMatcher.compile(cLeappPathsToProcess);
+        boolean cLeappHasRun = false;
 
         if (!(context.getDataSource() instanceof LocalFilesDataSource)) {
-            extractFilesFromImage(dataSource, cLeappPathsToProcess, tempOutputPath);
+            int filesFound = extractFilesFromImage(dataSource, pathMatcher, tempOutputPath);
             statusHelper.switchToDeterminate(cLeappFilesToProcess.size());
-            processCLeappFs(dataSource, currentCase, statusHelper, tempOutputPath.toString());
+            if (filesFound > 0) {
+                processCLeappFs(dataSource, currentCase, statusHelper, tempOutputPath.toString());
+                cLeappHasRun = true;
+            }
         } else {
             cLeappFilesToProcess = LeappFileProcessor.findLeappFilesToProcess(dataSource);
             statusHelper.switchToDeterminate(cLeappFilesToProcess.size());
 
             Integer filesProcessedCount = 0;
             for (AbstractFile cLeappFile : cLeappFilesToProcess) {
-                processCLeappFile(dataSource, currentCase, statusHelper, filesProcessedCount, cLeappFile);
+                if (LeappArchiveProbe.containsMatchingEntry(cLeappFile, pathMatcher)) {
+                    processCLeappFile(dataSource, currentCase, statusHelper, filesProcessedCount, cLeappFile);
+                    cLeappHasRun = true;
+                } else {
+                    logger.log(Level.INFO, String.format("Archive %s contains no files cLeapp processes, skipping it", cLeappFile.getName())); //NON-NLS
+                }
                 filesProcessedCount++;
             }
             // Process the logical image as a fs in cLeapp to make sure this is not a logical fs that was added
-            extractFilesFromImage(dataSource, cLeappPathsToProcess, tempOutputPath);
-            processCLeappFs(dataSource, currentCase, statusHelper, tempOutputPath.toString());
+            if (extractFilesFromImage(dataSource, pathMatcher, tempOutputPath) > 0) {
+                processCLeappFs(dataSource, currentCase, statusHelper, tempOutputPath.toString());
+                cLeappHasRun = true;
+            }
+        }
+
+        if (!cLeappHasRun && !context.dataSourceIngestIsCancelled()) {
+            logger.log(Level.INFO, String.format("No files cLeapp processes were found in data source %s, cLeapp was not run", dataSource.getName())); //NON-NLS
+            writeNoRelevantFilesMsgToIngestInbox(dataSource);
+            return ProcessResult.OK;
         }
 
         IngestMessage message = IngestMessage.createMessage(IngestMessage.MessageType.DATA,
@@ -381,40 +400,43 @@ public class CLeappAnalyzerIngestModule implements DataSourceIngestModule {
         return cLeappPathsToProcess;
     }
 
-    private void extractFilesFromImage(Content dataSource, List<String> cLeappPathsToProcess, Path moduleOutputPath) {
-        FileManager fileManager = getCurrentCase().getServices().getFileManager();
+    /**
+     * Extract the files matching the cLeapp path list from the data source.
+     * The path list is matched against the file table of the data source in a
+     * single pass.
+     *
+     * @param dataSource       datasource to extract the files from
+     * @param pathMatcher      the compiled cLeapp path list
+     * @param moduleOutputPath directory the files are written to
+     *
+     * @return the number of files found to extract
+     */
+    private int extractFilesFromImage(Content dataSource, LeappPathMatcher pathMatcher, Path moduleOutputPath) {
+        if (context.dataSourceIngestIsCancelled()) {
+            logger.log(Level.INFO, "cLeapp Analyser ingest module run was canceled"); //NON-NLS
+            return 0;
+        }
 
-        for (String fullFilePath : cLeappPathsToProcess) {
+        List<AbstractFile> cLeappFiles;
+        try {
+            cLeappFiles = pathMatcher.findMatchingFiles(getCurrentCase().getSleuthkitCase(), dataSource, context::dataSourceIngestIsCancelled);
+        } catch (TskCoreException ex) {
+            logger.log(Level.WARNING, "No files found to process", ex); //NON-NLS
+            return 0;
+        }
 
+        for (AbstractFile cLeappFile : cLeappFiles) {
             if (context.dataSourceIngestIsCancelled()) {
                 logger.log(Level.INFO, "cLeapp Analyser ingest module run was canceled"); //NON-NLS
                 break;
             }
 
-            String ffp = fullFilePath.replaceAll("\\*", "%");
-            ffp = FilenameUtils.normalize(ffp, true);
-            String fileName = FilenameUtils.getName(ffp);
-            String filePath = FilenameUtils.getPath(ffp);
+            Path parentPath = Paths.get(moduleOutputPath.toString(), cLeappFile.getParentPath());
+            File fileParentPath = new File(parentPath.toString());
 
-            List<AbstractFile> cLeappFiles = new ArrayList<>();
-            try {
-                if (filePath.isEmpty()) {
-                    cLeappFiles = fileManager.findFiles(dataSource, fileName); //NON-NLS                
-                } else {
-                    cLeappFiles = fileManager.findFiles(dataSource, fileName, filePath); //NON-NLS
-                }
-            } catch (TskCoreException ex) {
-                logger.log(Level.WARNING, "No files found to process"); //NON-NLS
-                return;
-            }
-
-            for (AbstractFile cLeappFile : cLeappFiles) {
-                Path parentPath = Paths.get(moduleOutputPath.toString(), cLeappFile.getParentPath());
-                File fileParentPath = new File(parentPath.toString());
-
-                extractFileToOutput(dataSource, cLeappFile, fileParentPath, parentPath);
-            }
+            extractFileToOutput(dataSource, cLeappFile, fileParentPath, parentPath);
         }
+        return cLeappFiles.size();
     }
 
     private void extractFileToOutput(Content dataSource, AbstractFile cLeappFile, File fileParentPath, Path parentPath) {
@@ -462,4 +484,17 @@ public class CLeappAnalyzerIngestModule implements DataSourceIngestModule {
             }
         }
     }
+
+    /**
+     * Writes a message to the ingest inbox saying cLeapp was not run because
+     * the data source has none of the files it processes.
+     *
+     * @param dataSource the data source that was checked
+     */
+    private void writeNoRelevantFilesMsgToIngestInbox(Content dataSource) {
+        IngestMessage message = IngestMessage.createMessage(IngestMessage.MessageType.INFO,
+                MODULE_NAME,
+                Bundle.CLeappAnalyzerIngestModule_no_relevant_files(dataSource.getName()));
+        IngestServices.getInstance().postMessage(message);
+    }
 }
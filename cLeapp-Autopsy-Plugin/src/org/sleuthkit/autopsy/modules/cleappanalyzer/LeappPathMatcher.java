@@ -0,0 +1,239 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2021 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.modules.cleappanalyzer;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import org.apache.commons.io.FilenameUtils;
+import org.sleuthkit.datamodel.AbstractFile;
+import org.sleuthkit.datamodel.Content;
+import org.sleuthkit.datamodel.SleuthkitCase;
+import org.sleuthkit.datamodel.TskCoreException;
+
+/**
+ * Compiled form of the path list that the Leapp program prints with its -p
+ * option. All of the globs are matched against the name and parent path of
+ * every file in the data source in a single pass over the file table, instead
+ * of issuing one findFiles query per glob.
+ *
+ * The matching rules are the same ones the case database applied when each
+ * glob was turned into a LIKE pattern: '*' matches any run of characters
+ * (including '/'), '_' matches any single character, the comparison ignores
+ * case, the directory part only has to appear somewhere in the parent path
+ * and files with "journal" in their name never match.
+ */
+final class LeappPathMatcher {
+
+    private static final char LIKE_ANY = '%';
+    private static final char LIKE_ONE = '_';
+    private static final String JOURNAL = "journal"; //NON-NLS
+    private static final int FILE_FETCH_BATCH_SIZE = 500;
+
+    /*
+     * Globs whose file name part has no wildcard, keyed by the lower case
+     * file name, so most files are rejected with a single hash lookup.
+     */
+    private final Map<String, List<PathPattern>> exactNamePatterns = new HashMap<>();
+    private final List<PathPattern> wildcardNamePatterns = new ArrayList<>();
+
+    private LeappPathMatcher() {
+    }
+
+    /**
+     * Compile the globs read from the Leapp paths file.
+     *
+     * @param pathsToProcess the globs to compile
+     *
+     * @return the compiled matcher
+     */
+    static LeappPathMatcher compile(List<String> pathsToProcess) {
+        LeappPathMatcher matcher = new LeappPathMatcher();
+        for (String fullFilePath : pathsToProcess) {
+            String ffp = FilenameUtils.normalize(fullFilePath.replaceAll("\\*", "%"), true);
+            if (ffp == null) {
+                continue;
+            }
+            String fileName = FilenameUtils.getName(ffp).toLowerCase(Locale.ROOT);
+            String filePath = FilenameUtils.getPath(ffp).toLowerCase(Locale.ROOT);
+            PathPattern pathPattern = new PathPattern(fileName, filePath.isEmpty() ? null : LIKE_ANY + filePath + LIKE_ANY);
+            if (fileName.indexOf(LIKE_ANY) < 0 && fileName.indexOf(LIKE_ONE) < 0) {
+                matcher.exactNamePatterns.computeIfAbsent(fileName, name -> new ArrayList<>()).add(pathPattern);
+            } else {
+                matcher.wildcardNamePatterns.add(pathPattern);
+            }
+        }
+        return matcher;
+    }
+
+    /**
+     * @return true if no globs were compiled
+     */
+    boolean isEmpty() {
+        return exactNamePatterns.isEmpty() && wildcardNamePatterns.isEmpty();
+    }
+
+    /**
+     * Check a file against the compiled globs.
+     *
+     * @param name       the name of the file
+     * @param parentPath the parent path of the file
+     *
+     * @return true if any glob matches the file
+     */
+    boolean matches(String name, String parentPath) {
+        if (name == null) {
+            return false;
+        }
+        String lowerName = name.toLowerCase(Locale.ROOT);
+        if (lowerName.contains(JOURNAL)) {
+            return false;
+        }
+        String lowerParentPath = parentPath == null ? null : parentPath.toLowerCase(Locale.ROOT);
+
+        List<PathPattern> candidates = exactNamePatterns.get(lowerName);
+        if (candidates != null) {
+            for (PathPattern candidate : candidates) {
+                if (candidate.parentPathMatches(lowerParentPath)) {
+                    return true;
+                }
+            }
+        }
+        for (PathPattern candidate : wildcardNamePatterns) {
+            if (candidate.nameMatches(lowerName) && candidate.parentPathMatches(lowerParentPath)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Find all the files in the data source that match one of the compiled
+     * globs. The file table is read once, by name and parent path only, and
+     * the matching files are then loaded in batches.
+     *
+     * @param caseDb      the case database
+     * @param dataSource  the data source to search
+     * @param cancelCheck returns true if the search should stop
+     *
+     * @return the matching files, or an empty list if cancelled
+     *
+     * @throws TskCoreException if the file table could not be read
+     */
+    List<AbstractFile> findMatchingFiles(SleuthkitCase caseDb, Content dataSource, Supplier<Boolean> cancelCheck) throws TskCoreException {
+        List<Long> matchingFileIds = new ArrayList<>();
+        String query = "SELECT obj_id, name, parent_path FROM tsk_files WHERE data_source_obj_id = " + dataSource.getId(); //NON-NLS
+        try (SleuthkitCase.CaseDbQuery dbQuery = caseDb.executeQuery(query)) {
+            ResultSet resultSet = dbQuery.getResultSet();
+            while (resultSet.next()) {
+                if (cancelCheck.get()) {
+                    return Collections.emptyList();
+                }
+                if (matches(resultSet.getString("name"), resultSet.getString("parent_path"))) { //NON-NLS
+                    matchingFileIds.add(resultSet.getLong("obj_id")); //NON-NLS
+                }
+            }
+        } catch (SQLException ex) {
+            throw new TskCoreException(String.format("Error reading the file table of data source %d", dataSource.getId()), ex);
+        }
+
+        List<AbstractFile> matchingFiles = new ArrayList<>();
+        for (int start = 0; start < matchingFileIds.size(); start += FILE_FETCH_BATCH_SIZE) {
+            if (cancelCheck.get()) {
+                return Collections.emptyList();
+            }
+            String idList = matchingFileIds.subList(start, Math.min(start + FILE_FETCH_BATCH_SIZE, matchingFileIds.size())).stream()
+                    .map(String::valueOf)
+                    .collect(Collectors.joining(","));
+            matchingFiles.addAll(caseDb.findAllFilesWhere("obj_id IN (" + idList + ")")); //NON-NLS
+        }
+        return matchingFiles;
+    }
+
+    /**
+     * Match a value against a SQL LIKE pattern where '%' matches any run of
+     * characters and '_' matches exactly one. Both arguments are expected to
+     * already be in lower case.
+     *
+     * @param pattern the LIKE pattern
+     * @param value   the value to test
+     *
+     * @return true if the whole value matches the pattern
+     */
+    static boolean likeMatches(String pattern, String value) {
+        int p = 0;
+        int v = 0;
+        int anyPos = -1;
+        int anyMatch = 0;
+        while (v < value.length()) {
+            if (p < pattern.length() && pattern.charAt(p) == LIKE_ANY) {
+                anyPos = p++;
+                anyMatch = v;
+            } else if (p < pattern.length() && (pattern.charAt(p) == LIKE_ONE || pattern.charAt(p) == value.charAt(v))) {
+                p++;
+                v++;
+            } else if (anyPos >= 0) {
+                p = anyPos + 1;
+                v = ++anyMatch;
+            } else {
+                return false;
+            }
+        }
+        while (p < pattern.length() && pattern.charAt(p) == LIKE_ANY) {
+            p++;
+        }
+        return p == pattern.length();
+    }
+
+    /**
+     * A single glob split into its file name pattern and, when the glob has a
+     * directory part, the pattern its parent path has to contain.
+     */
+    private static final class PathPattern {
+
+        private final String namePattern;
+        private final String parentPathPattern;
+        private final String nameSuffix;
+
+        PathPattern(String namePattern, String parentPathPattern) {
+            this.namePattern = namePattern;
+            this.parentPathPattern = parentPathPattern;
+            int lastWildcard = Math.max(namePattern.lastIndexOf(LIKE_ANY), namePattern.lastIndexOf(LIKE_ONE));
+            this.nameSuffix = namePattern.substring(lastWildcard + 1);
+        }
+
+        boolean nameMatches(String lowerName) {
+            return lowerName.endsWith(nameSuffix) && likeMatches(namePattern, lowerName);
+        }
+
+        boolean parentPathMatches(String lowerParentPath) {
+            if (parentPathPattern == null) {
+                return true;
+            }
+            return lowerParentPath != null && likeMatches(parentPathPattern, lowerParentPath);
+        }
+    }
+}
@@ -40,7 +40,6 @@ import org.openide.util.NbBundle;
 import org.sleuthkit.autopsy.casemodule.Case;
 import static org.sleuthkit.autopsy.casemodule.Case.getCurrentCase;
 import org.sleuthkit.autopsy.casemodule.NoCurrentCaseException;
-import org.sleuthkit.autopsy.casemodule.services.FileManager;
 import org.sleuthkit.autopsy.coreutils.ExecUtil;
 import org.sleuthkit.autopsy.coreutils.Logger;
 import org.sleuthkit.autopsy.coreutils.PlatformUtil;
@@ -123,6 +122,8 @@ public class LLeappAnalyzerIngestModule implements DataSourceIngestModule {
         "LLeappAnalyzerIngestModule.has.run=lLeapp",
         "LLeappAnalyzerIngestModule.lLeapp.cancelled=lLeapp run was canceled",
         "LLeappAnalyzerIngestModule.completed=lLeapp Processing Completed",
+        "# {0} - data source name",
+        "LLeappAnalyzerIngestModule.no.relevant.files=No files that lLeapp processes were found in {0}, lLeapp was not run.",
         "LLeappAnalyzerIngestModule.report.name=lLeapp Html Report"})
     @Override
     public ProcessResult process(Content dataSource, DataSourceIngestModuleProgress statusHelper) {
@@ -161,6 +162,9 @@ public class LLeappAnalyzerIngestModule implements DataSourceIngestModule {
             return ProcessResult.ERROR;
         }
 
+        LeappPathMatcher pathMatcher = LeappPathMatcher.compile(lLeappPathsToProcess);
+        boolean lLeappHasRun = false;
+
         if ((context.getDataSource() instanceof LocalFilesDataSource)) {
             /*
              * The data source may be local files from an iOS file system, or it
@@ -172,7 +176,12 @@ public class LLeappAnalyzerIngestModule implements DataSourceIngestModule {
                 statusHelper.switchToDeterminate(lLeappFilesToProcess.size());
                 Integer filesProcessedCount = 0;
                 for (AbstractFile lLeappFile : lLeappFilesToProcess) {
-                    processLLeappFile(dataSource, currentCase, statusHelper, filesProcessedCount, lLeappFile);
+                    if (LeappArchiveProbe.containsMatchingEntry(lLeappFile, pathMatcher)) {
+                        processLLeappFile(dataSource, currentCase, statusHelper, filesProcessedCount, lLeappFile);
+                        lLeappHasRun = true;
+                    } else {
+                        logger.log(Level.INFO, String.format("Archive %s contains no files lLeapp processes, skipping it", lLeappFile.getName())); //NON-NLS
+                    }
                     filesProcessedCount++;
                 }
             }
@@ -180,8 +189,16 @@ public class LLeappAnalyzerIngestModule implements DataSourceIngestModule {
 
         statusHelper.switchToIndeterminate();
         statusHelper.progress(Bundle.LLeappAnalyzerIngestModule_processing_lLeapp_results());
-        extractFilesFromDataSource(dataSource, lLeappPathsToProcess, tempOutputPath);
-        processLLeappFs(dataSource, currentCase, statusHelper, tempOutputPath.toString());
+        if (extractFilesFromDataSource(dataSource, pathMatcher, tempOutputPath) > 0) {
+            processLLeappFs(dataSource, currentCase, statusHelper, tempOutputPath.toString());
+            lLeappHasRun = true;
+        }
+
+        if (!lLeappHasRun && !context.dataSourceIngestIsCancelled()) {
+            logger.log(Level.INFO, String.format("No files lLeapp processes were found in data source %s, lLeapp was not run", dataSource.getName())); //NON-NLS
+            writeNoRelevantFilesMsgToIngestInbox(dataSource);
+            return ProcessResult.OK;
+        }
 
         IngestMessage message = IngestMessage.createMessage(IngestMessage.MessageType.DATA,
                 Bundle.LLeappAnalyzerIngestModule_has_run(),
@@ -386,40 +403,43 @@ public class LLeappAnalyzerIngestModule implements DataSourceIngestModule {
         return lLeappPathsToProcess;
     }
 
-    private void extractFilesFromDataSource(Content dataSource, List<String> lLeappPathsToProcess, Path moduleOutputPath) {
-        FileManager fileManager = getCurrentCase().getServices().getFileManager();
+    /**
+     * Extract the files matching the lLeapp path list from the data source.
+     * The path list is matched against the file table of the data source in a
+     * single pass.
+     *
+     * @param dataSource       datasource to extract the files from
+     * @param pathMatcher      the compiled lLeapp path list
+     * @param moduleOutputPath directory the files are written to
+     *
+     * @return the number of files found to extract
+     */
+    private int extractFilesFromDataSource(Content dataSource, LeappPathMatcher pathMatcher, Path moduleOutputPath) {
+        if (context.dataSourceIngestIsCancelled()) {
+            logger.log(Level.INFO, "lLeapp Analyser ingest module run was canceled"); //NON-NLS
+            return 0;
+        }
 
-        for (String fullFilePath : lLeappPathsToProcess) {
+        List<AbstractFile> lLeappFiles;
+        try {
+            lLeappFiles = pathMatcher.findMatchingFiles(getCurrentCase().getSleuthkitCase(), dataSource, context::dataSourceIngestIsCancelled);
+        } catch (TskCoreException ex) {
+            logger.log(Level.WARNING, "No files found to process", ex); //NON-NLS
+            return 0;
+        }
 
+        for (AbstractFile lLeappFile : lLeappFiles) {
             if (context.dataSourceIngestIsCancelled()) {
                 logger.log(Level.INFO, "lLeapp Analyser ingest module run was canceled"); //NON-NLS
                 break;
             }
 
-            String ffp = fullFilePath.replaceAll("\\*", "%");
-            ffp = FilenameUtils.normalize(ffp, true);
-            String fileName = FilenameUtils.getName(ffp);
-            String filePath = FilenameUtils.getPath(ffp);
+            Path parentPath = Paths.get(moduleOutputPath.toString(), lLeappFile.getParentPath());
+            File fileParentPath = new File(parentPath.toString());
 
-            List<AbstractFile> lLeappFiles = new ArrayList<>();
-            try {
-                if (filePath.isEmpty()) {
-                    lLeappFiles = fileManager.findFiles(dataSource, fileName); //NON-NLS                
-                } else {
-                    lLeappFiles = fileManager.findFiles(dataSource, fileName, filePath); //NON-NLS
-                }
-            } catch (TskCoreException ex) {
-                logger.log(Level.WARNING, "No files found to process"); //NON-NLS
-                return;
-            }
-
-            for (AbstractFile lLeappFile : lLeappFiles) {
-                Path parentPath = Paths.get(moduleOutputPath.toString(), lLeappFile.getParentPath());
-                File fileParentPath = new File(parentPath.toString());
-
-                extractFileToOutput(dataSource, lLeappFile, fileParentPath, parentPath);
-            }
+            extractFileToOutput(dataSource, lLeappFile, fileParentPath, parentPath);
         }
+        return lLeappFiles.size();
     }
 
     private void extractFileToOutput(Content dataSource, AbstractFile lLeappFile, File fileParentPath, Path parentPath) {
@@ -479,4 +499,17 @@ public class LLeappAnalyzerIngestModule implements DataSourceIngestModule {
         IngestServices.getInstance().postMessage(message);
     }
 
+    /**
+     * Writes a message to the ingest inbox saying lLeapp was not run because
+     * the data source has none of the files it processes.
+     *
+     * @param dataSource the data source that was checked
+     */
+    private void writeNoRelevantFilesMsgToIngestInbox(Content dataSource) {
+        IngestMessage message = IngestMessage.createMessage(IngestMessage.MessageType.INFO,
+                MODULE_NAME,
+                Bundle.LLeappAnalyzerIngestModule_no_relevant_files(dataSource.getName()));
+        IngestServices.getInstance().postMessage(message);
+    }
+
 }
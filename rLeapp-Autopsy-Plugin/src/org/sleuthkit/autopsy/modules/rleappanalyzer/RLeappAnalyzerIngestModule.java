@@ -40,7 +40,6 @@ import org.openide.util.NbBundle;
 import org.sleuthkit.autopsy.casemodule.Case;
 import static org.sleuthkit.autopsy.casemodule.Case.getCurrentCase;
 import org.sleuthkit.autopsy.casemodule.NoCurrentCaseException;
-import org.sleuthkit.autopsy.casemodule.services.FileManager;
 import org.sleuthkit.autopsy.coreutils.ExecUtil;
 import org.sleuthkit.autopsy.coreutils.Logger;
 import org.sleuthkit.autopsy.coreutils.PlatformUtil;
@@ -126,6 +125,8 @@ public class RLeappAnalyzerIngestModule implements DataSourceIngestModule {
         "RLeappAnalyzerIngestModule.has.run=rLeapp",
         "RLeappAnalyzerIngestModule.rLeapp.cancelled=rLeapp run was canceled",
         "RLeappAnalyzerIngestModule.completed=rLeapp Processing Completed",
+        "# {0} - data source name",
+        "RLeappAnalyzerIngestModule.no.relevant.files=No files that rLeapp processes were found in {0}, rLeapp was not run.",
         "RLeappAnalyzerIngestModule.report.name=rLeapp Html Report"})
     @Override
     public ProcessResult process(Content dataSource, DataSourceIngestModuleProgress statusHelper) {
@@ -156,6 +157,8 @@ public class RLeappAnalyzerIngestModule implements DataSourceIngestModule {
         statusHelper.progress(Bundle.RLeappAnalyzerIngestModule_starting_rLeapp(), 0);
 
         List<AbstractFile> rLeappFilesToProcess = new ArrayList<>();
+        LeappPathMatcher pathMatcher = LeappPathMatcher.compile(rLeappPathsToProcess);
+        boolean rLeappHasRun = false;
 
         if (context.getDataSource() instanceof LocalFilesDataSource && !(context.getDataSource().getName().contentEquals("QNX6-Image-File")) ) {
             rLeappFilesToProcess = LeappFileProcessor.findLeappFilesToProcess(dataSource);
@@ -163,16 +166,31 @@ public class RLeappAnalyzerIngestModule implements DataSourceIngestModule {
 
             Integer filesProcessedCount = 0;
             for (AbstractFile rLeappFile : rLeappFilesToProcess) {
-                processRLeappFile(dataSource, currentCase, statusHelper, filesProcessedCount, rLeappFile);
+                if (LeappArchiveProbe.containsMatchingEntry(rLeappFile, pathMatcher)) {
+                    processRLeappFile(dataSource, currentCase, statusHelper, filesProcessedCount, rLeappFile);
+                    rLeappHasRun = true;
+                } else {
+                    logger.log(Level.INFO, String.format("Archive %s contains no files rLeapp processes, skipping it", rLeappFile.getName())); //NON-NLS
+                }
                 filesProcessedCount++;
             }
        } else {
             // Process the logical image as a fs in rLeapp to make sure this is not a logical fs that was added
-            extractFilesFromImage(dataSource, rLeappPathsToProcess, tempOutputPath);
-            processRLeappFs(dataSource, currentCase, statusHelper, tempOutputPath.toString());
-            extractFilesFromImage(dataSource, rLeappPathsToProcess, tempOutputPath);
-            statusHelper.switchToDeterminate(rLeappFilesToProcess.size());
-            processRLeappFs(dataSource, currentCase, statusHelper, tempOutputPath.toString());
+            if (extractFilesFromImage(dataSource, pathMatcher, tempOutputPath) > 0) {
+                processRLeappFs(dataSource, currentCase, statusHelper, tempOutputPath.toString());
+                rLeappHasRun = true;
+            }
+            if (extractFilesFromImage(dataSource, pathMatcher, tempOutputPath) > 0) {
+                statusHelper.switchToDeterminate(rLeappFilesToProcess.size());
+                processRLeappFs(dataSource, currentCase, statusHelper, tempOutputPath.toString());
+                rLeappHasRun = true;
+            }
+        }
+
+        if (!rLeappHasRun && !context.dataSourceIngestIsCancelled()) {
+            logger.log(Level.INFO, String.format("No files rLeapp processes were found in data source %s, rLeapp was not run", dataSource.getName())); //NON-NLS
+            writeNoRelevantFilesMsgToIngestInbox(dataSource);
+            return ProcessResult.OK;
         }
        
         IngestMessage message = IngestMessage.createMessage(IngestMessage.MessageType.DATA,
@@ -383,40 +401,43 @@ public class RLeappAnalyzerIngestModule implements DataSourceIngestModule {
         return rLeappPathsToProcess;
     }
 
-    private void extractFilesFromImage(Content dataSource, List<String> rLeappPathsToProcess, Path moduleOutputPath) {
-        FileManager fileManager = getCurrentCase().getServices().getFileManager();
+    /**
+     * Extract the files matching the rLeapp path list from the data source.
+     * The path list is matched against the file table of the data source in a
+     * single pass.
+     *
+     * @param dataSource       datasource to extract the files from
+     * @param pathMatcher      the compiled rLeapp path list
+     * @param moduleOutputPath directory the files are written to
+     *
+     * @return the number of files found to extract
+     */
+    private int extractFilesFromImage(Content dataSource, LeappPathMatcher pathMatcher, Path moduleOutputPath) {
+        if (context.dataSourceIngestIsCancelled()) {
+            logger.log(Level.INFO, "rLeapp Analyser ingest module run was canceled"); //NON-NLS
+            return 0;
+        }
 
-        for (String fullFilePath : rLeappPathsToProcess) {
+        List<AbstractFile> rLeappFiles;
+        try {
+            rLeappFiles = pathMatcher.findMatchingFiles(getCurrentCase().getSleuthkitCase(), dataSource, context::dataSourceIngestIsCancelled);
+        } catch (TskCoreException ex) {
+            logger.log(Level.WARNING, "No files found to process", ex); //NON-NLS
+            return 0;
+        }
 
+        for (AbstractFile rLeappFile : rLeappFiles) {
             if (context.dataSourceIngestIsCancelled()) {
                 logger.log(Level.INFO, "rLeapp Analyser ingest module run was canceled"); //NON-NLS
                 break;
             }
 
-            String ffp = fullFilePath.replaceAll("\\*", "%");
-            ffp = FilenameUtils.normalize(ffp, true);
-            String fileName = FilenameUtils.getName(ffp);
-            String filePath = FilenameUtils.getPath(ffp);
-
-            List<AbstractFile> rLeappFiles = new ArrayList<>();
-            try {
-                if (filePath.isEmpty()) {
-                    rLeappFiles = fileManager.findFiles(dataSource, fileName); //NON-NLS                
-                } else {
-                    rLeappFiles = fileManager.findFiles(dataSource, fileName, filePath); //NON-NLS
-                }
-            } catch (TskCoreException ex) {
-                logger.log(Level.WARNING, "No files found to process"); //NON-NLS
-                return;
-            }
-
-            for (AbstractFile rLeappFile : rLeappFiles) {
-                Path parentPath = Paths.get(moduleOutputPath.toString(), rLeappFile.getParentPath());
-                File fileParentPath = new File(parentPath.toString());
+            Path parentPath = Paths.get(moduleOutputPath.toString(), rLeappFile.getParentPath());
+            File fileParentPath = new File(parentPath.toString());
 
-                extractFileToOutput(dataSource, rLeappFile, fileParentPath, parentPath);
-            }
+            extractFileToOutput(dataSource, rLeappFile, fileParentPath, parentPath);
         }
+        return rLeappFiles.size();
     }
 
     private void extractFileToOutput(Content dataSource, AbstractFile rLeappFile, File fileParentPath, Path parentPath) {
@@ -464,4 +485,17 @@ public class RLeappAnalyzerIngestModule implements DataSourceIngestModule {
             }
         }
     }
+
+    /**
+     * Writes a message to the ingest inbox saying rLeapp was not run because
+     * the data source has none of the files it processes.
+     *
+     * @param dataSource the data source that was checked
+     */
+    private void writeNoRelevantFilesMsgToIngestInbox(Content dataSource) {
+        IngestMessage message = IngestMessage.createMessage(IngestMessage.MessageType.INFO,
+                MODULE_NAME,
+                Bundle.RLeappAnalyzerIngestModule_no_relevant_files(dataSource.getName()));
+        IngestServices.getInstance().postMessage(message);
+    }
 }
@@ -0,0 +1,329 @@
+/*
+ * Autopsy Forensic Browser
+ *
+ * Copyright 2021 Basis Technology Corp.
+ * Contact: carrier <at> sleuthkit <dot> org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sleuthkit.autopsy.modules.vleappanalyzer;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.Level;
+import java.util.zip.GZIPInputStream;
+import org.sleuthkit.autopsy.coreutils.Logger;
+import org.sleuthkit.datamodel.AbstractFile;
+import org.sleuthkit.datamodel.ReadContentInputStream;
+import org.sleuthkit.datamodel.TskCoreException;
+
+/**
+ * Checks whether a zip or tar archive contains any entry that the Leapp
+ * program would process, without extracting anything. Zip files are probed
+ * through their central directory and tar files through their entry headers,
+ * so only the archive metadata is read.
+ */
+final class LeappArchiveProbe {
+
+    private static final Logger logger = Logger.getLogger(LeappArchiveProbe.class.getName());
+
+    private static final int ZIP_EOCD_SIGNATURE = 0x06054b50;
+    private static final int ZIP_EOCD_SIZE = 22;
+    private static final int ZIP_MAX_COMMENT_SIZE = 0xFFFF;
+    private static final int ZIP64_EOCD_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int ZIP64_EOCD_LOCATOR_SIZE = 20;
+    private static final int ZIP64_EOCD_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_EOCD_SIZE = 56;
+    private static final int ZIP_CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int ZIP_CENTRAL_HEADER_SIZE = 46;
+    private static final int ZIP_UTF8_FLAG = 0x0800;
+
+    private static final int TAR_BLOCK_SIZE = 512;
+    private static final char TAR_GNU_LONG_NAME = 'L';
+    private static final char TAR_PAX_HEADER = 'x';
+    private static final String TAR_PAX_PATH = "path"; //NON-NLS
+
+    private LeappArchiveProbe() {
+    }
+
+    /**
+     * Check if the archive has an entry matching the compiled path list. If
+     * the archive can not be read as a zip or tar file it is assumed to be
+     * relevant so the Leapp program still gets a chance to process it.
+     *
+     * @param archive     the zip, tar or tgz file
+     * @param pathMatcher the compiled Leapp path list
+     *
+     * @return true if the archive may contain files the Leapp program uses
+     */
+    static boolean containsMatchingEntry(AbstractFile archive, LeappPathMatcher pathMatcher) {
+        String extension = archive.getNameExtension() == null ? "" : archive.getNameExtension().toLowerCase();
+        try {
+            switch (extension) {
+                case "zip": //NON-NLS
+                    return zipContainsMatchingEntry(archive, pathMatcher);
+                case "tar": //NON-NLS
+                    try (InputStream tarStream = new BufferedInputStream(new ReadContentInputStream(archive))) {
+                        return tarContainsMatchingEntry(tarStream, pathMatcher);
+                    }
+                case "tgz": //NON-NLS
+                    try (InputStream tarStream = new GZIPInputStream(new BufferedInputStream(new ReadContentInputStream(archive)))) {
+                        return tarContainsMatchingEntry(tarStream, pathMatcher);
+                    }
+                default:
+                    return true;
+            }
+        } catch (IOException | TskCoreException ex) {
+            logger.log(Level.WARNING, String.format("Unable to list the entries of archive '%s' (id=%d), it will be processed anyway.",
+                    archive.getName(), archive.getId()), ex); //NON-NLS
+            return true;
+        }
+    }
+
+    /**
+     * Walk the central directory of a zip file.
+     */
+    private static boolean zipContainsMatchingEntry(AbstractFile archive, LeappPathMatcher pathMatcher) throws IOException, TskCoreException {
+        long archiveSize = archive.getSize();
+        int tailSize = (int) Math.min(archiveSize, ZIP_EOCD_SIZE + ZIP_MAX_COMMENT_SIZE);
+        long tailOffset = archiveSize - tailSize;
+        ByteBuffer tail = readBytes(archive, tailOffset, tailSize);
+
+        int eocdPos = -1;
+        for (int pos = tailSize - ZIP_EOCD_SIZE; pos >= 0; pos--) {
+            if (tail.getInt(pos) == ZIP_EOCD_SIGNATURE) {
+                eocdPos = pos;
+                break;
+            }
+        }
+        if (eocdPos < 0) {
+            throw new IOException("Zip end of central directory record not found"); //NON-NLS
+        }
+
+        long entryCount = Short.toUnsignedLong(tail.getShort(eocdPos + 10));
+        long centralDirOffset = Integer.toUnsignedLong(tail.getInt(eocdPos + 16));
+        if (entryCount == 0xFFFFL || centralDirOffset == 0xFFFFFFFFL) {
+            int locatorPos = eocdPos - ZIP64_EOCD_LOCATOR_SIZE;
+            if (locatorPos < 0 || tail.getInt(locatorPos) != ZIP64_EOCD_LOCATOR_SIGNATURE) {
+                throw new IOException("Zip64 end of central directory locator not found"); //NON-NLS
+            }
+            ByteBuffer zip64Eocd = readBytes(archive, tail.getLong(locatorPos + 8), ZIP64_EOCD_SIZE);
+            if (zip64Eocd.getInt(0) != ZIP64_EOCD_SIGNATURE) {
+                throw new IOException("Zip64 end of central directory record not found"); //NON-NLS
+            }
+            entryCount = zip64Eocd.getLong(32);
+            centralDirOffset = zip64Eocd.getLong(48);
+        }
+
+        ReadContentInputStream contentStream = new ReadContentInputStream(archive);
+        contentStream.seek(centralDirOffset);
+        try (InputStream centralDir = new BufferedInputStream(contentStream)) {
+            byte[] headerBytes = new byte[ZIP_CENTRAL_HEADER_SIZE];
+            ByteBuffer header = ByteBuffer.wrap(headerBytes).order(ByteOrder.LITTLE_ENDIAN);
+            for (long entry = 0; entry < entryCount; entry++) {
+                readFully(centralDir, headerBytes, headerBytes.length);
+                if (header.getInt(0) != ZIP_CENTRAL_HEADER_SIGNATURE) {
+                    throw new IOException("Corrupt zip central directory entry"); //NON-NLS
+                }
+                int flags = Short.toUnsignedInt(header.getShort(8));
+                int nameLength = Short.toUnsignedInt(header.getShort(28));
+                int extraLength = Short.toUnsignedInt(header.getShort(30));
+                int commentLength = Short.toUnsignedInt(header.getShort(32));
+
+                byte[] nameBytes = new byte[nameLength];
+                readFully(centralDir, nameBytes, nameLength);
+                String entryPath = new String(nameBytes, (flags & ZIP_UTF8_FLAG) != 0 ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1);
+                if (entryMatches(entryPath, pathMatcher)) {
+                    return true;
+                }
+                skipFully(centralDir, (long) extraLength + commentLength);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Walk the entry headers of a tar stream, skipping over the entry data.
+     */
+    private static boolean tarContainsMatchingEntry(InputStream tarStream, LeappPathMatcher pathMatcher) throws IOException {
+        byte[] header = new byte[TAR_BLOCK_SIZE];
+        String longName = null;
+        while (true) {
+            try {
+                readFully(tarStream, header, TAR_BLOCK_SIZE);
+            } catch (EOFException ex) {
+                return false;
+            }
+            if (isZeroBlock(header)) {
+                return false;
+            }
+            if (!tarChecksumMatches(header)) {
+                throw new IOException("Corrupt tar header"); //NON-NLS
+            }
+
+            long entrySize = parseTarNumber(header, 124, 12);
+            long paddedSize = (entrySize + TAR_BLOCK_SIZE - 1) / TAR_BLOCK_SIZE * TAR_BLOCK_SIZE;
+            char typeFlag = (char) header[156];
+
+            if (typeFlag == TAR_GNU_LONG_NAME || typeFlag == TAR_PAX_HEADER) {
+                byte[] data = new byte[(int) entrySize];
+                readFully(tarStream, data, data.length);
+                skipFully(tarStream, paddedSize - entrySize);
+                longName = (typeFlag == TAR_GNU_LONG_NAME) ? trimNul(new String(data, StandardCharsets.UTF_8)) : paxPath(data);
+                continue;
+            }
+
+            String entryPath = longName;
+            if (entryPath == null) {
+                entryPath = tarString(header, 0, 100);
+                if (new String(header, 257, 5, StandardCharsets.US_ASCII).equals("ustar")) { //NON-NLS
+                    String prefix = tarString(header, 345, 155);
+                    if (!prefix.isEmpty()) {
+                        entryPath = prefix + "/" + entryPath;
+                    }
+                }
+            }
+            longName = null;
+
+            if (entryMatches(entryPath, pathMatcher)) {
+                return true;
+            }
+            skipFully(tarStream, paddedSize);
+        }
+    }
+
+    /**
+     * Split an archive entry path into the name and parent path form used by
+     * the case database and check it against the path list.
+     */
+    private static boolean entryMatches(String entryPath, LeappPathMatcher pathMatcher) {
+        String path = entryPath.replace('\\', '/');
+        while (path.startsWith("./")) {
+            path = path.substring(2);
+        }
+        while (path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        int lastSeparator = path.lastIndexOf('/');
+        String name = path.substring(lastSeparator + 1);
+        String parentPath = (lastSeparator <= 0) ? "/" : "/" + path.substring(path.startsWith("/") ? 1 : 0, lastSeparator) + "/";
+        return !name.isEmpty() && pathMatcher.matches(name, parentPath);
+    }
+
+    private static String paxPath(byte[] data) {
+        String records = new String(data, StandardCharsets.UTF_8);
+        for (String record : records.split("\n")) {
+            int space = record.indexOf(' ');
+            int equals = record.indexOf('=');
+            if (space >= 0 && equals > space && record.substring(space + 1, equals).equals(TAR_PAX_PATH)) {
+                return record.substring(equals + 1);
+            }
+        }
+        return null;
+    }
+
+    private static boolean tarChecksumMatches(byte[] header) {
+        long storedChecksum = parseTarNumber(header, 148, 8);
+        long checksum = 0;
+        for (int i = 0; i < TAR_BLOCK_SIZE; i++) {
+            checksum += (i >= 148 && i < 156) ? ' ' : (header[i] & 0xFF);
+        }
+        return checksum == storedChecksum;
+    }
+
+    /**
+     * Parse a tar numeric field, either NUL/space terminated octal or the GNU
+     * base-256 form used for large sizes.
+     */
+    private static long parseTarNumber(byte[] header, int offset, int length) {
+        long value = 0;
+        if ((header[offset] & 0x80) != 0) {
+            value = header[offset] & 0x7F;
+            for (int i = offset + 1; i < offset + length; i++) {
+                value = (value << 8) | (header[i] & 0xFF);
+            }
+            return value;
+        }
+        for (int i = offset; i < offset + length; i++) {
+            byte b = header[i];
+            if (b == 0 || (b == ' ' && value != 0)) {
+                break;
+            }
+            if (b >= '0' && b <= '7') {
+                value = (value << 3) + (b - '0');
+            }
+        }
+        return value;
+    }
+
+    private static String tarString(byte[] header, int offset, int length) {
+        return trimNul(new String(header, offset, length, StandardCharsets.UTF_8));
+    }
+
+    private static String trimNul(String value) {
+        int nul = value.indexOf('\0');
+        return (nul >= 0) ? value.substring(0, nul) : value;
+    }
+
+    private static boolean isZeroBlock(byte[] block) {
+        for (byte b : block) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static ByteBuffer readBytes(AbstractFile archive, long offset, int length) throws IOException, TskCoreException {
+        byte[] buffer = new byte[length];
+        int totalRead = 0;
+        while (totalRead < length) {
+            int bytesRead = archive.read(buffer, offset + totalRead, length - totalRead);
+            if (bytesRead <= 0) {
+                throw new EOFException(String.format("Unexpected end of archive at offset %d", offset + totalRead)); //NON-NLS
+            }
+            totalRead += bytesRead;
+        }
+        return ByteBuffer.wrap(buffer).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void readFully(InputStream stream, byte[] buffer, int length) throws IOException {
+        int totalRead = 0;
+        while (totalRead < length) {
+            int bytesRead = stream.read(buffer, totalRead, length - totalRead);
+            if (bytesRead < 0) {
+                throw new EOFException("Unexpected end of archive"); //NON-NLS
+            }
+            totalRead += bytesRead;
+        }
+    }
+
+    private static void skipFully(InputStream stream, long length) throws IOException {
+        long remaining = length;
+        while (remaining > 0) {
+            long skipped = stream.skip(remaining);
+            if (skipped <= 0) {
+                if (stream.read() < 0) {
+                    throw new EOFException("Unexpected end of archive"); //NON-NLS
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+}
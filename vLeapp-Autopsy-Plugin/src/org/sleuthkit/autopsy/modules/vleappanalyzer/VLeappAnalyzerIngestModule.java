@@ -40,7 +40,6 @@ import org.openide.util.NbBundle;
 import org.sleuthkit.autopsy.casemodule.Case;
 import static org.sleuthkit.autopsy.casemodule.Case.getCurrentCase;
 import org.sleuthkit.autopsy.casemodule.NoCurrentCaseException;
-import org.sleuthkit.autopsy.casemodule.services.FileManager;
 import org.sleuthkit.autopsy.coreutils.ExecUtil;
 import org.sleuthkit.autopsy.coreutils.Logger;
 import org.sleuthkit.autopsy.coreutils.PlatformUtil;
@@ -125,6 +124,8 @@ public class VLeappAnalyzerIngestModule implements DataSourceIngestModule {
         "VLeappAnalyzerIngestModule.has.run=vLeapp",
         "VLeappAnalyzerIngestModule.vLeapp.cancelled=vLeapp run was canceled",
         "VLeappAnalyzerIngestModule.completed=vLeapp Processing Completed",
+        "# {0} - data source name",
+        "VLeappAnalyzerIngestModule.no.relevant.files=No files that vLeapp processes were found in {0}, vLeapp was not run.",
         "VLeappAnalyzerIngestModule.report.name=vLeapp Html Report"})
     @Override
     public ProcessResult process(Content dataSource, DataSourceIngestModuleProgress statusHelper) {
@@ -155,6 +156,8 @@ public class VLeappAnalyzerIngestModule implements DataSourceIngestModule {
         statusHelper.progress(Bundle.VLeappAnalyzerIngestModule_starting_vLeapp(), 0);
 
         List<AbstractFile> vLeappFilesToProcess = new ArrayList<>();
+        LeappPathMatcher pathMatcher = LeappPathMatcher.compile(vLeappPathsToProcess);
+        boolean vLeappHasRun = false;
 
         if (context.getDataSource() instanceof LocalFilesDataSource && !(context.getDataSource().getName().contentEquals("QNX6-Image-File")) ) {
             vLeappFilesToProcess = LeappFileProcessor.findLeappFilesToProcess(dataSource);
@@ -162,16 +165,31 @@ public class VLeappAnalyzerIngestModule implements DataSourceIngestModule {
 
             Integer filesProcessedCount = 0;
             for (AbstractFile vLeappFile : vLeappFilesToProcess) {
-                processVLeappFile(dataSource, currentCase, statusHelper, filesProcessedCount, vLeappFile);
+                if (LeappArchiveProbe.containsMatchingEntry(vLeappFile, pathMatcher)) {
+                    processVLeappFile(dataSource, currentCase, statusHelper, filesProcessedCount, vLeappFile);
+                    vLeappHasRun = true;
+                } else {
+                    logger.log(Level.INFO, String.format("Archive %s contains no files vLeapp processes, skipping it", vLeappFile.getName())); //NON-NLS
+                }
                 filesProcessedCount++;
             }
        } else {
             // Process the logical image as a fs in vLeapp to make sure this is not a logical fs that was added
-            extractFilesFromImage(dataSource, vLeappPathsToProcess, tempOutputPath);
-            processVLeappFs(dataSource, currentCase, statusHelper, tempOutputPath.toString());
-            extractFilesFromImage(dataSource, vLeappPathsToProcess, tempOutputPath);
-            statusHelper.switchToDeterminate(vLeappFilesToProcess.size());
-            processVLeappFs(dataSource, currentCase, statusHelper, tempOutputPath.toString());
+            if (extractFilesFromImage(dataSource, pathMatcher, tempOutputPath) > 0) {
+                processVLeappFs(dataSource, currentCase, statusHelper, tempOutputPath.toString());
+                vLeappHasRun = true;
+            }
+            if (extractFilesFromImage(dataSource, pathMatcher, tempOutputPath) > 0) {
+                statusHelper.switchToDeterminate(vLeappFilesToProcess.size());
+                processVLeappFs(dataSource, currentCase, statusHelper, tempOutputPath.toString());
+                vLeappHasRun = true;
+            }
+        }
+
+        if (!vLeappHasRun && !context.dataSourceIngestIsCancelled()) {
+            logger.log(Level.INFO, String.format("No files vLeapp processes were found in data source %s, vLeapp was not run", dataSource.getName())); //NON-NLS
+            writeNoRelevantFilesMsgToIngestInbox(dataSource);
+            return ProcessResult.OK;
         }
        
         IngestMessage message = IngestMessage.createMessage(IngestMessage.MessageType.DATA,
@@ -382,40 +400,43 @@ public class VLeappAnalyzerIngestModule implements DataSourceIngestModule {
         return vLeappPathsToProcess;
     }
 
-    private void extractFilesFromImage(Content dataSource, List<String> vLeappPathsToProcess, Path moduleOutputPath) {
-        FileManager fileManager = getCurrentCase().getServices().getFileManager();
+    /**
+     * Extract the files matching the vLeapp path list from the data source.
+     * The path list is matched against the file table of the data source in a
+     * single pass.
+     *
+     * @param dataSource       datasource to extract the files from
+     * @param pathMatcher      the compiled vLeapp path list
+     * @param moduleOutputPath directory the files are written to
+     *
+     * @return the number of files found to extract
+     */
+    private int extractFilesFromImage(Content dataSource, LeappPathMatcher pathMatcher, Path moduleOutputPath) {
+        if (context.dataSourceIngestIsCancelled()) {
+            logger.log(Level.INFO, "vLeapp Analyser ingest module run was canceled"); //NON-NLS
+            return 0;
+        }
 
-        for (String fullFilePath : vLeappPathsToProcess) {
+        List<AbstractFile> vLeappFiles;
+        try {
+            vLeappFiles = pathMatcher.findMatchingFiles(getCurrentCase().getSleuthkitCase(), dataSource, context::dataSourceIngestIsCancelled);
+        } catch (TskCoreException ex) {
+            logger.log(Level.WARNING, "No files found to process", ex); //NON-NLS
+            return 0;
+        }
 
+        for (AbstractFile vLeappFile : vLeappFiles) {
             if (context.dataSourceIngestIsCancelled()) {
                 logger.log(Level.INFO, "vLeapp Analyser ingest module run was canceled"); //NON-NLS
                 break;
             }
 
-            String ffp = fullFilePath.replaceAll("\\*", "%");
-            ffp = FilenameUtils.normalize(ffp, true);
-            String fileName = FilenameUtils.getName(ffp);
-            String filePath = FilenameUtils.getPath(ffp);
-
-            List<AbstractFile> vLeappFiles = new ArrayList<>();
-            try {
-                if (filePath.isEmpty()) {
-                    vLeappFiles = fileManager.findFiles(dataSource, fileName); //NON-NLS                
-                } else {
-                    vLeappFiles = fileManager.findFiles(dataSource, fileName, filePath); //NON-NLS
-                }
-            } catch (TskCoreException ex) {
-                logger.log(Level.WARNING, "No files found to process"); //NON-NLS
-                return;
-            }
-
-            for (AbstractFile vLeappFile : vLeappFiles) {
-                Path parentPath = Paths.get(moduleOutputPath.toString(), vLeappFile.getParentPath());
-                File fileParentPath = new File(parentPath.toString());
+            Path parentPath = Paths.get(moduleOutputPath.toString(), vLeappFile.getParentPath());
+            File fileParentPath = new File(parentPath.toString());
 
-                extractFileToOutput(dataSource, vLeappFile, fileParentPath, parentPath);
-            }
+            extractFileToOutput(dataSource, vLeappFile, fileParentPath, parentPath);
         }
+        return vLeappFiles.size();
     }
 
     private void extractFileToOutput(Content dataSource, AbstractFile vLeappFile, File fileParentPath, Path parentPath) {
@@ -463,4 +484,17 @@ public class VLeappAnalyzerIngestModule implements DataSourceIngestModule {
             }
         }
     }
+
+    /**
+     * Writes a message to the ingest inbox saying vLeapp was not run because
+     * the data source has none of the files it processes.
+     *
+     * @param dataSource the data source that was checked
+     */
+    private void writeNoRelevantFilesMsgToIngestInbox(Content dataSource) {
+        IngestMessage message = IngestMessage.createMessage(IngestMessage.MessageType.INFO,
+                MODULE_NAME,
+                Bundle.VLeappAnalyzerIngestModule_no_relevant_files(dataSource.getName()));
+        IngestServices.getInstance().postMessage(message);
+    }
 }